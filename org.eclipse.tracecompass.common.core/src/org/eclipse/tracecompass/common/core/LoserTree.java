@@ -0,0 +1,248 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.common.core;
+
+/**
+ * Tournament tree ("loser tree") for the k-way merge of sorted sources, keyed
+ * by a primitive <code>long</code>, typically a timestamp.
+ *
+ * Each source has a slot, which holds the key of its current element, or is
+ * empty if the source has no element. The winner is the slot with the
+ * smallest key; equal keys are won by the lowest slot. Changing the key of the
+ * winner, which is what a merge does for each element, only replays the
+ * matches on the path from its slot to the root, so it costs log(k) key
+ * comparisons and no allocation. Changing another slot marks the tree to be
+ * rebuilt the next time the winner is needed.
+ *
+ * This class is not thread-safe.
+ *
+ * @author agent
+ * @since 1.0
+ */
+public final class LoserTree {
+
+    private static final int NONE = -1;
+
+    private final int fSize;
+    private final long[] fKeys;
+    private final boolean[] fPresent;
+
+    /*
+     * fTree[0] is the winner, fTree[1..size-1] the loser of the match played
+     * at each internal node. Slot i is the leaf at node (size + i).
+     */
+    private final int[] fTree;
+    private boolean fValid = false;
+    private int fCount = 0;
+
+    /**
+     * Constructor. All the slots are empty.
+     *
+     * @param size
+     *            The number of slots (sources to merge)
+     */
+    public LoserTree(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Negative size: " + size); //$NON-NLS-1$
+        }
+        fSize = size;
+        fKeys = new long[size];
+        fPresent = new boolean[size];
+        fTree = new int[Math.max(size, 1)];
+        fTree[0] = NONE;
+    }
+
+    /**
+     * Get the number of slots
+     *
+     * @return The number of slots
+     */
+    public int getCapacity() {
+        return fSize;
+    }
+
+    /**
+     * Get the number of slots that are not empty
+     *
+     * @return The number of slots with a key
+     */
+    public int size() {
+        return fCount;
+    }
+
+    /**
+     * Check if all the slots are empty
+     *
+     * @return true if there is no winner
+     */
+    public boolean isEmpty() {
+        return fCount == 0;
+    }
+
+    /**
+     * Check if a slot has a key
+     *
+     * @param slot
+     *            The slot
+     * @return true if the slot is not empty
+     */
+    public boolean contains(int slot) {
+        return fPresent[slot];
+    }
+
+    /**
+     * Get the key of a slot
+     *
+     * @param slot
+     *            The slot
+     * @return The key of the slot, meaningless if the slot is empty
+     */
+    public long getKey(int slot) {
+        return fKeys[slot];
+    }
+
+    /**
+     * Set the key of a slot
+     *
+     * @param slot
+     *            The slot
+     * @param key
+     *            The new key of the slot
+     */
+    public void set(int slot, long key) {
+        if (!fPresent[slot]) {
+            fPresent[slot] = true;
+            fCount++;
+        }
+        fKeys[slot] = key;
+        changed(slot);
+    }
+
+    /**
+     * Empty a slot, when its source has no more elements
+     *
+     * @param slot
+     *            The slot
+     */
+    public void remove(int slot) {
+        if (fPresent[slot]) {
+            fPresent[slot] = false;
+            fCount--;
+            changed(slot);
+        }
+    }
+
+    /**
+     * Empty all the slots
+     */
+    public void clear() {
+        for (int i = 0; i < fSize; i++) {
+            fPresent[i] = false;
+        }
+        fCount = 0;
+        fValid = false;
+    }
+
+    /**
+     * Get the winner, the slot with the smallest key
+     *
+     * @return The winning slot, or -1 if all the slots are empty
+     */
+    public int peek() {
+        if (!fValid) {
+            rebuild();
+        }
+        return fTree[0];
+    }
+
+    /**
+     * Get the key of the winner
+     *
+     * @return The smallest key
+     * @throws IllegalStateException
+     *             If all the slots are empty
+     */
+    public long peekKey() {
+        int winner = peek();
+        if (winner == NONE) {
+            throw new IllegalStateException("No winner, all the slots are empty"); //$NON-NLS-1$
+        }
+        return fKeys[winner];
+    }
+
+    // ------------------------------------------------------------------------
+    // Helpers
+    // ------------------------------------------------------------------------
+
+    private void changed(int slot) {
+        if (fValid && fTree[0] == slot) {
+            replay(slot);
+        } else {
+            fValid = false;
+        }
+    }
+
+    /* Returns true if slot a beats slot b */
+    private boolean beats(int a, int b) {
+        if (!fPresent[a]) {
+            return false;
+        }
+        if (!fPresent[b]) {
+            return true;
+        }
+        long ka = fKeys[a];
+        long kb = fKeys[b];
+        return ka < kb || (ka == kb && a < b);
+    }
+
+    private void replay(int slot) {
+        int winner = slot;
+        for (int node = (fSize + slot) >>> 1; node > 0; node >>>= 1) {
+            int loser = fTree[node];
+            if (beats(loser, winner)) {
+                fTree[node] = winner;
+                winner = loser;
+            }
+        }
+        fTree[0] = (fPresent[winner] ? winner : NONE);
+    }
+
+    private void rebuild() {
+        fValid = true;
+        if (fCount == 0) {
+            fTree[0] = NONE;
+            return;
+        }
+        if (fSize == 1) {
+            fTree[0] = 0;
+            return;
+        }
+        /* Winner of the match at each node, leaves included */
+        int[] winners = new int[2 * fSize];
+        for (int i = 0; i < fSize; i++) {
+            winners[fSize + i] = i;
+        }
+        for (int node = fSize - 1; node > 0; node--) {
+            int left = winners[2 * node];
+            int right = winners[2 * node + 1];
+            if (beats(right, left)) {
+                winners[node] = right;
+                fTree[node] = left;
+            } else {
+                winners[node] = left;
+                fTree[node] = right;
+            }
+        }
+        fTree[0] = winners[1];
+    }
+}
@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.ctf.core.tests.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.tracecompass.ctf.core.CTFReaderException;
+import org.eclipse.tracecompass.internal.ctf.core.trace.StreamInputPacketIndex;
+import org.eclipse.tracecompass.internal.ctf.core.trace.StreamInputPacketIndexEntry;
+import org.eclipse.tracecompass.internal.ctf.core.trace.StreamInputPacketIndexFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the packet index side files, {@link StreamInputPacketIndexFile}.
+ *
+ * @author agent
+ */
+public class CTFStreamInputPacketIndexFileTest {
+
+    private File fStreamFile;
+    private File fIndexFile;
+    private StreamInputPacketIndex fIndex;
+
+    /**
+     * Create a fake stream file and its index
+     *
+     * @throws IOException
+     *             If the stream file could not be created
+     * @throws CTFReaderException
+     *             If the index entries are invalid
+     */
+    @Before
+    public void setUp() throws IOException, CTFReaderException {
+        fStreamFile = File.createTempFile("stream", null);
+        writeStreamFile(64);
+        fIndexFile = StreamInputPacketIndexFile.getIndexFile(fStreamFile.getParentFile(), fStreamFile);
+
+        fIndex = new StreamInputPacketIndex();
+        for (int i = 0; i < 4; i++) {
+            Map<String, Object> attributes = new HashMap<>();
+            attributes.put("timestamp_begin", (long) i * 100);
+            attributes.put("cpu_id", 3L);
+            attributes.put("ratio", 0.5);
+            attributes.put("device", "dev3");
+            fIndex.append(new StreamInputPacketIndexEntry(i * 128, 128, 96,
+                    i * 100, i * 100 + 99, i, "CPU3", 3, attributes));
+        }
+    }
+
+    /**
+     * Delete the temporary files
+     */
+    @After
+    public void tearDown() {
+        fStreamFile.delete();
+        fIndexFile.delete();
+    }
+
+    private void writeStreamFile(int size) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(fStreamFile)) {
+            out.write(new byte[size]);
+        }
+    }
+
+    /**
+     * Test that an index is read back as it was written
+     *
+     * @throws IOException
+     *             If the index file could not be written
+     */
+    @Test
+    public void testWriteRead() throws IOException {
+        StreamInputPacketIndexFile.write(fIndexFile, fStreamFile, fIndex);
+        List<StreamInputPacketIndexEntry> entries = StreamInputPacketIndexFile.read(fIndexFile, fStreamFile);
+        assertNotNull(entries);
+        assertEquals(fIndex.size(), entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            StreamInputPacketIndexEntry expected = fIndex.getElement(i);
+            StreamInputPacketIndexEntry actual = entries.get(i);
+            assertEquals(expected.getOffsetBits(), actual.getOffsetBits());
+            assertEquals(expected.getOffsetBytes(), actual.getOffsetBytes());
+            assertEquals(expected.getPacketSizeBits(), actual.getPacketSizeBits());
+            assertEquals(expected.getContentSizeBits(), actual.getContentSizeBits());
+            assertEquals(expected.getTimestampBegin(), actual.getTimestampBegin());
+            assertEquals(expected.getTimestampEnd(), actual.getTimestampEnd());
+            assertEquals(expected.getLostEvents(), actual.getLostEvents());
+            assertEquals(expected.getTarget(), actual.getTarget());
+            assertEquals(expected.getTargetId(), actual.getTargetId());
+            assertEquals(expected.getAttributes(), actual.getAttributes());
+        }
+    }
+
+    /**
+     * Test that the index is not used anymore once the stream file changed
+     *
+     * @throws IOException
+     *             If the files could not be written
+     */
+    @Test
+    public void testStreamFileChanged() throws IOException {
+        StreamInputPacketIndexFile.write(fIndexFile, fStreamFile, fIndex);
+        writeStreamFile(128);
+        assertNull(StreamInputPacketIndexFile.read(fIndexFile, fStreamFile));
+    }
+
+    /**
+     * Test reading a missing or invalid index file
+     *
+     * @throws IOException
+     *             If the index file could not be written
+     */
+    @Test
+    public void testInvalidFile() throws IOException {
+        assertNull(StreamInputPacketIndexFile.read(fIndexFile, fStreamFile));
+        try (FileOutputStream out = new FileOutputStream(fIndexFile)) {
+            out.write(new byte[] { 1, 2, 3 });
+        }
+        assertNull(StreamInputPacketIndexFile.read(fIndexFile, fStreamFile));
+    }
+}
@@ -11,7 +11,14 @@
 
 package org.eclipse.tracecompass.ctf.core.tests.trace;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.eclipse.tracecompass.ctf.core.CTFReaderException;
 import org.eclipse.tracecompass.internal.ctf.core.trace.StreamInputPacketIndex;
@@ -51,4 +58,81 @@ public class CTFStreamInputPacketIndexTest {
         assertNotNull(fixture.getElement(0));
     }
 
-}
\ No newline at end of file
+    private static StreamInputPacketIndex createIndex(int nbPackets) throws CTFReaderException {
+        StreamInputPacketIndex index = new StreamInputPacketIndex();
+        for (int i = 0; i < nbPackets; i++) {
+            Map<String, Object> attributes = new HashMap<>();
+            attributes.put("timestamp_begin", i * 100L);
+            if (i % 2 == 0) {
+                attributes.put("device", "dev" + (i % 3));
+            }
+            index.append(new StreamInputPacketIndexEntry(i * 8192L, 8192L, 8000L,
+                    i * 100L, i * 100L + 99, i, (i % 2 == 0) ? "CPU1" : null, 1, attributes));
+        }
+        return index;
+    }
+
+    /**
+     * Test that the entries are rebuilt with the values they were added with
+     */
+    @Test
+    public void testGetElement() throws CTFReaderException {
+        /* More than the initial capacity, so the columns grow */
+        StreamInputPacketIndex index = createIndex(1000);
+        assertEquals(1000, index.size());
+        for (int i = 0; i < 1000; i++) {
+            StreamInputPacketIndexEntry entry = index.getElement(i);
+            assertEquals(i * 8192L, entry.getOffsetBits());
+            assertEquals(8192L, entry.getPacketSizeBits());
+            assertEquals(8000L, entry.getContentSizeBits());
+            assertEquals(i * 100L, entry.getTimestampBegin());
+            assertEquals(i * 100L + 99, entry.getTimestampEnd());
+            assertEquals(i, entry.getLostEvents());
+            assertEquals(1, entry.getTargetId());
+            assertEquals(i * 100L, entry.lookupAttribute("timestamp_begin"));
+            if (i % 2 == 0) {
+                assertEquals("CPU1", entry.getTarget());
+                assertEquals("dev" + (i % 3), entry.lookupAttribute("device"));
+            } else {
+                assertNull(entry.getTarget());
+                assertNull(entry.lookupAttribute("device"));
+            }
+        }
+        assertEquals(999 * 8192L, index.lastElement().getOffsetBits());
+    }
+
+    /**
+     * Test that the entry requested last is not rebuilt, and the accessors
+     * that do not build the entries
+     */
+    @Test
+    public void testCachedElement() throws CTFReaderException {
+        StreamInputPacketIndex index = createIndex(10);
+        StreamInputPacketIndexEntry entry = index.getElement(4);
+        assertSame(entry, index.getElement(4));
+        assertEquals(entry.getOffsetBits(), index.getElement(5).getOffsetBits() - 8192L);
+        assertEquals(400L, index.getTimestampBegin(4));
+        assertEquals(499L, index.getTimestampEnd(4));
+        assertEquals(4 * 8192L, index.getOffsetBits(4));
+        assertEquals(8192L, index.getPacketSizeBits(4));
+        assertEquals(Arrays.asList("timestamp_begin", "device"), Arrays.asList(index.getAttributeNames().toArray()));
+    }
+
+    /**
+     * Test the binary searches
+     */
+    @Test
+    public void testSearch() throws CTFReaderException {
+        StreamInputPacketIndex index = createIndex(100);
+        assertEquals(0, index.searchIndex(0));
+        assertEquals(0, index.searchIndex(99));
+        assertEquals(1, index.searchIndex(100));
+        assertEquals(42, index.searchIndex(4250));
+        assertEquals(99, index.searchIndex(100000));
+        assertEquals(42, index.search(4250).nextIndex());
+
+        assertEquals(42, index.indexOf(index.getElement(42)));
+        assertEquals(-1, index.indexOf(new StreamInputPacketIndexEntry(0, 0, 0, 50, 60, 0, null, 0, new HashMap<String, Object>())));
+        assertEquals(0, new StreamInputPacketIndex().searchIndex(10));
+    }
+}
@@ -23,11 +23,14 @@ import java.nio.ByteOrder;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.FileAttribute;
+import java.util.Arrays;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.tracecompass.ctf.core.CTFReaderException;
 import org.eclipse.tracecompass.ctf.core.trace.CTFTrace;
 import org.eclipse.tracecompass.ctf.core.trace.CTFTraceReader;
+import org.eclipse.tracecompass.ctf.core.trace.CTFTraceWatcher;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -155,4 +158,46 @@ public class CTFTraceGrowingStreamTest {
             assertNull(reader.getCurrentEventDef());
         }
     }
+
+    /**
+     * Test following the trace with a watcher, with a packet that is written
+     * in two parts
+     *
+     * @throws CTFReaderException won't happen
+     * @throws IOException won't happen
+     * @throws InterruptedException won't happen
+     */
+    @Test
+    public void testWatcher() throws CTFReaderException, IOException, InterruptedException {
+        try (CTFTraceWatcher watcher = new CTFTraceWatcher(fFixture);
+                CTFTraceReader reader = new CTFTraceReader(fFixture, true);) {
+            long generation = watcher.getGeneration();
+            assertEquals("0x29", reader.getCurrentEventDef().getFields().getDefinition("f").toString());
+            reader.advance();
+
+            try (FileOutputStream fos = new FileOutputStream(fGrowingStream, true)) {
+                fos.write(Arrays.copyOf(fPackets[1], 16));
+            }
+            generation = waitForEvent(watcher, reader, generation, 1);
+            assertNull(reader.getCurrentEventDef());
+
+            try (FileOutputStream fos = new FileOutputStream(fGrowingStream, true)) {
+                fos.write(Arrays.copyOfRange(fPackets[1], 16, 32));
+            }
+            waitForEvent(watcher, reader, generation, 10);
+            assertNotNull(reader.getCurrentEventDef());
+            assertEquals("0xbab4face", reader.getCurrentEventDef().getFields().getDefinition("f").toString());
+        }
+    }
+
+    private static long waitForEvent(CTFTraceWatcher watcher, CTFTraceReader reader, long generation, long timeoutSec) throws CTFReaderException, InterruptedException {
+        long current = generation;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSec);
+        while (reader.getCurrentEventDef() == null && System.nanoTime() < deadline) {
+            current = watcher.awaitChange(current, 100, TimeUnit.MILLISECONDS);
+            reader.update();
+            reader.advance();
+        }
+        return current;
+    }
 }
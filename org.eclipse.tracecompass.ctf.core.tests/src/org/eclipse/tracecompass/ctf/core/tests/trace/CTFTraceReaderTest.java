@@ -17,6 +17,10 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assume.assumeTrue;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
 import org.eclipse.tracecompass.ctf.core.CTFReaderException;
 import org.eclipse.tracecompass.ctf.core.event.EventDefinition;
 import org.eclipse.tracecompass.ctf.core.tests.shared.CtfTestTrace;
@@ -324,6 +328,78 @@ public class CTFTraceReaderTest {
         assertTrue(result);
     }
 
+    /**
+     * Test that a reader on a trace whose packets are already indexed, here
+     * from the index files saved by a previous indexing, starts at the first
+     * event of the first packet.
+     *
+     * @throws CTFReaderException
+     *             error
+     * @throws IOException
+     *             If the index directory could not be created
+     */
+    @Test
+    public void testFirstEventFromIndex() throws CTFReaderException, IOException {
+        File indexDirectory = Files.createTempDirectory("ctf-index").toFile();
+        try {
+            new CTFTrace(testTrace.getPath()).indexPackets(indexDirectory);
+            File[] indexFiles = indexDirectory.listFiles();
+            assertNotNull(indexFiles);
+            assertTrue(indexFiles.length > 0);
+
+            CTFTrace indexed = new CTFTrace(testTrace.getPath());
+            indexed.indexPackets(indexDirectory);
+            try (CTFTraceReader expected = new CTFTraceReader(new CTFTrace(testTrace.getPath()));
+                    CTFTraceReader actual = new CTFTraceReader(indexed);) {
+                assertEquals(expected.getStartTime(), actual.getStartTime());
+                assertSameEvents(expected, actual, 1);
+            }
+        } finally {
+            File[] indexFiles = indexDirectory.listFiles();
+            if (indexFiles != null) {
+                for (File indexFile : indexFiles) {
+                    indexFile.delete();
+                }
+            }
+            indexDirectory.delete();
+        }
+    }
+
+    /**
+     * Test that decoding the streams ahead gives the same events, in the same
+     * order, as decoding them as they are read, also after a seek.
+     *
+     * @throws CTFReaderException
+     *             error
+     */
+    @Test
+    public void testDecodeAhead() throws CTFReaderException {
+        try (CTFTraceReader sequential = new CTFTraceReader(testTrace.getTrace());
+                CTFTraceReader pipelined = new CTFTraceReader(testTrace.getTrace());) {
+            pipelined.setDecodeAhead(true);
+            assertTrue(pipelined.isDecodeAhead());
+            assertSameEvents(sequential, pipelined, 10000);
+
+            sequential.seek(fixture.getStartTime() + 1000000);
+            pipelined.seek(fixture.getStartTime() + 1000000);
+            assertSameEvents(sequential, pipelined, 10000);
+
+            pipelined.setDecodeAhead(false);
+            assertSameEvents(sequential, pipelined, 10000);
+        }
+    }
+
+    private static void assertSameEvents(CTFTraceReader expected, CTFTraceReader actual, int count) throws CTFReaderException {
+        for (int i = 0; i < count && expected.hasMoreEvents(); i++) {
+            EventDefinition expectedEvent = expected.getCurrentEventDef();
+            EventDefinition actualEvent = actual.getCurrentEventDef();
+            assertEquals(expectedEvent.getTimestamp(), actualEvent.getTimestamp());
+            assertEquals(expectedEvent.getDeclaration().getName(), actualEvent.getDeclaration().getName());
+            assertEquals(expectedEvent.getCPU(), actualEvent.getCPU());
+            assertEquals(expected.advance(), actual.advance());
+        }
+    }
+
     /**
      * @return
      */
@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.ctf.core.tests.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.tracecompass.internal.ctf.core.trace.LttngPacketIndexFile;
+import org.eclipse.tracecompass.internal.ctf.core.trace.StreamInputPacketIndexEntry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the reading of LTTng's packet index files,
+ * {@link LttngPacketIndexFile}.
+ *
+ * @author agent
+ */
+public class LttngPacketIndexFileTest {
+
+    private static final int MAGIC = 0xC1F1DCC1;
+    private static final int ENTRY_SIZE = 9 * 8;
+    private static final long PACKET_SIZE_BYTES = 4096;
+    private static final long STREAM_FILE_SIZE = 3 * PACKET_SIZE_BYTES;
+    private static final Long STREAM_ID = 2L;
+
+    private File fIndexFile;
+    private StreamInputPacketIndexEntry fFirstPacket;
+
+    /**
+     * Create the first packet entry
+     *
+     * @throws IOException
+     *             If the temporary file could not be created
+     */
+    @Before
+    public void setUp() throws IOException {
+        fIndexFile = File.createTempFile("stream", ".idx");
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("timestamp_begin", 100L);
+        attributes.put("timestamp_end", 199L);
+        attributes.put("events_discarded", 0L);
+        attributes.put("cpu_id", 1L);
+        fFirstPacket = new StreamInputPacketIndexEntry(0, PACKET_SIZE_BYTES * 8,
+                PACKET_SIZE_BYTES * 8 - 64, 100, 199, 0, "CPU1", 1, attributes);
+    }
+
+    /**
+     * Delete the temporary file
+     */
+    @After
+    public void tearDown() {
+        fIndexFile.delete();
+    }
+
+    private void writeIndex(int magic, long streamId, long... offsets) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(16 + offsets.length * ENTRY_SIZE);
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        buffer.putInt(magic);
+        buffer.putInt(1);
+        buffer.putInt(1);
+        buffer.putInt(ENTRY_SIZE);
+        for (int i = 0; i < offsets.length; i++) {
+            buffer.putLong(offsets[i]);
+            buffer.putLong(PACKET_SIZE_BYTES * 8);
+            buffer.putLong(PACKET_SIZE_BYTES * 8 - 64);
+            buffer.putLong(100 * (i + 1));
+            buffer.putLong(100 * (i + 1) + 99);
+            buffer.putLong(i * 5);
+            buffer.putLong(streamId);
+            buffer.putLong(0);
+            buffer.putLong(i);
+        }
+        try (FileOutputStream out = new FileOutputStream(fIndexFile)) {
+            out.write(buffer.array());
+        }
+    }
+
+    /**
+     * Test reading a valid index file
+     *
+     * @throws IOException
+     *             If the index file could not be written
+     */
+    @Test
+    public void testRead() throws IOException {
+        writeIndex(MAGIC, STREAM_ID, 0, PACKET_SIZE_BYTES, 2 * PACKET_SIZE_BYTES);
+        List<StreamInputPacketIndexEntry> entries = LttngPacketIndexFile.read(fIndexFile, STREAM_FILE_SIZE, STREAM_ID, fFirstPacket);
+        assertNotNull(entries);
+        assertEquals(3, entries.size());
+        assertSame(fFirstPacket, entries.get(0));
+
+        StreamInputPacketIndexEntry last = entries.get(2);
+        assertEquals(2 * PACKET_SIZE_BYTES * 8, last.getOffsetBits());
+        assertEquals(2 * PACKET_SIZE_BYTES, last.getOffsetBytes());
+        assertEquals(PACKET_SIZE_BYTES * 8, last.getPacketSizeBits());
+        assertEquals(300, last.getTimestampBegin());
+        assertEquals(399, last.getTimestampEnd());
+        assertEquals(5, last.getLostEvents());
+        assertEquals("CPU1", last.getTarget());
+        assertEquals(1, last.getTargetId());
+        assertEquals(300L, last.lookupAttribute("timestamp_begin"));
+        assertEquals(1L, last.lookupAttribute("cpu_id"));
+    }
+
+    /**
+     * Test that an incomplete index can still be used
+     *
+     * @throws IOException
+     *             If the index file could not be written
+     */
+    @Test
+    public void testReadPartial() throws IOException {
+        writeIndex(MAGIC, STREAM_ID, 0, PACKET_SIZE_BYTES);
+        List<StreamInputPacketIndexEntry> entries = LttngPacketIndexFile.read(fIndexFile, STREAM_FILE_SIZE, STREAM_ID, fFirstPacket);
+        assertNotNull(entries);
+        assertEquals(2, entries.size());
+    }
+
+    /**
+     * Test that invalid or inconsistent index files are rejected
+     *
+     * @throws IOException
+     *             If the index file could not be written
+     */
+    @Test
+    public void testInvalid() throws IOException {
+        File missing = new File(fIndexFile.getPath() + ".missing");
+        assertNull(LttngPacketIndexFile.read(missing, STREAM_FILE_SIZE, STREAM_ID, fFirstPacket));
+
+        writeIndex(0x12345678, STREAM_ID, 0, PACKET_SIZE_BYTES);
+        assertNull(LttngPacketIndexFile.read(fIndexFile, STREAM_FILE_SIZE, STREAM_ID, fFirstPacket));
+
+        /* Gap between the packets */
+        writeIndex(MAGIC, STREAM_ID, 0, 2 * PACKET_SIZE_BYTES);
+        assertNull(LttngPacketIndexFile.read(fIndexFile, STREAM_FILE_SIZE, STREAM_ID, fFirstPacket));
+
+        /* Packet past the end of the stream file */
+        writeIndex(MAGIC, STREAM_ID, 0, PACKET_SIZE_BYTES, 2 * PACKET_SIZE_BYTES, 3 * PACKET_SIZE_BYTES);
+        assertNull(LttngPacketIndexFile.read(fIndexFile, STREAM_FILE_SIZE, STREAM_ID, fFirstPacket));
+
+        /* Index of another stream */
+        writeIndex(MAGIC, STREAM_ID + 1, 0, PACKET_SIZE_BYTES);
+        assertNull(LttngPacketIndexFile.read(fIndexFile, STREAM_FILE_SIZE, STREAM_ID, fFirstPacket));
+    }
+}
@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.ctf.core.tests.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileAttribute;
+
+import org.antlr.runtime.CommonToken;
+import org.antlr.runtime.tree.CommonTree;
+import org.antlr.runtime.tree.Tree;
+import org.eclipse.tracecompass.internal.ctf.core.event.metadata.MetadataCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the cache of the metadata syntax trees
+ *
+ * @author agent
+ */
+public class MetadataCacheTest {
+
+    private static final String METADATA = "trace { major = 1; minor = 8; };"; //$NON-NLS-1$
+
+    /* The cache does not interpret the token types */
+    private static final int TRACE = 110;
+    private static final int EXPRESSION = 86;
+    private static final int STRING = 121;
+    private static final int DECIMAL = 118;
+
+    private File fDirectory;
+
+    /**
+     * Create the cache directory and empty the in-memory cache
+     *
+     * @throws IOException
+     *             If the directory could not be created
+     */
+    @Before
+    public void setUp() throws IOException {
+        fDirectory = Files.createTempDirectory("metadatacache", new FileAttribute<?>[] {}).toFile();
+        MetadataCache.clear();
+    }
+
+    /**
+     * Delete the cache directory
+     */
+    @After
+    public void tearDown() {
+        File[] files = fDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        fDirectory.delete();
+        MetadataCache.clear();
+    }
+
+    private static CommonTree node(int type, String text, int line) {
+        CommonToken token = new CommonToken(type, text);
+        token.setLine(line);
+        return new CommonTree(token);
+    }
+
+    private static CommonTree createTree() {
+        CommonTree root = new CommonTree();
+        CommonTree trace = node(TRACE, "trace", 1); //$NON-NLS-1$
+        CommonTree major = node(EXPRESSION, null, 1);
+        major.addChild(node(STRING, "major", 1)); //$NON-NLS-1$
+        major.addChild(node(DECIMAL, "1", 1)); //$NON-NLS-1$
+        trace.addChild(major);
+        CommonTree minor = node(EXPRESSION, null, 2);
+        minor.addChild(node(STRING, "minor", 2)); //$NON-NLS-1$
+        minor.addChild(node(DECIMAL, "8", 2)); //$NON-NLS-1$
+        trace.addChild(minor);
+        root.addChild(trace);
+        return root;
+    }
+
+    private static void assertTreeEquals(Tree expected, Tree actual) {
+        assertEquals(expected.isNil(), actual.isNil());
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getText(), actual.getText());
+        assertEquals(expected.getLine(), actual.getLine());
+        assertEquals(expected.getChildCount(), actual.getChildCount());
+        for (int i = 0; i < expected.getChildCount(); i++) {
+            assertTreeEquals(expected.getChild(i), actual.getChild(i));
+        }
+    }
+
+    /**
+     * Test that the hash only depends on the text
+     */
+    @Test
+    public void testHash() {
+        String hash = MetadataCache.hash(METADATA);
+        assertEquals(40, hash.length());
+        assertEquals(hash, MetadataCache.hash(new String(METADATA)));
+        assertFalse(hash.equals(MetadataCache.hash(METADATA + ' ')));
+    }
+
+    /**
+     * Test getting a tree that is in memory
+     */
+    @Test
+    public void testMemory() {
+        String hash = MetadataCache.hash(METADATA);
+        assertNull(MetadataCache.get(hash, null));
+        CommonTree tree = createTree();
+        MetadataCache.put(hash, tree, null);
+        CommonTree cached = MetadataCache.get(hash, null);
+        assertNotNull(cached);
+        assertTreeEquals(tree, cached);
+        MetadataCache.clear();
+        assertNull(MetadataCache.get(hash, null));
+    }
+
+    /**
+     * Test getting a tree from a cache file, once the in-memory cache is
+     * emptied
+     */
+    @Test
+    public void testFile() {
+        String hash = MetadataCache.hash(METADATA);
+        CommonTree tree = createTree();
+        MetadataCache.put(hash, tree, fDirectory);
+        File[] files = fDirectory.listFiles();
+        assertNotNull(files);
+        assertEquals(1, files.length);
+        MetadataCache.clear();
+        CommonTree cached = MetadataCache.get(hash, fDirectory);
+        assertNotNull(cached);
+        assertTreeEquals(tree, cached);
+    }
+
+    /**
+     * Test that a corrupted cache file is ignored
+     *
+     * @throws IOException
+     *             If the cache file could not be written
+     */
+    @Test
+    public void testCorruptedFile() throws IOException {
+        String hash = MetadataCache.hash(METADATA);
+        MetadataCache.put(hash, createTree(), fDirectory);
+        MetadataCache.clear();
+        File[] files = fDirectory.listFiles();
+        assertNotNull(files);
+        File file = files[0];
+        byte[] data = Files.readAllBytes(file.toPath());
+        byte[] truncated = new byte[data.length / 2];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        Files.write(file.toPath(), truncated);
+        assertNull(MetadataCache.get(hash, fDirectory));
+
+        Files.write(file.toPath(), new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+        assertNull(MetadataCache.get(hash, fDirectory));
+        assertTrue(file.delete());
+        assertNull(MetadataCache.get(hash, fDirectory));
+    }
+}
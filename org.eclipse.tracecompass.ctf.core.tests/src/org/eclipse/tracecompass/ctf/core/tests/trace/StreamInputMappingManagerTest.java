@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.ctf.core.tests.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import org.eclipse.tracecompass.ctf.core.CTFReaderException;
+import org.eclipse.tracecompass.ctf.core.event.io.BitBuffer;
+import org.eclipse.tracecompass.ctf.core.event.types.IntegerDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.IntegerDefinition;
+import org.eclipse.tracecompass.ctf.core.event.types.StructDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.StructDefinition;
+import org.eclipse.tracecompass.internal.ctf.core.event.LazyEventFields;
+import org.eclipse.tracecompass.internal.ctf.core.event.types.FixedStructLayout;
+import org.eclipse.tracecompass.internal.ctf.core.trace.StreamInputMappingManager;
+import org.eclipse.tracecompass.internal.ctf.core.trace.StreamInputMappingManager.Slice;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the shared mappings of the stream files,
+ * {@link StreamInputMappingManager}.
+ *
+ * @author agent
+ */
+public class StreamInputMappingManagerTest {
+
+    private static final int WINDOW_SIZE = 4096;
+    private static final int FILE_SIZE = 3 * WINDOW_SIZE;
+
+    private File fFile;
+    private FileChannel fFc;
+    private StreamInputMappingManager fManager;
+
+    /**
+     * Create a file where each byte is its position modulo 251
+     *
+     * @throws IOException
+     *             If the temporary file could not be created
+     */
+    @Before
+    public void setUp() throws IOException {
+        fFile = File.createTempFile("stream", ".ctf");
+        byte[] data = new byte[FILE_SIZE];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i % 251);
+        }
+        try (FileOutputStream out = new FileOutputStream(fFile)) {
+            out.write(data);
+        }
+        fFc = FileChannel.open(fFile.toPath(), StandardOpenOption.READ);
+        fManager = new StreamInputMappingManager(WINDOW_SIZE);
+    }
+
+    /**
+     * Close and delete the file
+     *
+     * @throws IOException
+     *             If the file could not be closed
+     */
+    @After
+    public void tearDown() throws IOException {
+        fFc.close();
+        fFile.delete();
+    }
+
+    private static void assertContent(Slice slice, long position, int size) {
+        ByteBuffer buffer = slice.getBuffer();
+        assertEquals(0, buffer.position());
+        assertEquals(size, buffer.limit());
+        for (int i = 0; i < size; i++) {
+            assertEquals((byte) ((position + i) % 251), buffer.get(i));
+        }
+    }
+
+    /**
+     * Test that the slices of a same window share it, and that it is dropped
+     * once they are all released
+     *
+     * @throws IOException
+     *             If the file could not be mapped
+     */
+    @Test
+    public void testSharedWindow() throws IOException {
+        Slice first = fManager.acquire(fFc, 0, 1024);
+        Slice second = fManager.acquire(fFc, 1024, 2048);
+        assertEquals(1, fManager.getWindowCount());
+        assertContent(first, 0, 1024);
+        assertContent(second, 1024, 2048);
+
+        first.release();
+        first.release();
+        assertEquals(1, fManager.getWindowCount());
+        second.release();
+        assertEquals(0, fManager.getWindowCount());
+    }
+
+    /**
+     * Test the slices in other windows, and the slices crossing the end of a
+     * window
+     *
+     * @throws IOException
+     *             If the file could not be mapped
+     */
+    @Test
+    public void testWindows() throws IOException {
+        Slice first = fManager.acquire(fFc, 0, 1024);
+        Slice other = fManager.acquire(fFc, WINDOW_SIZE + 512, 512);
+        assertEquals(2, fManager.getWindowCount());
+        assertContent(other, WINDOW_SIZE + 512, 512);
+
+        Slice crossing = fManager.acquire(fFc, WINDOW_SIZE - 512, 1024);
+        assertEquals(3, fManager.getWindowCount());
+        assertContent(crossing, WINDOW_SIZE - 512, 1024);
+
+        first.release();
+        other.release();
+        crossing.release();
+        assertEquals(0, fManager.getWindowCount());
+    }
+
+    /**
+     * Test that the events decoded lazily from a packet do not depend on its
+     * window: the window is dropped once the packet is released, and the
+     * file is then overwritten, while the event is still to be decoded.
+     *
+     * @throws IOException
+     *             If the file could not be mapped or written
+     * @throws CTFReaderException
+     *             If the event could not be decoded
+     */
+    @Test
+    public void testEventOutlivesWindow() throws IOException, CTFReaderException {
+        StructDeclaration declaration = new StructDeclaration(8);
+        declaration.addField("a", IntegerDeclaration.UINT_8_DECL);
+        declaration.addField("b", IntegerDeclaration.UINT_32B_DECL);
+        FixedStructLayout layout = FixedStructLayout.create(declaration);
+        assertNotNull(layout);
+
+        int position = 100;
+        Slice slice = fManager.acquire(fFc, 0, 1024);
+        BitBuffer input = new BitBuffer(slice.getBuffer());
+        LazyEventFields lazyFields = new LazyEventFields(declaration, layout, null, input, position * Byte.SIZE);
+        slice.release();
+        assertEquals(0, fManager.getWindowCount());
+
+        /* The old mapping, if anything still used it, would see the zeroes */
+        try (RandomAccessFile file = new RandomAccessFile(fFile, "rw")) {
+            file.write(new byte[1024]);
+        }
+
+        StructDefinition fields = lazyFields.decode();
+        assertEquals(position % 251, ((IntegerDefinition) fields.getDefinition("a")).getValue());
+        long expected = 0;
+        for (int i = 1; i <= 4; i++) {
+            expected = (expected << Byte.SIZE) | ((position + i) % 251);
+        }
+        assertEquals(expected, ((IntegerDefinition) fields.getDefinition("b")).getValue());
+        assertEquals(expected, ((IntegerDefinition) lazyFields.decodeField("b")).getValue());
+    }
+}
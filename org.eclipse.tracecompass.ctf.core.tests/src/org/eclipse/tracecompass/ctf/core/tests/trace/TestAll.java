@@ -28,13 +28,17 @@ import org.junit.runners.Suite;
     CTFTraceTest.class,
     CTFTraceGrowingTest.class,
     IOstructgenTest.class,
+    LttngPacketIndexFileTest.class,
+    MetadataCacheTest.class,
     MetadataTest.class,
     CTFStreamInputPacketIndexEntryTest.class,
+    CTFStreamInputPacketIndexFileTest.class,
     CTFStreamInputPacketIndexTest.class,
     CTFStreamInputReaderTest.class,
     CTFStreamInputReaderTimestampComparatorTest.class,
     CTFStreamInputTest.class,
     CTFStreamTest.class,
+    StreamInputMappingManagerTest.class,
     TraceReadAllTracesTest.class,
     UtilsTest.class
 })
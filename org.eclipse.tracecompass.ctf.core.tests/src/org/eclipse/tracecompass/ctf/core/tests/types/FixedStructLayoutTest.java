@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.ctf.core.tests.types;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.eclipse.tracecompass.ctf.core.CTFReaderException;
+import org.eclipse.tracecompass.ctf.core.event.io.BitBuffer;
+import org.eclipse.tracecompass.ctf.core.event.scope.LexicalScope;
+import org.eclipse.tracecompass.ctf.core.event.types.Encoding;
+import org.eclipse.tracecompass.ctf.core.event.types.EnumDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.EnumDefinition;
+import org.eclipse.tracecompass.ctf.core.event.types.FloatDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.IntegerDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.IntegerDefinition;
+import org.eclipse.tracecompass.ctf.core.event.types.StringDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.StructDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.StructDefinition;
+import org.eclipse.tracecompass.ctf.core.tests.io.Util;
+import org.eclipse.tracecompass.internal.ctf.core.event.LazyEventFields;
+import org.eclipse.tracecompass.internal.ctf.core.event.types.FixedStructLayout;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link FixedStructLayout}, its compiled decoding tables, and the
+ * lazy decoding of event fields, {@link LazyEventFields}.
+ *
+ * @author agent
+ */
+public class FixedStructLayoutTest {
+
+    private StructDeclaration fDeclaration;
+
+    /**
+     * Create a struct with fields of different sizes and alignments
+     */
+    @Before
+    public void setUp() {
+        fDeclaration = new StructDeclaration(1);
+        fDeclaration.addField("a", IntegerDeclaration.UINT_8_DECL);
+        fDeclaration.addField("b", IntegerDeclaration.createDeclaration(32, false, 10, ByteOrder.BIG_ENDIAN, Encoding.NONE, "", 32));
+        fDeclaration.addField("c", IntegerDeclaration.UINT_5B_DECL);
+        fDeclaration.addField("d", IntegerDeclaration.UINT_64B_DECL);
+    }
+
+    /**
+     * Test the offsets of the fields
+     */
+    @Test
+    public void testLayout() {
+        FixedStructLayout layout = FixedStructLayout.create(fDeclaration);
+        assertNotNull(layout);
+        assertEquals(0, layout.getOffset(layout.indexOf("a")));
+        assertEquals(32, layout.getOffset(layout.indexOf("b")));
+        assertEquals(64, layout.getOffset(layout.indexOf("c")));
+        assertEquals(72, layout.getOffset(layout.indexOf("d")));
+        assertEquals(136, layout.getSize());
+        assertEquals(-1, layout.indexOf("e"));
+        assertEquals(32, layout.getStart(8));
+        assertEquals(64, layout.getStart(64));
+    }
+
+    /**
+     * Test that a struct with a variable size has no fixed layout
+     */
+    @Test
+    public void testVariableSize() {
+        fDeclaration.addField("str", StringDeclaration.getStringDeclaration());
+        assertNull(FixedStructLayout.create(fDeclaration));
+    }
+
+    /**
+     * Test that decoding lazily gives the same values, and the same end
+     * position, as decoding right away
+     *
+     * @throws CTFReaderException
+     *             If the buffer could not be read
+     */
+    @Test
+    public void testLazyDecoding() throws CTFReaderException {
+        ByteBuffer buffer = Util.testMemory(ByteBuffer.allocate(32));
+        for (int i = 0; i < buffer.capacity(); i++) {
+            buffer.put(i, (byte) (i * 7 + 3));
+        }
+        BitBuffer eager = new BitBuffer(buffer);
+        eager.position(8);
+        StructDefinition expected = fDeclaration.createDefinition(null, LexicalScope.FIELDS, eager);
+
+        FixedStructLayout layout = FixedStructLayout.create(fDeclaration);
+        assertNotNull(layout);
+        long start = layout.getStart(8);
+        assertEquals(eager.position(), start + layout.getSize());
+
+        BitBuffer input = new BitBuffer(buffer);
+        LazyEventFields lazyFields = new LazyEventFields(fDeclaration, layout, null, input, start);
+        StructDefinition actual = lazyFields.decode();
+        for (String field : fDeclaration.getFieldsList()) {
+            IntegerDefinition expectedField = (IntegerDefinition) expected.getDefinition(field);
+            assertEquals(expectedField.getValue(), ((IntegerDefinition) actual.getDefinition(field)).getValue());
+            assertEquals(expectedField.getValue(), ((IntegerDefinition) lazyFields.decodeField(field)).getValue());
+        }
+        assertNull(lazyFields.decodeField("e"));
+    }
+
+    /**
+     * Test that the compiled decoding tables give the same definition, and
+     * the same end position, as the normal decoding
+     *
+     * @throws CTFReaderException
+     *             If the buffer could not be read
+     */
+    @Test
+    public void testCompiledDecoding() throws CTFReaderException {
+        EnumDeclaration enumDecl = new EnumDeclaration(IntegerDeclaration.UINT_8_DECL);
+        enumDecl.add(0, 127, "low");
+        enumDecl.add(128, 255, "high");
+        fDeclaration.addField("e", enumDecl);
+        fDeclaration.addField("f", IntegerDeclaration.INT_32L_DECL);
+        fDeclaration.addField("g", IntegerDeclaration.INT_64L_DECL);
+
+        ByteBuffer buffer = Util.testMemory(ByteBuffer.allocate(64));
+        for (int i = 0; i < buffer.capacity(); i++) {
+            buffer.put(i, (byte) (i * 31 + 5));
+        }
+        BitBuffer eager = new BitBuffer(buffer);
+        eager.position(3);
+        StructDefinition expected = fDeclaration.createDefinition(null, LexicalScope.FIELDS, eager);
+
+        FixedStructLayout layout = FixedStructLayout.create(fDeclaration);
+        assertNotNull(layout);
+        assertTrue(layout.isCompiled());
+        BitBuffer input = new BitBuffer(buffer);
+        input.position(3);
+        StructDefinition actual = layout.createDefinition(fDeclaration, null, LexicalScope.FIELDS, input);
+        assertEquals(eager.position(), input.position());
+        assertEquals(ByteOrder.BIG_ENDIAN, input.getByteOrder());
+
+        assertEquals(expected.getFieldNames(), actual.getFieldNames());
+        for (String field : fDeclaration.getFieldsList()) {
+            assertEquals(expected.getDefinition(field).toString(), actual.getDefinition(field).toString());
+        }
+        assertEquals(((EnumDefinition) expected.getDefinition("e")).getValue(), ((EnumDefinition) actual.getDefinition("e")).getValue());
+    }
+
+    /**
+     * Test that a struct with a float field is not compiled
+     */
+    @Test
+    public void testNotCompiled() {
+        fDeclaration.addField("float", new FloatDeclaration(8, 24, ByteOrder.BIG_ENDIAN, 8));
+        FixedStructLayout layout = FixedStructLayout.create(fDeclaration);
+        assertNotNull(layout);
+        assertFalse(layout.isCompiled());
+    }
+}
@@ -32,6 +32,7 @@ import org.junit.runners.Suite;
     EventDeclarationTest.class,
     EventHeaderDeclarationTest.class,
     FloatDeclarationTest.class,
+    FixedStructLayoutTest.class,
     FloatDefinitionTest.class,
     IntegerDeclarationTest.class,
     IntegerDefinitionTest.class,
@@ -16,13 +16,16 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.tracecompass.ctf.core.CTFReaderException;
 import org.eclipse.tracecompass.ctf.core.event.scope.IDefinitionScope;
 import org.eclipse.tracecompass.ctf.core.event.scope.LexicalScope;
 import org.eclipse.tracecompass.ctf.core.event.types.Definition;
+import org.eclipse.tracecompass.ctf.core.event.types.IDefinition;
 import org.eclipse.tracecompass.ctf.core.event.types.StructDeclaration;
 import org.eclipse.tracecompass.ctf.core.event.types.StructDefinition;
 import org.eclipse.tracecompass.ctf.core.trace.CTFStreamInputReader;
 import org.eclipse.tracecompass.internal.ctf.core.event.EventDeclaration;
+import org.eclipse.tracecompass.internal.ctf.core.event.LazyEventFields;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
@@ -62,9 +65,16 @@ public final class EventDefinition implements IDefinitionScope {
     private final StructDefinition fPacketContext;
 
     /**
-     * The event fields structure definition.
+     * The event fields structure definition. Decoded on first access if the
+     * event was read in lazy decoding mode.
      */
-    private final StructDefinition fFields;
+    private StructDefinition fFields;
+
+    /**
+     * The not yet decoded event fields, if the event was read in lazy
+     * decoding mode. Null once the fields are decoded.
+     */
+    private LazyEventFields fLazyFields;
 
     /**
      * The StreamInputReader that reads this event definition.
@@ -109,6 +119,40 @@ public final class EventDefinition implements IDefinitionScope {
         fStreamContext = streamContext;
     }
 
+    /**
+     * Creates an event definition whose fields will only be decoded when they
+     * are accessed.
+     *
+     * @param declaration
+     *            The corresponding event declaration
+     * @param streamInputReader
+     *            The SIR from where this EventDef was read
+     * @param timestamp
+     *            event timestamp
+     * @param streamContext
+     *            the stream context
+     * @param eventContext
+     *            The event context
+     * @param packetContext
+     *            the packet context
+     * @param lazyFields
+     *            The event fields, not decoded yet
+     * @return The event definition
+     * @since 1.0
+     */
+    public static EventDefinition createLazy(IEventDeclaration declaration,
+            CTFStreamInputReader streamInputReader,
+            long timestamp,
+            StructDefinition streamContext,
+            StructDefinition eventContext,
+            StructDefinition packetContext,
+            @NonNull LazyEventFields lazyFields) {
+        EventDefinition eventDef = new EventDefinition(declaration, streamInputReader,
+                timestamp, streamContext, eventContext, packetContext, null);
+        eventDef.fLazyFields = lazyFields;
+        return eventDef;
+    }
+
     // ------------------------------------------------------------------------
     // Getters/Setters/Predicates
     // ------------------------------------------------------------------------
@@ -140,10 +184,41 @@ public final class EventDefinition implements IDefinitionScope {
      *
      * @return the fields of a definition in struct form. Can be null.
      */
-    public StructDefinition getFields() {
+    public synchronized StructDefinition getFields() {
+        LazyEventFields lazyFields = fLazyFields;
+        if (lazyFields != null) {
+            try {
+                fFields = lazyFields.decode();
+            } catch (CTFReaderException e) {
+                throw new IllegalStateException("Failed to decode the event fields", e); //$NON-NLS-1$
+            }
+            fLazyFields = null;
+        }
         return fFields;
     }
 
+    /**
+     * Gets a single field of the event. In lazy decoding mode, if the other
+     * fields were not accessed yet, only this field is decoded.
+     *
+     * @param fieldName
+     *            The name of the field
+     * @return The field definition, or null if there is no such field
+     * @since 1.0
+     */
+    public synchronized IDefinition lookupField(String fieldName) {
+        LazyEventFields lazyFields = fLazyFields;
+        if (lazyFields != null) {
+            try {
+                return lazyFields.decodeField(fieldName);
+            } catch (CTFReaderException e) {
+                throw new IllegalStateException("Failed to decode the event field " + fieldName, e); //$NON-NLS-1$
+            }
+        }
+        StructDefinition fields = fFields;
+        return (fields == null ? null : fields.getDefinition(fieldName));
+    }
+
     /**
      * Gets the context of this event without the context of the stream
      *
@@ -251,7 +326,7 @@ public final class EventDefinition implements IDefinitionScope {
         if (lookupPath.equals("context")) { //$NON-NLS-1$
             return fEventContext;
         } else if (lookupPath.equals("fields")) { //$NON-NLS-1$
-            return fFields;
+            return getFields();
         } else {
             return null;
         }
@@ -275,12 +350,13 @@ public final class EventDefinition implements IDefinitionScope {
             }
         }
 
-        if (fFields != null) {
-            list = fFields.getDeclaration().getFieldsList();
+        StructDefinition fields = getFields();
+        if (fields != null) {
+            list = fields.getDeclaration().getFieldsList();
 
             for (String field : list) {
                 retString.append(field
-                        + " : " + fFields.getDefinition(field).toString() + cr); //$NON-NLS-1$
+                        + " : " + fields.getDefinition(field).toString() + cr); //$NON-NLS-1$
             }
         }
 
@@ -172,6 +172,59 @@ public final class BitBuffer {
         return (signed ? retVal : (retVal & INT_MASK));
     }
 
+    /**
+     * Absolute <i>get</i> method for reading several integers in one pass.
+     *
+     * Reads the integers described by the given tables, at the given offsets
+     * from <i>position</i>, and stores their values in <i>dst</i>. The current
+     * position and byte order of the buffer are not changed.
+     *
+     * @param position
+     *            The position from which the offsets are computed, in bits
+     * @param offsets
+     *            The offsets of the integers, in bits
+     * @param lengths
+     *            The lengths of the integers, in bits (at most 64)
+     * @param signed
+     *            The sign extended flags of the integers
+     * @param byteOrders
+     *            The byte orders of the integers, or null to use the byte
+     *            order of the buffer
+     * @param dst
+     *            The array where to store the values, at least as large as
+     *            the tables
+     * @throws CTFReaderException
+     *             An error occurred reading the data. If the buffer is read
+     *             beyond its end, this exception will be raised.
+     * @since 1.0
+     */
+    public void get(long position, long[] offsets, int[] lengths, boolean[] signed,
+            ByteOrder[] byteOrders, long[] dst) throws CTFReaderException {
+        final long previousPosition = fPosition;
+        final ByteOrder previousByteOrder = fByteOrder;
+        try {
+            for (int i = 0; i < offsets.length; i++) {
+                ByteOrder byteOrder = byteOrders[i];
+                if (byteOrder != null && byteOrder != fByteOrder) {
+                    setByteOrder(byteOrder);
+                }
+                fPosition = position + offsets[i];
+                int length = lengths[i];
+                if (length == BIT_LONG && (fPosition & (BIT_CHAR - 1)) == 0 && canRead(BIT_LONG)) {
+                    /* Byte-aligned long, read it directly */
+                    dst[i] = fBuffer.getLong((int) (fPosition / BIT_CHAR));
+                } else {
+                    dst[i] = get(length, signed[i]);
+                }
+            }
+        } finally {
+            fPosition = previousPosition;
+            if (fByteOrder != previousByteOrder) {
+                setByteOrder(previousByteOrder);
+            }
+        }
+    }
+
     /**
      * Relative bulk <i>get</i> method.
      *
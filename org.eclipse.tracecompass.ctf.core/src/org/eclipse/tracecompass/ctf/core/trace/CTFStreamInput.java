@@ -12,12 +12,15 @@
 
 package org.eclipse.tracecompass.ctf.core.trace;
 
+import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
+
 import java.io.File;
 import java.io.IOException;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
-import java.nio.channels.FileChannel.MapMode;
 import java.nio.file.StandardOpenOption;
+import java.util.List;
 import java.util.UUID;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -30,10 +33,12 @@ import org.eclipse.tracecompass.ctf.core.event.types.Definition;
 import org.eclipse.tracecompass.ctf.core.event.types.IntegerDefinition;
 import org.eclipse.tracecompass.ctf.core.event.types.StructDeclaration;
 import org.eclipse.tracecompass.ctf.core.event.types.StructDefinition;
-import org.eclipse.tracecompass.internal.ctf.core.SafeMappedByteBuffer;
 import org.eclipse.tracecompass.internal.ctf.core.event.types.ArrayDefinition;
+import org.eclipse.tracecompass.internal.ctf.core.trace.LttngPacketIndexFile;
+import org.eclipse.tracecompass.internal.ctf.core.trace.StreamInputMappingManager;
 import org.eclipse.tracecompass.internal.ctf.core.trace.StreamInputPacketIndex;
 import org.eclipse.tracecompass.internal.ctf.core.trace.StreamInputPacketIndexEntry;
+import org.eclipse.tracecompass.internal.ctf.core.trace.StreamInputPacketIndexFile;
 
 /**
  * <b><u>StreamInput</u></b>
@@ -64,6 +69,11 @@ public class CTFStreamInput implements IDefinitionScope {
      */
     private final StreamInputPacketIndex fIndex;
 
+    /**
+     * The memory mappings of the file, shared by the readers of this input
+     */
+    private final StreamInputMappingManager fMappings = new StreamInputMappingManager();
+
     private long fTimestampEnd;
 
     /**
@@ -136,6 +146,15 @@ public class CTFStreamInput implements IDefinitionScope {
         return fIndex;
     }
 
+    /**
+     * The memory mappings of the stream file, shared by all its readers
+     *
+     * @return the mapping manager
+     */
+    StreamInputMappingManager getMappings() {
+        return fMappings;
+    }
+
     /**
      * Gets the filename of the streamInput file.
      *
@@ -190,15 +209,42 @@ public class CTFStreamInput implements IDefinitionScope {
 
     /**
      * Create the index for this trace file.
+     *
+     * If the tracer wrote a packet index for this file (LTTng's
+     * <code>index/&lt;stream&gt;.idx</code>) and it is consistent with the file,
+     * it is used directly. Otherwise, the packets are indexed by reading their
+     * headers, as they are needed.
      */
-    public void setupIndex() {
-
-        /*
-         * The BitBuffer to extract data from the StreamInput
-         */
-        BitBuffer bitBuffer = new BitBuffer();
-        bitBuffer.setByteOrder(getStream().getTrace().getByteOrder());
+    public synchronized void setupIndex() {
+        if (!fIndex.isEmpty()) {
+            return;
+        }
+        File indexFile = LttngPacketIndexFile.getIndexFile(fFile);
+        if (!indexFile.isFile()) {
+            return;
+        }
 
+        try (FileChannel fc = FileChannel.open(fFile.toPath(), StandardOpenOption.READ)) {
+            if (fc == null || fc.size() == 0) {
+                return;
+            }
+            /* The first packet is used to validate the index */
+            StreamInputPacketIndexEntry firstPacket = createPacketIndexEntry(fc, 0);
+            List<StreamInputPacketIndexEntry> entries = LttngPacketIndexFile.read(indexFile, fc.size(), getStream().getId(), firstPacket);
+            if (entries != null) {
+                fIndex.appendAll(entries);
+                for (StreamInputPacketIndexEntry entry : entries.subList(1, entries.size())) {
+                    fLostSoFar += entry.getLostEvents();
+                    setTimestampEnd(entry.getTimestampEnd());
+                }
+                return;
+            }
+        } catch (IOException | CTFReaderException e) {
+            /* Fall back to reading the packet headers */
+        }
+        /* Undo the reading of the first packet */
+        fLostSoFar = 0;
+        fTimestampEnd = 0;
     }
 
     /**
@@ -211,57 +257,206 @@ public class CTFStreamInput implements IDefinitionScope {
      * @throws CTFReaderException
      *             If there was a problem reading the packed header
      */
-    public boolean addPacketHeaderIndex() throws CTFReaderException {
-        long currentPosBits = 0L;
-        if (!fIndex.isEmpty()) {
-            StreamInputPacketIndexEntry pos = fIndex.lastElement();
-            if (pos == null) {
-                throw new IllegalStateException("Index contains null packet entries"); //$NON-NLS-1$
+    public synchronized boolean addPacketHeaderIndex() throws CTFReaderException {
+        if (getNextPacketOffsetBits() >= getStreamSizeBits()) {
+            return false;
+        }
+        try (FileChannel fc = FileChannel.open(fFile.toPath(), StandardOpenOption.READ)) {
+            if (fc == null) {
+                throw new IOException("Failed to create FileChannel"); //$NON-NLS-1$
             }
-            currentPosBits = pos.getOffsetBits() + pos.getPacketSizeBits();
+            return addPacketHeaderIndex(fc);
+        } catch (IOException e) {
+            throw new CTFReaderException("Failed to create packet index entry", e); //$NON-NLS-1$
         }
+    }
+
+    /**
+     * Adds the next packet header index entry to the index of a stream input,
+     * reading the packet header through an already open file channel. The
+     * stream readers use their own channel, so that indexing the packets as
+     * they are read does not open the file for every packet. A packet that is
+     * not entirely in the file is not added.
+     *
+     * @param fc
+     *            An open file channel to this stream input's file
+     * @return true if there are more packets to add
+     * @throws CTFReaderException
+     *             If there was a problem reading the packed header
+     */
+    synchronized boolean addPacketHeaderIndex(FileChannel fc) throws CTFReaderException {
+        long currentPosBits = getNextPacketOffsetBits();
         if (currentPosBits < getStreamSizeBits()) {
-            fIndex.append(createPacketIndexEntry(currentPosBits));
+            try {
+                fIndex.append(createPacketIndexEntry(fc, currentPosBits));
+            } catch (CTFReaderException | BufferUnderflowException e) {
+                /* Incomplete packet, it is not read */
+                return false;
+            } catch (IOException e) {
+                throw new CTFReaderException("Failed to create packet index entry", e); //$NON-NLS-1$
+            }
             return true;
         }
         return false;
     }
 
-    private long getStreamSizeBits() {
-        return fFile.length() * Byte.SIZE;
+    /**
+     * Index the packets that were completely written to the stream file since
+     * the last time it was indexed, for a trace that is still being written.
+     *
+     * A packet whose header, or whose content, is not entirely in the file yet
+     * is considered to be still being written: it is not indexed, and will be
+     * the first packet indexed by the next call.
+     *
+     * @return The number of packets added to the index
+     * @throws CTFReaderException
+     *             If the stream file could not be read
+     * @since 1.0
+     */
+    public synchronized int indexNewPackets() throws CTFReaderException {
+        int count = 0;
+        try (FileChannel fc = FileChannel.open(fFile.toPath(), StandardOpenOption.READ)) {
+            if (fc == null) {
+                throw new IOException("Failed to create FileChannel"); //$NON-NLS-1$
+            }
+            long currentPosBits = getNextPacketOffsetBits();
+            while (currentPosBits < fc.size() * Byte.SIZE) {
+                StreamInputPacketIndexEntry entry;
+                try {
+                    entry = createPacketIndexEntry(fc, currentPosBits);
+                } catch (CTFReaderException | BufferUnderflowException e) {
+                    /* Incomplete packet, try again once more data is written */
+                    break;
+                }
+                fIndex.append(entry);
+                count++;
+                currentPosBits = entry.getOffsetBits() + entry.getPacketSizeBits();
+            }
+        } catch (IOException e) {
+            throw new CTFReaderException("Failed to create packet index entry", e); //$NON-NLS-1$
+        }
+        return count;
     }
 
-    private StreamInputPacketIndexEntry createPacketIndexEntry(long dataOffsetbits)
-            throws CTFReaderException {
+    /**
+     * Index all the remaining packets of this stream input, reading all the
+     * packet headers through the same file channel. Indexing stops at the
+     * first packet that is not entirely in the file, as in
+     * {@link #indexNewPackets()}.
+     *
+     * If an index directory is given, the index is loaded from the side file
+     * in that directory when it is still valid for this stream file, and is
+     * saved there once the whole file is indexed.
+     *
+     * @param indexDirectory
+     *            The directory where the packet index files are kept, or null
+     *            to not use index files
+     * @throws CTFReaderException
+     *             If there was a problem reading the packet headers
+     */
+    synchronized void indexAllPackets(@Nullable File indexDirectory) throws CTFReaderException {
+        File indexFile = null;
+        if (indexDirectory != null) {
+            indexFile = StreamInputPacketIndexFile.getIndexFile(indexDirectory, fFile);
+            if (fIndex.isEmpty() && loadIndex(indexFile)) {
+                return;
+            }
+        }
+
+        long currentPosBits = getNextPacketOffsetBits();
+        long streamSizeBits = getStreamSizeBits();
+        boolean hasNewPackets = (currentPosBits < streamSizeBits);
+        boolean complete = true;
 
         try (FileChannel fc = FileChannel.open(fFile.toPath(), StandardOpenOption.READ)) {
             if (fc == null) {
                 throw new IOException("Failed to create FileChannel"); //$NON-NLS-1$
             }
-            BitBuffer bitBuffer = createBitBufferForPacketHeader(fc, dataOffsetbits);
-            /*
-             * Read the trace packet header if it exists.
-             */
-            parseTracePacketHeader(bitBuffer);
-
-            /*
-             * Read the stream packet context if it exists.
-             */
-            long size = fc.size();
-            StreamInputPacketIndexEntry packetIndex = parsePacketContext(dataOffsetbits, size, bitBuffer);
-
-            /* Basic validation */
-            if (packetIndex.getContentSizeBits() > packetIndex.getPacketSizeBits()) {
-                throw new CTFReaderException("Content size > packet size"); //$NON-NLS-1$
+            while (currentPosBits < streamSizeBits) {
+                StreamInputPacketIndexEntry entry;
+                try {
+                    entry = createPacketIndexEntry(fc, currentPosBits);
+                } catch (CTFReaderException | BufferUnderflowException e) {
+                    /*
+                     * Incomplete packet, the stream is still being written or
+                     * the tracer did not finish writing it.
+                     */
+                    complete = false;
+                    break;
+                }
+                fIndex.append(entry);
+                currentPosBits = entry.getOffsetBits() + entry.getPacketSizeBits();
             }
-
-            if (packetIndex.getPacketSizeBits() > ((size * Byte.SIZE - packetIndex.getOffsetBits()))) {
-                throw new CTFReaderException("Not enough data remaining in the file for the size of this packet"); //$NON-NLS-1$
-            }
-            return packetIndex;
         } catch (IOException e) {
             throw new CTFReaderException("Failed to create packet index entry", e); //$NON-NLS-1$
         }
+
+        /*
+         * Save the index, unless the stream ends with an incomplete packet, it
+         * is already saved or it comes entirely from the tracer's own index
+         * file.
+         */
+        boolean saved = indexFile != null && indexFile.exists();
+        boolean fromTracer = LttngPacketIndexFile.getIndexFile(fFile).isFile();
+        if (indexFile != null && complete && !fIndex.isEmpty() && (hasNewPackets || !(saved || fromTracer))) {
+            try {
+                StreamInputPacketIndexFile.write(indexFile, fFile, fIndex);
+            } catch (IOException e) {
+                /* Not fatal, the stream will be indexed again next time */
+            }
+        }
+    }
+
+    private boolean loadIndex(File indexFile) throws CTFReaderException {
+        List<StreamInputPacketIndexEntry> entries = StreamInputPacketIndexFile.read(indexFile, fFile);
+        if (entries == null || entries.isEmpty()) {
+            return false;
+        }
+        fIndex.appendAll(entries);
+        for (StreamInputPacketIndexEntry entry : entries) {
+            fLostSoFar += entry.getLostEvents();
+            setTimestampEnd(entry.getTimestampEnd());
+        }
+        return true;
+    }
+
+    private long getNextPacketOffsetBits() {
+        if (fIndex.isEmpty()) {
+            return 0L;
+        }
+        int last = fIndex.size() - 1;
+        return fIndex.getOffsetBits(last) + fIndex.getPacketSizeBits(last);
+    }
+
+    private long getStreamSizeBits() {
+        return fFile.length() * Byte.SIZE;
+    }
+
+    private StreamInputPacketIndexEntry createPacketIndexEntry(FileChannel fc, long dataOffsetbits)
+            throws CTFReaderException, IOException {
+        BitBuffer bitBuffer = createBitBufferForPacketHeader(fc, dataOffsetbits);
+        /*
+         * Read the trace packet header if it exists.
+         */
+        parseTracePacketHeader(bitBuffer);
+
+        /*
+         * Read the stream packet context if it exists.
+         */
+        long size = fc.size();
+        StreamInputPacketIndexEntry packetIndex = parsePacketContext(dataOffsetbits, size, bitBuffer);
+
+        /* Basic validation */
+        if (packetIndex.getContentSizeBits() > packetIndex.getPacketSizeBits()) {
+            throw new CTFReaderException("Content size > packet size"); //$NON-NLS-1$
+        }
+
+        if (packetIndex.getPacketSizeBits() > ((size * Byte.SIZE - packetIndex.getOffsetBits()))) {
+            throw new CTFReaderException("Not enough data remaining in the file for the size of this packet"); //$NON-NLS-1$
+        }
+        fLostSoFar = packetIndex.getLostEvents() + fLostSoFar;
+        setTimestampEnd(packetIndex.getTimestampEnd());
+        return packetIndex;
     }
 
     private BitBuffer createBitBufferForPacketHeader(FileChannel fc, long dataOffsetbits) throws CTFReaderException, IOException {
@@ -274,38 +469,37 @@ public class CTFStreamInput implements IDefinitionScope {
         return bitBuffer;
     }
 
-    private static ByteBuffer getByteBufferAt(FileChannel fc, long position, long size) throws CTFReaderException, IOException {
-        ByteBuffer map = SafeMappedByteBuffer.map(fc, MapMode.READ_ONLY, position, size);
-        if (map == null) {
-            throw new CTFReaderException("Failed to allocate mapped byte buffer"); //$NON-NLS-1$
-        }
-        return map;
-    }
-
     private static ByteBuffer createPacketBitBuffer(FileChannel fc,
             long packetOffsetBytes, long maxSize) throws CTFReaderException, IOException {
         /*
-         * If there is less data remaining than what we want to map, reduce the
-         * map size.
+         * If there is less data remaining than what we want to read, reduce the
+         * read size.
          */
         long remain = fc.size() - packetOffsetBytes;
         /*
          * Initial size, it is the minimum of the the file size and the maximum
          * possible size of the
          */
-        long mapSize = Math.min(remain, MAP_SIZE);
-        if (maxSize < mapSize) {
-            mapSize = maxSize;
+        long readSize = Math.min(remain, MAP_SIZE);
+        if (maxSize < readSize) {
+            readSize = maxSize;
+        }
+        if (readSize < 0) {
+            throw new CTFReaderException("Packet offset is past the end of the file"); //$NON-NLS-1$
         }
 
         /*
-         * Map the packet.
+         * Read the packet header. It is small, so copying it is cheaper than
+         * mapping and unmapping a region of the file for every packet.
          */
-        try {
-            return getByteBufferAt(fc, packetOffsetBytes, mapSize);
-        } catch (IllegalArgumentException | IOException e) {
-            throw new CTFReaderException(e);
+        ByteBuffer buffer = checkNotNull(ByteBuffer.allocate((int) readSize));
+        while (buffer.hasRemaining()) {
+            if (fc.read(buffer, packetOffsetBytes + buffer.position()) < 0) {
+                throw new CTFReaderException("Unexpected end of file while reading a packet header"); //$NON-NLS-1$
+            }
         }
+        buffer.flip();
+        return buffer;
     }
 
     private StructDefinition parseTracePacketHeader(
@@ -359,8 +553,6 @@ public class CTFStreamInput implements IDefinitionScope {
         StreamInputPacketIndexEntry packetIndex;
         StructDefinition streamPacketContextDef = fStreamPacketContextDecl.createDefinition(this, LexicalScope.STREAM_PACKET_CONTEXT, bitBuffer);
         packetIndex = new StreamInputPacketIndexEntry(dataOffsetBits, streamPacketContextDef, fileSizeBytes, fLostSoFar);
-        fLostSoFar = packetIndex.getLostEvents() + fLostSoFar;
-        setTimestampEnd(packetIndex.getTimestampEnd());
         return packetIndex;
     }
 
@@ -13,7 +13,6 @@ package org.eclipse.tracecompass.ctf.core.trace;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel.MapMode;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
@@ -35,9 +34,9 @@ import org.eclipse.tracecompass.ctf.core.event.types.SimpleDatatypeDefinition;
 import org.eclipse.tracecompass.ctf.core.event.types.StructDeclaration;
 import org.eclipse.tracecompass.ctf.core.event.types.StructDefinition;
 import org.eclipse.tracecompass.ctf.core.event.types.VariantDefinition;
-import org.eclipse.tracecompass.internal.ctf.core.SafeMappedByteBuffer;
 import org.eclipse.tracecompass.internal.ctf.core.event.EventDeclaration;
 import org.eclipse.tracecompass.internal.ctf.core.event.types.composite.EventHeaderDefinition;
+import org.eclipse.tracecompass.internal.ctf.core.trace.StreamInputMappingManager;
 import org.eclipse.tracecompass.internal.ctf.core.trace.StreamInputPacketIndexEntry;
 
 import com.google.common.collect.ImmutableList;
@@ -60,6 +59,10 @@ public class CTFStreamInputPacketReader implements IDefinitionScope, AutoCloseab
     @Nullable
     private BitBuffer fBitBuffer;
 
+    /** Slice of the stream mapping holding the current packet */
+    @Nullable
+    private StreamInputMappingManager.Slice fSlice = null;
+
     /** StreamInputReader that uses this StreamInputPacketReader. */
     private final CTFStreamInputReader fStreamInputReader;
 
@@ -188,6 +191,15 @@ public class CTFStreamInputPacketReader implements IDefinitionScope, AutoCloseab
     @Override
     public void close() {
         fBitBuffer = null;
+        releaseSlice();
+    }
+
+    private void releaseSlice() {
+        StreamInputMappingManager.Slice slice = fSlice;
+        if (slice != null) {
+            slice.release();
+            fSlice = null;
+        }
     }
 
     // ------------------------------------------------------------------------
@@ -223,7 +235,15 @@ public class CTFStreamInputPacketReader implements IDefinitionScope, AutoCloseab
 
     @NonNull
     private ByteBuffer getByteBufferAt(long position, long size) throws CTFReaderException, IOException {
-        ByteBuffer map = SafeMappedByteBuffer.map(fStreamInputReader.getFc(), MapMode.READ_ONLY, position, size);
+        /*
+         * Take the slice of the new packet before releasing the previous one,
+         * so that the window they share is not dropped in between.
+         */
+        StreamInputMappingManager mappings = fStreamInputReader.getStreamInput().getMappings();
+        StreamInputMappingManager.Slice slice = mappings.acquire(fStreamInputReader.getFc(), position, size);
+        releaseSlice();
+        fSlice = slice;
+        ByteBuffer map = slice.getBuffer();
         if (map == null) {
             throw new CTFReaderException("Failed to allocate mapped byte buffer"); //$NON-NLS-1$
         }
@@ -239,7 +259,6 @@ public class CTFStreamInputPacketReader implements IDefinitionScope, AutoCloseab
      *             If we get an error reading the packet
      */
     void setCurrentPacket(StreamInputPacketIndexEntry currentPacket) throws CTFReaderException {
-        StreamInputPacketIndexEntry prevPacket = null;
         fCurrentPacket = currentPacket;
 
         if (fCurrentPacket != null) {
@@ -287,8 +306,7 @@ public class CTFStreamInputPacketReader implements IDefinitionScope, AutoCloseab
                     if (index == 0) {
                         lostEventsStartTime = currentPacket.getTimestampBegin() + 1;
                     } else {
-                        prevPacket = fStreamInputReader.getStreamInput().getIndex().getElement(index - 1);
-                        lostEventsStartTime = prevPacket.getTimestampEnd();
+                        lostEventsStartTime = fStreamInputReader.getStreamInput().getIndex().getTimestampEnd(index - 1);
                     }
                     fLostEventsDuration = Math.abs(lostEventsStartTime - currentPacket.getTimestampBegin());
                 }
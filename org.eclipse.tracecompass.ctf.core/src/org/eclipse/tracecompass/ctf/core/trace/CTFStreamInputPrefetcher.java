@@ -0,0 +1,262 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.ctf.core.trace;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.tracecompass.ctf.core.CTFReaderException;
+import org.eclipse.tracecompass.ctf.core.event.EventDefinition;
+
+/**
+ * Decodes the events of a stream input reader ahead of time, on a worker
+ * thread, into a bounded number of batches. The reader then only takes the
+ * events from the batches, in the same order as if it decoded them itself.
+ *
+ * The decoding tasks never wait on the reader: a task decodes one batch and
+ * is only scheduled again while there is room for another batch. This way, a
+ * small pool of threads is shared by the streams of all the traces being
+ * read.
+ *
+ * @author agent
+ */
+class CTFStreamInputPrefetcher implements Runnable {
+
+    private static final int BATCH_SIZE = 256;
+    private static final int MAX_BATCHES = 4;
+
+    private static final Executor DECODERS = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                private final AtomicInteger fCount = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "CTF Stream Decoder #" + fCount.incrementAndGet()); //$NON-NLS-1$
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    /**
+     * Events decoded by one task, and how the task stopped if it did not fill
+     * the batch
+     */
+    private static final class Batch {
+        private final List<EventDefinition> fEvents;
+        private final int[] fCpus;
+        private final CTFResponse fEnd;
+        private final CTFReaderException fError;
+
+        public Batch(List<EventDefinition> events, int[] cpus, CTFResponse end, CTFReaderException error) {
+            fEvents = events;
+            fCpus = cpus;
+            fEnd = end;
+            fError = error;
+        }
+    }
+
+    private final CTFStreamInputReader fReader;
+    private final Object fLock = new Object();
+
+    /* All guarded by fLock */
+    private final Queue<Batch> fBatches = new ArrayDeque<>();
+    private Batch fCurrentBatch = null;
+    private int fPosition = 0;
+    private int fCurrentCpu = 0;
+    private boolean fRunning = false;
+    private boolean fStopped = false;
+    private boolean fFinished = false;
+    private boolean fDraining = false;
+
+    private volatile boolean fCancelled = false;
+
+    /**
+     * Constructor. The reader must be positioned where the decoding starts.
+     *
+     * @param reader
+     *            The stream input reader to decode
+     */
+    public CTFStreamInputPrefetcher(CTFStreamInputReader reader) {
+        fReader = reader;
+    }
+
+    // ------------------------------------------------------------------------
+    // Decoding task
+    // ------------------------------------------------------------------------
+
+    @Override
+    public void run() {
+        List<EventDefinition> events = new ArrayList<>(BATCH_SIZE);
+        int[] cpus = new int[BATCH_SIZE];
+        CTFResponse end = null;
+        CTFReaderException error = null;
+        try {
+            while (events.size() < BATCH_SIZE && !fCancelled) {
+                EventDefinition event = fReader.readEvent();
+                if (event == null) {
+                    end = fReader.isLive() ? CTFResponse.WAIT : CTFResponse.FINISH;
+                    break;
+                }
+                cpus[events.size()] = fReader.getPacketReader().getCPU();
+                events.add(event);
+            }
+        } catch (CTFReaderException e) {
+            error = e;
+        }
+
+        synchronized (fLock) {
+            fRunning = false;
+            if (!fCancelled) {
+                fBatches.add(new Batch(events, cpus, end, error));
+                fStopped = (end != null || error != null);
+                schedule();
+            }
+            fLock.notifyAll();
+        }
+    }
+
+    /* Must be called with fLock held */
+    private void schedule() {
+        if (!fRunning && !fStopped && !fDraining && !fCancelled && fBatches.size() < MAX_BATCHES) {
+            fRunning = true;
+            DECODERS.execute(this);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Operations
+    // ------------------------------------------------------------------------
+
+    /**
+     * Set the next decoded event as the current event of the reader.
+     *
+     * @return The response of the read, as {@link CTFStreamInputReader#readNextEvent()}
+     *         would give it, or null if the prefetcher is drained and the
+     *         reader has to read the next events by itself
+     * @throws CTFReaderException
+     *             If the decoding of the event failed
+     */
+    public CTFResponse readNextEvent() throws CTFReaderException {
+        synchronized (fLock) {
+            while (true) {
+                Batch batch = fCurrentBatch;
+                if (batch != null) {
+                    if (fPosition < batch.fEvents.size()) {
+                        fReader.setCurrentEvent(batch.fEvents.get(fPosition));
+                        fCurrentCpu = batch.fCpus[fPosition];
+                        fPosition++;
+                        return CTFResponse.OK;
+                    }
+                    fCurrentBatch = null;
+                    if (batch.fError != null) {
+                        /* Let the next read try again, as the reader would */
+                        fStopped = false;
+                        throw batch.fError;
+                    }
+                    if (batch.fEnd != null) {
+                        fReader.setCurrentEvent(null);
+                        if (batch.fEnd == CTFResponse.FINISH) {
+                            fFinished = true;
+                        } else {
+                            fStopped = false;
+                        }
+                        return batch.fEnd;
+                    }
+                }
+
+                fCurrentBatch = fBatches.poll();
+                fPosition = 0;
+                if (fCurrentBatch == null) {
+                    if (fFinished && !fReader.isLive()) {
+                        fReader.setCurrentEvent(null);
+                        return CTFResponse.FINISH;
+                    }
+                    fFinished = false;
+                    fStopped = false;
+                    if (fDraining && !fRunning) {
+                        return null;
+                    }
+                    schedule();
+                    waitForTask();
+                } else {
+                    schedule();
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the CPU of the current event, since the packet reader may already
+     * be in another packet
+     *
+     * @return The CPU of the current event
+     */
+    public int getCurrentCPU() {
+        synchronized (fLock) {
+            return fCurrentCpu;
+        }
+    }
+
+    /**
+     * Stop decoding ahead. The events already decoded are still returned by
+     * {@link #readNextEvent()}, which then returns null.
+     */
+    public void drain() {
+        synchronized (fLock) {
+            fDraining = true;
+        }
+    }
+
+    /**
+     * Stop the decoding and drop the events decoded so far, so that the
+     * reader can be moved. Decoding starts again from the new position of the
+     * reader at the next read.
+     *
+     * @throws CTFReaderException
+     *             If the thread was interrupted while waiting for the decoding
+     *             task to stop
+     */
+    public void reset() throws CTFReaderException {
+        synchronized (fLock) {
+            fCancelled = true;
+            try {
+                while (fRunning) {
+                    waitForTask();
+                }
+            } finally {
+                fCancelled = false;
+            }
+            fBatches.clear();
+            fCurrentBatch = null;
+            fPosition = 0;
+            fStopped = false;
+            fFinished = false;
+        }
+    }
+
+    /* Must be called with fLock held */
+    private void waitForTask() throws CTFReaderException {
+        try {
+            fLock.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CTFReaderException(e);
+        }
+    }
+}
@@ -74,6 +74,17 @@ public class CTFStreamInputReader implements AutoCloseable {
      */
     private boolean fLive = false;
 
+    /**
+     * Lazy decoding of the event fields
+     */
+    private boolean fLazyDecoding = false;
+
+    /**
+     * Decodes the events ahead on a worker thread, null if the events are
+     * decoded as they are read
+     */
+    private CTFStreamInputPrefetcher fPrefetcher = null;
+
     // ------------------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------------------
@@ -86,6 +97,22 @@ public class CTFStreamInputReader implements AutoCloseable {
      *             If the file cannot be opened
      */
     public CTFStreamInputReader(CTFStreamInput streamInput) throws CTFReaderException {
+        this(streamInput, false);
+    }
+
+    /**
+     * Constructs a StreamInputReader that reads a StreamInput, which may be
+     * live. The first packet of a live stream input is only read once it is
+     * completely written.
+     *
+     * @param streamInput
+     *            The StreamInput to read.
+     * @param live
+     *            whether the stream input is live
+     * @throws CTFReaderException
+     *             If the file cannot be opened
+     */
+    CTFStreamInputReader(CTFStreamInput streamInput, boolean live) throws CTFReaderException {
         if (streamInput == null) {
             throw new IllegalArgumentException("stream cannot be null"); //$NON-NLS-1$
         }
@@ -97,10 +124,14 @@ public class CTFStreamInputReader implements AutoCloseable {
             throw new CTFReaderException(e);
         }
         fPacketReader = new CTFStreamInputPacketReader(this);
+        fLive = live;
         /*
-         * Get the iterator on the packet index.
+         * Start before the first packet: the index may already contain it,
+         * when it was loaded from an index file or built by
+         * CTFTrace#indexPackets, and the first call to goToNextPacket() must
+         * then switch to it rather than to the second one.
          */
-        fPacketIndex = 0;
+        fPacketIndex = -1;
         /*
          * Make first packet the current one.
          */
@@ -116,6 +147,11 @@ public class CTFStreamInputReader implements AutoCloseable {
      */
     @Override
     public void close() throws IOException {
+        try {
+            stopPrefetching();
+        } catch (CTFReaderException e) {
+            throw new IOException(e);
+        }
         fFileChannel.close();
         fPacketReader.close();
     }
@@ -169,6 +205,10 @@ public class CTFStreamInputReader implements AutoCloseable {
      * @return The CPU id (a number)
      */
     public int getCPU() {
+        CTFStreamInputPrefetcher prefetcher = fPrefetcher;
+        if (prefetcher != null) {
+            return prefetcher.getCurrentCPU();
+        }
         return fPacketReader.getCPU();
     }
 
@@ -216,6 +256,58 @@ public class CTFStreamInputReader implements AutoCloseable {
         return fLive;
     }
 
+    /**
+     * Set the decoding of the event fields to be lazy. In lazy decoding mode,
+     * the fields of the events whose payload has a fixed layout are only
+     * decoded when they are accessed.
+     *
+     * @param lazyDecoding
+     *            whether the event fields are decoded lazily or not
+     * @since 1.0
+     */
+    public void setLazyDecoding(boolean lazyDecoding) {
+        fLazyDecoding = lazyDecoding;
+    }
+
+    /**
+     * Get if the event fields are decoded lazily or not
+     *
+     * @return whether the event fields are decoded lazily
+     * @since 1.0
+     */
+    public boolean isLazyDecoding() {
+        return fLazyDecoding;
+    }
+
+    /**
+     * Set the events to be decoded ahead, on a worker thread, while the
+     * previous ones are being read. The events are returned in the same order
+     * as when they are decoded as they are read.
+     *
+     * @param decodeAhead
+     *            whether the events are decoded ahead or not
+     * @since 1.0
+     */
+    public void setDecodeAhead(boolean decodeAhead) {
+        CTFStreamInputPrefetcher prefetcher = fPrefetcher;
+        if (decodeAhead && prefetcher == null) {
+            fPrefetcher = new CTFStreamInputPrefetcher(this);
+        } else if (!decodeAhead && prefetcher != null) {
+            /* The events already decoded are still read first */
+            prefetcher.drain();
+        }
+    }
+
+    /**
+     * Get if the events are decoded ahead or not
+     *
+     * @return whether the events are decoded ahead
+     * @since 1.0
+     */
+    public boolean isDecodeAhead() {
+        return fPrefetcher != null;
+    }
+
     /**
      * Get the event context of the stream
      *
@@ -236,7 +328,36 @@ public class CTFStreamInputReader implements AutoCloseable {
      *             if an error occurs
      */
     public CTFResponse readNextEvent() throws CTFReaderException {
+        CTFStreamInputPrefetcher prefetcher = fPrefetcher;
+        if (prefetcher != null) {
+            CTFResponse response = prefetcher.readNextEvent();
+            if (response != null) {
+                return response;
+            }
+            /* Drained, the packet reader is now at the current event */
+            fPrefetcher = null;
+        }
+        return readNextEventDirect();
+    }
 
+    private CTFResponse readNextEventDirect() throws CTFReaderException {
+        EventDefinition event = readEvent();
+        setCurrentEvent(event);
+        if (event != null) {
+            return CTFResponse.OK;
+        }
+        return fLive ? CTFResponse.WAIT : CTFResponse.FINISH;
+    }
+
+    /**
+     * Decode the next event of the stream, without making it the current
+     * event.
+     *
+     * @return The event, or null if there are no more events for now
+     * @throws CTFReaderException
+     *             if an error occurs
+     */
+    EventDefinition readEvent() throws CTFReaderException {
         /*
          * Change packet if needed
          */
@@ -253,11 +374,20 @@ public class CTFStreamInputReader implements AutoCloseable {
          * If an event is available, read it.
          */
         if (fPacketReader.hasMoreEvents()) {
-            setCurrentEvent(fPacketReader.readNextEvent());
-            return CTFResponse.OK;
+            return fPacketReader.readNextEvent();
+        }
+        return null;
+    }
+
+    /**
+     * Stop the decoding ahead and drop the events decoded so far, before
+     * moving the packet reader.
+     */
+    private void stopPrefetching() throws CTFReaderException {
+        CTFStreamInputPrefetcher prefetcher = fPrefetcher;
+        if (prefetcher != null) {
+            prefetcher.reset();
         }
-        this.setCurrentEvent(null);
-        return fLive ? CTFResponse.WAIT : CTFResponse.FINISH;
     }
 
     /**
@@ -271,18 +401,36 @@ public class CTFStreamInputReader implements AutoCloseable {
         // did we already index the packet?
         if (getPacketSize() >= (fPacketIndex + 1)) {
             fPacketReader.setCurrentPacket(getPacket());
+        } else if (fLive) {
+            /*
+             * Only index the packets that are completely written
+             */
+            fStreamInput.indexNewPackets();
+            if (getPacketSize() >= (fPacketIndex + 1)) {
+                fPacketReader.setCurrentPacket(getPacket());
+            } else {
+                outOfPackets();
+            }
         } else {
             // go to the next packet if there is one, index it at the same time
-            if (fStreamInput.addPacketHeaderIndex()) {
+            if (fStreamInput.addPacketHeaderIndex(fFileChannel)) {
                 fPacketIndex = getPacketSize() - 1;
                 fPacketReader.setCurrentPacket(getPacket());
             } else {
-                // out of packets
-                fPacketReader.setCurrentPacket(null);
+                outOfPackets();
             }
         }
     }
 
+    /*
+     * Stay after the last packet, so the next read tries the next packet
+     * again if the trace is live.
+     */
+    private void outOfPackets() throws CTFReaderException {
+        fPacketIndex--;
+        fPacketReader.setCurrentPacket(null);
+    }
+
     /**
      * @return
      */
@@ -303,6 +451,26 @@ public class CTFStreamInputReader implements AutoCloseable {
     public long seek(long timestamp) throws CTFReaderException {
         long offset = 0;
 
+        /*
+         * The first event at or after the timestamp is ahead in the current
+         * packet: read forward to it, without switching packets. The decoded
+         * ahead events are not in the packet reader anymore, so this only
+         * works when the events are not decoded ahead.
+         */
+        EventDefinition current = fCurrentEvent;
+        StreamInputPacketIndexEntry packet = fPacketReader.getCurrentPacket();
+        if (fPrefetcher == null && current != null && packet != null
+                && current.getTimestamp() < timestamp && timestamp <= packet.getTimestampEnd()) {
+            while (current != null && current.getTimestamp() < timestamp) {
+                readNextEventDirect();
+                current = fCurrentEvent;
+                offset++;
+            }
+            return offset;
+        }
+
+        stopPrefetching();
+
         gotoPacket(timestamp);
 
         /*
@@ -311,7 +479,7 @@ public class CTFStreamInputReader implements AutoCloseable {
         while ((fPacketReader.getCurrentPacket() != null)
                 && (fPacketReader.getCurrentPacket().getTimestampEnd() < timestamp)) {
             try {
-                fStreamInput.addPacketHeaderIndex();
+                fStreamInput.addPacketHeaderIndex(fFileChannel);
                 goToNextPacket();
             } catch (CTFReaderException e) {
                 // do nothing here
@@ -331,10 +499,10 @@ public class CTFStreamInputReader implements AutoCloseable {
          * - found the first event with a timestamp greater or equal the given
          * timestamp.
          */
-        readNextEvent();
+        readNextEventDirect();
         boolean done = (this.getCurrentEvent() == null);
         while (!done && (this.getCurrentEvent().getTimestamp() < timestamp)) {
-            readNextEvent();
+            readNextEventDirect();
             done = (this.getCurrentEvent() == null);
             offset++;
         }
@@ -348,8 +516,7 @@ public class CTFStreamInputReader implements AutoCloseable {
      *             if an error occurs
      */
     private void gotoPacket(long timestamp) throws CTFReaderException {
-        fPacketIndex = fStreamInput.getIndex().search(timestamp)
-                .previousIndex();
+        fPacketIndex = fStreamInput.getIndex().searchIndex(timestamp) - 1;
         /*
          * Switch to this packet.
          */
@@ -398,7 +565,7 @@ public class CTFStreamInputReader implements AutoCloseable {
         EventDefinition prevEvent = null;
         while (fCurrentEvent != null) {
             prevEvent = fCurrentEvent;
-            this.readNextEvent();
+            this.readNextEventDirect();
         }
         /*
          * Go back to the previous event
@@ -23,16 +23,26 @@ import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.UUID;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.ctf.core.CTFReaderException;
 import org.eclipse.tracecompass.ctf.core.event.CTFCallsite;
 import org.eclipse.tracecompass.ctf.core.event.CTFClock;
@@ -75,6 +85,11 @@ public class CTFTrace implements IDefinitionScope {
      */
     private final File fPath;
 
+    /**
+     * The metadata of the trace, null for a streamed trace
+     */
+    private final @Nullable Metadata fMetadata;
+
     /**
      * Major CTF version number
      */
@@ -165,8 +180,27 @@ public class CTFTrace implements IDefinitionScope {
      *             If no CTF trace was found at the path
      */
     public CTFTrace(File path) throws CTFReaderException {
+        this(path, null);
+    }
+
+    /**
+     * Trace constructor, which caches the parsed metadata in a directory. The
+     * metadata is then only parsed the first time the trace is opened, as
+     * long as it does not change.
+     *
+     * @param path
+     *            Filesystem path of the trace directory.
+     * @param cacheDirectory
+     *            The directory where the parsed metadata is cached, or null to
+     *            only cache it in memory
+     * @throws CTFReaderException
+     *             If no CTF trace was found at the path
+     * @since 1.0
+     */
+    public CTFTrace(File path, @Nullable File cacheDirectory) throws CTFReaderException {
         fPath = path;
-        final Metadata metadata = new Metadata(this);
+        final Metadata metadata = new Metadata(this, cacheDirectory);
+        fMetadata = metadata;
 
         /* Set up the internal containers for this trace */
         if (!fPath.exists()) {
@@ -188,6 +222,7 @@ public class CTFTrace implements IDefinitionScope {
      */
     public CTFTrace() {
         fPath = null;
+        fMetadata = null;
     }
 
     private void init(File path) throws CTFReaderException {
@@ -433,6 +468,71 @@ public class CTFTrace implements IDefinitionScope {
         s.setupIndex();
     }
 
+    /**
+     * Build the packet index of all the stream files of this trace. The stream
+     * files are indexed in parallel, each one through a single file channel.
+     *
+     * If an index directory is given, the packet index of each stream file is
+     * kept in a side file in that directory. It is reused the next time the
+     * trace is opened, as long as the stream file keeps the same size and
+     * modification time.
+     *
+     * @param indexDirectory
+     *            The directory where the packet index files are kept, or null
+     *            to only index the packets in memory
+     * @throws CTFReaderException
+     *             If there was a problem reading the packet headers
+     * @since 1.0
+     */
+    public void indexPackets(final @Nullable File indexDirectory) throws CTFReaderException {
+        List<CTFStreamInput> inputs = new ArrayList<>();
+        for (CTFStream stream : getStreams()) {
+            inputs.addAll(stream.getStreamInputs());
+        }
+        if (inputs.isEmpty()) {
+            return;
+        }
+
+        int nbThreads = Math.min(inputs.size(), Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(nbThreads, new ThreadFactory() {
+            private final AtomicInteger fCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "CTF Packet Indexer #" + fCount.incrementAndGet()); //$NON-NLS-1$
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (final CTFStreamInput input : inputs) {
+                results.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws CTFReaderException {
+                        input.indexAllPackets(indexDirectory);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CTFReaderException) {
+                throw (CTFReaderException) cause;
+            }
+            throw new CTFReaderException("Failed to index the packets", cause); //$NON-NLS-1$
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CTFReaderException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     /**
      * Tries to open the given file, reads the first packet header of the file
      * and check its validity. This will add a file to a stream as a streaminput
@@ -568,6 +668,24 @@ public class CTFTrace implements IDefinitionScope {
         openStreamInput(streamFile);
     }
 
+    /**
+     * Parse the metadata that was appended to the metadata file since the
+     * trace was opened, to support new declarations while the trace is being
+     * written. Only the new metadata is parsed.
+     *
+     * @return true if new metadata was parsed
+     * @throws CTFReaderException
+     *             If there was a problem parsing the new metadata
+     * @since 1.0
+     */
+    public boolean updateMetadata() throws CTFReaderException {
+        Metadata metadata = fMetadata;
+        if (metadata == null) {
+            return false;
+        }
+        return metadata.parseNewPackets();
+    }
+
     /**
      * Registers a new stream to the trace.
      *
@@ -700,7 +818,7 @@ public class CTFTrace implements IDefinitionScope {
         long currentStart = Long.MAX_VALUE;
         for (CTFStream stream : fStreams.values()) {
             for (CTFStreamInput si : stream.getStreamInputs()) {
-                currentStart = Math.min(currentStart, si.getIndex().getElement(0).getTimestampBegin());
+                currentStart = Math.min(currentStart, si.getIndex().getTimestampBegin(0));
             }
         }
         return timestampCyclesToNanos(currentStart);
@@ -899,24 +1017,28 @@ public class CTFTrace implements IDefinitionScope {
         }
         stream.addInput(new CTFStreamInput(stream, file));
     }
-}
 
-class MetadataFileFilter implements FileFilter {
+    /**
+     * Filter of the stream files of a trace directory, which are all the
+     * visible files except the metadata
+     */
+    static class MetadataFileFilter implements FileFilter {
 
-    @Override
-    public boolean accept(File pathname) {
-        if (pathname.isDirectory()) {
-            return false;
-        }
-        if (pathname.isHidden()) {
-            return false;
-        }
-        if (pathname.getName().equals("metadata")) { //$NON-NLS-1$
-            return false;
+        @Override
+        public boolean accept(File pathname) {
+            if (pathname.isDirectory()) {
+                return false;
+            }
+            if (pathname.isHidden()) {
+                return false;
+            }
+            if (pathname.getName().equals("metadata")) { //$NON-NLS-1$
+                return false;
+            }
+            return true;
         }
-        return true;
-    }
 
+    }
 }
 
 class MetadataComparator implements Comparator<File>, Serializable {
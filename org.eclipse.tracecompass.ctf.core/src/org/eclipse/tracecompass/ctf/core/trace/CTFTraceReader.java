@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.PriorityQueue;
 import java.util.Set;
 
+import org.eclipse.tracecompass.common.core.LoserTree;
 import org.eclipse.tracecompass.ctf.core.CTFReaderException;
 import org.eclipse.tracecompass.ctf.core.event.EventDefinition;
 import org.eclipse.tracecompass.ctf.core.event.IEventDeclaration;
@@ -43,6 +44,9 @@ public class CTFTraceReader implements AutoCloseable {
 
     private static final int MIN_PRIO_SIZE = 16;
 
+    /* Maps the unsigned timestamps to signed keys with the same order */
+    private static final long UNSIGNED_TO_SIGNED = Long.MIN_VALUE;
+
     // ------------------------------------------------------------------------
     // Attributes
     // ------------------------------------------------------------------------
@@ -59,9 +63,10 @@ public class CTFTraceReader implements AutoCloseable {
             Collections.synchronizedList(new ArrayList<CTFStreamInputReader>());
 
     /**
-     * Priority queue to order the trace file readers by timestamp.
+     * Tournament tree to order the trace file readers by timestamp. The slots
+     * are the positions of the readers in fStreamInputReaders.
      */
-    private PriorityQueue<CTFStreamInputReader> fPrio;
+    private LoserTree fPrio;
 
     /**
      * Array to count the number of event per trace file.
@@ -78,6 +83,21 @@ public class CTFTraceReader implements AutoCloseable {
      */
     private long fEndTime;
 
+    /**
+     * Lazy decoding of the event fields
+     */
+    private boolean fLazyDecoding = false;
+
+    /**
+     * Decoding of the events ahead, on worker threads
+     */
+    private boolean fDecodeAhead = false;
+
+    /**
+     * Live trace reading
+     */
+    private boolean fLive = false;
+
     // ------------------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------------------
@@ -91,7 +111,24 @@ public class CTFTraceReader implements AutoCloseable {
      *             if an error occurs
      */
     public CTFTraceReader(CTFTrace trace) throws CTFReaderException {
+        this(trace, false);
+    }
+
+    /**
+     * Constructs a TraceReader to read a trace, which may still be being
+     * written.
+     *
+     * @param trace
+     *            The trace to read from.
+     * @param live
+     *            whether the trace is live
+     * @throws CTFReaderException
+     *             if an error occurs
+     * @since 1.0
+     */
+    public CTFTraceReader(CTFTrace trace, boolean live) throws CTFReaderException {
         fTrace = trace;
+        fLive = live;
         fStreamInputReaders.clear();
 
         /**
@@ -109,8 +146,9 @@ public class CTFTraceReader implements AutoCloseable {
          * empty.
          */
         fStartTime = 0;
-        if (hasMoreEvents()) {
-            fStartTime = getTopStream().getCurrentEvent().getTimestamp();
+        EventDefinition first = getCurrentEventDef();
+        if (first != null) {
+            fStartTime = first.getTimestamp();
             setEndTime(fStartTime);
         }
     }
@@ -125,9 +163,11 @@ public class CTFTraceReader implements AutoCloseable {
     public CTFTraceReader copyFrom() throws CTFReaderException {
         CTFTraceReader newReader = null;
 
-        newReader = new CTFTraceReader(fTrace);
+        newReader = new CTFTraceReader(fTrace, fLive);
         newReader.fStartTime = fStartTime;
         newReader.setEndTime(fEndTime);
+        newReader.setLazyDecoding(fLazyDecoding);
+        newReader.setDecodeAhead(fDecodeAhead);
         return newReader;
     }
 
@@ -176,10 +216,35 @@ public class CTFTraceReader implements AutoCloseable {
     /**
      * Get the priority queue of this trace reader.
      *
-     * @return The priority queue of input readers
+     * @return A priority queue of the input readers that have a current
+     *         event, built on each call
+     * @deprecated The readers are merged with a tournament tree, use
+     *             {@link #getTopStream()} to get the next stream to read
      */
+    @Deprecated
     protected PriorityQueue<CTFStreamInputReader> getPrio() {
-        return fPrio;
+        PriorityQueue<CTFStreamInputReader> prio = new PriorityQueue<>(
+                Math.max(fPrio.size(), MIN_PRIO_SIZE),
+                new StreamInputReaderTimestampComparator());
+        for (int i = 0; i < fPrio.getCapacity(); i++) {
+            if (fPrio.contains(i)) {
+                prio.add(fStreamInputReaders.get(i));
+            }
+        }
+        return prio;
+    }
+
+    private static long getKey(CTFStreamInputReader reader) {
+        return reader.getCurrentEvent().getTimestamp() ^ UNSIGNED_TO_SIGNED;
+    }
+
+    /*
+     * Key of a live reader waiting for its next event: it will come after the
+     * end of the packets indexed so far, so the events of the other streams
+     * that are before that can be read in the meantime.
+     */
+    private static long getWaitKey(CTFStreamInputReader reader) {
+        return reader.getStreamInput().getTimestampEnd() ^ UNSIGNED_TO_SIGNED;
     }
 
     // ------------------------------------------------------------------------
@@ -193,21 +258,24 @@ public class CTFTraceReader implements AutoCloseable {
      *             if an error occurs
      */
     private void createStreamInputReaders() throws CTFReaderException {
-        /*
-         * For each stream.
-         */
-        for (CTFStream stream : fTrace.getStreams()) {
-            Set<CTFStreamInput> streamInputs = stream.getStreamInputs();
-
+        /* The streams may be modified by a CTFTraceWatcher */
+        synchronized (fTrace) {
             /*
-             * For each trace file of the stream.
+             * For each stream.
              */
-            for (CTFStreamInput streamInput : streamInputs) {
+            for (CTFStream stream : fTrace.getStreams()) {
+                Set<CTFStreamInput> streamInputs = stream.getStreamInputs();
 
                 /*
-                 * Create a reader and add it to the group.
+                 * For each trace file of the stream.
                  */
-                fStreamInputReaders.add(new CTFStreamInputReader(streamInput));
+                for (CTFStreamInput streamInput : streamInputs) {
+
+                    /*
+                     * Create a reader and add it to the group.
+                     */
+                    fStreamInputReaders.add(new CTFStreamInputReader(streamInput, fLive));
+                }
             }
         }
 
@@ -224,34 +292,55 @@ public class CTFTraceReader implements AutoCloseable {
      *             An error occured
      */
     public void update() throws CTFReaderException {
-        Set<CTFStreamInputReader> readers = new HashSet<>();
-        for (CTFStream stream : fTrace.getStreams()) {
-            Set<CTFStreamInput> streamInputs = stream.getStreamInputs();
-            for (CTFStreamInput streamInput : streamInputs) {
-                /*
-                 * Create a reader.
-                 */
-                CTFStreamInputReader streamInputReader = new CTFStreamInputReader(
-                        streamInput);
-
-                /*
-                 * Add it to the group.
-                 */
-                if (!fStreamInputReaders.contains(streamInputReader)) {
-                    streamInputReader.readNextEvent();
-                    fStreamInputReaders.add(streamInputReader);
-                    readers.add(streamInputReader);
+        Set<CTFStreamInput> known = new HashSet<>();
+        for (CTFStreamInputReader reader : fStreamInputReaders) {
+            known.add(reader.getStreamInput());
+        }
+        List<CTFStreamInputReader> readers = new ArrayList<>();
+        /* The streams may be modified by a CTFTraceWatcher */
+        synchronized (fTrace) {
+            for (CTFStream stream : fTrace.getStreams()) {
+                Set<CTFStreamInput> streamInputs = stream.getStreamInputs();
+                for (CTFStreamInput streamInput : streamInputs) {
+                    /*
+                     * Create a reader for the new stream inputs and add it to
+                     * the group.
+                     */
+                    if (!known.contains(streamInput)) {
+                        CTFStreamInputReader streamInputReader = new CTFStreamInputReader(
+                                streamInput, fLive);
+                        streamInputReader.setParent(this);
+                        streamInputReader.setName(fStreamInputReaders.size());
+                        streamInputReader.setLazyDecoding(fLazyDecoding);
+                        streamInputReader.readNextEvent();
+                        streamInputReader.setDecodeAhead(fDecodeAhead);
+                        fStreamInputReaders.add(streamInputReader);
+                        readers.add(streamInputReader);
+                    }
                 }
             }
         }
+        if (readers.isEmpty()) {
+            return;
+        }
         long[] temp = fEventCountPerTraceFile;
-        fEventCountPerTraceFile = new long[readers.size() + temp.length];
-        for (CTFStreamInputReader reader : readers) {
-            fPrio.add(reader);
+        fEventCountPerTraceFile = new long[fStreamInputReaders.size()];
+        System.arraycopy(temp, 0, fEventCountPerTraceFile, 0, temp.length);
+        LoserTree prio = new LoserTree(fStreamInputReaders.size());
+        for (int i = 0; i < fPrio.getCapacity(); i++) {
+            if (fPrio.contains(i)) {
+                prio.set(i, fPrio.getKey(i));
+            }
         }
-        for (int i = 0; i < temp.length; i++) {
-            fEventCountPerTraceFile[i] = temp[i];
+        for (CTFStreamInputReader reader : readers) {
+            int slot = reader.getName();
+            if (reader.getCurrentEvent() != null) {
+                prio.set(slot, getKey(reader));
+            } else if (fLive) {
+                prio.set(slot, getWaitKey(reader));
+            }
         }
+        fPrio = prio;
     }
 
     /**
@@ -275,23 +364,12 @@ public class CTFTraceReader implements AutoCloseable {
      *             if an error occurs
      */
     private void populateStreamInputReaderHeap() throws CTFReaderException {
-        if (fStreamInputReaders.isEmpty()) {
-            fPrio = new PriorityQueue<>(MIN_PRIO_SIZE,
-                    new StreamInputReaderTimestampComparator());
-            return;
-        }
-
-        /*
-         * Create the priority queue with a size twice as bigger as the number
-         * of reader in order to avoid constant resizing.
-         */
-        fPrio = new PriorityQueue<>(
-                Math.max(fStreamInputReaders.size() * 2, MIN_PRIO_SIZE),
-                new StreamInputReaderTimestampComparator());
+        fPrio = new LoserTree(fStreamInputReaders.size());
 
         int pos = 0;
 
-        for (CTFStreamInputReader reader : fStreamInputReaders) {
+        for (int i = 0; i < fStreamInputReaders.size(); i++) {
+            CTFStreamInputReader reader = fStreamInputReaders.get(i);
             /*
              * Add each trace file reader in the priority queue, if we are able
              * to read an event from it.
@@ -299,7 +377,7 @@ public class CTFTraceReader implements AutoCloseable {
             reader.setParent(this);
             CTFResponse readNextEvent = reader.readNextEvent();
             if (readNextEvent == CTFResponse.OK || readNextEvent == CTFResponse.WAIT) {
-                fPrio.add(reader);
+                fPrio.set(i, (reader.getCurrentEvent() != null) ? getKey(reader) : getWaitKey(reader));
 
                 fEventCountPerTraceFile[pos] = 0;
                 reader.setName(pos);
@@ -330,25 +408,26 @@ public class CTFTraceReader implements AutoCloseable {
      */
     public boolean advance() throws CTFReaderException {
         /*
-         * Remove the reader from the top of the priority queue.
+         * Get the reader at the top of the priority queue.
          */
-        CTFStreamInputReader top = fPrio.poll();
+        int slot = fPrio.peek();
 
         /*
          * If the queue was empty.
          */
-        if (top == null) {
+        if (slot < 0) {
             return false;
         }
+        CTFStreamInputReader top = fStreamInputReaders.get(slot);
         /*
          * Read the next event of this reader.
          */
         switch (top.readNextEvent()) {
         case OK: {
             /*
-             * Add it back in the queue.
+             * Replay its matches in the tree with its new timestamp.
              */
-            fPrio.add(top);
+            fPrio.set(slot, getKey(top));
             final long topEnd = fTrace.timestampCyclesToNanos(top.getCurrentEvent().getTimestamp());
             setEndTime(Math.max(topEnd, getEndTime()));
             fEventCountPerTraceFile[top.getName()]++;
@@ -360,14 +439,21 @@ public class CTFTraceReader implements AutoCloseable {
             break;
         }
         case WAIT: {
-            fPrio.add(top);
+            /*
+             * Keep its last timestamp, or the end of its last packet if the
+             * tracer wrote packets without events since, it stays the next
+             * stream to read until it gets a new event.
+             */
+            fPrio.set(slot, Math.max(fPrio.getKey(slot), getWaitKey(top)));
             break;
         }
         case FINISH:
+            fPrio.remove(slot);
             break;
         case ERROR:
         default:
             // something bad happend
+            fPrio.remove(slot);
         }
         /*
          * If there is no reader in the queue, it means the trace reader reached
@@ -408,7 +494,8 @@ public class CTFTraceReader implements AutoCloseable {
          * Remove all the trace readers from the priority queue
          */
         fPrio.clear();
-        for (CTFStreamInputReader streamInputReader : fStreamInputReaders) {
+        for (int i = 0; i < fStreamInputReaders.size(); i++) {
+            CTFStreamInputReader streamInputReader = fStreamInputReaders.get(i);
             /*
              * Seek the trace reader.
              */
@@ -418,7 +505,9 @@ public class CTFTraceReader implements AutoCloseable {
              * Add it to the priority queue if there is a current event.
              */
             if (streamInputReader.getCurrentEvent() != null) {
-                fPrio.add(streamInputReader);
+                fPrio.set(i, getKey(streamInputReader));
+            } else if (fLive) {
+                fPrio.set(i, getWaitKey(streamInputReader));
             }
         }
         return hasMoreEvents();
@@ -430,7 +519,8 @@ public class CTFTraceReader implements AutoCloseable {
      * @return the stream with the oldest event
      */
     public CTFStreamInputReader getTopStream() {
-        return fPrio.peek();
+        int slot = fPrio.peek();
+        return (slot < 0) ? null : fStreamInputReaders.get(slot);
     }
 
     /**
@@ -439,7 +529,7 @@ public class CTFTraceReader implements AutoCloseable {
      * @return true if yes.
      */
     public final boolean hasMoreEvents() {
-        return fPrio.size() > 0;
+        return !fPrio.isEmpty();
     }
 
     /**
@@ -504,8 +594,17 @@ public class CTFTraceReader implements AutoCloseable {
      *            whether the trace is live
      */
     public void setLive(boolean live) {
-        for (CTFStreamInputReader s : fPrio) {
-            s.setLive(live);
+        fLive = live;
+        for (int i = 0; i < fStreamInputReaders.size(); i++) {
+            CTFStreamInputReader reader = fStreamInputReaders.get(i);
+            reader.setLive(live);
+            /*
+             * The streams that had no more events may get some while the
+             * trace is being written.
+             */
+            if (live && !fPrio.contains(i)) {
+                fPrio.set(i, getWaitKey(reader));
+            }
         }
     }
 
@@ -515,7 +614,68 @@ public class CTFTraceReader implements AutoCloseable {
      * @return whether the trace is live or not
      */
     public boolean isLive() {
-        return getTopStream().isLive();
+        return fLive;
+    }
+
+    /**
+     * Set the decoding of the event fields to be lazy, for all the streams of
+     * the trace. The fields of an event are then only decoded when they are
+     * accessed, which saves most of the decoding work and allocations for the
+     * readers that only look at the event types and timestamps.
+     *
+     * @param lazyDecoding
+     *            whether the event fields are decoded lazily or not
+     * @since 1.0
+     */
+    public void setLazyDecoding(boolean lazyDecoding) {
+        fLazyDecoding = lazyDecoding;
+        synchronized (fStreamInputReaders) {
+            for (CTFStreamInputReader reader : fStreamInputReaders) {
+                reader.setLazyDecoding(lazyDecoding);
+            }
+        }
+    }
+
+    /**
+     * Get if the event fields are decoded lazily or not
+     *
+     * @return whether the event fields are decoded lazily
+     * @since 1.0
+     */
+    public boolean isLazyDecoding() {
+        return fLazyDecoding;
+    }
+
+    /**
+     * Set the events of each stream to be decoded ahead, on worker threads.
+     * The streams are then decoded in parallel, and this reader only merges
+     * the decoded events by timestamp. The events are returned in the same
+     * order as when they are decoded as they are read.
+     *
+     * This is meant for reading through the trace, since the events decoded
+     * ahead are dropped when seeking.
+     *
+     * @param decodeAhead
+     *            whether the events are decoded ahead or not
+     * @since 1.0
+     */
+    public void setDecodeAhead(boolean decodeAhead) {
+        fDecodeAhead = decodeAhead;
+        synchronized (fStreamInputReaders) {
+            for (CTFStreamInputReader reader : fStreamInputReaders) {
+                reader.setDecodeAhead(decodeAhead);
+            }
+        }
+    }
+
+    /**
+     * Get if the events are decoded ahead or not
+     *
+     * @return whether the events are decoded ahead
+     * @since 1.0
+     */
+    public boolean isDecodeAhead() {
+        return fDecodeAhead;
     }
 
     @Override
@@ -0,0 +1,281 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.ctf.core.trace;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.tracecompass.ctf.core.CTFReaderException;
+import org.eclipse.tracecompass.internal.ctf.core.Activator;
+
+/**
+ * Follows a trace that is still being written to a local directory, for
+ * example by an LTTng session. A thread watches the trace directory, parses
+ * the metadata packets appended to the metadata file, adds the new stream
+ * files to the trace, and extends the packet index of the stream files as
+ * their packets are completely written.
+ *
+ * The readers can wait for the next change with
+ * {@link #awaitChange(long, long, TimeUnit)}. Since the trace is modified by
+ * the watcher thread, the code that goes through the streams of the trace
+ * while it is watched must synchronize on the trace, like the constructor of
+ * {@link CTFTraceReader} and {@link CTFTraceReader#update()} do.
+ *
+ * The directory is also scanned at a regular interval, for the file systems
+ * that do not report the file changes.
+ *
+ * @author agent
+ * @since 1.0
+ */
+public class CTFTraceWatcher implements AutoCloseable {
+
+    /** Interval at which the directory is scanned without notifications */
+    private static final long POLL_INTERVAL_MS = 500;
+
+    private static final FileFilter STREAM_FILE_FILTER = new CTFTrace.MetadataFileFilter();
+
+    private static final String METADATA_FILENAME = "metadata"; //$NON-NLS-1$
+
+    private final CTFTrace fTrace;
+    private final Path fDirectory;
+    private final WatchService fWatchService;
+    private final Thread fThread;
+
+    /* Only used by the watcher thread */
+    private final Map<File, Long> fFileSizes = new HashMap<>();
+    private final Set<File> fPendingFiles = new LinkedHashSet<>();
+    private final File fMetadataFile;
+    private long fMetadataSize;
+
+    private final Object fLock = new Object();
+    /* Guarded by fLock */
+    private long fGeneration = 0;
+
+    private volatile boolean fClosed = false;
+
+    /**
+     * Constructor. Starts watching the trace directory.
+     *
+     * @param trace
+     *            The trace to follow
+     * @throws CTFReaderException
+     *             If the trace directory cannot be watched
+     */
+    public CTFTraceWatcher(CTFTrace trace) throws CTFReaderException {
+        fTrace = trace;
+        fDirectory = trace.getTraceDirectory().toPath();
+        fMetadataFile = new File(trace.getTraceDirectory(), METADATA_FILENAME);
+        fMetadataSize = -1;
+        synchronized (fTrace) {
+            for (CTFStream stream : fTrace.getStreams()) {
+                for (CTFStreamInput input : stream.getStreamInputs()) {
+                    fFileSizes.put(input.getFile(), -1L);
+                }
+            }
+        }
+        try {
+            fWatchService = fDirectory.getFileSystem().newWatchService();
+            fDirectory.register(fWatchService, ENTRY_CREATE, ENTRY_MODIFY);
+        } catch (IOException e) {
+            throw new CTFReaderException("Cannot watch the trace directory", e); //$NON-NLS-1$
+        }
+        fThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watch();
+            }
+        }, "CTF Trace Watcher " + fDirectory.getFileName()); //$NON-NLS-1$
+        fThread.setDaemon(true);
+        fThread.start();
+    }
+
+    /**
+     * Get the trace followed by this watcher
+     *
+     * @return The trace
+     */
+    public CTFTrace getTrace() {
+        return fTrace;
+    }
+
+    /**
+     * Get the current generation of the trace, which is incremented each time
+     * new stream files or new packets are added to it.
+     *
+     * @return The current generation
+     */
+    public long getGeneration() {
+        synchronized (fLock) {
+            return fGeneration;
+        }
+    }
+
+    /**
+     * Wait until the trace changes after a given generation.
+     *
+     * @param generation
+     *            The last generation seen by the caller
+     * @param timeout
+     *            The maximum time to wait
+     * @param unit
+     *            The unit of the timeout
+     * @return The current generation, which is the same as the given one if
+     *         the wait timed out or the watcher is closed
+     * @throws InterruptedException
+     *             If the thread was interrupted while waiting
+     */
+    public long awaitChange(long generation, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (fLock) {
+            while (fGeneration == generation && !fClosed) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    break;
+                }
+                fLock.wait(remaining);
+            }
+            return fGeneration;
+        }
+    }
+
+    /**
+     * Stop watching the trace directory
+     */
+    @Override
+    public void close() {
+        fClosed = true;
+        try {
+            fWatchService.close();
+        } catch (IOException e) {
+            Activator.log(e.getMessage());
+        }
+        synchronized (fLock) {
+            fLock.notifyAll();
+        }
+        if (Thread.currentThread() != fThread) {
+            try {
+                fThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Watcher thread
+    // ------------------------------------------------------------------------
+
+    private void watch() {
+        while (!fClosed) {
+            try {
+                WatchKey key = fWatchService.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == ENTRY_CREATE) {
+                            File file = fDirectory.resolve((Path) event.context()).toFile();
+                            if (!fFileSizes.containsKey(file) && STREAM_FILE_FILTER.accept(file)) {
+                                fPendingFiles.add(file);
+                            }
+                        }
+                    }
+                    key.reset();
+                }
+                if (update()) {
+                    synchronized (fLock) {
+                        fGeneration++;
+                        fLock.notifyAll();
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+        }
+    }
+
+    /*
+     * Parse the new metadata, add the new stream files, and index the new
+     * packets of the files that grew. Returns true if anything was added to
+     * the trace.
+     */
+    private boolean update() {
+        boolean changed = false;
+        synchronized (fTrace) {
+            /* The new streams may be declared in the new metadata */
+            long metadataSize = fMetadataFile.length();
+            if (metadataSize != fMetadataSize) {
+                try {
+                    changed |= fTrace.updateMetadata();
+                    fMetadataSize = metadataSize;
+                } catch (CTFReaderException e) {
+                    Activator.log(e.getMessage());
+                }
+            }
+
+            /* The file creations may not have been reported */
+            File[] files = fDirectory.toFile().listFiles(STREAM_FILE_FILTER);
+            if (files != null) {
+                for (File file : files) {
+                    if (!fFileSizes.containsKey(file)) {
+                        fPendingFiles.add(file);
+                    }
+                }
+            }
+
+            /* A new file may not have a complete packet header yet */
+            List<File> added = new ArrayList<>();
+            for (File file : fPendingFiles) {
+                try {
+                    fTrace.addStreamFile(file);
+                    fFileSizes.put(file, -1L);
+                    added.add(file);
+                    changed = true;
+                } catch (CTFReaderException e) {
+                    /* Try again at the next update */
+                }
+            }
+            fPendingFiles.removeAll(added);
+
+            for (CTFStream stream : fTrace.getStreams()) {
+                for (CTFStreamInput input : stream.getStreamInputs()) {
+                    File file = input.getFile();
+                    long size = file.length();
+                    Long previous = fFileSizes.put(file, size);
+                    if (previous == null || previous != size) {
+                        try {
+                            changed |= (input.indexNewPackets() > 0);
+                        } catch (CTFReaderException e) {
+                            Activator.log(e.getMessage());
+                        }
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+}
@@ -14,15 +14,17 @@
 
 package org.eclipse.tracecompass.ctf.core.trace;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.util.UUID;
 
 import org.antlr.runtime.ANTLRReaderStream;
@@ -30,11 +32,13 @@ import org.antlr.runtime.CommonTokenStream;
 import org.antlr.runtime.RecognitionException;
 import org.antlr.runtime.tree.CommonTree;
 import org.antlr.runtime.tree.RewriteCardinalityException;
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.ctf.core.CTFReaderException;
 import org.eclipse.tracecompass.ctf.parser.CTFLexer;
 import org.eclipse.tracecompass.ctf.parser.CTFParser;
 import org.eclipse.tracecompass.ctf.parser.CTFParser.parse_return;
 import org.eclipse.tracecompass.internal.ctf.core.event.metadata.IOStructGen;
+import org.eclipse.tracecompass.internal.ctf.core.event.metadata.MetadataCache;
 import org.eclipse.tracecompass.internal.ctf.core.event.metadata.exceptions.CtfAntlrException;
 import org.eclipse.tracecompass.internal.ctf.core.event.metadata.exceptions.ParseException;
 
@@ -79,6 +83,17 @@ public class Metadata {
 
     private IOStructGen fTreeParser;
 
+    /**
+     * Directory of the cached syntax trees, null to only cache them in memory
+     */
+    private final @Nullable File fCacheDirectory;
+
+    /**
+     * Position in the metadata file of the first packet that is not parsed
+     * yet, for packet-based metadata that is still being written.
+     */
+    private long fPacketsEnd = -1;
+
     // ------------------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------------------
@@ -90,7 +105,24 @@ public class Metadata {
      *            The trace to which belongs this metadata file.
      */
     public Metadata(CTFTrace trace) {
+        this(trace, null);
+    }
+
+    /**
+     * Constructs a Metadata object, which caches the syntax tree of the
+     * metadata in a directory. The metadata text is then only parsed the
+     * first time a trace with this metadata is opened.
+     *
+     * @param trace
+     *            The trace to which belongs this metadata file.
+     * @param cacheDirectory
+     *            The directory where the syntax trees are cached, or null to
+     *            only cache them in memory
+     * @since 1.0
+     */
+    public Metadata(CTFTrace trace, @Nullable File cacheDirectory) {
         this.trace = trace;
+        fCacheDirectory = cacheDirectory;
     }
 
     /**
@@ -98,6 +130,7 @@ public class Metadata {
      */
     public Metadata() {
         trace = new CTFTrace();
+        fCacheDirectory = null;
     }
 
     // ------------------------------------------------------------------------
@@ -135,20 +168,22 @@ public class Metadata {
     public void parseFile() throws CTFReaderException {
 
         /*
-         * Reader. It will contain a StringReader if we are using packet-based
-         * metadata and it will contain a FileReader if we have text-based
-         * metadata.
+         * The whole metadata text is read first, to look up its syntax tree in
+         * the cache.
          */
 
         try (FileInputStream fis = new FileInputStream(getMetadataPath());
-                FileChannel metadataFileChannel = fis.getChannel();
-                /* Check if metadata is packet-based, if not it is text based */
-                Reader metadataTextInput =
-                        (isPacketBased(metadataFileChannel) ?
-                                readBinaryMetaData(metadataFileChannel) :
-                                new FileReader(getMetadataPath()));) {
+                FileChannel metadataFileChannel = fis.getChannel();) {
+            /* Check if metadata is packet-based, if not it is text based */
+            String metadataText;
+            if (isPacketBased(metadataFileChannel)) {
+                metadataText = readBinaryMetaData(metadataFileChannel);
+                fPacketsEnd = metadataFileChannel.position();
+            } else {
+                metadataText = new String(Files.readAllBytes(new File(getMetadataPath()).toPath()), Charset.defaultCharset());
+            }
 
-            readMetaDataText(metadataTextInput);
+            readMetaDataText(metadataText);
 
         } catch (FileNotFoundException e) {
             throw new CTFReaderException("Cannot find metadata file!", e); //$NON-NLS-1$
@@ -159,7 +194,7 @@ public class Metadata {
         }
     }
 
-    private Reader readBinaryMetaData(FileChannel metadataFileChannel) throws CTFReaderException {
+    private String readBinaryMetaData(FileChannel metadataFileChannel) throws CTFReaderException {
         /* Create StringBuffer to receive metadata text */
         StringBuffer metadataText = new StringBuffer();
 
@@ -174,8 +209,7 @@ public class Metadata {
                     metadataText);
         }
 
-        /* Wrap the metadata string with a StringReader */
-        return new StringReader(metadataText.toString());
+        return metadataText.toString();
     }
 
     /**
@@ -189,9 +223,8 @@ public class Metadata {
      *             parsing a TSDL file
      */
     public void parseText(String data) throws CTFReaderException {
-        Reader metadataTextInput = new StringReader(data);
         try {
-            readMetaDataText(metadataTextInput);
+            readMetaDataText(data);
         } catch (IOException | ParseException e) {
             throw new CTFReaderException(e);
         } catch (RecognitionException | RewriteCardinalityException e) {
@@ -200,8 +233,14 @@ public class Metadata {
 
     }
 
-    private void readMetaDataText(Reader metadataTextInput) throws IOException, RecognitionException, ParseException {
-        CommonTree tree = createAST(metadataTextInput);
+    private void readMetaDataText(String metadataText) throws IOException, RecognitionException, ParseException {
+        /* Only run the grammar if this metadata was not parsed before */
+        String hash = MetadataCache.hash(metadataText);
+        CommonTree tree = MetadataCache.get(hash, fCacheDirectory);
+        if (tree == null) {
+            tree = createAST(new StringReader(metadataText));
+            MetadataCache.put(hash, tree, fCacheDirectory);
+        }
 
         /* Generate IO structures (declarations) */
         fTreeParser = new IOStructGen(tree, trace);
@@ -229,6 +268,60 @@ public class Metadata {
         }
     }
 
+    /**
+     * Parse the metadata packets that were appended to the metadata file since
+     * it was last parsed, for a trace that is still being written. Only the
+     * new packets are parsed, as a fragment of the metadata.
+     *
+     * A packet that is not completely written yet is parsed by a later call.
+     * Text-based metadata can not be updated.
+     *
+     * @return true if new metadata was parsed
+     * @throws CTFReaderException
+     *             If there was a problem parsing the new metadata
+     * @since 1.0
+     */
+    public boolean parseNewPackets() throws CTFReaderException {
+        if (fPacketsEnd < 0 || fTreeParser == null) {
+            return false;
+        }
+        StringBuffer fragment = new StringBuffer();
+        try (FileInputStream fis = new FileInputStream(getMetadataPath());
+                FileChannel metadataFileChannel = fis.getChannel();) {
+            long position = fPacketsEnd;
+            while (isPacketComplete(metadataFileChannel, position)) {
+                metadataFileChannel.position(position);
+                readMetadataPacket(metadataFileChannel, fragment);
+                position = metadataFileChannel.position();
+            }
+            if (position == fPacketsEnd) {
+                return false;
+            }
+            parseTextFragment(fragment.toString());
+            fPacketsEnd = position;
+            return true;
+        } catch (IOException e) {
+            throw new CTFReaderException(e);
+        }
+    }
+
+    private boolean isPacketComplete(FileChannel metadataFileChannel, long position) throws IOException {
+        long remaining = metadataFileChannel.size() - position;
+        if (remaining < METADATA_PACKET_HEADER_SIZE) {
+            return false;
+        }
+        ByteBuffer headerByteBuffer = ByteBuffer.allocate(METADATA_PACKET_HEADER_SIZE);
+        while (headerByteBuffer.hasRemaining()) {
+            if (metadataFileChannel.read(headerByteBuffer, position + headerByteBuffer.position()) < 0) {
+                return false;
+            }
+        }
+        headerByteBuffer.position(0);
+        headerByteBuffer.order(detectedByteOrder);
+        MetadataPacketHeader header = new MetadataPacketHeader(headerByteBuffer);
+        return remaining >= header.getPacketSize() / BITS_PER_BYTE;
+    }
+
     private void readMetaDataTextFragment(Reader metadataTextInput) throws IOException, RecognitionException, ParseException {
         CommonTree tree = createAST(metadataTextInput);
         fTreeParser.setTree(tree);
@@ -30,6 +30,16 @@ public class SafeMappedByteBuffer {
 
     private SafeMappedByteBuffer(){}
 
+    /**
+     * Checks if the regions are really mapped. If not, they are read into
+     * memory, so mapping more than what is needed is costly.
+     *
+     * @return true if {@link #map} maps the file, false if it reads it
+     */
+    public static boolean isMapped() {
+        return !IS_WIN32;
+    }
+
     /**
      * Maps a region of this channel's file directly into memory. On Windows,
      * this will allocate a new ByteBuffer and read the file.
@@ -29,6 +29,7 @@ import org.eclipse.tracecompass.ctf.core.event.types.StructDeclaration;
 import org.eclipse.tracecompass.ctf.core.event.types.StructDefinition;
 import org.eclipse.tracecompass.ctf.core.trace.CTFStream;
 import org.eclipse.tracecompass.ctf.core.trace.CTFStreamInputReader;
+import org.eclipse.tracecompass.internal.ctf.core.event.types.FixedStructLayout;
 
 /**
  * Representation of one type of event. A bit like "int" or "long" but for trace
@@ -61,6 +62,13 @@ public class EventDeclaration implements IEventDeclaration {
      */
     private StructDeclaration fFields = null;
 
+    /**
+     * Layouts of the event context and fields, if they have a fixed size.
+     * They are compiled when the metadata sets the context and fields.
+     */
+    private volatile FixedStructLayout fContextLayout = null;
+    private volatile FixedStructLayout fFieldsLayout = null;
+
     /**
      * Stream to which belongs this event.
      */
@@ -92,8 +100,21 @@ public class EventDeclaration implements IEventDeclaration {
         StructDeclaration streamEventContextDecl = streamInputReader.getStreamEventContextDecl();
         StructDefinition streamEventContext = streamEventContextDecl != null ? streamEventContextDecl.createDefinition(fStream.getTrace(), LexicalScope.STREAM_EVENT_CONTEXT, input) : null;
         StructDefinition packetContext = streamInputReader.getPacketReader().getCurrentPacketEventHeader();
-        StructDefinition eventContext = fContext != null ? fContext.createDefinition(fStream.getTrace(), LexicalScope.CONTEXT, input) : null;
-        StructDefinition eventPayload = fFields != null ? fFields.createDefinition(fStream.getTrace(), LexicalScope.FIELDS, input) : null;
+        StructDefinition eventContext = fContext != null ? decode(fContext, getContextLayout(), LexicalScope.CONTEXT, input) : null;
+        FixedStructLayout fieldsLayout = getFieldsLayout();
+        if (fFields != null && fieldsLayout != null && streamInputReader.isLazyDecoding()) {
+            long start = fieldsLayout.getStart(input.position());
+            long end = start + fieldsLayout.getSize();
+            if (end <= (long) input.getByteBuffer().capacity() * Byte.SIZE) {
+                /* Skip the fields, they will be decoded when accessed */
+                LazyEventFields lazyFields = new LazyEventFields(fFields, fieldsLayout, fStream.getTrace(), input, start);
+                input.position(end);
+                return EventDefinition.createLazy(this, streamInputReader, timestamp,
+                        streamEventContext, eventContext, packetContext, lazyFields);
+            }
+            /* Let the normal decoding report the error */
+        }
+        StructDefinition eventPayload = fFields != null ? decode(fFields, fieldsLayout, LexicalScope.FIELDS, input) : null;
 
         // a bit lttng specific
         // CTF doesn't require a timestamp,
@@ -151,6 +172,7 @@ public class EventDeclaration implements IEventDeclaration {
      */
     public void setContext(StructDeclaration context) {
         fContext = context;
+        fContextLayout = (context != null ? FixedStructLayout.create(context) : null);
     }
 
     /**
@@ -161,6 +183,38 @@ public class EventDeclaration implements IEventDeclaration {
      */
     public void setFields(StructDeclaration fields) {
         fFields = fields;
+        fFieldsLayout = (fields != null ? FixedStructLayout.create(fields) : null);
+    }
+
+    private FixedStructLayout getContextLayout() {
+        FixedStructLayout layout = fContextLayout;
+        if (layout != null && layout.getFieldCount() != fContext.getFields().size()) {
+            /* Fields were added to the struct after it was set */
+            layout = FixedStructLayout.create(fContext);
+            fContextLayout = layout;
+        }
+        return layout;
+    }
+
+    private FixedStructLayout getFieldsLayout() {
+        FixedStructLayout layout = fFieldsLayout;
+        if (layout != null && layout.getFieldCount() != fFields.getFields().size()) {
+            /* Fields were added to the struct after it was set */
+            layout = FixedStructLayout.create(fFields);
+            fFieldsLayout = layout;
+        }
+        return layout;
+    }
+
+    /**
+     * Decode a struct, using its compiled layout if it has one
+     */
+    private StructDefinition decode(StructDeclaration declaration, FixedStructLayout layout,
+            LexicalScope scope, @NonNull BitBuffer input) throws CTFReaderException {
+        if (layout != null && layout.isCompiled()) {
+            return layout.createDefinition(declaration, fStream.getTrace(), scope, input);
+        }
+        return declaration.createDefinition(fStream.getTrace(), scope, input);
     }
 
     @Override
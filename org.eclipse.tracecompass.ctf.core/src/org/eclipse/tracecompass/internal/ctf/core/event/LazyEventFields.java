@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.ctf.core.event;
+
+import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.ctf.core.CTFReaderException;
+import org.eclipse.tracecompass.ctf.core.event.io.BitBuffer;
+import org.eclipse.tracecompass.ctf.core.event.scope.IDefinitionScope;
+import org.eclipse.tracecompass.ctf.core.event.scope.LexicalScope;
+import org.eclipse.tracecompass.ctf.core.event.types.IDefinition;
+import org.eclipse.tracecompass.ctf.core.event.types.StructDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.StructDefinition;
+import org.eclipse.tracecompass.internal.ctf.core.event.types.FixedStructLayout;
+
+/**
+ * The not yet decoded payload of an event. It keeps a copy of the bytes of
+ * the payload, so that the fields can be decoded only if, and when, they are
+ * accessed.
+ *
+ * The bytes are copied rather than referenced in the packet buffer: that
+ * buffer is a slice of a large mapping of the stream file, which is released
+ * once the reader leaves the packet, while the event can be kept much longer.
+ * The copy is bounded by the size of the payload.
+ *
+ * @author agent
+ */
+public final class LazyEventFields {
+
+    private final StructDeclaration fDeclaration;
+    private final FixedStructLayout fLayout;
+    private final IDefinitionScope fScope;
+    private final byte[] fPayload;
+    private final ByteOrder fByteOrder;
+    private final long fStart;
+
+    /**
+     * Constructor
+     *
+     * @param declaration
+     *            The declaration of the event payload
+     * @param layout
+     *            The layout of the payload declaration
+     * @param scope
+     *            The scope in which to create the definitions
+     * @param input
+     *            The buffer of the packet containing the event
+     * @param start
+     *            The position of the payload in the buffer, already aligned,
+     *            in bits. The whole payload, of the size of the layout, must
+     *            be in the buffer.
+     */
+    public LazyEventFields(StructDeclaration declaration, FixedStructLayout layout,
+            IDefinitionScope scope, BitBuffer input, long start) {
+        fDeclaration = declaration;
+        fLayout = layout;
+        fScope = scope;
+        fByteOrder = input.getByteOrder();
+
+        /*
+         * Copy from the byte containing the first bit of the payload. The
+         * payload then starts at the same bit of the first byte, which keeps
+         * the alignment of the fields: either the payload is byte-aligned and
+         * starts at 0, or its alignment, and the one of its fields, is under
+         * a byte.
+         */
+        int firstByte = (int) (start / Byte.SIZE);
+        fStart = start % Byte.SIZE;
+        int length = (int) ((fStart + layout.getSize() + Byte.SIZE - 1) / Byte.SIZE);
+        fPayload = new byte[length];
+        ByteBuffer src = input.getByteBuffer().duplicate();
+        src.position(firstByte);
+        src.get(fPayload);
+    }
+
+    private BitBuffer createBitBuffer(long position) throws CTFReaderException {
+        BitBuffer bitBuffer = new BitBuffer(checkNotNull(ByteBuffer.wrap(fPayload)), fByteOrder);
+        bitBuffer.position(position);
+        return bitBuffer;
+    }
+
+    /**
+     * Decode all the fields of the payload
+     *
+     * @return The payload definition
+     * @throws CTFReaderException
+     *             If the payload could not be read
+     */
+    public StructDefinition decode() throws CTFReaderException {
+        if (fLayout.isCompiled()) {
+            return fLayout.createDefinition(fDeclaration, fScope, LexicalScope.FIELDS, createBitBuffer(fStart));
+        }
+        return fDeclaration.createDefinition(fScope, LexicalScope.FIELDS, createBitBuffer(fStart));
+    }
+
+    /**
+     * Decode a single field of the payload
+     *
+     * @param name
+     *            The name of the field
+     * @return The definition of the field, or null if there is no such field
+     * @throws CTFReaderException
+     *             If the field could not be read
+     */
+    public @Nullable IDefinition decodeField(String name) throws CTFReaderException {
+        int index = fLayout.indexOf(name);
+        if (index < 0) {
+            return null;
+        }
+        BitBuffer bitBuffer = createBitBuffer(fStart + fLayout.getOffset(index));
+        return fLayout.getDeclaration(index).createDefinition(fScope, name, bitBuffer);
+    }
+}
@@ -0,0 +1,230 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.ctf.core.event.metadata;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.antlr.runtime.CommonToken;
+import org.antlr.runtime.tree.CommonTree;
+import org.antlr.runtime.tree.Tree;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Cache of the syntax trees of the metadata, keyed by the hash of the TSDL
+ * text, so that opening a trace again does not run the ANTLR grammar over the
+ * whole metadata. The declarations generated from the tree belong to a trace,
+ * so they are generated again from the cached tree for each trace.
+ *
+ * The trees are kept, serialized, in a small in-memory cache shared by all
+ * the traces, and optionally in a file per metadata in a cache directory.
+ *
+ * @author agent
+ */
+public final class MetadataCache {
+
+    private static final int MAGIC = 0x7C7FCA5E;
+    private static final int VERSION = 1;
+    private static final int MAX_ENTRIES = 16;
+    private static final String FILE_PREFIX = "metadata-"; //$NON-NLS-1$
+    private static final String FILE_SUFFIX = ".ast"; //$NON-NLS-1$
+    private static final Charset UTF8 = Charset.forName("UTF-8"); //$NON-NLS-1$
+
+    private static final Map<String, byte[]> TREES = new LinkedHashMap<String, byte[]>(MAX_ENTRIES, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private MetadataCache() {
+    }
+
+    /**
+     * Get the key of a metadata text in the cache
+     *
+     * @param metadataText
+     *            The TSDL text
+     * @return The hash of the text, in hexadecimal
+     */
+    public static String hash(String metadataText) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+            byte[] hash = digest.digest(metadataText.getBytes(UTF8));
+            StringBuilder sb = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                sb.append(String.format("%02x", b & 0xff)); //$NON-NLS-1$
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            /* Every Java platform has SHA-1 */
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Get the syntax tree of a metadata text from the cache
+     *
+     * @param hash
+     *            The hash of the metadata text
+     * @param cacheDirectory
+     *            The directory of the cache files, or null to only look in
+     *            memory
+     * @return A new copy of the tree, or null if it is not in the cache
+     */
+    public static @Nullable CommonTree get(String hash, @Nullable File cacheDirectory) {
+        byte[] data;
+        synchronized (TREES) {
+            data = TREES.get(hash);
+        }
+        if (data == null && cacheDirectory != null) {
+            File file = getCacheFile(cacheDirectory, hash);
+            if (!file.isFile()) {
+                return null;
+            }
+            try {
+                data = Files.readAllBytes(file.toPath());
+            } catch (IOException e) {
+                return null;
+            }
+        }
+        if (data == null) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            CommonTree tree = readTree(in);
+            synchronized (TREES) {
+                TREES.put(hash, data);
+            }
+            return tree;
+        } catch (IOException e) {
+            /* Corrupted cache file, the metadata will be parsed again */
+            return null;
+        }
+    }
+
+    /**
+     * Put the syntax tree of a metadata text in the cache
+     *
+     * @param hash
+     *            The hash of the metadata text
+     * @param tree
+     *            The syntax tree
+     * @param cacheDirectory
+     *            The directory of the cache files, or null to only keep the
+     *            tree in memory
+     */
+    public static void put(String hash, CommonTree tree, @Nullable File cacheDirectory) {
+        byte[] data;
+        try (ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeTree(out, tree);
+            out.flush();
+            data = bytes.toByteArray();
+        } catch (IOException e) {
+            /* Cannot happen with a byte array, don't cache the tree */
+            return;
+        }
+        synchronized (TREES) {
+            TREES.put(hash, data);
+        }
+        if (cacheDirectory != null && (cacheDirectory.isDirectory() || cacheDirectory.mkdirs())) {
+            File file = getCacheFile(cacheDirectory, hash);
+            try {
+                /* Write then rename, so a partial file is never read */
+                File tmp = File.createTempFile(FILE_PREFIX, FILE_SUFFIX, cacheDirectory);
+                Files.write(tmp.toPath(), data);
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                /* Not fatal, the metadata will be parsed again next time */
+            }
+        }
+    }
+
+    /**
+     * Empty the in-memory cache
+     */
+    public static void clear() {
+        synchronized (TREES) {
+            TREES.clear();
+        }
+    }
+
+    private static File getCacheFile(File cacheDirectory, String hash) {
+        return new File(cacheDirectory, FILE_PREFIX + hash + FILE_SUFFIX);
+    }
+
+    // ------------------------------------------------------------------------
+    // Serialization
+    // ------------------------------------------------------------------------
+
+    /*
+     * Each node is its token type and text, or a nil flag for the nil root,
+     * then its children. IOStructGen only looks at the types, the texts and
+     * the structure of the tree.
+     */
+    private static void writeTree(DataOutputStream out, Tree tree) throws IOException {
+        boolean nil = tree.isNil();
+        out.writeBoolean(nil);
+        if (!nil) {
+            out.writeInt(tree.getType());
+            String text = tree.getText();
+            out.writeBoolean(text != null);
+            if (text != null) {
+                out.writeUTF(text);
+            }
+            out.writeInt(tree.getLine());
+        }
+        int count = tree.getChildCount();
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            writeTree(out, tree.getChild(i));
+        }
+    }
+
+    private static CommonTree readTree(DataInputStream in) throws IOException {
+        CommonTree tree;
+        if (in.readBoolean()) {
+            tree = new CommonTree();
+        } else {
+            int type = in.readInt();
+            String text = in.readBoolean() ? in.readUTF() : null;
+            CommonToken token = new CommonToken(type, text);
+            token.setLine(in.readInt());
+            tree = new CommonTree(token);
+        }
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            tree.addChild(readTree(in));
+        }
+        return tree;
+    }
+}
@@ -0,0 +1,293 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.ctf.core.event.types;
+
+import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
+
+import java.nio.ByteOrder;
+import java.util.Map.Entry;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.ctf.core.CTFReaderException;
+import org.eclipse.tracecompass.ctf.core.event.io.BitBuffer;
+import org.eclipse.tracecompass.ctf.core.event.scope.IDefinitionScope;
+import org.eclipse.tracecompass.ctf.core.event.scope.LexicalScope;
+import org.eclipse.tracecompass.ctf.core.event.types.Definition;
+import org.eclipse.tracecompass.ctf.core.event.types.EnumDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.EnumDefinition;
+import org.eclipse.tracecompass.ctf.core.event.types.FloatDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.IDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.IntegerDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.IntegerDefinition;
+import org.eclipse.tracecompass.ctf.core.event.types.StructDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.StructDefinition;
+
+/**
+ * Layout of a struct whose fields all have a fixed size (integers, floats and
+ * enums). Since a struct is aligned on the largest alignment of its fields,
+ * the offset of each field from the start of the struct is always the same,
+ * so it is computed once from the declaration. This allows to skip over the
+ * struct, or to read a single field, without decoding the other fields.
+ *
+ * When all the fields are integers or enums, the layout is also compiled into
+ * flat tables (offset, length, signedness, byte order), so that all the fields
+ * are extracted in one pass with {@link BitBuffer#get(long, long[], int[],
+ * boolean[], ByteOrder[], long[])}, without going through the declaration of
+ * each field.
+ *
+ * @author agent
+ */
+public final class FixedStructLayout {
+
+    private final String[] fNames;
+    private final IDeclaration[] fDeclarations;
+    private final long[] fOffsets;
+    private final long fAlignment;
+    private final long fSize;
+
+    /* Decoding tables, null if some fields are not integers or enums */
+    private final int[] fLengths;
+    private final boolean[] fSigned;
+    private final ByteOrder[] fByteOrders;
+
+    private FixedStructLayout(String[] names, IDeclaration[] declarations, long[] offsets, long alignment, long size) {
+        fNames = names;
+        fDeclarations = declarations;
+        fOffsets = offsets;
+        fAlignment = alignment;
+        fSize = size;
+
+        int[] lengths = new int[declarations.length];
+        boolean[] signed = new boolean[declarations.length];
+        ByteOrder[] byteOrders = new ByteOrder[declarations.length];
+        boolean compiled = true;
+        for (int i = 0; i < declarations.length && compiled; i++) {
+            IntegerDeclaration intDecl = getIntegerDeclaration(declarations[i]);
+            if (intDecl == null) {
+                compiled = false;
+            } else {
+                lengths[i] = intDecl.getLength();
+                signed[i] = intDecl.isSigned();
+                byteOrders[i] = intDecl.getByteOrder();
+            }
+        }
+        fLengths = (compiled ? lengths : null);
+        fSigned = (compiled ? signed : null);
+        fByteOrders = (compiled ? byteOrders : null);
+    }
+
+    private static @Nullable IntegerDeclaration getIntegerDeclaration(IDeclaration declaration) {
+        if (declaration instanceof IntegerDeclaration) {
+            return (IntegerDeclaration) declaration;
+        }
+        if (declaration instanceof EnumDeclaration) {
+            return ((EnumDeclaration) declaration).getContainerType();
+        }
+        return null;
+    }
+
+    /**
+     * Compute the layout of a struct declaration.
+     *
+     * @param declaration
+     *            The struct declaration
+     * @return The layout, or null if some fields of the struct do not have a
+     *         fixed size
+     */
+    public static @Nullable FixedStructLayout create(StructDeclaration declaration) {
+        int nbFields = declaration.getFields().size();
+        String[] names = new String[nbFields];
+        IDeclaration[] declarations = new IDeclaration[nbFields];
+        long[] offsets = new long[nbFields];
+
+        long offset = 0;
+        int i = 0;
+        for (Entry<String, IDeclaration> field : declaration.getFields().entrySet()) {
+            IDeclaration fieldDecl = field.getValue();
+            if (!(fieldDecl instanceof IntegerDeclaration
+                    || fieldDecl instanceof FloatDeclaration
+                    || fieldDecl instanceof EnumDeclaration)) {
+                return null;
+            }
+            offset = align(offset, fieldDecl.getAlignment());
+            names[i] = field.getKey();
+            declarations[i] = fieldDecl;
+            offsets[i] = offset;
+            offset += getSize(fieldDecl);
+            i++;
+        }
+        return new FixedStructLayout(names, declarations, offsets, declaration.getAlignment(), offset);
+    }
+
+    /**
+     * Number of bits read when decoding a field. For floats, only 32 and 64
+     * bit values are read.
+     */
+    private static long getSize(IDeclaration declaration) {
+        if (declaration instanceof FloatDeclaration) {
+            FloatDeclaration floatDecl = (FloatDeclaration) declaration;
+            int size = floatDecl.getExponent() + floatDecl.getMantissa();
+            return (size == Integer.SIZE || size == Long.SIZE) ? size : 0;
+        }
+        return declaration.getMaximumSize();
+    }
+
+    private static long align(long position, long alignment) {
+        long mask = alignment - 1;
+        return (position + mask) & ~mask;
+    }
+
+    /**
+     * Get the position where the struct starts, once aligned
+     *
+     * @param position
+     *            The current position in the buffer, in bits
+     * @return The position of the start of the struct, in bits
+     */
+    public long getStart(long position) {
+        return align(position, fAlignment);
+    }
+
+    /**
+     * Get the size of the struct, padding included
+     *
+     * @return The size, in bits
+     */
+    public long getSize() {
+        return fSize;
+    }
+
+    /**
+     * Get the number of fields of the struct
+     *
+     * @return The number of fields
+     */
+    public int getFieldCount() {
+        return fNames.length;
+    }
+
+    /**
+     * Get the index of a field
+     *
+     * @param name
+     *            The name of the field
+     * @return The index of the field, or -1 if there is no such field
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < fNames.length; i++) {
+            if (fNames[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the declaration of a field
+     *
+     * @param index
+     *            The index of the field
+     * @return The declaration of the field
+     */
+    public IDeclaration getDeclaration(int index) {
+        return fDeclarations[index];
+    }
+
+    /**
+     * Check if the layout is compiled into decoding tables, which is the case
+     * when all the fields are integers or enums.
+     *
+     * @return If {@link #createDefinition} can be used
+     */
+    public boolean isCompiled() {
+        return (fLengths != null);
+    }
+
+    /**
+     * Read the values of all the fields in one pass. The layout must be
+     * compiled.
+     *
+     * @param input
+     *            The buffer to read from. Its position is not changed.
+     * @param start
+     *            The position of the struct, already aligned, in bits
+     * @param dst
+     *            The array where to store the values, one per field
+     * @throws CTFReaderException
+     *             If the buffer could not be read
+     */
+    public void getValues(BitBuffer input, long start, long[] dst) throws CTFReaderException {
+        int[] lengths = fLengths;
+        boolean[] signed = fSigned;
+        ByteOrder[] byteOrders = fByteOrders;
+        if (lengths == null || signed == null || byteOrders == null) {
+            throw new IllegalStateException("Struct layout is not compiled"); //$NON-NLS-1$
+        }
+        input.get(start, fOffsets, lengths, signed, byteOrders, dst);
+    }
+
+    /**
+     * Create the definition of the struct from the decoding tables. This
+     * gives the same result as
+     * {@link StructDeclaration#createDefinition(IDefinitionScope, LexicalScope, BitBuffer)}
+     * and leaves the buffer at the end of the struct, but without going
+     * through the declaration of each field. The layout must be compiled.
+     *
+     * @param declaration
+     *            The struct declaration this layout was created from
+     * @param definitionScope
+     *            The definition scope
+     * @param fieldScope
+     *            The scope of the struct definition
+     * @param input
+     *            The buffer to read from
+     * @return The struct definition
+     * @throws CTFReaderException
+     *             If the buffer could not be read
+     */
+    public StructDefinition createDefinition(StructDeclaration declaration,
+            @Nullable IDefinitionScope definitionScope, LexicalScope fieldScope,
+            BitBuffer input) throws CTFReaderException {
+        long start = getStart(input.position());
+        long[] values = new long[fNames.length];
+        getValues(input, start, values);
+        input.position(start + fSize);
+
+        Definition[] fields = new Definition[fNames.length];
+        StructDefinition structDefinition = new StructDefinition(declaration, definitionScope,
+                fieldScope, checkNotNull(fieldScope.getName()), checkNotNull(declaration.getFields().keySet()), fields);
+        for (int i = 0; i < fNames.length; i++) {
+            String name = checkNotNull(fNames[i]);
+            IDeclaration fieldDecl = fDeclarations[i];
+            if (fieldDecl instanceof EnumDeclaration) {
+                EnumDeclaration enumDecl = (EnumDeclaration) fieldDecl;
+                IntegerDefinition value = new IntegerDefinition(checkNotNull(enumDecl.getContainerType()), structDefinition, name, values[i]);
+                fields[i] = new EnumDefinition(enumDecl, structDefinition, name, value);
+            } else {
+                fields[i] = new IntegerDefinition((IntegerDeclaration) fieldDecl, structDefinition, name, values[i]);
+            }
+        }
+        return structDefinition;
+    }
+
+    /**
+     * Get the offset of a field from the start of the struct
+     *
+     * @param index
+     *            The index of the field
+     * @return The offset of the field, in bits
+     */
+    public long getOffset(int index) {
+        return fOffsets[index];
+    }
+}
@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.ctf.core.trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Reader for the packet index files written by the LTTng consumer and relay
+ * daemons, next to the stream files, in <code>index/&lt;stream&gt;.idx</code>.
+ *
+ * Those files contain, for every packet of the stream file, its offset, sizes,
+ * begin and end timestamps and the number of discarded events, so the packet
+ * headers do not have to be read to build the index. All the values are
+ * big-endian.
+ *
+ * <pre>
+ *  File header:
+ *  4 - uint32 (magic number, 0xC1F1DCC1)
+ *  4 - uint32 (major version, 1)
+ *  4 - uint32 (minor version)
+ *  4 - uint32 (size of a packet entry, in bytes)
+ *
+ *  Packet entry (version 1.0, newer minor versions append fields):
+ *  8 - uint64 (offset of the packet in the stream file, in bytes)
+ *  8 - uint64 (packet size, in bits)
+ *  8 - uint64 (content size, in bits)
+ *  8 - uint64 (begin timestamp)
+ *  8 - uint64 (end timestamp)
+ *  8 - uint64 (number of events discarded so far)
+ *  8 - uint64 (stream ID)
+ * </pre>
+ *
+ * @author agent
+ */
+public final class LttngPacketIndexFile {
+
+    private static final String INDEX_DIRECTORY = "index"; //$NON-NLS-1$
+    private static final String EXTENSION = ".idx"; //$NON-NLS-1$
+
+    private static final int MAGIC = 0xC1F1DCC1;
+    private static final int MAJOR = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int MIN_ENTRY_SIZE = 7 * 8;
+
+    /* Attributes of the packet context that the index values replace */
+    private static final String CONTENT_SIZE = "content_size"; //$NON-NLS-1$
+    private static final String PACKET_SIZE = "packet_size"; //$NON-NLS-1$
+    private static final String TIMESTAMP_BEGIN = "timestamp_begin"; //$NON-NLS-1$
+    private static final String TIMESTAMP_END = "timestamp_end"; //$NON-NLS-1$
+    private static final String EVENTS_DISCARDED = "events_discarded"; //$NON-NLS-1$
+
+    private LttngPacketIndexFile() {}
+
+    /**
+     * Get the LTTng index file of a stream file.
+     *
+     * @param streamFile
+     *            The stream file
+     * @return The index file, which may not exist
+     */
+    public static File getIndexFile(File streamFile) {
+        File indexDirectory = new File(streamFile.getParentFile(), INDEX_DIRECTORY);
+        return new File(indexDirectory, streamFile.getName() + EXTENSION);
+    }
+
+    /**
+     * Read the packet index of a stream file from its LTTng index file.
+     *
+     * The first packet, read from the stream file itself, is used to check
+     * that the index matches the stream, and provides the values that the
+     * index does not contain (target, other packet context fields).
+     *
+     * @param indexFile
+     *            The LTTng index file
+     * @param streamFileSize
+     *            The size of the stream file, in bytes
+     * @param streamId
+     *            The ID of the stream, or null if the trace has only one
+     *            stream without ID
+     * @param firstPacket
+     *            The index entry of the first packet, read from the stream
+     *            file
+     * @return The index entries, starting with the first packet, or null if
+     *         the index file is missing or inconsistent with the stream file.
+     *         The entries may stop before the end of the stream file if the
+     *         index was not complete.
+     */
+    public static @Nullable List<StreamInputPacketIndexEntry> read(File indexFile,
+            long streamFileSize, @Nullable Long streamId,
+            StreamInputPacketIndexEntry firstPacket) {
+        if (!indexFile.isFile()) {
+            return null;
+        }
+        try (FileChannel fc = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+            long size = fc.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            while (buffer.hasRemaining()) {
+                if (fc.read(buffer, buffer.position()) < 0) {
+                    return null;
+                }
+            }
+            buffer.flip();
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != MAJOR) {
+                return null;
+            }
+            buffer.getInt(); /* minor version */
+            int entrySize = buffer.getInt();
+            if (entrySize < MIN_ENTRY_SIZE) {
+                return null;
+            }
+            return readEntries(buffer, entrySize, streamFileSize, streamId, firstPacket);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static @Nullable List<StreamInputPacketIndexEntry> readEntries(ByteBuffer buffer,
+            int entrySize, long streamFileSize, @Nullable Long streamId,
+            StreamInputPacketIndexEntry firstPacket) {
+        int nbEntries = buffer.remaining() / entrySize;
+        if (nbEntries == 0) {
+            return null;
+        }
+        List<StreamInputPacketIndexEntry> entries = new ArrayList<>(nbEntries);
+        Map<String, Object> attributes = new HashMap<>(firstPacket.getAttributes());
+        long expectedOffsetBytes = 0;
+        long lastBegin = Long.MIN_VALUE;
+        long lostSoFar = 0;
+
+        for (int i = 0; i < nbEntries; i++) {
+            int position = HEADER_SIZE + i * entrySize;
+            long offsetBytes = buffer.getLong(position);
+            long packetSizeBits = buffer.getLong(position + 8);
+            long contentSizeBits = buffer.getLong(position + 16);
+            long timestampBegin = buffer.getLong(position + 24);
+            long timestampEnd = buffer.getLong(position + 32);
+            long eventsDiscarded = buffer.getLong(position + 40);
+            long entryStreamId = buffer.getLong(position + 48);
+
+            /* unsigned long max value means "no end timestamp" */
+            if (timestampEnd == -1) {
+                timestampEnd = Long.MAX_VALUE;
+            }
+
+            /* Packets must be contiguous and inside the stream file */
+            if (offsetBytes != expectedOffsetBytes
+                    || packetSizeBits <= 0 || packetSizeBits % Byte.SIZE != 0
+                    || contentSizeBits < 0 || contentSizeBits > packetSizeBits
+                    || offsetBytes + packetSizeBits / Byte.SIZE > streamFileSize
+                    || timestampBegin > timestampEnd || timestampBegin < lastBegin
+                    || (streamId != null && entryStreamId != streamId.longValue())) {
+                return null;
+            }
+
+            if (i == 0) {
+                /* The first packet was read from the stream file */
+                if (firstPacket.getPacketSizeBits() != packetSizeBits
+                        || firstPacket.getContentSizeBits() != contentSizeBits
+                        || firstPacket.getTimestampBegin() != timestampBegin) {
+                    return null;
+                }
+                entries.add(firstPacket);
+                lostSoFar = firstPacket.getLostEvents();
+            } else {
+                replaceAttribute(attributes, PACKET_SIZE, packetSizeBits);
+                replaceAttribute(attributes, CONTENT_SIZE, contentSizeBits);
+                replaceAttribute(attributes, TIMESTAMP_BEGIN, timestampBegin);
+                replaceAttribute(attributes, TIMESTAMP_END, timestampEnd);
+                replaceAttribute(attributes, EVENTS_DISCARDED, eventsDiscarded);
+                entries.add(new StreamInputPacketIndexEntry(offsetBytes * Byte.SIZE,
+                        packetSizeBits, contentSizeBits, timestampBegin, timestampEnd,
+                        eventsDiscarded - lostSoFar, firstPacket.getTarget(),
+                        firstPacket.getTargetId(), attributes));
+                lostSoFar = eventsDiscarded;
+            }
+
+            expectedOffsetBytes = offsetBytes + packetSizeBits / Byte.SIZE;
+            lastBegin = timestampBegin;
+        }
+        return entries;
+    }
+
+    private static void replaceAttribute(Map<String, Object> attributes, String name, long value) {
+        if (attributes.containsKey(name)) {
+            attributes.put(name, value);
+        }
+    }
+}
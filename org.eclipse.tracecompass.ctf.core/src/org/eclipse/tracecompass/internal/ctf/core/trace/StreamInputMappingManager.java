@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.ctf.core.trace;
+
+import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.tracecompass.internal.ctf.core.SafeMappedByteBuffer;
+
+/**
+ * Manages the memory mappings of a stream file. Instead of mapping every
+ * packet on its own, the file is mapped in large windows, and each packet is
+ * a slice of the window that contains it. The windows are shared by all the
+ * readers of the stream, and are reference-counted: a window is dropped, so
+ * it can be unmapped, once no slice of it is in use anymore.
+ *
+ * A packet that crosses the end of a window gets a window of its own, which
+ * starts at the packet. A window that was mapped while the file was smaller
+ * (live traces) is replaced by a larger one when needed.
+ *
+ * Nothing may keep a slice, or a view of its buffer, once it is released:
+ * this would keep the whole window mapped. The events read from a packet
+ * therefore copy what they decode later, see LazyEventFields.
+ *
+ * @author agent
+ */
+public class StreamInputMappingManager {
+
+    /** Default size of the mapping windows, in bytes */
+    public static final long DEFAULT_WINDOW_SIZE = 256L * 1024 * 1024;
+
+    private final long fWindowSize;
+
+    /* The windows currently in use, by start position */
+    private final Map<Long, Window> fWindows = new HashMap<>();
+
+    /**
+     * A mapped region of the stream file
+     */
+    private final class Window {
+        private final long fStart;
+        private final ByteBuffer fBuffer;
+        private int fRefCount = 0;
+
+        public Window(long start, ByteBuffer buffer) {
+            fStart = start;
+            fBuffer = buffer;
+        }
+
+        public boolean contains(long position, long size) {
+            return position >= fStart && position + size <= fStart + fBuffer.capacity();
+        }
+    }
+
+    /**
+     * A slice of a mapping window, which must be released once it is not used
+     * anymore.
+     */
+    public final class Slice {
+        private final Window fWindow;
+        private final ByteBuffer fBuffer;
+        private boolean fReleased = false;
+
+        private Slice(Window window, ByteBuffer buffer) {
+            fWindow = window;
+            fBuffer = buffer;
+        }
+
+        /**
+         * Get the buffer of the slice. Its position 0 is the start of the
+         * requested region.
+         *
+         * @return The byte buffer
+         */
+        public ByteBuffer getBuffer() {
+            return fBuffer;
+        }
+
+        /**
+         * Release the slice. Releasing it more than once has no effect.
+         */
+        public void release() {
+            synchronized (StreamInputMappingManager.this) {
+                if (fReleased) {
+                    return;
+                }
+                fReleased = true;
+                releaseWindow(fWindow);
+            }
+        }
+    }
+
+    /**
+     * Constructor, using the default window size
+     */
+    public StreamInputMappingManager() {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param windowSize
+     *            The size of the mapping windows, in bytes
+     */
+    public StreamInputMappingManager(long windowSize) {
+        if (windowSize <= 0 || windowSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid window size: " + windowSize); //$NON-NLS-1$
+        }
+        fWindowSize = windowSize;
+    }
+
+    /**
+     * Get a slice of the stream file, mapping a new window if no current
+     * window contains it.
+     *
+     * @param fc
+     *            A file channel of the stream file, used to map a new window
+     * @param position
+     *            The position of the region in the file, in bytes
+     * @param size
+     *            The size of the region, in bytes
+     * @return The slice, to release when it is not needed anymore
+     * @throws IOException
+     *             If the file could not be mapped
+     */
+    public synchronized Slice acquire(FileChannel fc, long position, long size) throws IOException {
+        if (size < 0 || size > Integer.MAX_VALUE) {
+            throw new IOException("Invalid mapping size: " + size); //$NON-NLS-1$
+        }
+        long windowStart = position - (position % fWindowSize);
+        Window window = fWindows.get(windowStart);
+        if (window == null || !window.contains(position, size)) {
+            window = fWindows.get(position);
+        }
+        if (window == null || !window.contains(position, size)) {
+            window = mapWindow(fc, windowStart, position, size);
+        }
+        window.fRefCount++;
+
+        ByteBuffer buffer = window.fBuffer.duplicate();
+        buffer.position((int) (position - window.fStart));
+        buffer.limit((int) (position - window.fStart + size));
+        return new Slice(window, checkNotNull(buffer.slice()));
+    }
+
+    private Window mapWindow(FileChannel fc, long windowStart, long position, long size) throws IOException {
+        long fileSize = fc.size();
+        long start = windowStart;
+        long end = Math.min(fileSize, windowStart + fWindowSize);
+        if (!SafeMappedByteBuffer.isMapped() || position + size > end) {
+            /*
+             * The packet crosses the end of the window, or the file cannot be
+             * mapped and has to be read: only take the packet.
+             */
+            start = position;
+            end = position + size;
+        }
+        ByteBuffer buffer = SafeMappedByteBuffer.map(fc, MapMode.READ_ONLY, start, end - start);
+        if (buffer == null) {
+            throw new IOException("Failed to map the stream file"); //$NON-NLS-1$
+        }
+        /* A replaced window stays valid for the slices that still use it */
+        Window window = new Window(start, buffer);
+        fWindows.put(start, window);
+        return window;
+    }
+
+    private void releaseWindow(Window window) {
+        window.fRefCount--;
+        if (window.fRefCount == 0 && fWindows.get(window.fStart) == window) {
+            fWindows.remove(window.fStart);
+        }
+    }
+
+    /**
+     * Get the number of windows currently in use
+     *
+     * @return The number of mapped windows
+     */
+    public synchronized int getWindowCount() {
+        return fWindows.size();
+    }
+}
@@ -16,14 +16,17 @@ package org.eclipse.tracecompass.internal.ctf.core.trace;
 
 import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
 
-import java.io.Serializable;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.ListIterator;
-import java.util.TreeSet;
+import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.tracecompass.ctf.core.CTFReaderException;
@@ -32,7 +35,14 @@ import org.eclipse.tracecompass.ctf.core.CTFReaderException;
  * <b><u>StreamInputPacketIndex</u></b>
  * <p>
  * This is a data structure containing entries, you may append to this and read
- * it. It is not thread safe.
+ * it.
+ * <p>
+ * The entries are not kept as objects: their values are packed in one array
+ * per field (offsets, sizes, timestamps...), which takes a fraction of the
+ * memory of the entry objects and makes the binary search on the timestamps
+ * go through a single array. The entry objects are rebuilt when they are
+ * requested; the last one is kept, since a stream reader requests the entry
+ * of its current packet several times.
  */
 public class StreamInputPacketIndex {
 
@@ -40,11 +50,98 @@ public class StreamInputPacketIndex {
     // Attributes
     // ------------------------------------------------------------------------
 
+    private static final int INITIAL_CAPACITY = 64;
+
+    /* The packed fields */
+    private static final int OFFSET_BITS = 0;
+    private static final int PACKET_SIZE_BITS = 1;
+    private static final int CONTENT_SIZE_BITS = 2;
+    private static final int TIMESTAMP_BEGIN = 3;
+    private static final int TIMESTAMP_END = 4;
+    private static final int LOST_EVENTS = 5;
+    private static final int TARGET_ID = 6;
+    private static final int TARGET = 7;
+    private static final int NB_COLUMNS = 8;
+
+    private static final long NO_TARGET = -1;
+
+    /* Marks the packets that do not have an attribute */
+    private static final Object ABSENT = new Object();
+
+    /**
+     * Values of one attribute of the packet context, for all the packets.
+     * They are kept as longs, unless some are not.
+     */
+    private static final class AttributeColumn {
+        private long[] fLongs;
+        private Object[] fObjects = null;
+
+        public AttributeColumn(int capacity, int size) {
+            fLongs = new long[capacity];
+            if (size > 0) {
+                /* The attribute is new, the previous packets do not have it */
+                fObjects = new Object[capacity];
+                for (int i = 0; i < size; i++) {
+                    fObjects[i] = ABSENT;
+                }
+            }
+        }
+
+        public void grow(int capacity) {
+            long[] longs = new long[capacity];
+            System.arraycopy(fLongs, 0, longs, 0, fLongs.length);
+            fLongs = longs;
+            if (fObjects != null) {
+                Object[] objects = new Object[capacity];
+                System.arraycopy(fObjects, 0, objects, 0, fObjects.length);
+                fObjects = objects;
+            }
+        }
+
+        public void set(int index, Object value) {
+            if (value instanceof Long) {
+                fLongs[index] = (Long) value;
+                if (fObjects != null) {
+                    fObjects[index] = null;
+                }
+            } else {
+                if (fObjects == null) {
+                    fObjects = new Object[fLongs.length];
+                }
+                fObjects[index] = (value == null ? ABSENT : value);
+            }
+        }
+
+        public Object get(int index) {
+            Object[] objects = fObjects;
+            if (objects != null && objects[index] != null) {
+                return objects[index];
+            }
+            return fLongs[index];
+        }
+    }
+
+    private final long[][] fColumns = new long[NB_COLUMNS][];
+    private final Map<String, AttributeColumn> fAttributes = new LinkedHashMap<>();
+    private final List<String> fTargets = new ArrayList<>();
+    private final Map<String, Integer> fTargetIndexes = new HashMap<>();
+    private int fCapacity = 0;
+    private int fSize = 0;
+
+    /* The entry last built, the entries never change once appended */
+    private int fCachedIndex = -1;
+    private StreamInputPacketIndexEntry fCachedEntry = null;
+
+    // ------------------------------------------------------------------------
+    // Constructors
+    // ------------------------------------------------------------------------
+
     /**
-     * Entries of the index. They are sorted by increasing begin timestamp.
-     * index builder.
+     * Constructor
      */
-    private final List<StreamInputPacketIndexEntry> fEntries = new ArrayList<>();
+    public StreamInputPacketIndex() {
+        grow(INITIAL_CAPACITY);
+    }
 
     // ------------------------------------------------------------------------
     // Operations
@@ -57,8 +154,8 @@ public class StreamInputPacketIndex {
      *
      * @return the number of elements in this data structure
      */
-    public int size() {
-        return fEntries.size();
+    public synchronized int size() {
+        return fSize;
     }
 
     /**
@@ -66,8 +163,8 @@ public class StreamInputPacketIndex {
      *
      * @return {@code true} if this data structure contains no elements
      */
-    public boolean isEmpty() {
-        return fEntries.isEmpty();
+    public synchronized boolean isEmpty() {
+        return fSize == 0;
     }
 
     /**
@@ -79,7 +176,7 @@ public class StreamInputPacketIndex {
      * @throws CTFReaderException
      *             If there was a problem reading the entry
      */
-    public void appendAll(Collection<StreamInputPacketIndexEntry> preParsedIndex)
+    public synchronized void appendAll(Collection<StreamInputPacketIndexEntry> preParsedIndex)
             throws CTFReaderException {
         for (StreamInputPacketIndexEntry sipie : preParsedIndex) {
             append(checkNotNull(sipie));
@@ -95,7 +192,7 @@ public class StreamInputPacketIndex {
      * @throws CTFReaderException
      *             If there was a problem reading the entry
      */
-    public boolean append(@NonNull StreamInputPacketIndexEntry entry)
+    public synchronized boolean append(@NonNull StreamInputPacketIndexEntry entry)
             throws CTFReaderException {
 
         /* Validate consistent entry. */
@@ -107,78 +204,128 @@ public class StreamInputPacketIndex {
          * Validate entries are inserted in monotonic increasing timestamp
          * order.
          */
-        if (!fEntries.isEmpty() && (entry.getTimestampBegin() < lastElement().getTimestampBegin())) {
+        if (fSize > 0 && (entry.getTimestampBegin() < get(TIMESTAMP_BEGIN, fSize - 1))) {
             throw new CTFReaderException("Packets begin timestamp decreasing"); //$NON-NLS-1$
         }
 
-        fEntries.add(entry);
+        if (fSize == fCapacity) {
+            grow(fCapacity * 2);
+        }
+        int index = fSize;
+        fColumns[OFFSET_BITS][index] = entry.getOffsetBits();
+        fColumns[PACKET_SIZE_BITS][index] = entry.getPacketSizeBits();
+        fColumns[CONTENT_SIZE_BITS][index] = entry.getContentSizeBits();
+        fColumns[TIMESTAMP_BEGIN][index] = entry.getTimestampBegin();
+        fColumns[TIMESTAMP_END][index] = entry.getTimestampEnd();
+        fColumns[LOST_EVENTS][index] = entry.getLostEvents();
+        fColumns[TARGET_ID][index] = entry.getTargetId();
+        fColumns[TARGET][index] = getTargetIndex(entry.getTarget());
+
+        for (Map.Entry<String, Object> attribute : entry.getAttributes().entrySet()) {
+            AttributeColumn column = fAttributes.get(attribute.getKey());
+            if (column == null) {
+                column = new AttributeColumn(fCapacity, fSize);
+                fAttributes.put(attribute.getKey(), column);
+            }
+            column.set(index, attribute.getValue());
+        }
+        for (Map.Entry<String, AttributeColumn> column : fAttributes.entrySet()) {
+            if (!entry.getAttributes().containsKey(column.getKey())) {
+                column.getValue().set(index, null);
+            }
+        }
+
+        fSize++;
         return true;
     }
 
+    private long getTargetIndex(String target) {
+        if (target == null) {
+            return NO_TARGET;
+        }
+        Integer index = fTargetIndexes.get(target);
+        if (index == null) {
+            index = fTargets.size();
+            fTargets.add(target);
+            fTargetIndexes.put(target, index);
+        }
+        return index;
+    }
+
+    private void grow(int capacity) {
+        for (int i = 0; i < NB_COLUMNS; i++) {
+            long[] column = new long[capacity];
+            long[] previous = fColumns[i];
+            if (previous != null) {
+                System.arraycopy(previous, 0, column, 0, previous.length);
+            }
+            fColumns[i] = column;
+        }
+        for (AttributeColumn column : fAttributes.values()) {
+            column.grow(capacity);
+        }
+        fCapacity = capacity;
+    }
+
+    private long get(int column, int index) {
+        return fColumns[column][index];
+    }
+
     /**
-     * Returns the first PacketIndexEntry that could include the timestamp, that
-     * is the last packet with a begin timestamp smaller than the given
-     * timestamp.
+     * Returns the position of the first packet that could include the
+     * timestamp, that is the first packet whose end timestamp is greater or
+     * equal to the given timestamp, or the last packet if there is none.
      *
      * @param timestamp
      *            The timestamp to look for.
-     * @return The StreamInputPacketEntry that corresponds to the packet that
-     *         includes the given timestamp.
+     * @return The position of the packet, or 0 if the index is empty
      */
-    public ListIterator<StreamInputPacketIndexEntry> search(final long timestamp) {
-        /*
-         * Start with min and max covering all the elements.
-         */
-        int max = fEntries.size() - 1;
-        int min = 0;
-
-        int guessI;
-        StreamInputPacketIndexEntry guessEntry = null;
-
-        /*
-         * If the index is empty, return the iterator at the very beginning.
-         */
-        if (isEmpty()) {
-            return fEntries.listIterator();
+    public synchronized int searchIndex(final long timestamp) {
+        if (fSize == 0) {
+            return 0;
         }
-
         if (timestamp < 0) {
             throw new IllegalArgumentException("timestamp is negative"); //$NON-NLS-1$
         }
 
-        /* Binary search */
-        for (;;) {
-            /*
-             * Guess in the middle of min and max.
-             */
-            guessI = min + ((max - min) / 2);
-            guessEntry = fEntries.get(guessI);
-
-            /*
-             * If we reached the point where we focus on a single packet, our
-             * search is done.
-             */
-            if (min == max) {
-                break;
-            }
-
-            if (timestamp <= guessEntry.getTimestampEnd()) {
-                /*
-                 * If the timestamp is lower or equal to the end of the guess
-                 * packet, then the guess packet becomes the new inclusive max.
-                 */
-                max = guessI;
+        /* Binary search on the end timestamps */
+        long[] ends = fColumns[TIMESTAMP_END];
+        int min = 0;
+        int max = fSize - 1;
+        while (min < max) {
+            int guess = (min + max) >>> 1;
+            if (timestamp <= ends[guess]) {
+                max = guess;
             } else {
-                /*
-                 * If the timestamp is greater than the end of the guess packet,
-                 * then the new inclusive min is the packet after the guess
-                 * packet.
-                 */
-                min = guessI + 1;
+                min = guess + 1;
             }
         }
+        return min;
+    }
+
+    /**
+     * Returns the first PacketIndexEntry that could include the timestamp, that
+     * is the last packet with a begin timestamp smaller than the given
+     * timestamp.
+     *
+     * @param timestamp
+     *            The timestamp to look for.
+     * @return The StreamInputPacketEntry that corresponds to the packet that
+     *         includes the given timestamp.
+     */
+    public ListIterator<StreamInputPacketIndexEntry> search(final long timestamp) {
+        int index = searchIndex(timestamp);
+        return new AbstractList<StreamInputPacketIndexEntry>() {
+            @Override
+            public StreamInputPacketIndexEntry get(int i) {
+                return getElement(i);
+            }
 
-        return fEntries.listIterator(guessI);
+            @Override
+            public int size() {
+                return StreamInputPacketIndex.this.size();
+            }
+        }.listIterator(index);
     }
 
     /**
@@ -186,12 +333,14 @@ public class StreamInputPacketIndex {
      *
      * @return the last element in the index
      */
-    public StreamInputPacketIndexEntry lastElement() {
-        return fEntries.get(fEntries.size() - 1);
+    public synchronized StreamInputPacketIndexEntry lastElement() {
+        return getElement(fSize - 1);
     }
 
     /**
      * Returns the element at the specified position in this data structure.
+     * The entry is rebuilt from the packed values, unless it is the one
+     * requested last.
      *
      * @param index
      *            index of the element to return
@@ -200,68 +349,130 @@ public class StreamInputPacketIndex {
      *             if the index is out of range (
      *             {@code index < 0 || index >= size()})
      */
-    public StreamInputPacketIndexEntry getElement(int index) {
-        return fEntries.get(index);
+    public synchronized StreamInputPacketIndexEntry getElement(int index) {
+        checkIndex(index);
+        StreamInputPacketIndexEntry entry = fCachedEntry;
+        if (index == fCachedIndex && entry != null) {
+            return entry;
+        }
+        Map<String, Object> attributes = new HashMap<>();
+        for (Map.Entry<String, AttributeColumn> column : fAttributes.entrySet()) {
+            Object value = column.getValue().get(index);
+            if (value != ABSENT) {
+                attributes.put(column.getKey(), value);
+            }
+        }
+        long target = get(TARGET, index);
+        entry = new StreamInputPacketIndexEntry(get(OFFSET_BITS, index),
+                get(PACKET_SIZE_BITS, index), get(CONTENT_SIZE_BITS, index),
+                get(TIMESTAMP_BEGIN, index), get(TIMESTAMP_END, index),
+                get(LOST_EVENTS, index),
+                (target == NO_TARGET) ? null : fTargets.get((int) target),
+                get(TARGET_ID, index), attributes);
+        fCachedIndex = index;
+        fCachedEntry = entry;
+        return entry;
+    }
+
+    /**
+     * Get the names of the packet context attributes of the packets, in the
+     * order in which they first appear, without building the entries
+     *
+     * @return the names of the attributes
+     */
+    public synchronized Set<String> getAttributeNames() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(fAttributes.keySet()));
+    }
+
+    /**
+     * Get the offset of a packet, without building its entry
+     *
+     * @param index
+     *            index of the packet
+     * @return the offset of the packet in the file, in bits
+     */
+    public synchronized long getOffsetBits(int index) {
+        checkIndex(index);
+        return get(OFFSET_BITS, index);
+    }
+
+    /**
+     * Get the size of a packet, without building its entry
+     *
+     * @param index
+     *            index of the packet
+     * @return the size of the packet, in bits
+     */
+    public synchronized long getPacketSizeBits(int index) {
+        checkIndex(index);
+        return get(PACKET_SIZE_BITS, index);
+    }
+
+    /**
+     * Get the begin timestamp of a packet, without building its entry
+     *
+     * @param index
+     *            index of the packet
+     * @return the begin timestamp of the packet
+     */
+    public synchronized long getTimestampBegin(int index) {
+        checkIndex(index);
+        return get(TIMESTAMP_BEGIN, index);
+    }
+
+    /**
+     * Get the end timestamp of a packet, without building its entry
+     *
+     * @param index
+     *            index of the packet
+     * @return the end timestamp of the packet
+     */
+    public synchronized long getTimestampEnd(int index) {
+        checkIndex(index);
+        return get(TIMESTAMP_END, index);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= fSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + fSize); //$NON-NLS-1$ //$NON-NLS-2$
+        }
     }
 
     /**
      * Returns the index of the first occurrence of the specified element in
      * this data structure, or -1 if this data structure does not contain the
      * element. More formally, returns the lowest index {@code i} such that, for
-     * an entry {@code o}, {@code (o==null ? get(i)==null : o.equals(get(i)))},
-     * or {@code -1} if there is no such index. This will work in log(n) time
-     * since the data structure contains elements in a non-repeating increasing
-     * manner.
+     * an entry {@code o}, the begin and end timestamps of {@code o} and
+     * {@code get(i)} are equal, or {@code -1} if there is no such index. This
+     * will work in log(n) time since the data structure contains elements in a
+     * non-repeating increasing manner.
      *
      * @param element
      *            element to search for
      * @return the index of the first occurrence of the specified element in
      *         this data structure, or -1 if this data structure does not
      *         contain the element
-     * @throws ClassCastException
-     *             if the type of the specified element is incompatible with
-     *             this data structure (<a
-     *             href="Collection.html#optional-restrictions">optional</a>)
-     * @throws NullPointerException
-     *             if the specified element is null and this data structure does
-     *             not permit null elements (<a
-     *             href="Collection.html#optional-restrictions">optional</a>)
      */
-    public int indexOf(StreamInputPacketIndexEntry element) {
-        int indexOf = -1;
-        if (element != null) {
-            indexOf = Collections.binarySearch(fEntries, element, new MonotonicComparator());
+    public synchronized int indexOf(StreamInputPacketIndexEntry element) {
+        if (element == null) {
+            return -1;
         }
-        return (indexOf < 0) ? -1 : indexOf;
-    }
-
-    /**
-     * Ordering comparator for entering entries into a data structure sorted by
-     * timestamp.
-     */
-    private static class MonotonicComparator implements Comparator<StreamInputPacketIndexEntry>, Serializable {
-        /**
-         * For {@link Serializable}, that way if we migrate to a {@link TreeSet}
-         * the comparator is serializable too.
-         */
-        private static final long serialVersionUID = -5693064068367242076L;
-
-        @Override
-        public int compare(StreamInputPacketIndexEntry left, StreamInputPacketIndexEntry right) {
-            if (left.getTimestampBegin() > right.getTimestampBegin()) {
-                return 1;
-            }
-            if (left.getTimestampBegin() < right.getTimestampBegin()) {
-                return -1;
-            }
-            if (left.getTimestampEnd() > right.getTimestampEnd()) {
-                return 1;
-            }
-            if (left.getTimestampEnd() < right.getTimestampEnd()) {
-                return -1;
+        long begin = element.getTimestampBegin();
+        long end = element.getTimestampEnd();
+        int min = 0;
+        int max = fSize - 1;
+        while (min <= max) {
+            int guess = (min + max) >>> 1;
+            long guessBegin = get(TIMESTAMP_BEGIN, guess);
+            long guessEnd = get(TIMESTAMP_END, guess);
+            if (guessBegin < begin || (guessBegin == begin && guessEnd < end)) {
+                min = guess + 1;
+            } else if (guessBegin > begin || guessEnd > end) {
+                max = guess - 1;
+            } else {
+                return guess;
             }
-            return 0;
         }
+        return -1;
     }
-
 }
@@ -12,6 +12,7 @@
 
 package org.eclipse.tracecompass.internal.ctf.core.trace;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -198,6 +199,45 @@ public class StreamInputPacketIndexEntry {
         fOffsetBytes = dataOffsetBits / Byte.SIZE;
     }
 
+    /**
+     * Constructor used to restore an entry that was saved to a packet index
+     * file.
+     *
+     * @param dataOffsetBits
+     *            offset in the file for the start of data in bits
+     * @param packetSizeBits
+     *            packet size, in bits
+     * @param contentSizeBits
+     *            content size, in bits
+     * @param timestampBegin
+     *            begin timestamp of the packet
+     * @param timestampEnd
+     *            end timestamp of the packet
+     * @param lostEvents
+     *            number of events lost in this packet
+     * @param target
+     *            the target being traced, can be null
+     * @param targetID
+     *            the ID of the target
+     * @param attributes
+     *            the other attributes of the packet context
+     */
+    public StreamInputPacketIndexEntry(long dataOffsetBits, long packetSizeBits,
+            long contentSizeBits, long timestampBegin, long timestampEnd,
+            long lostEvents, String target, long targetID,
+            Map<String, Object> attributes) {
+        fOffsetBits = dataOffsetBits;
+        fOffsetBytes = dataOffsetBits / Byte.SIZE;
+        fPacketSizeBits = packetSizeBits;
+        fContentSizeBits = contentSizeBits;
+        fTimestampBegin = timestampBegin;
+        fTimestampEnd = timestampEnd;
+        fLostEvents = lostEvents;
+        fTarget = target;
+        fTargetID = targetID;
+        fAttributes.putAll(attributes);
+    }
+
     // ------------------------------------------------------------------------
     // Operations
     // ------------------------------------------------------------------------
@@ -290,6 +330,15 @@ public class StreamInputPacketIndexEntry {
         return fAttributes.get(field);
     }
 
+    /**
+     * Get all the attributes of this index entry
+     *
+     * @return An unmodifiable view of the attributes, by name
+     */
+    public Map<String, Object> getAttributes() {
+        return Collections.unmodifiableMap(fAttributes);
+    }
+
     /**
      * @return The target that is being traced
      */
@@ -0,0 +1,234 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.ctf.core.trace;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Side file holding the packet index of one stream file, so that the packet
+ * headers do not have to be read again the next time the trace is opened.
+ *
+ * The file is only considered valid if the size and modification time of the
+ * stream file are the same as when the index was written. The attribute names
+ * are stored once in a table, and each entry refers to them by their position.
+ *
+ * <pre>
+ *  4 - int (magic number)
+ *  4 - int (file format version)
+ *  8 - long (size of the stream file)
+ *  8 - long (modification time of the stream file)
+ *  4 - int (number of attribute names), followed by the names
+ *  4 - int (number of entries), followed by the entries
+ * </pre>
+ *
+ * @author agent
+ */
+public final class StreamInputPacketIndexFile {
+
+    private static final int MAGIC = 0x43504958;
+    private static final int VERSION = 1;
+
+    private static final String EXTENSION = ".packets"; //$NON-NLS-1$
+    private static final String TEMP_EXTENSION = ".tmp"; //$NON-NLS-1$
+
+    private static final byte TYPE_LONG = 0;
+    private static final byte TYPE_DOUBLE = 1;
+    private static final byte TYPE_STRING = 2;
+
+    private StreamInputPacketIndexFile() {}
+
+    /**
+     * Get the index file to use for a stream file.
+     *
+     * @param indexDirectory
+     *            The directory where the index files are kept
+     * @param streamFile
+     *            The stream file
+     * @return The index file
+     */
+    public static File getIndexFile(File indexDirectory, File streamFile) {
+        return new File(indexDirectory, streamFile.getName() + EXTENSION);
+    }
+
+    /**
+     * Read the index entries of a stream file.
+     *
+     * @param indexFile
+     *            The index file
+     * @param streamFile
+     *            The stream file that was indexed
+     * @return The entries, in file order, or null if there is no valid index
+     *         file for the current contents of the stream file
+     */
+    public static @Nullable List<StreamInputPacketIndexEntry> read(File indexFile, File streamFile) {
+        if (!indexFile.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            if (in.readLong() != streamFile.length() || in.readLong() != streamFile.lastModified()) {
+                /* The stream file changed since it was indexed */
+                return null;
+            }
+
+            String[] names = new String[in.readInt()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = in.readUTF();
+            }
+
+            int nbEntries = in.readInt();
+            List<StreamInputPacketIndexEntry> entries = new ArrayList<>(nbEntries);
+            for (int i = 0; i < nbEntries; i++) {
+                entries.add(readEntry(in, names));
+            }
+            return entries;
+        } catch (IOException | RuntimeException e) {
+            /* Corrupted or truncated file, the stream will be indexed again */
+            return null;
+        }
+    }
+
+    private static StreamInputPacketIndexEntry readEntry(DataInputStream in, String[] names) throws IOException {
+        long offsetBits = in.readLong();
+        long packetSizeBits = in.readLong();
+        long contentSizeBits = in.readLong();
+        long timestampBegin = in.readLong();
+        long timestampEnd = in.readLong();
+        long lostEvents = in.readLong();
+        long targetId = in.readLong();
+        String target = in.readBoolean() ? in.readUTF() : null;
+
+        int nbAttributes = in.readShort();
+        Map<String, Object> attributes = new HashMap<>();
+        for (int i = 0; i < nbAttributes; i++) {
+            String name = names[in.readShort()];
+            byte type = in.readByte();
+            switch (type) {
+            case TYPE_LONG:
+                attributes.put(name, in.readLong());
+                break;
+            case TYPE_DOUBLE:
+                attributes.put(name, in.readDouble());
+                break;
+            case TYPE_STRING:
+                attributes.put(name, in.readUTF());
+                break;
+            default:
+                throw new IOException("Invalid attribute type " + type); //$NON-NLS-1$
+            }
+        }
+        return new StreamInputPacketIndexEntry(offsetBits, packetSizeBits,
+                contentSizeBits, timestampBegin, timestampEnd, lostEvents,
+                target, targetId, attributes);
+    }
+
+    /**
+     * Write the index entries of a stream file. The file is first written
+     * under a temporary name, so that a partially written index is never
+     * used.
+     *
+     * @param indexFile
+     *            The index file
+     * @param streamFile
+     *            The stream file that was indexed
+     * @param index
+     *            The complete index of the stream file
+     * @throws IOException
+     *             If the file could not be written
+     */
+    public static void write(File indexFile, File streamFile, StreamInputPacketIndex index) throws IOException {
+        File parent = indexFile.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create directory " + parent); //$NON-NLS-1$
+        }
+
+        /* Build the table of attribute names */
+        Map<String, Integer> names = new LinkedHashMap<>();
+        for (String name : index.getAttributeNames()) {
+            names.put(name, names.size());
+        }
+        if (names.size() > Short.MAX_VALUE) {
+            throw new IOException("Too many packet context attributes"); //$NON-NLS-1$
+        }
+
+        File tempFile = new File(indexFile.getPath() + TEMP_EXTENSION);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(streamFile.length());
+            out.writeLong(streamFile.lastModified());
+
+            out.writeInt(names.size());
+            for (String name : names.keySet()) {
+                out.writeUTF(name);
+            }
+
+            out.writeInt(index.size());
+            for (int i = 0; i < index.size(); i++) {
+                writeEntry(out, index.getElement(i), names);
+            }
+        }
+        Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void writeEntry(DataOutputStream out, StreamInputPacketIndexEntry entry,
+            Map<String, Integer> names) throws IOException {
+        out.writeLong(entry.getOffsetBits());
+        out.writeLong(entry.getPacketSizeBits());
+        out.writeLong(entry.getContentSizeBits());
+        out.writeLong(entry.getTimestampBegin());
+        out.writeLong(entry.getTimestampEnd());
+        out.writeLong(entry.getLostEvents());
+        out.writeLong(entry.getTargetId());
+        String target = entry.getTarget();
+        out.writeBoolean(target != null);
+        if (target != null) {
+            out.writeUTF(target);
+        }
+
+        Map<String, Object> attributes = entry.getAttributes();
+        out.writeShort(attributes.size());
+        for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
+            out.writeShort(names.get(attribute.getKey()));
+            Object value = attribute.getValue();
+            if (value instanceof Long) {
+                out.writeByte(TYPE_LONG);
+                out.writeLong((Long) value);
+            } else if (value instanceof Double) {
+                out.writeByte(TYPE_DOUBLE);
+                out.writeDouble((Double) value);
+            } else {
+                out.writeByte(TYPE_STRING);
+                out.writeUTF(String.valueOf(value));
+            }
+        }
+    }
+}
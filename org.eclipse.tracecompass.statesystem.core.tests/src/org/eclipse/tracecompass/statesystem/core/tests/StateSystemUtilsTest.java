@@ -17,6 +17,8 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
 
+import java.util.List;
+
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
@@ -25,6 +27,7 @@ import org.eclipse.tracecompass.statesystem.core.StateSystemUtils;
 import org.eclipse.tracecompass.statesystem.core.backend.IStateHistoryBackend;
 import org.eclipse.tracecompass.statesystem.core.backend.StateHistoryBackendFactory;
 import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
 import org.eclipse.tracecompass.statesystem.core.exceptions.StateValueTypeException;
 import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
 import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
@@ -128,4 +131,40 @@ public class StateSystemUtilsTest {
 
     }
 
+    /**
+     * Test the {@link StateSystemUtils#queryHistoryRange} method.
+     */
+    @Test
+    public void testQueryHistoryRange() {
+        ITmfStateSystem ss = fStateSystem;
+        assertNotNull(ss);
+
+        try {
+            int quark = ss.getQuarkAbsolute(DUMMY_STRING);
+
+            /* The whole history */
+            List<ITmfStateInterval> intervals = StateSystemUtils.queryHistoryRange(ss, quark, 1000L, 2000L);
+            assertEquals(3, intervals.size());
+            assertEquals(1000L, intervals.get(0).getStartTime());
+            assertEquals(1199L, intervals.get(0).getEndTime());
+            assertEquals(1200L, intervals.get(1).getStartTime());
+            assertEquals(1499L, intervals.get(1).getEndTime());
+            assertEquals(1500L, intervals.get(2).getStartTime());
+            assertEquals(2000L, intervals.get(2).getEndTime());
+
+            /* A range within one interval */
+            intervals = StateSystemUtils.queryHistoryRange(ss, quark, 1250L, 1300L);
+            assertEquals(1, intervals.size());
+            assertEquals(10, intervals.get(0).getStateValue().unboxInt());
+
+            /* A range ending after the end of the history */
+            intervals = StateSystemUtils.queryHistoryRange(ss, quark, 1499L, 5000L);
+            assertEquals(2, intervals.size());
+            assertEquals(10, intervals.get(0).getStateValue().unboxInt());
+            assertEquals(20, intervals.get(1).getStateValue().unboxInt());
+
+        } catch (AttributeNotFoundException | StateSystemDisposedException e) {
+            fail(e.getMessage());
+        }
+    }
 }
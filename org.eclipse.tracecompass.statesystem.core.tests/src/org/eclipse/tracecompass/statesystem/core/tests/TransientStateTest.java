@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.statesystem.core.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.tracecompass.statesystem.core.StateSystemFactory;
+import org.eclipse.tracecompass.statesystem.core.backend.StateHistoryBackendFactory;
+import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateValueTypeException;
+import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
+import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the ongoing states of a state system being built, which
+ * are kept by its transient state
+ *
+ * @author agent
+ */
+public class TransientStateTest {
+
+    private ITmfStateSystemBuilder fSs;
+
+    /**
+     * Create a state system using an in-memory backend
+     */
+    @Before
+    public void setUp() {
+        fSs = StateSystemFactory.newStateSystem(StateHistoryBackendFactory.createInMemoryBackend("test-ts", 0)); //$NON-NLS-1$
+    }
+
+    /**
+     * Dispose the state system
+     */
+    @After
+    public void tearDown() {
+        fSs.dispose();
+    }
+
+    /**
+     * Test that the ongoing value and start time of each type of value are
+     * kept, and become intervals once the values change
+     *
+     * @throws Exception
+     *             Fails the test
+     */
+    @Test
+    public void testOngoingValues() throws Exception {
+        ITmfStateValue[] first = {
+                TmfStateValue.newValueInt(-42),
+                TmfStateValue.newValueLong(Long.MIN_VALUE),
+                TmfStateValue.newValueDouble(3.5),
+                TmfStateValue.newValueString("first") //$NON-NLS-1$
+        };
+        ITmfStateValue[] second = {
+                TmfStateValue.newValueInt(Integer.MAX_VALUE),
+                TmfStateValue.newValueLong(Long.MAX_VALUE),
+                TmfStateValue.newValueDouble(-0.25),
+                TmfStateValue.newValueString("second") //$NON-NLS-1$
+        };
+
+        int[] quarks = new int[first.length];
+        for (int i = 0; i < first.length; i++) {
+            quarks[i] = fSs.getQuarkAbsoluteAndAdd("attribute" + i); //$NON-NLS-1$
+            fSs.modifyAttribute(10, first[i], quarks[i]);
+        }
+        for (int i = 0; i < first.length; i++) {
+            assertEquals(first[i], fSs.queryOngoingState(quarks[i]));
+            assertEquals(10, fSs.getOngoingStartTime(quarks[i]));
+            fSs.modifyAttribute(20 + i, second[i], quarks[i]);
+        }
+        fSs.closeHistory(100);
+
+        for (int i = 0; i < first.length; i++) {
+            ITmfStateInterval interval = fSs.querySingleState(15, quarks[i]);
+            assertEquals(10, interval.getStartTime());
+            assertEquals(19 + i, interval.getEndTime());
+            assertEquals(first[i], interval.getStateValue());
+
+            interval = fSs.querySingleState(50, quarks[i]);
+            assertEquals(20 + i, interval.getStartTime());
+            assertEquals(second[i], interval.getStateValue());
+        }
+    }
+
+    /**
+     * Test that setting the ongoing value again does not create an interval,
+     * including for the double values that are only equal by their bits
+     *
+     * @throws Exception
+     *             Fails the test
+     */
+    @Test
+    public void testSameValue() throws Exception {
+        int intQuark = fSs.getQuarkAbsoluteAndAdd("int"); //$NON-NLS-1$
+        int nanQuark = fSs.getQuarkAbsoluteAndAdd("nan"); //$NON-NLS-1$
+        int zeroQuark = fSs.getQuarkAbsoluteAndAdd("zero"); //$NON-NLS-1$
+
+        fSs.modifyAttribute(10, TmfStateValue.newValueInt(1), intQuark);
+        fSs.modifyAttribute(20, TmfStateValue.newValueInt(1), intQuark);
+        fSs.modifyAttribute(10, TmfStateValue.newValueDouble(Double.NaN), nanQuark);
+        fSs.modifyAttribute(20, TmfStateValue.newValueDouble(Double.NaN), nanQuark);
+        fSs.modifyAttribute(10, TmfStateValue.newValueDouble(0.0), zeroQuark);
+        fSs.modifyAttribute(20, TmfStateValue.newValueDouble(-0.0), zeroQuark);
+
+        assertEquals(10, fSs.getOngoingStartTime(intQuark));
+        assertEquals(10, fSs.getOngoingStartTime(nanQuark));
+        /* 0.0 and -0.0 are different state values */
+        assertEquals(20, fSs.getOngoingStartTime(zeroQuark));
+    }
+
+    /**
+     * Test that updating the ongoing state changes its value without
+     * creating an interval
+     *
+     * @throws Exception
+     *             Fails the test
+     */
+    @Test
+    public void testUpdateOngoingState() throws Exception {
+        int quark = fSs.getQuarkAbsoluteAndAdd("attribute"); //$NON-NLS-1$
+        fSs.modifyAttribute(10, TmfStateValue.newValueLong(1), quark);
+        fSs.updateOngoingState(TmfStateValue.newValueLong(2), quark);
+        assertEquals(TmfStateValue.newValueLong(2), fSs.queryOngoingState(quark));
+        assertEquals(10, fSs.getOngoingStartTime(quark));
+        fSs.closeHistory(100);
+
+        List<ITmfStateInterval> intervals = fSs.queryFullState(50);
+        assertEquals(10, intervals.get(quark).getStartTime());
+        assertEquals(TmfStateValue.newValueLong(2), intervals.get(quark).getStateValue());
+    }
+
+    /**
+     * Test that null values can be set on an attribute of any type, and that
+     * the type of an attribute cannot change afterwards
+     *
+     * @throws Exception
+     *             Fails the test
+     */
+    @Test(expected = StateValueTypeException.class)
+    public void testTypeChange() throws Exception {
+        int quark = fSs.getQuarkAbsoluteAndAdd("attribute"); //$NON-NLS-1$
+        fSs.modifyAttribute(10, TmfStateValue.newValueInt(1), quark);
+        fSs.modifyAttribute(20, TmfStateValue.nullValue(), quark);
+        assertTrue(fSs.queryOngoingState(quark).isNull());
+        fSs.modifyAttribute(30, TmfStateValue.newValueString("string"), quark); //$NON-NLS-1$
+    }
+
+    /**
+     * Test that modifying an attribute that does not exist reports it
+     *
+     * @throws Exception
+     *             Expected
+     */
+    @Test(expected = AttributeNotFoundException.class)
+    public void testInvalidQuark() throws Exception {
+        fSs.getQuarkAbsoluteAndAdd("attribute"); //$NON-NLS-1$
+        fSs.modifyAttribute(10, TmfStateValue.newValueInt(1), 5);
+    }
+}
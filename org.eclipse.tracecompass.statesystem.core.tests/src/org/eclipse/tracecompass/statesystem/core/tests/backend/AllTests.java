@@ -20,6 +20,7 @@ import org.junit.runners.Suite;
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
+    HistoryTreeBackendTest.class,
     InMemoryBackendTest.class
 })
 public class AllTests {
@@ -0,0 +1,369 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.statesystem.core.tests.backend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HTConfig;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HistoryTreeBackend;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.ThreadedHistoryTreeBackend;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.tracecompass.statesystem.core.StateSystemFactory;
+import org.eclipse.tracecompass.statesystem.core.backend.IStateHistoryBackend;
+import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateValueTypeException;
+import org.eclipse.tracecompass.statesystem.core.exceptions.TimeRangeException;
+import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test cases for the history tree backend: the history is built, closed, then
+ * re-opened from its file and queried.
+ *
+ * @author agent
+ */
+public class HistoryTreeBackendTest {
+
+    private static final String SSID = "test-ht"; //$NON-NLS-1$
+    private static final int PROVIDER_VERSION = 0;
+    private static final int BLOCK_SIZE = 4096;
+    private static final int MAX_CHILDREN = 4;
+    private static final int NB_ATTRIBUTES = 5;
+    private static final int NB_STATES = 2000;
+    private static final long STATE_DURATION = 10;
+    private static final long END_TIME = NB_STATES * STATE_DURATION;
+
+    private static final String[] VALUES = { "running", "blocked", "idle" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+    private File fStateFile;
+
+    /**
+     * Create the history file
+     *
+     * @throws IOException
+     *             If the file cannot be created
+     */
+    @Before
+    public void setUp() throws IOException {
+        fStateFile = File.createTempFile("test-ht", ".ht"); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    /**
+     * Delete the history file
+     */
+    @After
+    public void tearDown() {
+        fStateFile.delete();
+    }
+
+    private HTConfig createConfig(boolean compact) {
+        return createConfig(fStateFile, true, compact);
+    }
+
+    private static HTConfig createConfig(File file, boolean nodeIndex, boolean compact) {
+        return new HTConfig(file, BLOCK_SIZE, MAX_CHILDREN, PROVIDER_VERSION, 0,
+                HTConfig.DEFAULT_CACHE_SIZE, HTConfig.DEFAULT_PINNED_LEVELS, nodeIndex, compact);
+    }
+
+    /**
+     * Build a history whose attributes alternate between string values and
+     * integer values, then close it.
+     */
+    private static void buildHistory(IStateHistoryBackend backend)
+            throws TimeRangeException, AttributeNotFoundException, StateValueTypeException {
+        ITmfStateSystemBuilder ss = StateSystemFactory.newStateSystem(backend);
+        for (int i = 0; i < NB_ATTRIBUTES; i++) {
+            ss.getQuarkAbsoluteAndAdd("Threads", Integer.toString(i), "Status"); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        for (int t = 0; t < NB_STATES; t++) {
+            for (int i = 0; i < NB_ATTRIBUTES; i++) {
+                int quark = ss.getQuarkAbsolute("Threads", Integer.toString(i), "Status"); //$NON-NLS-1$ //$NON-NLS-2$
+                ss.modifyAttribute(t * STATE_DURATION, expectedValue(t, i), quark);
+            }
+        }
+        ss.closeHistory(END_TIME);
+        ss.dispose();
+    }
+
+    private static TmfStateValue expectedValue(int t, int attribute) {
+        if (attribute % 2 == 0) {
+            return TmfStateValue.newValueString(VALUES[(t + attribute) % VALUES.length]);
+        }
+        return TmfStateValue.newValueInt(t * attribute);
+    }
+
+    private void checkReopenedHistory() throws IOException, AttributeNotFoundException,
+            TimeRangeException, StateSystemDisposedException {
+        checkReopenedHistory(new HistoryTreeBackend(SSID, fStateFile, PROVIDER_VERSION));
+    }
+
+    private static void checkReopenedHistory(IStateHistoryBackend backend) throws IOException,
+            AttributeNotFoundException, TimeRangeException, StateSystemDisposedException {
+        ITmfStateSystem ss = StateSystemFactory.newStateSystem(backend, false);
+        try {
+            assertEquals(0, ss.getStartTime());
+            assertEquals(END_TIME, ss.getCurrentEndTime());
+
+            for (int i = 0; i < NB_ATTRIBUTES; i++) {
+                /* The attribute tree is read after the nodes */
+                int quark = ss.getQuarkAbsolute("Threads", Integer.toString(i), "Status"); //$NON-NLS-1$ //$NON-NLS-2$
+                for (int t = 0; t < NB_STATES; t += 97) {
+                    ITmfStateInterval interval = ss.querySingleState(t * STATE_DURATION + 5, quark);
+                    assertEquals(t * STATE_DURATION, interval.getStartTime());
+                    assertEquals(expectedValue(t, i), interval.getStateValue());
+                }
+            }
+        } finally {
+            ss.dispose();
+        }
+    }
+
+    /**
+     * Test that a history using the standard interval encoding can be
+     * re-opened
+     *
+     * @throws Exception
+     *             If the history could not be built or read
+     */
+    @Test
+    public void testReopenStandard() throws Exception {
+        buildHistory(new HistoryTreeBackend(SSID, createConfig(false)));
+        checkReopenedHistory();
+    }
+
+    /**
+     * Test that a history using the compact interval encoding can be
+     * re-opened: its string dictionary and its attribute tree must not
+     * overlap in the file.
+     *
+     * @throws Exception
+     *             If the history could not be built or read
+     */
+    @Test
+    public void testReopenCompact() throws Exception {
+        buildHistory(new HistoryTreeBackend(SSID, createConfig(true)));
+        checkReopenedHistory();
+    }
+
+    /**
+     * Test that the compact encoding makes the file smaller
+     *
+     * @throws Exception
+     *             If the history could not be built
+     */
+    @Test
+    public void testCompactIsSmaller() throws Exception {
+        buildHistory(new HistoryTreeBackend(SSID, createConfig(false)));
+        long standardSize = fStateFile.length();
+        buildHistory(new HistoryTreeBackend(SSID, createConfig(true)));
+        long compactSize = fStateFile.length();
+        assertTrue(compactSize < standardSize);
+    }
+
+    /**
+     * Test that interrupting the thread inserting the intervals in a threaded
+     * history does not lose any of them, and that the interrupt is kept
+     *
+     * @throws Exception
+     *             If the history could not be built or read
+     */
+    @Test
+    public void testInterruptedProducer() throws Exception {
+        /* The smallest queue, so that the producer often waits for room */
+        ITmfStateSystemBuilder ss = StateSystemFactory.newStateSystem(
+                new ThreadedHistoryTreeBackend(SSID, createConfig(false), 1));
+        for (int i = 0; i < NB_ATTRIBUTES; i++) {
+            ss.getQuarkAbsoluteAndAdd("Threads", Integer.toString(i), "Status"); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        for (int t = 0; t < NB_STATES; t++) {
+            for (int i = 0; i < NB_ATTRIBUTES; i++) {
+                /* Every hand-off of an interval to the queue gets interrupted */
+                Thread.currentThread().interrupt();
+                int quark = ss.getQuarkAbsolute("Threads", Integer.toString(i), "Status"); //$NON-NLS-1$ //$NON-NLS-2$
+                ss.modifyAttribute(t * STATE_DURATION, expectedValue(t, i), quark);
+            }
+        }
+        /* Closing the history also waits for the insertion thread */
+        Thread.currentThread().interrupt();
+        ss.closeHistory(END_TIME);
+        assertTrue(Thread.interrupted());
+        ss.dispose();
+
+        checkReopenedHistory();
+    }
+
+    /**
+     * Test that queries running concurrently on a re-opened history, whose
+     * nodes are read from a mapping of the file, get the same results as
+     * queries running one after the other
+     *
+     * @throws Exception
+     *             If the history could not be built or read
+     */
+    @Test
+    public void testConcurrentQueries() throws Exception {
+        buildHistory(new HistoryTreeBackend(SSID, createConfig(false)));
+        final IStateHistoryBackend backend = new HistoryTreeBackend(SSID, fStateFile, PROVIDER_VERSION);
+        final int nbThreads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < nbThreads; i++) {
+                final int offset = i;
+                results.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        int nbQueries = 0;
+                        List<ITmfStateInterval> full = new ArrayList<>();
+                        for (int q = 0; q < NB_ATTRIBUTES * 4; q++) {
+                            full.add(null);
+                        }
+                        for (int t = offset; t < NB_STATES; t += 3) {
+                            long time = t * STATE_DURATION + 5;
+                            backend.doQuery(full, time);
+                            for (ITmfStateInterval interval : full) {
+                                if (interval == null) {
+                                    continue;
+                                }
+                                ITmfStateInterval single = backend.doSingularQuery(time, interval.getAttribute());
+                                assertEquals(interval.getStartTime(), single.getStartTime());
+                                assertEquals(interval.getEndTime(), single.getEndTime());
+                                assertEquals(interval.getStateValue(), single.getStateValue());
+                                nbQueries++;
+                            }
+                        }
+                        return nbQueries;
+                    }
+                }));
+            }
+            for (Future<Integer> result : results) {
+                assertTrue(result.get() > 0);
+            }
+        } finally {
+            executor.shutdown();
+            backend.dispose();
+        }
+    }
+
+    /**
+     * Test that a node cache much smaller than the history evicts nodes but
+     * still returns the right intervals, and that a large enough one keeps all
+     * the nodes once they are read
+     *
+     * @throws Exception
+     *             If the history could not be built or read
+     */
+    @Test
+    public void testNodeCacheSize() throws Exception {
+        buildHistory(new HistoryTreeBackend(SSID, createConfig(false)));
+
+        /* Room for two nodes, plus the pinned root */
+        HistoryTreeBackend small = new HistoryTreeBackend(SSID, fStateFile, PROVIDER_VERSION, 2 * BLOCK_SIZE, 1);
+        HistoryTreeBackend large = new HistoryTreeBackend(SSID, fStateFile, PROVIDER_VERSION,
+                HTConfig.DEFAULT_CACHE_SIZE, HTConfig.DEFAULT_PINNED_LEVELS);
+        try {
+            queryAll(small);
+            queryAll(large);
+            assertTrue(small.getNodeCacheMissCount() > large.getNodeCacheMissCount());
+
+            /* Every node was read once already, they are all in the cache */
+            long misses = large.getNodeCacheMissCount();
+            long hits = large.getNodeCacheHitCount();
+            queryAll(large);
+            assertEquals(misses, large.getNodeCacheMissCount());
+            assertTrue(large.getNodeCacheHitCount() > hits);
+
+            /* The evicted nodes were read again correctly */
+            queryAll(small);
+        } finally {
+            small.dispose();
+            large.dispose();
+        }
+    }
+
+    /**
+     * Run full queries over the whole history, and check the intervals of
+     * the attributes that change state
+     */
+    private static void queryAll(IStateHistoryBackend backend)
+            throws TimeRangeException, StateSystemDisposedException {
+        List<ITmfStateInterval> full = new ArrayList<>();
+        for (int q = 0; q < NB_ATTRIBUTES * 4; q++) {
+            full.add(null);
+        }
+        for (int t = 0; t < NB_STATES; t++) {
+            backend.doQuery(full, t * STATE_DURATION + 5);
+            for (ITmfStateInterval interval : full) {
+                if (interval != null && !interval.getStateValue().isNull()) {
+                    assertEquals(t * STATE_DURATION, interval.getStartTime());
+                }
+            }
+        }
+    }
+
+    /**
+     * Test that singular queries, which use the index of the intervals per
+     * attribute in each node, return the same intervals as on a history
+     * whose nodes are not indexed
+     *
+     * @throws Exception
+     *             If the histories could not be built or read
+     */
+    @Test
+    public void testNodeIndex() throws Exception {
+        File notIndexedFile = File.createTempFile("test-ht", ".ht"); //$NON-NLS-1$ //$NON-NLS-2$
+        IStateHistoryBackend indexed = null;
+        IStateHistoryBackend notIndexed = null;
+        try {
+            buildHistory(new HistoryTreeBackend(SSID, createConfig(fStateFile, true, false)));
+            buildHistory(new HistoryTreeBackend(SSID, createConfig(notIndexedFile, false, false)));
+            indexed = new HistoryTreeBackend(SSID, fStateFile, PROVIDER_VERSION);
+            notIndexed = new HistoryTreeBackend(SSID, notIndexedFile, PROVIDER_VERSION);
+
+            /* Include the boundaries of the states */
+            for (long t = 0; t <= END_TIME; t += 3) {
+                for (int quark = 0; quark <= NB_ATTRIBUTES * 2; quark++) {
+                    ITmfStateInterval expected = notIndexed.doSingularQuery(t, quark);
+                    ITmfStateInterval actual = indexed.doSingularQuery(t, quark);
+                    assertEquals(expected.getAttribute(), actual.getAttribute());
+                    assertEquals(expected.getStartTime(), actual.getStartTime());
+                    assertEquals(expected.getEndTime(), actual.getEndTime());
+                    assertEquals(expected.getStateValue(), actual.getStateValue());
+                }
+            }
+        } finally {
+            if (indexed != null) {
+                indexed.dispose();
+            }
+            if (notIndexed != null) {
+                notIndexed.dispose();
+            }
+            notIndexedFile.delete();
+        }
+    }
+}
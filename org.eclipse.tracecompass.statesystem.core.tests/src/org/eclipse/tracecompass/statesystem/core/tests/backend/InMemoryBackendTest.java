@@ -15,6 +15,7 @@ package org.eclipse.tracecompass.statesystem.core.tests.backend;
 import static org.junit.Assert.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.eclipse.tracecompass.statesystem.core.backend.IStateHistoryBackend;
@@ -156,6 +157,75 @@ public class InMemoryBackendTest {
         }
     }
 
+    /**
+     * Test a range query on some attributes, then compare it to the
+     * equivalent single queries
+     */
+    @Test
+    public void testRangeQuery() {
+        try {
+            List<ITmfStateInterval> intervals = fixture.doRangeQuery(Arrays.asList(2, 5), 1000, 1300);
+
+            /* 7 intervals per attribute, from [993, 1001] to [1296, 1304] */
+            assertEquals(14, intervals.size());
+            assertEquals(993, intervals.get(0).getStartTime());
+            assertEquals(2, intervals.get(0).getAttribute());
+            assertEquals(996, intervals.get(1).getStartTime());
+            assertEquals(5, intervals.get(1).getAttribute());
+            testInterval(intervals.get(2), 1002, 1092, 10);
+            testInterval(intervals.get(3), 1005, 1095, 10);
+            assertEquals(1304, intervals.get(13).getEndTime());
+
+            long previousStart = Long.MIN_VALUE;
+            for (ITmfStateInterval interval : intervals) {
+                /* Intervals should be ordered by start time */
+                assertTrue(interval.getStartTime() >= previousStart);
+                previousStart = interval.getStartTime();
+
+                assertTrue(interval.getAttribute() == 2 || interval.getAttribute() == 5);
+                assertTrue(interval.getStartTime() <= 1300 && interval.getEndTime() >= 1000);
+
+                ITmfStateInterval single = fixture.doSingularQuery(interval.getStartTime(), interval.getAttribute());
+                assertEquals(single.getStartTime(), interval.getStartTime());
+                assertEquals(single.getEndTime(), interval.getEndTime());
+            }
+
+        } catch (TimeRangeException | AttributeNotFoundException | StateSystemDisposedException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    /**
+     * Test a multi-timestamp query
+     */
+    @Test
+    public void testQuery2D() {
+        try {
+            long[] times = { 1000, 1050, 1060, 1200 };
+            List<ITmfStateInterval> intervals = fixture.doQuery2D(Arrays.asList(2, 5), times);
+
+            /* 1050 and 1060 are in the same intervals, which appear once */
+            assertEquals(6, intervals.size());
+            assertEquals(993, intervals.get(0).getStartTime());
+            assertEquals(2, intervals.get(0).getAttribute());
+            assertEquals(996, intervals.get(1).getStartTime());
+            assertEquals(5, intervals.get(1).getAttribute());
+            testInterval(intervals.get(2), 1002, 1092, 10);
+            testInterval(intervals.get(3), 1005, 1095, 10);
+            assertEquals(1193, intervals.get(4).getStartTime());
+            assertEquals(1196, intervals.get(5).getStartTime());
+
+            for (ITmfStateInterval interval : intervals) {
+                ITmfStateInterval single = fixture.doSingularQuery(interval.getStartTime(), interval.getAttribute());
+                assertEquals(single.getStartTime(), interval.getStartTime());
+                assertEquals(single.getEndTime(), interval.getEndTime());
+            }
+
+        } catch (TimeRangeException | AttributeNotFoundException | StateSystemDisposedException e) {
+            fail(e.getMessage());
+        }
+    }
+
     /**
      * Test single attribute that should not exist
      */
@@ -233,4 +303,97 @@ public class InMemoryBackendTest {
             fail(e.getMessage());
         }
     }
+
+    /**
+     * Test that every singular query returns the interval inserted for that
+     * attribute and time, and the same interval as a full query
+     */
+    @Test
+    public void testQueriesAtAllTimes() {
+        try {
+            List<ITmfStateInterval> full = new ArrayList<>(NUMBER_OF_ATTRIBUTES);
+            for (int i = 0; i < NUMBER_OF_ATTRIBUTES; i++) {
+                full.add(null);
+            }
+            for (int t = NUMBER_OF_ATTRIBUTES; t < 99900; t += 7) {
+                fixture.doQuery(full, t);
+                for (int attribute = 0; attribute < NUMBER_OF_ATTRIBUTES; attribute++) {
+                    ITmfStateInterval interval = fixture.doSingularQuery(t, attribute);
+                    assertSame(full.get(attribute), interval);
+                    assertEquals(attribute, interval.getAttribute());
+
+                    /* Each state of 100 starts with a value, then a null */
+                    int stateStart = ((t - attribute) / 100) * 100 + attribute;
+                    if (t - stateStart <= 90) {
+                        testInterval(interval, stateStart, stateStart + 90, ((t - attribute) / 100) % 100);
+                    } else {
+                        assertEquals(stateStart + 91, interval.getStartTime());
+                        assertEquals(stateStart + 99, interval.getEndTime());
+                        assertTrue(interval.getStateValue().isNull());
+                    }
+                }
+            }
+        } catch (TimeRangeException | AttributeNotFoundException | StateSystemDisposedException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    /**
+     * Test that the intervals of an attribute can be inserted out of order,
+     * and that attributes without intervals are left alone by full queries
+     */
+    @Test
+    public void testOutOfOrderInsertion() {
+        IStateHistoryBackend backend = StateHistoryBackendFactory.createInMemoryBackend("test-ooo", 0);
+        try {
+            /* Attribute 3 only, in reverse order */
+            for (int i = 9; i >= 0; i--) {
+                backend.insertPastState(i * 10, i * 10 + 9, 3, TmfStateValue.newValueInt(i));
+            }
+            /* Attribute 1, with one interval inserted in the middle */
+            backend.insertPastState(0, 39, 1, TmfStateValue.newValueInt(100));
+            backend.insertPastState(60, 99, 1, TmfStateValue.newValueInt(102));
+            backend.insertPastState(40, 59, 1, TmfStateValue.newValueInt(101));
+
+            for (int i = 0; i < 10; i++) {
+                testInterval(backend.doSingularQuery(i * 10 + 5, 3), i * 10, i * 10 + 9, i);
+            }
+            testInterval(backend.doSingularQuery(39, 1), 0, 39, 100);
+            testInterval(backend.doSingularQuery(40, 1), 40, 59, 101);
+            testInterval(backend.doSingularQuery(60, 1), 60, 99, 102);
+
+            List<ITmfStateInterval> full = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                full.add(null);
+            }
+            backend.doQuery(full, 45);
+            assertNull(full.get(0));
+            testInterval(full.get(1), 40, 59, 101);
+            assertNull(full.get(2));
+            testInterval(full.get(3), 40, 49, 4);
+            assertNull(full.get(4));
+
+            List<ITmfStateInterval> range = backend.doRangeQuery(Arrays.asList(1, 3), 35, 55);
+            assertEquals(5, range.size());
+            assertEquals(0, range.get(0).getStartTime());
+            assertEquals(50, range.get(4).getStartTime());
+        } catch (TimeRangeException | AttributeNotFoundException | StateSystemDisposedException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    /**
+     * Test a singular query on an attribute without intervals
+     *
+     * @throws AttributeNotFoundException
+     *             Expected
+     */
+    @Test(expected = AttributeNotFoundException.class)
+    public void testQueryAttributeWithoutIntervals() throws AttributeNotFoundException {
+        try {
+            fixture.doSingularQuery(950, NUMBER_OF_ATTRIBUTES + 5);
+        } catch (TimeRangeException | StateSystemDisposedException e) {
+            fail(e.getMessage());
+        }
+    }
 }
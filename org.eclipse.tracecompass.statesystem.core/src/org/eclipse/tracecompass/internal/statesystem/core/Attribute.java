@@ -17,10 +17,11 @@ package org.eclipse.tracecompass.internal.statesystem.core;
 import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
 
 import java.io.PrintWriter;
-import java.util.Collections;
-import java.util.LinkedHashMap;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.LinkedList;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.eclipse.jdt.annotation.NonNull;
 
@@ -33,6 +34,10 @@ import com.google.common.collect.ImmutableList;
  * It is abstract, as different implementations can provide different ways to
  * access sub-attributes
  *
+ * Looking up a sub-attribute by name does not take any lock. New
+ * sub-attributes are only added by the {@link AttributeTree}, which serializes
+ * the additions.
+ *
  * @author Alexandre Montplaisir
  *
  */
@@ -43,7 +48,18 @@ public final class Attribute {
     private final int quark;
 
     /** The sub-attributes (<basename, attribute>) of this attribute */
-    private final Map<String, Attribute> subAttributes;
+    private final ConcurrentMap<String, Attribute> subAttributes;
+
+    /*
+     * Sub-attributes are created in order of their quarks, so sorting them by
+     * quark gives back their insertion order.
+     */
+    private static final Comparator<Attribute> QUARK_ORDER = new Comparator<Attribute>() {
+        @Override
+        public int compare(Attribute o1, Attribute o2) {
+            return Integer.compare(o1.quark, o2.quark);
+        }
+    };
 
     /**
      * Constructor
@@ -60,7 +76,7 @@ public final class Attribute {
         this.parent = parent;
         this.quark = quark;
         this.name = name;
-        this.subAttributes = Collections.synchronizedMap(new LinkedHashMap<String, Attribute>());
+        this.subAttributes = new ConcurrentHashMap<>(4);
     }
 
     // ------------------------------------------------------------------------
@@ -91,47 +107,21 @@ public final class Attribute {
      * @return The child attributes.
      */
     public Iterable<Attribute> getSubAttributes() {
-        return ImmutableList.copyOf(subAttributes.values());
-    }
-
-    /**
-     * Get the matching quark for a given path-of-strings
-     *
-     * @param path
-     *            The path we are looking for, *relative to this node*.
-     * @return The matching quark, or -1 if that attribute does not exist.
-     */
-    public int getSubAttributeQuark(String... path) {
-        return this.getSubAttributeQuark(path, 0);
+        Attribute[] children = subAttributes.values().toArray(new Attribute[0]);
+        Arrays.sort(children, QUARK_ORDER);
+        return ImmutableList.copyOf(children);
     }
 
     /**
-     * Other method to search through the attribute tree, but instead of
-     * returning the matching quark we return the AttributeTreeNode object
-     * itself. It can then be used as new "root node" for faster queries on the
-     * tree.
+     * Get the direct sub-attribute with the given name. This does not take any
+     * lock.
      *
-     * @param path
-     *            The target path, *relative to this node*
-     * @return The Node object matching the last element in the path, or "null"
-     *         if that attribute does not exist.
+     * @param childName
+     *            The base name of the sub-attribute
+     * @return The sub-attribute, or null if it does not exist
      */
-    public Attribute getSubAttributeNode(String... path) {
-        return this.getSubAttributeNode(path, 0);
-    }
-
-    /**
-     * "Inner" part of the previous public method, which is used recursively. To
-     * avoid having to copy sub-arrays to pass down, we just track where we are
-     * at with the index parameter. It uses getSubAttributeNode(), whose
-     * implementation is left to the derived classes.
-     */
-    private int getSubAttributeQuark(String[] path, int index) {
-        Attribute targetNode = this.getSubAttributeNode(path, index);
-        if (targetNode == null) {
-            return -1;
-        }
-        return targetNode.getQuark();
+    public Attribute getSubAttribute(String childName) {
+        return subAttributes.get(childName);
     }
 
     /**
@@ -166,32 +156,6 @@ public final class Attribute {
         subAttributes.put(newSubAttribute.getName(), newSubAttribute);
     }
 
-    /**
-     * Get a sub-attribute from this node's sub-attributes
-     *
-     * @param path
-     *            The *full* path to the attribute
-     * @param index
-     *            The index in 'path' where this attribute is located
-     *            (indicating where to start searching).
-     * @return The requested attribute
-     */
-    private Attribute getSubAttributeNode(String[] path, int index) {
-        final Attribute nextNode = subAttributes.get(path[index]);
-
-        if (nextNode == null) {
-            /* We don't have the expected child => the attribute does not exist */
-            return null;
-        }
-        if (index == path.length - 1) {
-            /* It's our job to process this request */
-            return nextNode;
-        }
-
-        /* Pass on the rest of the path to the relevant child */
-        return nextNode.getSubAttributeNode(path, index + 1);
-    }
-
     /**
      * Return a String array composed of the full (absolute) path representing
      * this attribute
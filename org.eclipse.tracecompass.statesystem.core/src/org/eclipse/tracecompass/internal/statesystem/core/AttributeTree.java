@@ -26,7 +26,6 @@ import java.io.PrintWriter;
 import java.io.RandomAccessFile;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 
 import org.eclipse.jdt.annotation.NonNull;
@@ -37,6 +36,11 @@ import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundExc
  * Each node of this tree is both like a file and a directory in the
  * "file system".
  *
+ * Resolving quarks does not take any lock: the attributes are kept in an
+ * append-only array indexed by quark, and every attribute has a concurrent map
+ * of its children by name, so each (parent quark, name) step of a path is a
+ * single hash lookup. Only the creation of new attributes is serialized.
+ *
  * @author alexmont
  *
  */
@@ -45,10 +49,22 @@ public final class AttributeTree {
     /* "Magic number" for attribute tree files or file sections */
     private static final int ATTRIB_TREE_MAGIC_NUMBER = 0x06EC3671;
 
+    private static final int INITIAL_CAPACITY = 64;
+
     private final StateSystem ss;
-    private final List<Attribute> attributeList;
     private final Attribute attributeTreeRoot;
 
+    /* Lock taken to create new attributes */
+    private final Object addLock = new Object();
+
+    /*
+     * The attributes, by quark. Only the first 'nbAttributes' entries are
+     * valid. The count is always published after the array, so a reader that
+     * sees a quark as valid also sees its attribute.
+     */
+    private volatile Attribute[] attributes;
+    private volatile int nbAttributes;
+
     /**
      * Standard constructor, create a new empty Attribute Tree
      *
@@ -57,7 +73,8 @@ public final class AttributeTree {
      */
     public AttributeTree(StateSystem ss) {
         this.ss = ss;
-        this.attributeList = Collections.synchronizedList(new ArrayList<Attribute>());
+        this.attributes = new Attribute[INITIAL_CAPACITY];
+        this.nbAttributes = 0;
         this.attributeTreeRoot = new Attribute(null, "root", -1); //$NON-NLS-1$
     }
 
@@ -166,11 +183,14 @@ public final class AttributeTree {
             raf.writeInt(-8000);
 
             /* Write the number of entries */
-            raf.writeInt(this.attributeList.size());
+            int nb = nbAttributes;
+            Attribute[] entries = attributes;
+            raf.writeInt(nb);
             total += 12;
 
             /* Write the attributes themselves */
-            for (Attribute entry : this.attributeList) {
+            for (int i = 0; i < nb; i++) {
+                Attribute entry = entries[i];
                 curByteArray = entry.getFullAttributeName().getBytes();
                 if (curByteArray.length > Byte.MAX_VALUE) {
                     throw new IOException("Attribute with name \"" //$NON-NLS-1$
@@ -206,7 +226,57 @@ public final class AttributeTree {
      * @return The current number of attributes in the tree
      */
     public int getNbAttributes() {
-        return attributeList.size();
+        return nbAttributes;
+    }
+
+    /**
+     * Get the attribute of a quark, without locking.
+     *
+     * @param quark
+     *            The quark
+     * @return The attribute
+     * @throws IndexOutOfBoundsException
+     *             If there is no attribute for that quark
+     */
+    private Attribute getAttribute(int quark) {
+        /* Read the count first, see the comment on the fields */
+        int nb = nbAttributes;
+        if (quark < 0 || quark >= nb) {
+            throw new IndexOutOfBoundsException("Quark: " + quark + ", Size: " + nb); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        return attributes[quark];
+    }
+
+    /**
+     * Add a new attribute at the end of the array. Must be called with the
+     * add lock held.
+     */
+    private void appendAttribute(Attribute attribute) {
+        int nb = nbAttributes;
+        Attribute[] array = attributes;
+        if (nb == array.length) {
+            array = Arrays.copyOf(array, array.length * 2);
+        }
+        array[nb] = attribute;
+        attributes = array;
+        nbAttributes = nb + 1;
+    }
+
+    /**
+     * Follow a path from a given attribute, without locking.
+     *
+     * @return The attribute at the end of the path, or null if it does not
+     *         exist
+     */
+    private static Attribute findAttribute(Attribute startingNode, String[] subPath) {
+        Attribute node = startingNode;
+        for (String name : subPath) {
+            node = node.getSubAttribute(name);
+            if (node == null) {
+                return null;
+            }
+        }
+        return node;
     }
 
     /**
@@ -237,11 +307,11 @@ public final class AttributeTree {
         if (startingNodeQuark == -1) {
             prevNode = attributeTreeRoot;
         } else {
-            prevNode = attributeList.get(startingNodeQuark);
+            prevNode = getAttribute(startingNodeQuark);
         }
 
-        int knownQuark = prevNode.getSubAttributeQuark(subPath);
-        if (knownQuark == -1) {
+        Attribute knownNode = findAttribute(prevNode, subPath);
+        if (knownNode == null) {
             /*
              * The attribute doesn't exist, but we have been specified to NOT
              * add any new attributes.
@@ -252,7 +322,7 @@ public final class AttributeTree {
          * The attribute was already existing, return the quark of that
          * attribute
          */
-        return knownQuark;
+        return knownNode.getQuark();
     }
 
     /**
@@ -267,46 +337,52 @@ public final class AttributeTree {
      *            The path to the attribute, relative to the starting node.
      * @return The quark of the attribute represented by the path
      */
-    public synchronized int getQuarkAndAdd(int startingNodeQuark, String... subPath) {
-        // FIXME synchronized here is probably quite costly... maybe only locking
-        // the "for" would be enough?
+    public int getQuarkAndAdd(int startingNodeQuark, String... subPath) {
         assert (subPath != null && subPath.length > 0);
         assert (startingNodeQuark >= -1);
 
-        Attribute nextNode = null;
         Attribute prevNode;
 
         /* Get the "starting node" */
         if (startingNodeQuark == -1) {
             prevNode = attributeTreeRoot;
         } else {
-            prevNode = attributeList.get(startingNodeQuark);
+            prevNode = getAttribute(startingNodeQuark);
         }
 
-        int knownQuark = prevNode.getSubAttributeQuark(subPath);
-        if (knownQuark == -1) {
+        Attribute knownNode = findAttribute(prevNode, subPath);
+        if (knownNode != null) {
             /*
-             * The attribute was not in the table previously, and we want to add
-             * it
+             * The attribute was already existing, return the quark of that
+             * attribute. This is the common case, and it doesn't lock.
              */
+            return knownNode.getQuark();
+        }
+
+        /*
+         * The attribute was not in the table previously, and we want to add
+         * it. Another thread may be adding (part of) it at the same time, so
+         * look again at each level once we have the lock.
+         */
+        synchronized (addLock) {
+            Attribute nextNode = null;
             for (String curDirectory : subPath) {
-                nextNode = prevNode.getSubAttributeNode(curDirectory);
+                nextNode = prevNode.getSubAttribute(curDirectory);
                 if (nextNode == null) {
                     /* This is where we need to start adding */
-                    nextNode = new Attribute(prevNode, checkNotNull(curDirectory), attributeList.size());
-                    prevNode.addSubAttribute(nextNode);
-                    attributeList.add(nextNode);
+                    nextNode = new Attribute(prevNode, checkNotNull(curDirectory), nbAttributes);
+                    /*
+                     * Make the attribute visible only once everything that
+                     * can be accessed through its quark is ready.
+                     */
                     ss.addEmptyAttribute();
+                    appendAttribute(nextNode);
+                    prevNode.addSubAttribute(nextNode);
                 }
                 prevNode = nextNode;
             }
-            return attributeList.size() - 1;
+            return checkNotNull(nextNode).getQuark();
         }
-        /*
-         * The attribute was already existing, return the quark of that
-         * attribute
-         */
-        return knownQuark;
     }
 
     /**
@@ -329,7 +405,7 @@ public final class AttributeTree {
         Attribute startingAttribute;
 
         /* Check if the quark is valid */
-        if (attributeQuark < -1 || attributeQuark >= attributeList.size()) {
+        if (attributeQuark < -1 || attributeQuark >= nbAttributes) {
             throw new AttributeNotFoundException(ss.getSSID() + " Quark:" + attributeQuark); //$NON-NLS-1$
         }
 
@@ -337,7 +413,7 @@ public final class AttributeTree {
         if (attributeQuark == -1) {
             startingAttribute = attributeTreeRoot;
         } else {
-            startingAttribute = attributeList.get(attributeQuark);
+            startingAttribute = getAttribute(attributeQuark);
         }
 
         /* Iterate through the sub-attributes and add them to the list */
@@ -359,7 +435,7 @@ public final class AttributeTree {
         if (quark == -1) {
             return quark;
         }
-        return attributeList.get(quark).getParentAttributeQuark();
+        return getAttribute(quark).getParentAttributeQuark();
     }
 
     private void addSubAttributes(List<Integer> list, Attribute curAttribute,
@@ -380,7 +456,7 @@ public final class AttributeTree {
      * @return The (base) name of the attribute
      */
     public @NonNull String getAttributeName(int quark) {
-        return attributeList.get(quark).getName();
+        return getAttribute(quark).getName();
     }
 
     /**
@@ -391,7 +467,7 @@ public final class AttributeTree {
      * @return The full path name of the attribute
      */
     public @NonNull String getFullAttributeName(int quark) {
-        return attributeList.get(quark).getFullAttributeName();
+        return getAttribute(quark).getFullAttributeName();
     }
 
     /**
@@ -403,7 +479,7 @@ public final class AttributeTree {
      * @return The path elements of the full path
      */
     public @NonNull String[] getFullAttributePathArray(int quark) {
-        return attributeList.get(quark).getFullAttribute();
+        return getAttribute(quark).getFullAttribute();
     }
 
     /**
@@ -19,12 +19,15 @@ import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.SortedTimestamps;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
 import org.eclipse.tracecompass.statesystem.core.backend.IStateHistoryBackend;
 import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
@@ -32,6 +35,7 @@ import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedE
 import org.eclipse.tracecompass.statesystem.core.exceptions.StateValueTypeException;
 import org.eclipse.tracecompass.statesystem.core.exceptions.TimeRangeException;
 import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.tracecompass.statesystem.core.interval.TmfIntervalStartComparator;
 import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
 import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue.Type;
 import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
@@ -616,6 +620,92 @@ public class StateSystem implements ITmfStateSystemBuilder {
         return ret;
     }
 
+    @Override
+    public List<ITmfStateInterval> queryRange(Collection<Integer> quarks, long t1, long t2)
+            throws AttributeNotFoundException, TimeRangeException,
+            StateSystemDisposedException {
+        if (isDisposed) {
+            throw new StateSystemDisposedException();
+        }
+        if (t2 < t1) {
+            throw new TimeRangeException(getSSID() + " Start:" + t1 + ", End:" + t2); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+
+        final int nbAttr = getNbAttributes();
+        for (Integer quark : quarks) {
+            if (quark < 0 || quark >= nbAttr) {
+                throw new AttributeNotFoundException(getSSID() + " Quark:" + quark); //$NON-NLS-1$
+            }
+        }
+
+        if (!transState.isActive()) {
+            return backend.doRangeQuery(quarks, t1, t2);
+        }
+
+        /*
+         * We are currently building the history. The start of the range may
+         * not be in the backend yet, and the latest states of every attribute
+         * are only in the transient state.
+         */
+        List<ITmfStateInterval> intervals = new ArrayList<>();
+        if (t1 <= backend.getEndTime()) {
+            intervals.addAll(backend.doRangeQuery(quarks, t1, t2));
+        }
+        for (Integer quark : quarks) {
+            ITmfStateInterval ongoing = transState.getIntervalAt(t2, quark);
+            if (ongoing != null) {
+                intervals.add(ongoing);
+            }
+        }
+        Collections.sort(intervals, new TmfIntervalStartComparator());
+        return intervals;
+    }
+
+    @Override
+    public List<ITmfStateInterval> query2D(Collection<Integer> quarks, Collection<Long> times)
+            throws AttributeNotFoundException, StateSystemDisposedException {
+        if (isDisposed) {
+            throw new StateSystemDisposedException();
+        }
+
+        final int nbAttr = getNbAttributes();
+        for (Integer quark : quarks) {
+            if (quark < 0 || quark >= nbAttr) {
+                throw new AttributeNotFoundException(getSSID() + " Quark:" + quark); //$NON-NLS-1$
+            }
+        }
+
+        long[] sortedTimes = SortedTimestamps.toSortedArray(times);
+        sortedTimes = SortedTimestamps.clamp(sortedTimes, getStartTime(), getCurrentEndTime());
+        if (sortedTimes.length == 0) {
+            return new ArrayList<>();
+        }
+
+        if (!transState.isActive()) {
+            return backend.doQuery2D(quarks, sortedTimes);
+        }
+
+        /*
+         * We are currently building the history. The timestamps after the end
+         * of the backend can only be in the ongoing intervals of the transient
+         * state, which contain the last timestamp if they contain any.
+         */
+        List<ITmfStateInterval> intervals = new ArrayList<>();
+        long[] backendTimes = SortedTimestamps.clamp(sortedTimes, getStartTime(), backend.getEndTime());
+        if (backendTimes.length > 0) {
+            intervals.addAll(backend.doQuery2D(quarks, backendTimes));
+        }
+        final long lastTime = sortedTimes[sortedTimes.length - 1];
+        for (Integer quark : quarks) {
+            ITmfStateInterval ongoing = transState.getIntervalAt(lastTime, quark);
+            if (ongoing != null) {
+                intervals.add(ongoing);
+            }
+        }
+        Collections.sort(intervals, new TmfIntervalStartComparator());
+        return intervals;
+    }
+
     //--------------------------------------------------------------------------
     //        Debug methods
     //--------------------------------------------------------------------------
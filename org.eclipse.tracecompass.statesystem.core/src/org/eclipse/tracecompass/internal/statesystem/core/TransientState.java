@@ -16,7 +16,7 @@
 package org.eclipse.tracecompass.internal.statesystem.core;
 
 import java.io.PrintWriter;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -42,6 +42,12 @@ import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
  * of the interval will be the recorded time we have here, and the "end time"
  * will be the timestamp of the new state-changing event we just read.
  *
+ * The ongoing states are kept in primitive arrays indexed by quark: the start
+ * times as longs, and the values as a type tag plus their raw bits (or their
+ * string). State value objects are only created when an interval is sent to
+ * the back-end or returned by a query, so processing a state change does not
+ * allocate anything.
+ *
  * @author Alexandre Montplaisir
  */
 @NonNullByDefault
@@ -55,10 +61,25 @@ public class TransientState {
     private volatile boolean fIsActive;
     private volatile long fLatestTime;
 
+    private static final int INITIAL_CAPACITY = 64;
+    private static final Type[] TYPES = Type.values();
+    private static final byte NULL_TYPE = (byte) Type.NULL.ordinal();
+    private static final byte STRING_TYPE = (byte) Type.STRING.ordinal();
+
     /* A method accessing these arrays will have to go through the lock */
-    private List<ITmfStateValue> fOngoingStateInfo;
-    private List<Long> fOngoingStateStartTimes;
-    private List<Type> fStateValueTypes;
+
+    /* Number of valid entries in the arrays (= the number of attributes) */
+    private int fSize;
+    /* Start time of the ongoing state of each attribute */
+    private long[] fOngoingStartTimes;
+    /* Type of the ongoing value of each attribute, as its Type ordinal */
+    private byte[] fOngoingTypes;
+    /* Ongoing integer, long or double (as raw long bits) values */
+    private long[] fOngoingBits;
+    /* Ongoing string values, null for the other types */
+    private ITmfStateValue[] fOngoingStrings;
+    /* Type of each attribute, set by the first non-null value it gets */
+    private byte[] fStateValueTypes;
 
     /**
      * Constructor
@@ -69,13 +90,113 @@ public class TransientState {
     public TransientState(IStateHistoryBackend backend) {
         fBackend = backend;
         fIsActive = true;
-        fOngoingStateInfo = new ArrayList<>();
-        fOngoingStateStartTimes = new ArrayList<>();
-        fStateValueTypes = new ArrayList<>();
+        allocateArrays(INITIAL_CAPACITY);
 
         fLatestTime = backend.getStartTime();
     }
 
+    private void allocateArrays(int capacity) {
+        fSize = 0;
+        fOngoingStartTimes = new long[capacity];
+        fOngoingTypes = new byte[capacity];
+        fOngoingBits = new long[capacity];
+        fOngoingStrings = new ITmfStateValue[capacity];
+        fStateValueTypes = new byte[capacity];
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= fOngoingStartTimes.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, fOngoingStartTimes.length * 2);
+        fOngoingStartTimes = Arrays.copyOf(fOngoingStartTimes, newCapacity);
+        fOngoingTypes = Arrays.copyOf(fOngoingTypes, newCapacity);
+        fOngoingBits = Arrays.copyOf(fOngoingBits, newCapacity);
+        fOngoingStrings = Arrays.copyOf(fOngoingStrings, newCapacity);
+        fStateValueTypes = Arrays.copyOf(fStateValueTypes, newCapacity);
+    }
+
+    /**
+     * Store a value as the ongoing value of an attribute. Must be called with
+     * the write lock held.
+     */
+    private void setOngoingValue(int quark, ITmfStateValue value) {
+        byte type = (byte) value.getType().ordinal();
+        fOngoingTypes[quark] = type;
+        fOngoingStrings[quark] = null;
+        fOngoingBits[quark] = 0;
+        switch (value.getType()) {
+        case INTEGER:
+            fOngoingBits[quark] = value.unboxInt();
+            break;
+        case LONG:
+            fOngoingBits[quark] = value.unboxLong();
+            break;
+        case DOUBLE:
+            fOngoingBits[quark] = Double.doubleToLongBits(value.unboxDouble());
+            break;
+        case STRING:
+            fOngoingStrings[quark] = value;
+            break;
+        case NULL:
+        default:
+            break;
+        }
+    }
+
+    /**
+     * Check if a value is equal to the ongoing value of an attribute, without
+     * creating a state value object. This follows the equals() of the state
+     * values.
+     */
+    private boolean isOngoingValue(int quark, ITmfStateValue value) {
+        Type type = value.getType();
+        if (fOngoingTypes[quark] != type.ordinal()) {
+            return false;
+        }
+        switch (type) {
+        case NULL:
+            return true;
+        case INTEGER:
+            return fOngoingBits[quark] == value.unboxInt();
+        case LONG:
+            return fOngoingBits[quark] == value.unboxLong();
+        case DOUBLE:
+            /* Same as the Double.compare() used by the double state values */
+            return fOngoingBits[quark] == Double.doubleToLongBits(value.unboxDouble());
+        case STRING:
+            ITmfStateValue ongoing = fOngoingStrings[quark];
+            return (ongoing != null && ongoing.equals(value));
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Create the state value object of the ongoing value of an attribute.
+     * Must be called with the lock held.
+     */
+    private ITmfStateValue getOngoingValue(int quark) {
+        long bits = fOngoingBits[quark];
+        switch (TYPES[fOngoingTypes[quark]]) {
+        case INTEGER:
+            return TmfStateValue.newValueInt((int) bits);
+        case LONG:
+            return TmfStateValue.newValueLong(bits);
+        case DOUBLE:
+            return TmfStateValue.newValueDouble(Double.longBitsToDouble(bits));
+        case STRING:
+            ITmfStateValue value = fOngoingStrings[quark];
+            if (value == null) {
+                throw new IllegalStateException("Null value stored in transient state"); //$NON-NLS-1$
+            }
+            return value;
+        case NULL:
+        default:
+            return TmfStateValue.nullValue();
+        }
+    }
+
     /**
      * Get the latest time we have seen so far.
      *
@@ -98,11 +219,7 @@ public class TransientState {
         fRWLock.readLock().lock();
         try {
             checkValidAttribute(quark);
-            ITmfStateValue ret = fOngoingStateInfo.get(quark);
-            if (ret == null) {
-                throw new IllegalStateException("Null interval stored in transient state"); //$NON-NLS-1$
-            }
-            return ret;
+            return getOngoingValue(quark);
         } finally {
             fRWLock.readLock().unlock();
         }
@@ -121,7 +238,7 @@ public class TransientState {
         fRWLock.readLock().lock();
         try {
             checkValidAttribute(quark);
-            return fOngoingStateStartTimes.get(quark);
+            return fOngoingStartTimes[quark];
         } finally {
             fRWLock.readLock().unlock();
         }
@@ -143,7 +260,7 @@ public class TransientState {
         fRWLock.writeLock().lock();
         try {
             checkValidAttribute(quark);
-            fOngoingStateInfo.set(quark, newValue);
+            setOngoingValue(quark, newValue);
         } finally {
             fRWLock.writeLock().unlock();
         }
@@ -164,8 +281,8 @@ public class TransientState {
         fRWLock.readLock().lock();
         try {
             checkValidAttribute(quark);
-            return new TmfStateInterval(fOngoingStateStartTimes.get(quark), fLatestTime,
-                    quark, fOngoingStateInfo.get(quark));
+            return new TmfStateInterval(fOngoingStartTimes[quark], fLatestTime,
+                    quark, getOngoingValue(quark));
         } finally {
             fRWLock.readLock().unlock();
         }
@@ -187,11 +304,11 @@ public class TransientState {
         fRWLock.readLock().lock();
         try {
             checkValidAttribute(quark);
-            if (!isActive() || time < fOngoingStateStartTimes.get(quark)) {
+            if (!isActive() || time < fOngoingStartTimes[quark]) {
                 return null;
             }
-            return new TmfStateInterval(fOngoingStateStartTimes.get(quark),
-                    fLatestTime, quark, fOngoingStateInfo.get(quark));
+            return new TmfStateInterval(fOngoingStartTimes[quark],
+                    fLatestTime, quark, getOngoingValue(quark));
         } catch (AttributeNotFoundException e) {
             return null;
         } finally {
@@ -200,7 +317,7 @@ public class TransientState {
     }
 
     private void checkValidAttribute(int quark) throws AttributeNotFoundException {
-        if (quark > fOngoingStateInfo.size() - 1 || quark < 0) {
+        if (quark > fSize - 1 || quark < 0) {
             throw new AttributeNotFoundException(fBackend.getSSID() + " Quark:" + quark); //$NON-NLS-1$
         }
     }
@@ -221,14 +338,14 @@ public class TransientState {
 
         fRWLock.writeLock().lock();
         try {
-            fOngoingStateInfo = new ArrayList<>(size);
-            fOngoingStateStartTimes = new ArrayList<>(size);
-            fStateValueTypes = new ArrayList<>(size);
+            allocateArrays(Math.max(size, INITIAL_CAPACITY));
 
             for (ITmfStateInterval interval : newStateIntervals) {
-                fOngoingStateInfo.add(interval.getStateValue());
-                fOngoingStateStartTimes.add(interval.getStartTime());
-                fStateValueTypes.add(interval.getStateValue().getType());
+                int quark = fSize++;
+                ITmfStateValue value = interval.getStateValue();
+                setOngoingValue(quark, value);
+                fOngoingStartTimes[quark] = interval.getStartTime();
+                fStateValueTypes[quark] = (byte) value.getType().ordinal();
             }
         } finally {
             fRWLock.writeLock().unlock();
@@ -249,10 +366,14 @@ public class TransientState {
              * covering for all timestamps). A null interval will then get added
              * at the first state change.
              */
-            fOngoingStateInfo.add(TmfStateValue.nullValue());
-            fStateValueTypes.add(Type.NULL);
-
-            fOngoingStateStartTimes.add(fBackend.getStartTime());
+            ensureCapacity(fSize + 1);
+            int quark = fSize++;
+            fOngoingTypes[quark] = NULL_TYPE;
+            fOngoingBits[quark] = 0;
+            fOngoingStrings[quark] = null;
+            fStateValueTypes[quark] = NULL_TYPE;
+
+            fOngoingStartTimes[quark] = fBackend.getStartTime();
         } finally {
             fRWLock.writeLock().unlock();
         }
@@ -283,8 +404,8 @@ public class TransientState {
 
         fRWLock.writeLock().lock();
         try {
-            Type expectedSvType = fStateValueTypes.get(quark);
             checkValidAttribute(quark);
+            Type expectedSvType = TYPES[fStateValueTypes[quark]];
 
             /*
              * Make sure the state value type we're inserting is the same as the
@@ -295,7 +416,7 @@ public class TransientState {
                  * The value hasn't been used yet, set it to the value we're
                  * currently inserting (which might be null/-1 again).
                  */
-                fStateValueTypes.set(quark, value.getType());
+                fStateValueTypes[quark] = (byte) value.getType().ordinal();
             } else if ((value.getType() != Type.NULL) && (value.getType() != expectedSvType)) {
                 /*
                  * We authorize inserting null values in any type of attribute,
@@ -305,7 +426,7 @@ public class TransientState {
                 throw new StateValueTypeException(fBackend.getSSID() + " Quark:" + quark + ", Type:" + value.getType() + ", Expected:" + expectedSvType); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
             }
 
-            if (fOngoingStateInfo.get(quark).equals(value)) {
+            if (isOngoingValue(quark, value)) {
                 /*
                  * This is the case where the new value and the one already
                  * present in the Builder are the same. We do not need to create
@@ -314,19 +435,19 @@ public class TransientState {
                 return;
             }
 
-            if (fOngoingStateStartTimes.get(quark) < eventTime) {
+            if (fOngoingStartTimes[quark] < eventTime) {
                 /*
                  * These two conditions are necessary to create an interval and
                  * update ongoingStateInfo.
                  */
-                fBackend.insertPastState(fOngoingStateStartTimes.get(quark),
+                fBackend.insertPastState(fOngoingStartTimes[quark],
                         eventTime - 1, /* End Time */
                         quark, /* attribute quark */
-                        fOngoingStateInfo.get(quark)); /* StateValue */
+                        getOngoingValue(quark)); /* StateValue */
 
-                fOngoingStateStartTimes.set(quark, eventTime);
+                fOngoingStartTimes[quark] = eventTime;
             }
-            fOngoingStateInfo.set(quark, value);
+            setOngoingValue(quark, value);
 
             /* Update the Transient State's lastestTime, if needed */
             if (fLatestTime < eventTime) {
@@ -353,7 +474,7 @@ public class TransientState {
             if (!this.fIsActive) {
                 return;
             }
-            if (stateInfo.size() > fOngoingStateInfo.size()) {
+            if (stateInfo.size() > fSize) {
                 throw new IllegalArgumentException();
             }
 
@@ -390,8 +511,8 @@ public class TransientState {
 
         fRWLock.writeLock().lock();
         try {
-            for (int i = 0; i < fOngoingStateInfo.size(); i++) {
-                if (fOngoingStateStartTimes.get(i) > endTime) {
+            for (int i = 0; i < fSize; i++) {
+                if (fOngoingStartTimes[i] > endTime) {
                     /*
                      * Handle the cases where trace end > timestamp of last
                      * state change. This can happen when inserting "future"
@@ -400,10 +521,10 @@ public class TransientState {
                     continue;
                 }
                 try {
-                    fBackend.insertPastState(fOngoingStateStartTimes.get(i),
+                    fBackend.insertPastState(fOngoingStartTimes[i],
                             endTime, /* End Time */
                             i, /* attribute quark */
-                            fOngoingStateInfo.get(i)); /* StateValue */
+                            getOngoingValue(i)); /* StateValue */
 
                 } catch (TimeRangeException e) {
                     /*
@@ -414,8 +535,7 @@ public class TransientState {
                 }
             }
 
-            fOngoingStateInfo.clear();
-            fOngoingStateStartTimes.clear();
+            allocateArrays(0);
             this.fIsActive = false;
 
         } finally {
@@ -455,10 +575,10 @@ public class TransientState {
             return;
         }
         writer.println("\nAttribute\tStateValue\tValid since time"); //$NON-NLS-1$
-        for (int i = 0; i < fOngoingStateInfo.size(); i++) {
+        for (int i = 0; i < fSize; i++) {
             writer.format("%d\t\t", i); //$NON-NLS-1$
-            writer.print(fOngoingStateInfo.get(i).toString() + "\t\t"); //$NON-NLS-1$
-            writer.println(fOngoingStateStartTimes.get(i).toString());
+            writer.print(getOngoingValue(i).toString() + "\t\t"); //$NON-NLS-1$
+            writer.println(fOngoingStartTimes[i]);
         }
         writer.println('\n');
         return;
@@ -10,6 +10,7 @@
  *   Alexandre Montplaisir - Initial API and implementation
  *   Matthew Khouzam - Modified to use a TreeSet
  *   Patrick Tasse - Add message to exceptions
+ *   agent - Store the intervals per attribute
  ******************************************************************************/
 
 package org.eclipse.tracecompass.internal.statesystem.core.backend;
@@ -17,17 +18,20 @@ package org.eclipse.tracecompass.internal.statesystem.core.backend;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.PrintWriter;
-import java.util.Comparator;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.tracecompass.statesystem.core.backend.IStateHistoryBackend;
 import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
 import org.eclipse.tracecompass.statesystem.core.exceptions.TimeRangeException;
 import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.tracecompass.statesystem.core.interval.TmfIntervalStartComparator;
 import org.eclipse.tracecompass.statesystem.core.interval.TmfStateInterval;
 import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
 
@@ -38,47 +42,117 @@ import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
  * most cases.
  *
  * This should only be used with very small state histories (and/or, very small
- * traces). Since it's stored in standard Collections, it's limited to 2^31
- * intervals.
+ * traces). The intervals of each attribute are kept in arrays, so each
+ * attribute is limited to 2^31 intervals.
+ *
+ * The intervals are stored per attribute, sorted by start time, in primitive
+ * arrays of start and end times. Since the intervals of one attribute do not
+ * overlap, their end times are sorted too, and finding the interval of an
+ * attribute at a given time is a binary search. Queries take a read lock, so
+ * they can run concurrently with each other.
  *
  * @author Alexandre Montplaisir
  */
 public class InMemoryBackend implements IStateHistoryBackend {
 
+    private static final int INITIAL_CAPACITY = 16;
+
     /**
-     * We need to compare the end time and the attribute, because we can have 2
-     * intervals with the same end time (for different attributes). And TreeSet
-     * needs a unique "key" per element.
+     * The intervals of one attribute, sorted by start time. The times are
+     * copied in primitive arrays, so that searching them does not have to
+     * dereference the interval objects.
      */
-    private static final Comparator<ITmfStateInterval> END_COMPARATOR =
-            new Comparator<ITmfStateInterval>() {
-                @Override
-                public int compare(ITmfStateInterval o1, ITmfStateInterval o2) {
-                    final long e1 = o1.getEndTime();
-                    final long e2 = o2.getEndTime();
-                    final int a1 = o1.getAttribute();
-                    final int a2 = o2.getAttribute();
-                    if (e1 < e2) {
-                        return -1;
-                    } else if (e1 > e2) {
-                        return 1;
-                    } else if (a1 < a2) {
-                        return -1;
-                    } else if (a1 > a2) {
-                        return 1;
-                    } else {
-                        return 0;
-                    }
+    private static final class AttributeIntervals {
+        private long[] starts = new long[INITIAL_CAPACITY];
+        private long[] ends = new long[INITIAL_CAPACITY];
+        private ITmfStateInterval[] intervals = new ITmfStateInterval[INITIAL_CAPACITY];
+        private int size = 0;
+
+        public void add(ITmfStateInterval interval) {
+            long start = interval.getStartTime();
+            if (size == starts.length) {
+                int newCapacity = size * 2;
+                starts = Arrays.copyOf(starts, newCapacity);
+                ends = Arrays.copyOf(ends, newCapacity);
+                intervals = Arrays.copyOf(intervals, newCapacity);
+            }
+
+            /* Intervals normally arrive in order, only search if they don't */
+            int index = size;
+            if (size > 0 && starts[size - 1] > start) {
+                index = upperBound(starts, size, start);
+                System.arraycopy(starts, index, starts, index + 1, size - index);
+                System.arraycopy(ends, index, ends, index + 1, size - index);
+                System.arraycopy(intervals, index, intervals, index + 1, size - index);
+            }
+            starts[index] = start;
+            ends[index] = interval.getEndTime();
+            intervals[index] = interval;
+            size++;
+        }
+
+        /**
+         * Get the index of the interval intersecting t, or -1 if there is none
+         */
+        public int indexAt(long t) {
+            /* The last interval starting at or before t */
+            int index = upperBound(starts, size, t) - 1;
+            if (index >= 0 && ends[index] >= t) {
+                return index;
+            }
+            return -1;
+        }
+
+        /**
+         * Get the index of the first interval ending at or after t
+         */
+        public int firstEndingAfter(long t) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (ends[mid] < t) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
                 }
+            }
+            return low;
+        }
 
-            };
+        public ITmfStateInterval getInterval(int index) {
+            return intervals[index];
+        }
+
+        /**
+         * Index of the first element strictly greater than 'value' in the
+         * first 'length' elements of 'array'
+         */
+        private static int upperBound(long[] array, int length, long value) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (array[mid] <= value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
 
     private final @NonNull String ssid;
-    private final TreeSet<ITmfStateInterval> intervals;
     private final long startTime;
 
     private volatile long latestTime;
 
+    /* Intervals by attribute quark, entries can be null */
+    private AttributeIntervals[] attributes = new AttributeIntervals[INITIAL_CAPACITY];
+
+    private final ReentrantReadWriteLock rwl = new ReentrantReadWriteLock(false);
+
     /**
      * Constructor
      *
@@ -91,7 +165,6 @@ public class InMemoryBackend implements IStateHistoryBackend {
         this.ssid = ssid;
         this.startTime = startTime;
         this.latestTime = startTime;
-        this.intervals = new TreeSet<>(END_COMPARATOR);
     }
 
     @Override
@@ -116,12 +189,27 @@ public class InMemoryBackend implements IStateHistoryBackend {
         if (stateStartTime > stateEndTime || stateStartTime < startTime) {
             throw new TimeRangeException(ssid + " Interval Start:" + stateStartTime + ", Interval End:" + stateEndTime + ", Backend Start:" + startTime); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
         }
+        if (quark < 0) {
+            throw new IllegalArgumentException(ssid + " Quark:" + quark); //$NON-NLS-1$
+        }
 
         ITmfStateInterval interval = new TmfStateInterval(stateStartTime, stateEndTime, quark, value);
 
-        /* Add the interval into the tree */
-        synchronized (intervals) {
+        /* Add the interval to the ones of its attribute */
+        Lock lock = rwl.writeLock();
+        lock.lock();
+        try {
+            if (quark >= attributes.length) {
+                attributes = Arrays.copyOf(attributes, Math.max(quark + 1, attributes.length * 2));
+            }
+            AttributeIntervals intervals = attributes[quark];
+            if (intervals == null) {
+                intervals = new AttributeIntervals();
+                attributes[quark] = intervals;
+            }
             intervals.add(interval);
+        } finally {
+            lock.unlock();
         }
 
         /* Update the "latest seen time" */
@@ -130,6 +218,16 @@ public class InMemoryBackend implements IStateHistoryBackend {
         }
     }
 
+    /**
+     * Get the intervals of an attribute. Must be called with the lock held.
+     */
+    private AttributeIntervals getIntervals(int quark) {
+        if (quark < 0 || quark >= attributes.length) {
+            return null;
+        }
+        return attributes[quark];
+    }
+
     @Override
     public void doQuery(List<ITmfStateInterval> currentStateInfo, long t)
             throws TimeRangeException {
@@ -137,21 +235,23 @@ public class InMemoryBackend implements IStateHistoryBackend {
             throw new TimeRangeException(ssid + " Time:" + t + ", Start:" + startTime + ", End:" + latestTime); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
         }
 
-        /*
-         * The intervals are sorted by end time, so we can binary search to get
-         * the first possible interval, then only compare their start times.
-         */
-        synchronized (intervals) {
-            Iterator<ITmfStateInterval> iter = serachforEndTime(intervals, t);
-            for (int modCount = 0; iter.hasNext() && modCount < currentStateInfo.size();) {
-                ITmfStateInterval entry = iter.next();
-                final long entryStartTime = entry.getStartTime();
-                if (entryStartTime <= t) {
-                    /* Add this interval to the returned values */
-                    currentStateInfo.set(entry.getAttribute(), entry);
-                    modCount++;
+        /* One binary search per attribute */
+        Lock lock = rwl.readLock();
+        lock.lock();
+        try {
+            final int nbAttributes = Math.min(currentStateInfo.size(), attributes.length);
+            for (int quark = 0; quark < nbAttributes; quark++) {
+                AttributeIntervals intervals = attributes[quark];
+                if (intervals == null) {
+                    continue;
+                }
+                int index = intervals.indexAt(t);
+                if (index >= 0) {
+                    currentStateInfo.set(quark, intervals.getInterval(index));
                 }
             }
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -162,25 +262,99 @@ public class InMemoryBackend implements IStateHistoryBackend {
             throw new TimeRangeException(ssid + " Time:" + t + ", Start:" + startTime + ", End:" + latestTime); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
         }
 
+        Lock lock = rwl.readLock();
+        lock.lock();
+        try {
+            AttributeIntervals intervals = getIntervals(attributeQuark);
+            if (intervals != null) {
+                int index = intervals.indexAt(t);
+                if (index >= 0) {
+                    /* This is the droid we are looking for */
+                    return intervals.getInterval(index);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        throw new AttributeNotFoundException(ssid + " Quark:" + attributeQuark); //$NON-NLS-1$
+    }
+
+    @Override
+    public List<ITmfStateInterval> doRangeQuery(Collection<Integer> quarks, long t1, long t2)
+            throws TimeRangeException {
+        if (!checkValidTime(t1) || t2 < t1) {
+            throw new TimeRangeException(ssid + " Start:" + t1 + ", End:" + t2 + ", Backend Start:" + startTime + ", Backend End:" + latestTime); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+        }
+
         /*
-         * The intervals are sorted by end time, so we can binary search to get
-         * the first possible interval, then only compare their start times.
+         * For each attribute, find the first interval ending after t1, then
+         * take the following ones until they start after t2.
          */
-        synchronized (intervals) {
-            Iterator<ITmfStateInterval> iter = serachforEndTime(intervals, t);
-            while (iter.hasNext()) {
-                ITmfStateInterval entry = iter.next();
-                final boolean attributeMatches = (entry.getAttribute() == attributeQuark);
-                final long entryStartTime = entry.getStartTime();
-                if (attributeMatches) {
-                    if (entryStartTime <= t) {
-                        /* This is the droid we are looking for */
-                        return entry;
+        List<ITmfStateInterval> ret = new ArrayList<>();
+        Lock lock = rwl.readLock();
+        lock.lock();
+        try {
+            for (int quark : quarks) {
+                AttributeIntervals intervals = getIntervals(quark);
+                if (intervals == null) {
+                    continue;
+                }
+                for (int i = intervals.firstEndingAfter(t1); i < intervals.size && intervals.starts[i] <= t2; i++) {
+                    ret.add(intervals.getInterval(i));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        Collections.sort(ret, new TmfIntervalStartComparator());
+        return ret;
+    }
+
+    @Override
+    public List<ITmfStateInterval> doQuery2D(Collection<Integer> quarks, long[] times)
+            throws TimeRangeException {
+        List<ITmfStateInterval> ret = new ArrayList<>();
+        if (times.length == 0) {
+            return ret;
+        }
+        final long firstTime = times[0];
+        final long lastTime = times[times.length - 1];
+        if (!checkValidTime(firstTime) || !checkValidTime(lastTime)) {
+            throw new TimeRangeException(ssid + " Start:" + firstTime + ", End:" + lastTime + ", Backend Start:" + startTime + ", Backend End:" + latestTime); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+        }
+
+        Lock lock = rwl.readLock();
+        lock.lock();
+        try {
+            for (int quark : quarks) {
+                AttributeIntervals intervals = getIntervals(quark);
+                if (intervals == null) {
+                    continue;
+                }
+                /*
+                 * The timestamps are sorted, so the intervals they fall in
+                 * come in order. Skip the timestamps covered by the interval
+                 * found last.
+                 */
+                int i = 0;
+                while (i < times.length) {
+                    int index = intervals.indexAt(times[i]);
+                    if (index < 0) {
+                        i++;
+                        continue;
+                    }
+                    ret.add(intervals.getInterval(index));
+                    long end = intervals.ends[index];
+                    while (i < times.length && times[i] <= end) {
+                        i++;
                     }
                 }
             }
+        } finally {
+            lock.unlock();
         }
-        throw new AttributeNotFoundException(ssid + " Quark:" + attributeQuark); //$NON-NLS-1$
+        Collections.sort(ret, new TmfIntervalStartComparator());
+        return ret;
     }
 
     private boolean checkValidTime(long t) {
@@ -225,21 +399,21 @@ public class InMemoryBackend implements IStateHistoryBackend {
 
     @Override
     public void debugPrint(PrintWriter writer) {
-        synchronized (intervals) {
-            writer.println(intervals.toString());
-        }
-    }
-
-    private static Iterator<ITmfStateInterval> serachforEndTime(TreeSet<ITmfStateInterval> tree, long time) {
-        ITmfStateInterval dummyInterval = new TmfStateInterval(-1, time, -1, null);
-        ITmfStateInterval myInterval = tree.lower(dummyInterval);
-        if (myInterval == null) {
-            return tree.iterator();
+        Lock lock = rwl.readLock();
+        lock.lock();
+        try {
+            for (int quark = 0; quark < attributes.length; quark++) {
+                AttributeIntervals intervals = attributes[quark];
+                if (intervals == null) {
+                    continue;
+                }
+                for (int i = 0; i < intervals.size; i++) {
+                    writer.println(intervals.getInterval(i).toString());
+                }
+            }
+        } finally {
+            lock.unlock();
         }
-        final SortedSet<ITmfStateInterval> tailSet = tree.tailSet(myInterval);
-        Iterator<ITmfStateInterval> retVal = tailSet.iterator();
-        retVal.next();
-        return retVal;
     }
 
 }
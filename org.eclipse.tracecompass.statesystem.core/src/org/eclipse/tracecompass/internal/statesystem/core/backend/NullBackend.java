@@ -15,6 +15,8 @@ package org.eclipse.tracecompass.internal.statesystem.core.backend;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import org.eclipse.jdt.annotation.NonNull;
@@ -118,6 +120,28 @@ public class NullBackend implements IStateHistoryBackend {
         return null;
     }
 
+    /**
+     * Null back-ends cannot run queries. An empty list will be returned.
+     *
+     * @return Always returns an empty list.
+     */
+    @Override
+    public List<ITmfStateInterval> doRangeQuery(Collection<Integer> quarks, long t1, long t2) {
+        /* Cannot do past queries */
+        return new ArrayList<ITmfStateInterval>();
+    }
+
+    /**
+     * Null back-ends cannot run queries. An empty list will be returned.
+     *
+     * @return Always returns an empty list.
+     */
+    @Override
+    public List<ITmfStateInterval> doQuery2D(Collection<Integer> quarks, long[] times) {
+        /* Cannot do past queries */
+        return new ArrayList<ITmfStateInterval>();
+    }
+
     @Override
     public void debugPrint(PrintWriter writer) {
         writer.println("Null history backend"); //$NON-NLS-1$
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.statesystem.core.backend;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Helper methods for the sorted timestamp arrays used by the multi-timestamp
+ * ("2D") queries of the back-ends.
+ *
+ * @author agent
+ */
+public final class SortedTimestamps {
+
+    private SortedTimestamps() {}
+
+    /**
+     * Copy a collection of timestamps into a sorted array, without duplicates.
+     *
+     * @param times
+     *            The timestamps
+     * @return The sorted array of distinct timestamps
+     */
+    public static long[] toSortedArray(Collection<Long> times) {
+        long[] array = new long[times.size()];
+        int i = 0;
+        for (Long time : times) {
+            array[i++] = time;
+        }
+        Arrays.sort(array);
+
+        /* Remove the duplicates */
+        int size = 0;
+        for (i = 0; i < array.length; i++) {
+            if (size == 0 || array[i] != array[size - 1]) {
+                array[size++] = array[i];
+            }
+        }
+        return (size == array.length ? array : Arrays.copyOf(array, size));
+    }
+
+    /**
+     * Check if at least one of the timestamps is inside [start, end].
+     *
+     * @param times
+     *            The timestamps, sorted in ascending order
+     * @param start
+     *            The start of the time range (inclusive)
+     * @param end
+     *            The end of the time range (inclusive)
+     * @return If one of the timestamps is in the time range
+     */
+    public static boolean intersects(long[] times, long start, long end) {
+        int index = Arrays.binarySearch(times, start);
+        if (index >= 0) {
+            return true;
+        }
+        /* Index of the first timestamp greater than 'start' */
+        index = -index - 1;
+        return (index < times.length && times[index] <= end);
+    }
+
+    /**
+     * Keep only the timestamps that are inside [start, end].
+     *
+     * @param times
+     *            The timestamps, sorted in ascending order
+     * @param start
+     *            The start of the time range (inclusive)
+     * @param end
+     *            The end of the time range (inclusive)
+     * @return The timestamps inside the range, still sorted. This can be the
+     *         same array if all the timestamps were in the range.
+     */
+    public static long[] clamp(long[] times, long start, long end) {
+        int from = 0;
+        while (from < times.length && times[from] < start) {
+            from++;
+        }
+        int to = times.length;
+        while (to > from && times[to - 1] > end) {
+            to--;
+        }
+        if (from == 0 && to == times.length) {
+            return times;
+        }
+        return Arrays.copyOfRange(times, from, to);
+    }
+}
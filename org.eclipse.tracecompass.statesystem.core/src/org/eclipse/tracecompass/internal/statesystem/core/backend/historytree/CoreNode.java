@@ -54,6 +54,9 @@ public final class CoreNode extends HTNode {
      *
      * @param config
      *            Configuration of the History Tree
+     * @param dictionary
+     *            The string dictionary of the History Tree, if it uses the
+     *            compact interval encoding. Null otherwise.
      * @param seqNumber
      *            The (unique) sequence number assigned to this particular node
      * @param parentSeqNumber
@@ -61,9 +64,9 @@ public final class CoreNode extends HTNode {
      * @param start
      *            The earliest timestamp stored in this node
      */
-    public CoreNode(HTConfig config, int seqNumber, int parentSeqNumber,
-            long start) {
-        super(config, seqNumber, parentSeqNumber, start);
+    public CoreNode(HTConfig config, HTStringDictionary dictionary,
+            int seqNumber, int parentSeqNumber, long start) {
+        super(config, dictionary, seqNumber, parentSeqNumber, start);
         this.nbChildren = 0;
         int size = config.getMaxChildren();
 
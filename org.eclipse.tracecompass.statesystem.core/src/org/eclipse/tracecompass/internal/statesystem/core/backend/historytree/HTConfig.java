@@ -24,11 +24,27 @@ public final class HTConfig {
     private static final int DEFAULT_BLOCKSIZE = 64 * 1024;
     private static final int DEFAULT_MAXCHILDREN = 50;
 
+    /** Default size (in bytes) of the node cache */
+    public static final long DEFAULT_CACHE_SIZE = 64L * 1024 * 1024;
+
+    /** Default number of upper tree levels to keep pinned in the node cache */
+    public static final int DEFAULT_PINNED_LEVELS = 2;
+
+    /** By default, nodes are written with their per-quark interval index */
+    public static final boolean DEFAULT_NODE_INDEX = true;
+
+    /** By default, intervals are written with the standard, fixed-size encoding */
+    public static final boolean DEFAULT_COMPACT_INTERVALS = false;
+
     private final File stateFile;
     private final int blockSize;
     private final int maxChildren;
     private final int providerVersion;
     private final long treeStart;
+    private final long cacheSize;
+    private final int pinnedLevels;
+    private final boolean nodeIndex;
+    private final boolean compactIntervals;
 
     /**
      * Full constructor.
@@ -47,14 +63,93 @@ public final class HTConfig {
      *            uselessly.
      * @param startTime
      *            The start time of the history
+     * @param cacheSize
+     *            The maximum size, in bytes, of the nodes kept in the node
+     *            cache. Each node counts for one block. Pinned nodes are not
+     *            counted.
+     * @param pinnedLevels
+     *            The number of upper levels of the tree (starting at the root)
+     *            whose nodes are never evicted from the node cache
+     * @param nodeIndex
+     *            If the nodes should be written with an index of their
+     *            intervals per attribute. It takes some space in each node,
+     *            but makes single queries much faster on nodes containing many
+     *            intervals.
+     * @param compactIntervals
+     *            If the intervals should be written with the compact encoding:
+     *            variable-length times relative to the node start and quarks,
+     *            and string values stored once per tree in a dictionary. This
+     *            makes history files much smaller, especially for traces with
+     *            many repeated string values.
      */
     public HTConfig(File newStateFile, int blockSize, int maxChildren,
-            int providerVersion, long startTime) {
+            int providerVersion, long startTime, long cacheSize, int pinnedLevels,
+            boolean nodeIndex, boolean compactIntervals) {
         this.stateFile = newStateFile;
         this.blockSize = blockSize;
         this.maxChildren = maxChildren;
         this.providerVersion = providerVersion;
         this.treeStart = startTime;
+        this.cacheSize = cacheSize;
+        this.pinnedLevels = pinnedLevels;
+        this.nodeIndex = nodeIndex;
+        this.compactIntervals = compactIntervals;
+    }
+
+    /**
+     * Version of the constructor using the default node format.
+     *
+     * @param newStateFile
+     *            The name of the history file
+     * @param blockSize
+     *            The size of each "block" on disk. One node will always fit in
+     *            one block.
+     * @param maxChildren
+     *            The maximum number of children allowed per core (non-leaf)
+     *            node.
+     * @param providerVersion
+     *            The version of the state provider. If a file already exists,
+     *            and their versions match, the history file will not be rebuilt
+     *            uselessly.
+     * @param startTime
+     *            The start time of the history
+     * @param cacheSize
+     *            The maximum size, in bytes, of the nodes kept in the node
+     *            cache. Each node counts for one block. Pinned nodes are not
+     *            counted.
+     * @param pinnedLevels
+     *            The number of upper levels of the tree (starting at the root)
+     *            whose nodes are never evicted from the node cache
+     */
+    public HTConfig(File newStateFile, int blockSize, int maxChildren,
+            int providerVersion, long startTime, long cacheSize, int pinnedLevels) {
+        this(newStateFile, blockSize, maxChildren, providerVersion, startTime,
+                cacheSize, pinnedLevels, DEFAULT_NODE_INDEX, DEFAULT_COMPACT_INTERVALS);
+    }
+
+    /**
+     * Version of the constructor using default values for the node cache
+     * configuration.
+     *
+     * @param newStateFile
+     *            The name of the history file
+     * @param blockSize
+     *            The size of each "block" on disk. One node will always fit in
+     *            one block.
+     * @param maxChildren
+     *            The maximum number of children allowed per core (non-leaf)
+     *            node.
+     * @param providerVersion
+     *            The version of the state provider. If a file already exists,
+     *            and their versions match, the history file will not be rebuilt
+     *            uselessly.
+     * @param startTime
+     *            The start time of the history
+     */
+    public HTConfig(File newStateFile, int blockSize, int maxChildren,
+            int providerVersion, long startTime) {
+        this(newStateFile, blockSize, maxChildren, providerVersion, startTime,
+                DEFAULT_CACHE_SIZE, DEFAULT_PINNED_LEVELS);
     }
 
     /**
@@ -122,4 +217,40 @@ public final class HTConfig {
     public long getTreeStart() {
         return treeStart;
     }
+
+    /**
+     * Get the maximum size of the node cache, in bytes
+     *
+     * @return The node cache size
+     */
+    public long getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * Get the number of upper tree levels that are pinned in the node cache
+     *
+     * @return The number of pinned levels
+     */
+    public int getPinnedLevels() {
+        return pinnedLevels;
+    }
+
+    /**
+     * Get if the nodes are written with their per-attribute interval index
+     *
+     * @return If the nodes are indexed
+     */
+    public boolean isNodeIndexed() {
+        return nodeIndex;
+    }
+
+    /**
+     * Get if the intervals are written with the compact encoding
+     *
+     * @return If the intervals are compact
+     */
+    public boolean useCompactIntervals() {
+        return compactIntervals;
+    }
 }
@@ -11,6 +11,7 @@
  *    Alexandre Montplaisir - Initial API and implementation
  *    Florian Wininger - Allow to change the size of a interval
  *    Patrick Tasse - Add message to exceptions
+ *    agent - Add the compact encoding
  *******************************************************************************/
 
 package org.eclipse.tracecompass.internal.statesystem.core.backend.historytree;
@@ -28,6 +29,10 @@ import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
  * The interval component, which will be contained in a node of the History
  * Tree.
  *
+ * The state value is kept in primitive fields, and the
+ * {@link ITmfStateValue} object is only created when it is asked for, so
+ * reading nodes and looking for intervals does not allocate one per interval.
+ *
  * @author Alexandre Montplaisir
  */
 public final class HTInterval implements ITmfStateInterval, Comparable<HTInterval> {
@@ -62,7 +67,22 @@ public final class HTInterval implements ITmfStateInterval, Comparable<HTInterva
     private final long start;
     private final long end;
     private final int attribute;
-    private final TmfStateValue sv;
+
+    /* Type of the state value, using the 'byte' equivalents above */
+    private final byte valueType;
+
+    /* Value of integer and long values, raw bits of double values */
+    private final long valueBits;
+
+    /* Value of string values, null for the other types */
+    private final String stringValue;
+
+    /*
+     * The state value object, created on first access. State values are
+     * immutable, so it does not matter if two threads create one at the same
+     * time.
+     */
+    private TmfStateValue sv;
 
     /*
      * Size of the strings section entry used by this interval (= 0 if not used)
@@ -93,7 +113,37 @@ public final class HTInterval implements ITmfStateInterval, Comparable<HTInterva
         this.start = intervalStart;
         this.end = intervalEnd;
         this.attribute = attribute;
+        this.valueType = getByteFromType(value.getType());
         this.sv = value;
+
+        try {
+            switch (valueType) {
+            case TYPE_INTEGER:
+                this.valueBits = value.unboxInt();
+                this.stringValue = null;
+                break;
+            case TYPE_LONG:
+                this.valueBits = value.unboxLong();
+                this.stringValue = null;
+                break;
+            case TYPE_DOUBLE:
+                this.valueBits = Double.doubleToRawLongBits(value.unboxDouble());
+                this.stringValue = null;
+                break;
+            case TYPE_STRING:
+                this.valueBits = 0;
+                this.stringValue = value.unboxStr();
+                break;
+            case TYPE_NULL:
+            default:
+                this.valueBits = value.unboxInt();
+                this.stringValue = null;
+                break;
+            }
+        } catch (StateValueTypeException e) {
+            /* We're using the value's own type, can't happen */
+            throw new IllegalStateException(e);
+        }
         this.stringsEntrySize = computeStringsEntrySize();
     }
 
@@ -101,10 +151,12 @@ public final class HTInterval implements ITmfStateInterval, Comparable<HTInterva
      * "Faster" constructor for inner use only. When we build an interval when
      * reading it from disk (with {@link #readFrom}), we already know the size
      * of the strings entry, so there is no need to call
-     * {@link #computeStringsEntrySize()} and do an extra copy.
+     * {@link #computeStringsEntrySize()} and do an extra copy. The state value
+     * object is not created either.
      */
     private HTInterval(long intervalStart, long intervalEnd, int attribute,
-            TmfStateValue value, int size) throws TimeRangeException {
+            byte valueType, long valueBits, String stringValue, int size)
+            throws TimeRangeException {
         if (intervalStart > intervalEnd) {
             throw new TimeRangeException("Start:" + intervalStart + ", End:" + intervalEnd); //$NON-NLS-1$ //$NON-NLS-2$
         }
@@ -112,7 +164,10 @@ public final class HTInterval implements ITmfStateInterval, Comparable<HTInterva
         this.start = intervalStart;
         this.end = intervalEnd;
         this.attribute = attribute;
-        this.sv = value;
+        this.valueType = valueType;
+        this.valueBits = valueBits;
+        this.stringValue = stringValue;
+        this.sv = null;
         this.stringsEntrySize = size;
     }
 
@@ -130,7 +185,8 @@ public final class HTInterval implements ITmfStateInterval, Comparable<HTInterva
         HTInterval interval;
         long intervalStart, intervalEnd;
         int attribute;
-        TmfStateValue value;
+        long valueBits = 0;
+        String stringValue = null;
         int valueOrOffset, valueSize, res;
         byte valueType;
         byte array[];
@@ -146,13 +202,13 @@ public final class HTInterval implements ITmfStateInterval, Comparable<HTInterva
         switch (valueType) {
 
         case TYPE_NULL:
-            value = TmfStateValue.nullValue();
+            valueBits = valueOrOffset;
             valueSize = NO_ENTRY_SIZE;
             break;
 
         case TYPE_INTEGER:
             /* "ValueOrOffset" is the straight value */
-            value = TmfStateValue.newValueInt(valueOrOffset);
+            valueBits = valueOrOffset;
             valueSize = NO_ENTRY_SIZE;
             break;
 
@@ -172,7 +228,7 @@ public final class HTInterval implements ITmfStateInterval, Comparable<HTInterva
              */
             array = new byte[valueSize - 2];
             buffer.get(array);
-            value = TmfStateValue.newValueString(new String(array));
+            stringValue = new String(array);
 
             /* Confirm the 0'ed byte at the end */
             res = buffer.get();
@@ -189,30 +245,14 @@ public final class HTInterval implements ITmfStateInterval, Comparable<HTInterva
 
         case TYPE_LONG:
             /* Go read the matching entry in the Strings section of the block */
-            buffer.mark();
-            buffer.position(valueOrOffset);
-            value = TmfStateValue.newValueLong(buffer.getLong());
+            valueBits = buffer.getLong(valueOrOffset);
             valueSize = LONG_ENTRY_SIZE;
-
-            /*
-             * Restore the file pointer's position (so we can read the next
-             * interval)
-             */
-            buffer.reset();
             break;
 
         case TYPE_DOUBLE:
             /* Go read the matching entry in the Strings section of the block */
-            buffer.mark();
-            buffer.position(valueOrOffset);
-            value = TmfStateValue.newValueDouble(buffer.getDouble());
+            valueBits = buffer.getLong(valueOrOffset);
             valueSize = DOUBLE_ENTRY_SIZE;
-
-            /*
-             * Restore the file pointer's position (so we can read the next
-             * interval)
-             */
-            buffer.reset();
             break;
 
         default:
@@ -221,13 +261,63 @@ public final class HTInterval implements ITmfStateInterval, Comparable<HTInterva
         }
 
         try {
-            interval = new HTInterval(intervalStart, intervalEnd, attribute, value, valueSize);
+            interval = new HTInterval(intervalStart, intervalEnd, attribute,
+                    valueType, valueBits, stringValue, valueSize);
         } catch (TimeRangeException e) {
             throw new IOException(errMsg);
         }
         return interval;
     }
 
+    /**
+     * Reader factory method for the compact encoding, see
+     * {@link #writeCompact}.
+     *
+     * @param buffer
+     *            The ByteBuffer from which to read the information
+     * @param nodeStart
+     *            The start time of the node containing the interval
+     * @param dictionary
+     *            The string dictionary of the history tree
+     * @return The interval object
+     * @throws IOException
+     *             If there was an error reading from the buffer
+     */
+    public static final HTInterval readCompactFrom(ByteBuffer buffer,
+            long nodeStart, HTStringDictionary dictionary) throws IOException {
+        long intervalStart = nodeStart + getVarLong(buffer);
+        long intervalEnd = intervalStart + getVarLong(buffer);
+        int attribute = (int) getVarLong(buffer);
+        byte valueType = buffer.get();
+
+        long valueBits = 0;
+        String stringValue = null;
+        switch (valueType) {
+        case TYPE_NULL:
+            valueBits = -1;
+            break;
+        case TYPE_INTEGER:
+        case TYPE_LONG:
+            valueBits = decodeZigZag(getVarLong(buffer));
+            break;
+        case TYPE_DOUBLE:
+            valueBits = buffer.getLong();
+            break;
+        case TYPE_STRING:
+            stringValue = dictionary.getString((int) getVarLong(buffer));
+            break;
+        default:
+            throw new IOException(errMsg);
+        }
+
+        try {
+            return new HTInterval(intervalStart, intervalEnd, attribute,
+                    valueType, valueBits, stringValue, NO_ENTRY_SIZE);
+        } catch (TimeRangeException e) {
+            throw new IOException(errMsg);
+        }
+    }
+
     /**
      * Antagonist of the previous constructor, write the Data entry
      * corresponding to this interval in a ByteBuffer (mapped to a block in the
@@ -246,32 +336,18 @@ public final class HTInterval implements ITmfStateInterval, Comparable<HTInterva
         buffer.putLong(start);
         buffer.putLong(end);
         buffer.putInt(attribute);
-        buffer.put(getByteFromType(sv.getType()));
+        buffer.put(valueType);
 
-        switch (getByteFromType(sv.getType())) {
+        switch (valueType) {
 
         case TYPE_NULL:
         case TYPE_INTEGER:
             /* We write the 'valueOffset' field as a straight value. */
-            try {
-                buffer.putInt(sv.unboxInt());
-            } catch (StateValueTypeException e) {
-                /*
-                 * This should not happen, since the value told us it was of
-                 * type Null or Integer (corrupted value?)
-                 */
-                e.printStackTrace();
-            }
+            buffer.putInt((int) valueBits);
             break;
 
         case TYPE_STRING:
-            byte[] byteArrayToWrite;
-            try {
-                byteArrayToWrite = sv.unboxStr().getBytes();
-            } catch (StateValueTypeException e1) {
-                /* Should not happen, we're in a switch/case for string type */
-                throw new RuntimeException();
-            }
+            byte[] byteArrayToWrite = stringValue.getBytes();
 
             /* we use the valueOffset as an offset. */
             buffer.putInt(endPosOfStringEntry - stringsEntrySize);
@@ -289,53 +365,98 @@ public final class HTInterval implements ITmfStateInterval, Comparable<HTInterva
             break;
 
         case TYPE_LONG:
+        case TYPE_DOUBLE:
             /* we use the valueOffset as an offset. */
             buffer.putInt(endPosOfStringEntry - stringsEntrySize);
-            buffer.mark();
-            buffer.position(endPosOfStringEntry - stringsEntrySize);
 
             /*
-             * write the Long in the Strings section
+             * write the Long, or the bits of the Double, in the Strings
+             * section
              */
-            try {
-                buffer.putLong(sv.unboxLong());
-            } catch (StateValueTypeException e) {
-                /*
-                 * This should not happen, since the value told us it was of
-                 * type Long (corrupted value?)
-                 */
-                e.printStackTrace();
-            }
-            assert (buffer.position() == endPosOfStringEntry);
-            buffer.reset();
+            buffer.putLong(endPosOfStringEntry - stringsEntrySize, valueBits);
             break;
 
-        case TYPE_DOUBLE:
-            /* we use the valueOffset as an offset. */
-            buffer.putInt(endPosOfStringEntry - stringsEntrySize);
-            buffer.mark();
-            buffer.position(endPosOfStringEntry - stringsEntrySize);
-
-            /* Write the Double in the Strings section */
-            try {
-                buffer.putDouble(sv.unboxDouble());
-            } catch (StateValueTypeException e) {
-                /*
-                 * This should not happen, since the value told us it was of
-                 * type Double (corrupted value?)
-                 */
-                e.printStackTrace();
-            }
-            if (buffer.position() != endPosOfStringEntry) {
-                throw new IllegalStateException();
-            }
-            buffer.reset();
+        default:
             break;
+        }
+        return stringsEntrySize;
+    }
+
+    /**
+     * Write this interval using the compact encoding. Nothing is written in
+     * the Strings section of the node.
+     *
+     * <pre>
+     *  varint  start time - node start time
+     *  varint  end time - start time
+     *  varint  attribute
+     *  1       byte (type)
+     *  then, depending on the type:
+     *  -       (null)
+     *  varint  zigzag-encoded value (integer or long)
+     *  8       the double value
+     *  varint  ID of the string in the tree's dictionary
+     * </pre>
+     *
+     * @param buffer
+     *            The ByteBuffer corresponding to the node, positioned where
+     *            the interval has to be written
+     * @param nodeStart
+     *            The start time of the node containing the interval
+     * @param dictionary
+     *            The string dictionary of the history tree
+     */
+    public void writeCompact(ByteBuffer buffer, long nodeStart, HTStringDictionary dictionary) {
+        putVarLong(buffer, start - nodeStart);
+        putVarLong(buffer, end - start);
+        putVarLong(buffer, attribute & 0xFFFFFFFFL);
+        buffer.put(valueType);
 
+        switch (valueType) {
+        case TYPE_INTEGER:
+        case TYPE_LONG:
+            putVarLong(buffer, encodeZigZag(valueBits));
+            break;
+        case TYPE_DOUBLE:
+            buffer.putLong(valueBits);
+            break;
+        case TYPE_STRING:
+            putVarLong(buffer, dictionary.getId(stringValue));
+            break;
+        case TYPE_NULL:
         default:
             break;
         }
-        return stringsEntrySize;
+    }
+
+    /**
+     * Size of this interval when written with the compact encoding. This adds
+     * the string value to the dictionary if it is not in it yet.
+     *
+     * @param nodeStart
+     *            The start time of the node containing the interval
+     * @param dictionary
+     *            The string dictionary of the history tree
+     * @return The size, in bytes, of the compact entry
+     */
+    public int getCompactSize(long nodeStart, HTStringDictionary dictionary) {
+        int size = getVarLongSize(start - nodeStart) +
+                getVarLongSize(end - start) +
+                getVarLongSize(attribute & 0xFFFFFFFFL) +
+                1;
+
+        switch (valueType) {
+        case TYPE_INTEGER:
+        case TYPE_LONG:
+            return size + getVarLongSize(encodeZigZag(valueBits));
+        case TYPE_DOUBLE:
+            return size + DOUBLE_ENTRY_SIZE;
+        case TYPE_STRING:
+            return size + getVarLongSize(dictionary.getId(stringValue));
+        case TYPE_NULL:
+        default:
+            return size;
+        }
     }
 
     @Override
@@ -360,7 +481,29 @@ public final class HTInterval implements ITmfStateInterval, Comparable<HTInterva
 
     @Override
     public ITmfStateValue getStateValue() {
-        return sv;
+        TmfStateValue value = sv;
+        if (value == null) {
+            switch (valueType) {
+            case TYPE_INTEGER:
+                value = TmfStateValue.newValueInt((int) valueBits);
+                break;
+            case TYPE_LONG:
+                value = TmfStateValue.newValueLong(valueBits);
+                break;
+            case TYPE_DOUBLE:
+                value = TmfStateValue.newValueDouble(Double.longBitsToDouble(valueBits));
+                break;
+            case TYPE_STRING:
+                value = TmfStateValue.newValueString(stringValue);
+                break;
+            case TYPE_NULL:
+            default:
+                value = TmfStateValue.nullValue();
+                break;
+            }
+            sv = value;
+        }
+        return value;
     }
 
     @Override
@@ -387,25 +530,20 @@ public final class HTInterval implements ITmfStateInterval, Comparable<HTInterva
     }
 
     private int computeStringsEntrySize() {
-        switch(sv.getType()) {
-        case NULL:
-        case INTEGER:
+        switch (valueType) {
+        case TYPE_NULL:
+        case TYPE_INTEGER:
             /* Those don't use the strings section at all */
             return NO_ENTRY_SIZE;
-        case LONG:
+        case TYPE_LONG:
             /* The value's bytes are written directly into the strings section */
             return LONG_ENTRY_SIZE;
-        case DOUBLE:
+        case TYPE_DOUBLE:
             /* The value is also written directly into the strings section */
             return DOUBLE_ENTRY_SIZE;
-        case STRING:
-            try {
-                /* String's length + 2 (1 byte for size, 1 byte for \0 at the end */
-                return sv.unboxStr().getBytes().length + 2;
-            } catch (StateValueTypeException e) {
-                /* We're inside a switch/case for the string type, can't happen */
-                throw new IllegalStateException(e);
-            }
+        case TYPE_STRING:
+            /* String's length + 2 (1 byte for size, 1 byte for \0 at the end */
+            return stringValue.getBytes().length + 2;
         default:
             /* It's very important that we know how to write the state value in
              * the file!! */
@@ -456,7 +594,7 @@ public final class HTInterval implements ITmfStateInterval, Comparable<HTInterva
         sb.append(attribute);
 
         sb.append(", value = "); //$NON-NLS-1$
-        sb.append(sv.toString());
+        sb.append(getStateValue().toString());
 
         return sb.toString();
     }
@@ -482,4 +620,52 @@ public final class HTInterval implements ITmfStateInterval, Comparable<HTInterva
             throw new IllegalStateException();
         }
     }
+
+    // ------------------------------------------------------------------------
+    // Variable-length encoding helpers
+    // ------------------------------------------------------------------------
+
+    /**
+     * Write an unsigned variable-length long: 7 bits per byte, the high bit
+     * telling if more bytes follow.
+     */
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        long v = value;
+        while ((v & ~0x7FL) != 0) {
+            buffer.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        buffer.put((byte) v);
+    }
+
+    private static long getVarLong(ByteBuffer buffer) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException(errMsg);
+    }
+
+    private static int getVarLongSize(long value) {
+        int size = 1;
+        long v = value;
+        while ((v & ~0x7FL) != 0) {
+            size++;
+            v >>>= 7;
+        }
+        return size;
+    }
+
+    /* Map signed values to unsigned ones, so small negative values stay small */
+    private static long encodeZigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long decodeZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
 }
@@ -19,13 +19,15 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import org.eclipse.tracecompass.internal.statesystem.core.backend.SortedTimestamps;
 import org.eclipse.tracecompass.statesystem.core.exceptions.TimeRangeException;
 import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
-import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
 
 /**
  * The base class for all the types of nodes that go in the History Tree.
@@ -98,6 +100,9 @@ public abstract class HTNode {
     /* Configuration of the History Tree to which belongs this node */
     private final HTConfig config;
 
+    /* String dictionary of the tree, null if it uses the standard encoding */
+    private final HTStringDictionary dictionary;
+
     /* Time range of this node */
     private final long nodeStart;
     private long nodeEnd;
@@ -121,11 +126,29 @@ public abstract class HTNode {
     /* Lock used to protect the accesses to intervals, nodeEnd and such */
     private final ReentrantReadWriteLock rwl = new ReentrantReadWriteLock(false);
 
+    /*
+     * Per-quark index of the intervals, built when the node is closed (or
+     * read back from disk). The positions in 'indexPositions' between
+     * indexStarts[i] and indexStarts[i + 1] are the ones, in 'intervals', of
+     * the intervals of quark indexQuarks[i], in ascending end time order.
+     * These arrays are null if the node is not indexed.
+     */
+    private int[] indexQuarks;
+    private int[] indexStarts;
+    private int[] indexPositions;
+
+    /* Quarks present in this node, used to reserve the space of the index */
+    private final BitSet presentQuarks = new BitSet();
+    private int nbPresentQuarks;
+
     /**
      * Constructor
      *
      * @param config
      *            Configuration of the History Tree
+     * @param dictionary
+     *            The string dictionary of the History Tree, if it uses the
+     *            compact interval encoding. Null otherwise.
      * @param seqNumber
      *            The (unique) sequence number assigned to this particular node
      * @param parentSeqNumber
@@ -133,8 +156,13 @@ public abstract class HTNode {
      * @param start
      *            The earliest timestamp stored in this node
      */
-    protected HTNode(HTConfig config, int seqNumber, int parentSeqNumber, long start) {
+    protected HTNode(HTConfig config, HTStringDictionary dictionary,
+            int seqNumber, int parentSeqNumber, long start) {
+        if (config.useCompactIntervals() && dictionary == null) {
+            throw new IllegalArgumentException("Compact intervals need a string dictionary"); //$NON-NLS-1$
+        }
         this.config = config;
+        this.dictionary = dictionary;
         this.nodeStart = start;
         this.sequenceNumber = seqNumber;
         this.parentSequenceNumber = parentSeqNumber;
@@ -151,6 +179,9 @@ public abstract class HTNode {
      *
      * @param config
      *            Configuration of the History Tree
+     * @param dictionary
+     *            The string dictionary of the History Tree, if it uses the
+     *            compact interval encoding. Null otherwise.
      * @param fc
      *            FileChannel to the history file, ALREADY SEEKED at the start
      *            of the node.
@@ -158,18 +189,42 @@ public abstract class HTNode {
      * @throws IOException
      *             If there was an error reading from the file channel
      */
-    public static final HTNode readNode(HTConfig config, FileChannel fc)
-            throws IOException {
-        HTNode newNode = null;
-        int res, i;
-
+    public static final HTNode readNode(HTConfig config,
+            HTStringDictionary dictionary, FileChannel fc) throws IOException {
         ByteBuffer buffer = ByteBuffer.allocate(config.getBlockSize());
-        buffer.order(ByteOrder.LITTLE_ENDIAN);
         buffer.clear();
-        res = fc.read(buffer);
+        int res = fc.read(buffer);
         assert (res == config.getBlockSize());
         buffer.flip();
 
+        return readNode(config, dictionary, buffer);
+    }
+
+    /**
+     * Reader factory method. Build a Node object (of the right type) from a
+     * buffer containing exactly one block of the file. This buffer can be a
+     * slice of a memory-mapped region of the history file, in which case no
+     * I/O lock is needed to read the node.
+     *
+     * @param config
+     *            Configuration of the History Tree
+     * @param dictionary
+     *            The string dictionary of the History Tree, if it uses the
+     *            compact interval encoding. Null otherwise.
+     * @param buffer
+     *            The buffer containing the node's block. Position 0 of the
+     *            buffer has to be the start of the node.
+     * @return The node object
+     * @throws IOException
+     *             If the contents of the block are invalid
+     */
+    public static final HTNode readNode(HTConfig config,
+            HTStringDictionary dictionary, ByteBuffer buffer) throws IOException {
+        HTNode newNode = null;
+        int i;
+
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
         /* Read the common header part */
         byte typeByte = buffer.get();
         NodeType type = NodeType.fromByte(typeByte);
@@ -179,19 +234,19 @@ public abstract class HTNode {
         int parentSeqNb = buffer.getInt();
         int intervalCount = buffer.getInt();
         int stringSectionOffset = buffer.getInt();
-        buffer.get(); // TODO Used to be "isDone", to be removed from the header
+        byte flags = buffer.get();
 
         /* Now the rest of the header depends on the node type */
         switch (type) {
         case CORE:
             /* Core nodes */
-            newNode = new CoreNode(config, seqNb, parentSeqNb, start);
+            newNode = new CoreNode(config, dictionary, seqNb, parentSeqNb, start);
             newNode.readSpecificHeader(buffer);
             break;
 
         case LEAF:
             /* Leaf nodes */
-            newNode = new LeafNode(config, seqNb, parentSeqNb, start);
+            newNode = new LeafNode(config, dictionary, seqNb, parentSeqNb, start);
             newNode.readSpecificHeader(buffer);
             break;
 
@@ -200,12 +255,22 @@ public abstract class HTNode {
             throw new IOException();
         }
 
+        if ((flags & FLAG_INDEXED) != 0) {
+            newNode.readIndex(buffer, intervalCount);
+        }
+
         /*
          * At this point, we should be done reading the header and 'buffer'
          * should only have the intervals left
          */
-        for (i = 0; i < intervalCount; i++) {
-            newNode.intervals.add(HTInterval.readFrom(buffer));
+        if (config.useCompactIntervals()) {
+            for (i = 0; i < intervalCount; i++) {
+                newNode.intervals.add(HTInterval.readCompactFrom(buffer, start, dictionary));
+            }
+        } else {
+            for (i = 0; i < intervalCount; i++) {
+                newNode.intervals.add(HTInterval.readFrom(buffer));
+            }
         }
 
         /* Assign the node's other information we have read previously */
@@ -247,15 +312,26 @@ public abstract class HTNode {
             buffer.putInt(parentSequenceNumber);
             buffer.putInt(intervals.size());
             buffer.putInt(stringSectionOffset);
-            buffer.put((byte) 1); // TODO Used to be "isDone", to be removed from header
+            buffer.put((byte) (FLAG_DONE | (indexQuarks != null ? FLAG_INDEXED : 0)));
 
             /* Now call the inner method to write the specific header part */
             this.writeSpecificHeader(buffer);
 
+            /* The per-quark index, if any, is the last part of the header */
+            if (indexQuarks != null) {
+                writeIndex(buffer);
+            }
+
             /* Back to us, we write the intervals */
-            for (HTInterval interval : intervals) {
-                int size = interval.writeInterval(buffer, curStringsEntryEndPos);
-                curStringsEntryEndPos -= size;
+            if (config.useCompactIntervals()) {
+                for (HTInterval interval : intervals) {
+                    interval.writeCompact(buffer, nodeStart, dictionary);
+                }
+            } else {
+                for (HTInterval interval : intervals) {
+                    int size = interval.writeInterval(buffer, curStringsEntryEndPos);
+                    curStringsEntryEndPos -= size;
+                }
             }
 
             /*
@@ -360,6 +436,21 @@ public abstract class HTNode {
         return isOnDisk;
     }
 
+    /**
+     * Get the size an interval would take in this node, which depends on the
+     * interval encoding of the tree.
+     *
+     * @param interval
+     *            The interval
+     * @return The size, in bytes, of the interval once written in this node
+     */
+    public int getIntervalSize(HTInterval interval) {
+        if (config.useCompactIntervals()) {
+            return interval.getCompactSize(nodeStart, dictionary);
+        }
+        return interval.getIntervalSize();
+    }
+
     /**
      * Add an interval to this node
      *
@@ -369,14 +460,22 @@ public abstract class HTNode {
     public void addInterval(HTInterval newInterval) {
         rwl.writeLock().lock();
         try {
+            final int size = getIntervalSize(newInterval);
+
             /* Just in case, should be checked before even calling this function */
-            assert (newInterval.getIntervalSize() <= this.getNodeFreeSpace());
+            assert (size <= this.getNodeFreeSpace());
 
             intervals.add(newInterval);
-            sizeOfIntervalSection += newInterval.getIntervalSize();
+            sizeOfIntervalSection += size;
+            if (!presentQuarks.get(newInterval.getAttribute())) {
+                presentQuarks.set(newInterval.getAttribute());
+                nbPresentQuarks++;
+            }
 
             /* Update the in-node offset "pointer" */
-            stringSectionOffset -= (newInterval.getStringsEntrySize());
+            if (!config.useCompactIntervals()) {
+                stringSectionOffset -= (newInterval.getStringsEntrySize());
+            }
         } finally {
             rwl.writeLock().unlock();
         }
@@ -407,6 +506,10 @@ public abstract class HTNode {
                  * since they are now sorted
                  */
                 assert (endtime >= intervals.get(intervals.size() - 1).getEndTime());
+
+                if (config.isNodeIndexed()) {
+                    buildIndex();
+                }
             }
 
             this.nodeEnd = endtime;
@@ -453,6 +556,78 @@ public abstract class HTNode {
         }
     }
 
+    /**
+     * Range query counterpart of {@link #writeInfoFromNode}. Add to
+     * 'intervalsOut' all the intervals of this node that belong to one of the
+     * requested attributes and intersect the time range [t1, t2].
+     *
+     * @param intervalsOut
+     *            The list to which the matching intervals are added
+     * @param quarks
+     *            The requested attributes, as a set of bits indexed by quark
+     * @param t1
+     *            The start time of the range
+     * @param t2
+     *            The end time of the range
+     * @throws TimeRangeException
+     *             If 't1' is invalid
+     */
+    public void writeRangeInfoFromNode(List<ITmfStateInterval> intervalsOut,
+            BitSet quarks, long t1, long t2) throws TimeRangeException {
+        rwl.readLock().lock();
+        try {
+            /*
+             * The intervals are sorted by end time, skip the ones that end
+             * before the range.
+             */
+            for (int i = getStartIndexFor(t1); i < intervals.size(); i++) {
+                HTInterval interval = intervals.get(i);
+                if (interval.getStartTime() <= t2 &&
+                        interval.getEndTime() >= t1 &&
+                        quarks.get(interval.getAttribute())) {
+                    intervalsOut.add(interval);
+                }
+            }
+        } finally {
+            rwl.readLock().unlock();
+        }
+    }
+
+    /**
+     * Multi-timestamp counterpart of {@link #writeInfoFromNode}. Add to
+     * 'intervalsOut' all the intervals of this node that belong to one of the
+     * requested attributes and contain at least one of the timestamps.
+     *
+     * @param intervalsOut
+     *            The list to which the matching intervals are added
+     * @param quarks
+     *            The requested attributes, as a set of bits indexed by quark
+     * @param times
+     *            The requested timestamps, sorted in ascending order
+     * @throws TimeRangeException
+     *             If the first timestamp is invalid
+     */
+    public void writeInfoFromNode(List<ITmfStateInterval> intervalsOut,
+            BitSet quarks, long[] times) throws TimeRangeException {
+        if (times.length == 0) {
+            return;
+        }
+        rwl.readLock().lock();
+        try {
+            final long lastTime = times[times.length - 1];
+            for (int i = getStartIndexFor(times[0]); i < intervals.size(); i++) {
+                HTInterval interval = intervals.get(i);
+                if (interval.getStartTime() <= lastTime &&
+                        quarks.get(interval.getAttribute()) &&
+                        SortedTimestamps.intersects(times, interval.getStartTime(), interval.getEndTime())) {
+                    intervalsOut.add(interval);
+                }
+            }
+        } finally {
+            rwl.readLock().unlock();
+        }
+    }
+
     /**
      * Get a single Interval from the information in this node If the
      * key/timestamp pair cannot be found, we return null.
@@ -469,6 +644,10 @@ public abstract class HTNode {
     public HTInterval getRelevantInterval(int key, long t) throws TimeRangeException {
         rwl.readLock().lock();
         try {
+            if (indexQuarks != null) {
+                return getIndexedInterval(key, t);
+            }
+
             for (int i = getStartIndexFor(t); i < intervals.size(); i++) {
                 HTInterval curInterval = intervals.get(i);
                 if (curInterval.getAttribute() == key
@@ -486,50 +665,154 @@ public abstract class HTNode {
         }
     }
 
-    private int getStartIndexFor(long t) throws TimeRangeException {
+    /**
+     * Look for the interval of 'key' containing 't' using the per-quark
+     * index. The intervals of a given attribute do not overlap, so the only
+     * candidate is the first one of that attribute ending at or after 't'.
+     */
+    private HTInterval getIndexedInterval(int key, long t) {
         /* Should only be called by methods with the readLock taken */
+        int slot = Arrays.binarySearch(indexQuarks, key);
+        if (slot < 0) {
+            /* This attribute has no interval in this node */
+            return null;
+        }
 
-        if (intervals.isEmpty()) {
-            return 0;
+        int low = indexStarts[slot];
+        int high = indexStarts[slot + 1];
+        final int groupEnd = high;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (intervals.get(indexPositions[mid]).getEndTime() < t) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
         }
-        /*
-         * Since the intervals are sorted by end time, we can skip all the ones
-         * at the beginning whose end times are smaller than 't'. Java does
-         * provides a .binarySearch method, but its API is quite weird...
-         */
-        HTInterval dummy = new HTInterval(0, t, 0, TmfStateValue.nullValue());
-        int index = Collections.binarySearch(intervals, dummy);
+        if (low == groupEnd) {
+            return null;
+        }
+        HTInterval candidate = intervals.get(indexPositions[low]);
+        return (candidate.getStartTime() <= t ? candidate : null);
+    }
 
-        if (index < 0) {
-            /*
-             * .binarySearch returns a negative number if the exact value was
-             * not found. Here we just want to know where to start searching, we
-             * don't care if the value is exact or not.
-             */
-            index = -index - 1;
+    /**
+     * Build the per-quark index from the intervals, which must already be
+     * sorted by end time.
+     */
+    private void buildIndex() {
+        /* Should only be called by methods with the writeLock taken */
+        int[] quarks = new int[nbPresentQuarks];
+        int nb = 0;
+        for (int q = presentQuarks.nextSetBit(0); q >= 0; q = presentQuarks.nextSetBit(q + 1)) {
+            quarks[nb++] = q;
+        }
 
+        /* Count the intervals of each quark, to get the start of each group */
+        int[] starts = new int[quarks.length + 1];
+        int[] slots = new int[intervals.size()];
+        for (int i = 0; i < intervals.size(); i++) {
+            slots[i] = Arrays.binarySearch(quarks, intervals.get(i).getAttribute());
+            starts[slots[i] + 1]++;
+        }
+        for (int i = 0; i < quarks.length; i++) {
+            starts[i + 1] += starts[i];
+        }
+
+        /* Intervals are visited by end time, so the groups are sorted too */
+        int[] positions = new int[intervals.size()];
+        int[] cursors = Arrays.copyOf(starts, quarks.length);
+        for (int i = 0; i < intervals.size(); i++) {
+            positions[cursors[slots[i]]++] = i;
         }
 
-        /* Sometimes binarySearch yields weird stuff... */
-        if (index < 0) {
-            index = 0;
+        indexQuarks = quarks;
+        indexStarts = starts;
+        indexPositions = positions;
+    }
+
+    private void writeIndex(ByteBuffer buffer) {
+        buffer.putInt(indexQuarks.length);
+        for (int i = 0; i < indexQuarks.length; i++) {
+            buffer.putInt(indexQuarks[i]);
+            buffer.putInt(indexStarts[i]);
         }
-        if (index >= intervals.size()) {
-            index = intervals.size() - 1;
+        final boolean shortPositions = hasShortIndexPositions();
+        for (int position : indexPositions) {
+            if (shortPositions) {
+                buffer.putShort((short) position);
+            } else {
+                buffer.putInt(position);
+            }
         }
+    }
+
+    private void readIndex(ByteBuffer buffer, int intervalCount) {
+        int nbQuarks = buffer.getInt();
+        int[] quarks = new int[nbQuarks];
+        int[] starts = new int[nbQuarks + 1];
+        for (int i = 0; i < nbQuarks; i++) {
+            quarks[i] = buffer.getInt();
+            starts[i] = buffer.getInt();
+        }
+        starts[nbQuarks] = intervalCount;
+
+        final boolean shortPositions = hasShortIndexPositions();
+        int[] positions = new int[intervalCount];
+        for (int i = 0; i < intervalCount; i++) {
+            positions[i] = (shortPositions ? buffer.getShort() & 0xFFFF : buffer.getInt());
+        }
+
+        indexQuarks = quarks;
+        indexStarts = starts;
+        indexPositions = positions;
+    }
+
+    /**
+     * Positions in the index are written on 2 bytes if there cannot be more
+     * than 65535 intervals in a block, on 4 bytes otherwise.
+     */
+    private boolean hasShortIndexPositions() {
+        if (config.useCompactIntervals()) {
+            return (config.getBlockSize() <= SHORT_INDEX_MAX_COMPACT_BLOCK_SIZE);
+        }
+        return (config.getBlockSize() <= SHORT_INDEX_MAX_BLOCK_SIZE);
+    }
+
+    /**
+     * @return The space the per-quark index will take in the node header,
+     *         including the room for one more interval of a new quark
+     */
+    private int getReservedIndexSize() {
+        if (!config.isNodeIndexed()) {
+            return 0;
+        }
+        final int positionSize = (hasShortIndexPositions() ? 2 : 4);
+        return INDEX_HEADER_SIZE +
+                (nbPresentQuarks + 1) * INDEX_QUARK_ENTRY_SIZE +
+                (intervals.size() + 1) * positionSize;
+    }
+
+    private int getStartIndexFor(long t) throws TimeRangeException {
+        /* Should only be called by methods with the readLock taken */
 
         /*
-         * Another API quirkiness, the returned index is the one of the *last*
-         * element of a series of equal endtimes, which happens sometimes. We
-         * want the *first* element of such a series, to read through them
-         * again.
+         * Since the intervals are sorted by end time, we can skip all the ones
+         * at the beginning whose end times are smaller than 't'. Look for the
+         * first interval ending at or after 't', without building a dummy
+         * interval to compare with.
          */
-        while (index > 0
-                && intervals.get(index - 1).compareTo(intervals.get(index)) == 0) {
-            index--;
+        int low = 0;
+        int high = intervals.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (intervals.get(mid).getEndTime() < t) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
         }
-
-        return index;
+        return low;
     }
 
     /**
@@ -538,11 +821,38 @@ public abstract class HTNode {
      * 16 - 2x long (start time, end time)
      * 16 - 4x int (seq number, parent seq number, intervalcount,
      *              strings section pos.)
-     *  1 - byte (done or not)
+     *  1 - byte (flags: done, indexed)
      * </pre>
      */
     private static final int COMMON_HEADER_SIZE = 34;
 
+    /* Bits of the 'flags' byte of the header */
+    private static final byte FLAG_DONE = 1;
+    private static final byte FLAG_INDEXED = 1 << 1;
+
+    /**
+     * The per-quark index follows the specific header, when the node is
+     * indexed:
+     *
+     * <pre>
+     *  4 - int (number of quarks)
+     *  8 - 2x int (quark, position of its first entry) for each quark
+     *  2 - short (or int, for blocks over 1 MiB, or over 384 KiB with
+     *      compact intervals) position of each interval
+     * </pre>
+     */
+    private static final int INDEX_HEADER_SIZE = 4;
+    private static final int INDEX_QUARK_ENTRY_SIZE = 8;
+
+    /*
+     * An interval takes at least 25 bytes, so blocks of up to 1 MiB hold less
+     * than 65536 intervals. A compact entry takes at least 4 bytes (three
+     * one-byte varints and the type), 6 with its index position, so only
+     * blocks of up to 384 KiB hold less than 65536 compact intervals.
+     */
+    private static final int SHORT_INDEX_MAX_BLOCK_SIZE = 1024 * 1024;
+    private static final int SHORT_INDEX_MAX_COMPACT_BLOCK_SIZE = 384 * 1024;
+
     /**
      * Return the total header size of this node (will depend on the node type).
      *
@@ -567,7 +877,7 @@ public abstract class HTNode {
      */
     public int getNodeFreeSpace() {
         rwl.readLock().lock();
-        int ret = stringSectionOffset - this.getDataSectionEndOffset();
+        int ret = stringSectionOffset - this.getDataSectionEndOffset() - getReservedIndexSize();
         rwl.readLock().unlock();
 
         return ret;
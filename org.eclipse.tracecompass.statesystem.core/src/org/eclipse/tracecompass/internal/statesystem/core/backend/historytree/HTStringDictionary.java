@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.statesystem.core.backend.historytree;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Dictionary of the string state values of a history tree using the compact
+ * interval encoding. Each distinct string is stored once per tree, and the
+ * intervals only refer to it by its ID.
+ *
+ * IDs are assigned while the tree is built, and the dictionary is written
+ * after the last node of the file when the tree is closed. Its size is saved
+ * in the header of the file, since the attribute tree comes after it.
+ *
+ * @author agent
+ */
+public final class HTStringDictionary {
+
+    private static final Charset CHARSET = Charset.forName("UTF-8"); //$NON-NLS-1$
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final ConcurrentMap<String, Integer> fIds = new ConcurrentHashMap<>();
+
+    /*
+     * Strings by ID. The array is replaced (or re-published) after every
+     * addition, so readers always see a completely initialized entry for the
+     * IDs they know about.
+     */
+    private volatile String[] fStrings;
+    private int fSize;
+
+    /**
+     * Create a new, empty dictionary
+     */
+    public HTStringDictionary() {
+        fStrings = new String[INITIAL_CAPACITY];
+        fSize = 0;
+    }
+
+    private HTStringDictionary(String[] strings) {
+        for (int i = 0; i < strings.length; i++) {
+            fIds.put(strings[i], i);
+        }
+        fStrings = strings;
+        fSize = strings.length;
+    }
+
+    /**
+     * Get the ID of a string, adding it to the dictionary if it is not in it
+     * yet.
+     *
+     * @param str
+     *            The string
+     * @return The ID of the string
+     */
+    public int getId(String str) {
+        Integer id = fIds.get(str);
+        if (id != null) {
+            return id;
+        }
+        return addString(str);
+    }
+
+    private synchronized int addString(String str) {
+        /* Another thread may have added it in the meantime */
+        Integer id = fIds.get(str);
+        if (id != null) {
+            return id;
+        }
+
+        String[] strings = fStrings;
+        if (fSize == strings.length) {
+            strings = Arrays.copyOf(strings, Math.max(INITIAL_CAPACITY, strings.length * 2));
+        }
+        strings[fSize] = str;
+        fStrings = strings;
+        fIds.put(str, fSize);
+        return fSize++;
+    }
+
+    /**
+     * Get the string matching an ID.
+     *
+     * @param id
+     *            The ID, as returned by {@link #getId}
+     * @return The string
+     * @throws IOException
+     *             If the ID is not in the dictionary, which means the history
+     *             file is corrupted
+     */
+    public String getString(int id) throws IOException {
+        String[] strings = fStrings;
+        if (id < 0 || id >= strings.length || strings[id] == null) {
+            throw new IOException("Invalid string ID " + id + ". Maybe your file is corrupt?"); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        return strings[id];
+    }
+
+    /**
+     * Write the dictionary to a file.
+     *
+     * <pre>
+     *  4 - int (number of strings)
+     *  then, for each string by ID:
+     *  4 - int (length in bytes)
+     *  n - the UTF-8 bytes of the string
+     * </pre>
+     *
+     * @param fc
+     *            The file channel to write to, already positioned
+     * @return The number of bytes written
+     * @throws IOException
+     *             If there was an error writing
+     */
+    public synchronized int writeTo(FileChannel fc) throws IOException {
+        byte[][] encoded = new byte[fSize][];
+        int totalSize = 4;
+        for (int i = 0; i < fSize; i++) {
+            encoded[i] = fStrings[i].getBytes(CHARSET);
+            totalSize += 4 + encoded[i].length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(totalSize);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(fSize);
+        for (byte[] bytes : encoded) {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            fc.write(buffer);
+        }
+        return totalSize;
+    }
+
+    /**
+     * Read a dictionary written by {@link #writeTo}.
+     *
+     * @param fc
+     *            The file channel to read from
+     * @param position
+     *            The position of the dictionary in the file
+     * @param size
+     *            The size of the dictionary in the file, in bytes
+     * @return The dictionary
+     * @throws IOException
+     *             If there was an error reading, or if the contents are invalid
+     */
+    public static HTStringDictionary readFrom(FileChannel fc, long position, long size) throws IOException {
+        if (size < 4 || size > Integer.MAX_VALUE || position + size > fc.size()) {
+            throw new IOException("Invalid string dictionary. Maybe your file is corrupt?"); //$NON-NLS-1$
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (fc.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Invalid string dictionary. Maybe your file is corrupt?"); //$NON-NLS-1$
+            }
+        }
+        buffer.flip();
+
+        try {
+            int nbStrings = buffer.getInt();
+            String[] strings = new String[nbStrings];
+            for (int i = 0; i < nbStrings; i++) {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, CHARSET);
+            }
+            return new HTStringDictionary(strings);
+        } catch (RuntimeException e) {
+            /* BufferUnderflowException, NegativeArraySizeException... */
+            throw new IOException("Invalid string dictionary. Maybe your file is corrupt?", e); //$NON-NLS-1$
+        }
+    }
+}
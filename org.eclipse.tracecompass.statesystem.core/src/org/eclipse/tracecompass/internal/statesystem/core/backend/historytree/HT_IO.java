@@ -16,11 +16,20 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.eclipse.tracecompass.internal.statesystem.core.Activator;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+
 /**
  * This class abstracts inputs/outputs of the HistoryTree nodes.
  *
@@ -30,6 +39,19 @@ import org.eclipse.tracecompass.internal.statesystem.core.Activator;
  * This abstraction is mainly for code isolation/clarification purposes. Every
  * HistoryTree must contain 1 and only 1 HT_IO element.
  *
+ * Once the tree is complete (either re-opened from disk, or after it has been
+ * closed), the node section of the file can be memory-mapped with
+ * {@link #mapNodeSection}. Nodes are then decoded directly from the mapping,
+ * without having to take the I/O lock, so concurrent queries do not serialize
+ * on the file channel.
+ *
+ * Nodes that were read or written are kept in a concurrent LRU cache, whose
+ * size in bytes is defined by the {@link HTConfig}. Each node counts for one
+ * block. The nodes of the upper levels of the tree (the root and the first
+ * {@link HTConfig#getPinnedLevels()} - 1 levels of children) are accessed by
+ * every query, so they are pinned: they are never evicted and do not count
+ * against the cache size.
+ *
  * @author Alexandre Montplaisir
  *
  */
@@ -37,29 +59,60 @@ class HT_IO {
     /* Configuration of the History Tree */
     private final HTConfig fConfig;
 
+    /* String dictionary of the History Tree, null if not used */
+    private final HTStringDictionary fDictionary;
+
     /* Fields related to the file I/O */
     private final FileInputStream fis;
     private final FileOutputStream fos;
     private final FileChannel fcIn;
     private final FileChannel fcOut;
 
-    // TODO test/benchmark optimal cache size
-    private static final int CACHE_SIZE = 256;
-    private final HTNode fNodeCache[] = new HTNode[CACHE_SIZE];
+    /* Cache of the nodes, by sequence number */
+    private final Cache<Integer, HTNode> fNodeCache;
+
+    /*
+     * Depth (0 being the root) of the cached nodes that are part of the pinned
+     * upper levels of the tree
+     */
+    private final ConcurrentMap<Integer, Integer> fPinnedDepths = new ConcurrentHashMap<>();
+
+    /*
+     * Mapping files prevents them from being deleted on Windows, see
+     * http://bugs.java.com/view_bug.do?bug_id=4715154 . Keep using the file
+     * channel there.
+     */
+    private static final boolean IS_WIN32 = System.getProperty("os.name").startsWith("Windows"); //$NON-NLS-1$//$NON-NLS-2$
+
+    /*
+     * Maximum size of one mapped segment of the node section. Segments always
+     * contain a whole number of blocks, so a node never spans two segments.
+     */
+    private static final int MAX_SEGMENT_SIZE = 256 * 1024 * 1024;
+
+    /* Number of nodes contained in each mapped segment */
+    private final int fNodesPerSegment;
+
+    /* Mapped segments of the node section, null if the file is not mapped */
+    private volatile MappedByteBuffer fMappedSegments[] = null;
 
     /**
      * Standard constructor
      *
      * @param config
      *            The configuration object for the StateHistoryTree
+     * @param dictionary
+     *            The string dictionary of the tree, if it uses the compact
+     *            interval encoding. Null otherwise.
      * @param newFile
      *            Flag indicating that the file must be created from scratch
      *
      * @throws IOException
      *             An exception can be thrown when file cannot be accessed
      */
-    public HT_IO(HTConfig config, boolean newFile) throws IOException {
+    public HT_IO(HTConfig config, HTStringDictionary dictionary, boolean newFile) throws IOException {
         fConfig = config;
+        fDictionary = dictionary;
 
         File historyTreeFile = config.getStateFile();
         if (newFile) {
@@ -86,6 +139,61 @@ class HT_IO {
         }
         this.fcIn = fis.getChannel();
         this.fcOut = fos.getChannel();
+        this.fNodesPerSegment = Math.max(1, MAX_SEGMENT_SIZE / config.getBlockSize());
+
+        final int blockSize = config.getBlockSize();
+        fNodeCache = CacheBuilder.newBuilder()
+                .maximumWeight(config.getCacheSize())
+                .weigher(new Weigher<Integer, HTNode>() {
+                    @Override
+                    public int weigh(Integer key, HTNode value) {
+                        /* Zero-weight entries are never evicted */
+                        return fPinnedDepths.containsKey(key) ? 0 : blockSize;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Memory-map the node section of the file, so that subsequent node reads
+     * do not have to go through the (synchronized) file channel. This should
+     * only be called once all the nodes have been written to disk, since the
+     * mapping is read-only and will not see later writes.
+     *
+     * If the mapping cannot be done (not enough address space, file too short,
+     * etc.) the regular file channel reads will keep being used.
+     *
+     * @param nodeCount
+     *            The total number of nodes in the tree
+     */
+    public synchronized void mapNodeSection(int nodeCount) {
+        if (IS_WIN32 || nodeCount <= 0 || !fcIn.isOpen()) {
+            return;
+        }
+        final long blockSize = fConfig.getBlockSize();
+        final int nbSegments = (nodeCount + fNodesPerSegment - 1) / fNodesPerSegment;
+        MappedByteBuffer segments[] = new MappedByteBuffer[nbSegments];
+
+        try {
+            long sectionEnd = HistoryTree.TREE_HEADER_SIZE + nodeCount * blockSize;
+            if (fcIn.size() < sectionEnd) {
+                /* The file is not complete, we cannot map it */
+                return;
+            }
+
+            for (int i = 0; i < nbSegments; i++) {
+                int firstNode = i * fNodesPerSegment;
+                int nbNodes = Math.min(fNodesPerSegment, nodeCount - firstNode);
+                long position = HistoryTree.TREE_HEADER_SIZE + firstNode * blockSize;
+                segments[i] = fcIn.map(MapMode.READ_ONLY, position, nbNodes * blockSize);
+            }
+        } catch (IOException e) {
+            /* Fall back to reading through the file channel */
+            Activator.getDefault().logError(e.getMessage(), e);
+            return;
+        }
+        fMappedSegments = segments;
     }
 
     /**
@@ -99,21 +207,45 @@ class HT_IO {
      *             reading. Instead of using a big reader-writer lock, we'll
      *             just catch this exception.
      */
-    public synchronized HTNode readNode(int seqNumber) throws ClosedChannelException {
+    public HTNode readNode(int seqNumber) throws ClosedChannelException {
         /* Do a cache lookup */
-        int offset = seqNumber & (CACHE_SIZE - 1);
-        HTNode readNode = fNodeCache[offset];
-        if (readNode != null && readNode.getSequenceNumber() == seqNumber) {
+        HTNode readNode = fNodeCache.getIfPresent(seqNumber);
+        if (readNode != null) {
             return readNode;
         }
 
+        MappedByteBuffer segments[] = fMappedSegments;
+        if (segments == null) {
+            return readNodeFromChannel(seqNumber);
+        }
+
+        /* Lookup in the mapped file, no lock is needed here */
+        final int blockSize = fConfig.getBlockSize();
+        int posInSegment = (seqNumber % fNodesPerSegment) * blockSize;
+        ByteBuffer buffer = segments[seqNumber / fNodesPerSegment].duplicate();
+        buffer.limit(posInSegment + blockSize);
+        buffer.position(posInSegment);
+        try {
+            readNode = HTNode.readNode(fConfig, fDictionary, buffer.slice());
+
+            /* Put the node in the cache. */
+            cacheNode(readNode);
+            return readNode;
+        } catch (IOException e) {
+            /* This would mean the file is corrupted */
+            Activator.getDefault().logError(e.getMessage(), e);
+            return null;
+        }
+    }
+
+    private synchronized HTNode readNodeFromChannel(int seqNumber) throws ClosedChannelException {
         /* Lookup on disk */
         try {
             seekFCToNodePos(fcIn, seqNumber);
-            readNode = HTNode.readNode(fConfig, fcIn);
+            HTNode readNode = HTNode.readNode(fConfig, fDictionary, fcIn);
 
             /* Put the node in the cache. */
-            fNodeCache[offset] = readNode;
+            cacheNode(readNode);
             return readNode;
         } catch (ClosedChannelException e) {
             throw e;
@@ -128,8 +260,7 @@ class HT_IO {
         try {
             /* Insert the node into the cache. */
             int seqNumber = node.getSequenceNumber();
-            int offset = seqNumber & (CACHE_SIZE - 1);
-            fNodeCache[offset] = node;
+            cacheNode(node);
 
             /* Position ourselves at the start of the node and write it */
             seekFCToNodePos(fcOut, seqNumber);
@@ -140,17 +271,67 @@ class HT_IO {
         }
     }
 
+    /**
+     * Insert a node in the cache, pinning it if it is part of the upper levels
+     * of the tree. A node's depth is known from its parent's one, which is
+     * always read before it by a top-down query.
+     *
+     * During construction, nodes can move down one level when a new root is
+     * added. They will then stay pinned until they are cached again, which
+     * only over-pins a bounded number of nodes.
+     */
+    private void cacheNode(HTNode node) {
+        int seqNumber = node.getSequenceNumber();
+        int parentSeqNumber = node.getParentSequenceNumber();
+        int depth = -1;
+        if (parentSeqNumber == -1) {
+            depth = 0;
+        } else {
+            Integer parentDepth = fPinnedDepths.get(parentSeqNumber);
+            if (parentDepth != null) {
+                depth = parentDepth.intValue() + 1;
+            }
+        }
+
+        if (depth >= 0 && depth < fConfig.getPinnedLevels()) {
+            fPinnedDepths.put(seqNumber, depth);
+        } else {
+            fPinnedDepths.remove(seqNumber);
+        }
+        fNodeCache.put(seqNumber, node);
+    }
+
+    /**
+     * Get the number of node reads that were served by the cache
+     *
+     * @return The number of cache hits
+     */
+    public long getCacheHitCount() {
+        return fNodeCache.stats().hitCount();
+    }
+
+    /**
+     * Get the number of node reads that had to go to disk (or to the file
+     * mapping)
+     *
+     * @return The number of cache misses
+     */
+    public long getCacheMissCount() {
+        return fNodeCache.stats().missCount();
+    }
+
     public FileChannel getFcOut() {
         return this.fcOut;
     }
 
-    public FileInputStream supplyATReader(int nodeOffset) {
+    public FileInputStream supplyATReader(long position) {
         try {
             /*
              * Position ourselves at the start of the Mapping section in the
-             * file (which is right after the Blocks)
+             * file (which is right after the Blocks, and the string
+             * dictionary if there is one)
              */
-            seekFCToNodePos(fcIn, nodeOffset);
+            fcIn.position(position);
         } catch (IOException e) {
             Activator.getDefault().logError(e.getMessage(), e);
         }
@@ -158,6 +339,14 @@ class HT_IO {
     }
 
     public synchronized void closeFile() {
+        /*
+         * Drop the mapping, so that queries coming after this go through the
+         * closed channel and report it. The memory itself will be unmapped
+         * once the buffers are garbage-collected.
+         */
+        fMappedSegments = null;
+        fNodeCache.invalidateAll();
+        fPinnedDepths.clear();
         try {
             fis.close();
             fos.close();
@@ -23,10 +23,12 @@ import java.nio.ByteOrder;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
 import org.eclipse.tracecompass.internal.statesystem.core.Activator;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.SortedTimestamps;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
 import org.eclipse.tracecompass.statesystem.core.exceptions.TimeRangeException;
 
@@ -48,7 +50,7 @@ public class HistoryTree {
     private static final int HISTORY_FILE_MAGIC_NUMBER = 0x05FFA900;
 
     /** File format version. Increment when breaking compatibility. */
-    private static final int FILE_VERSION = 4;
+    private static final int FILE_VERSION = 7;
 
     // ------------------------------------------------------------------------
     // Tree-specific configuration
@@ -60,6 +62,13 @@ public class HistoryTree {
     /** Reader/writer object */
     private final HT_IO treeIO;
 
+    /** Dictionary of the string values, if the intervals are compact */
+    private final HTStringDictionary dictionary;
+
+    /* Values of the "interval encoding" field of the file header */
+    private static final int STANDARD_INTERVALS = 0;
+    private static final int COMPACT_INTERVALS = 1;
+
     // ------------------------------------------------------------------------
     // Variable Fields (will change throughout the existence of the SHT)
     // ------------------------------------------------------------------------
@@ -70,6 +79,9 @@ public class HistoryTree {
     /** The total number of nodes that exists in this tree */
     private int nodeCount;
 
+    /** Size in the file of the string dictionary, once it is written */
+    private long dictionarySize = 0;
+
     /** "Cache" to keep the active nodes in memory */
     private final List<HTNode> latestBranch;
 
@@ -101,8 +113,10 @@ public class HistoryTree {
         nodeCount = 0;
         latestBranch = Collections.synchronizedList(new ArrayList<HTNode>());
 
+        dictionary = (conf.useCompactIntervals() ? new HTStringDictionary() : null);
+
         /* Prepare the IO object */
-        treeIO = new HT_IO(config, true);
+        treeIO = new HT_IO(config, dictionary, true);
 
         /* Add the first node to the tree */
         LeafNode firstNode = initNewLeafNode(-1, conf.getTreeStart());
@@ -121,6 +135,26 @@ public class HistoryTree {
      *             If an error happens reading the file
      */
     public HistoryTree(File existingStateFile, int expProviderVersion) throws IOException {
+        this(existingStateFile, expProviderVersion, HTConfig.DEFAULT_CACHE_SIZE, HTConfig.DEFAULT_PINNED_LEVELS);
+    }
+
+    /**
+     * "Reader" constructor : instantiate a SHTree from an existing tree file on
+     * disk, specifying the configuration of the node cache.
+     *
+     * @param existingStateFile
+     *            Path/filename of the history-file we are to open
+     * @param expProviderVersion
+     *            The expected version of the state provider
+     * @param cacheSize
+     *            The maximum size, in bytes, of the node cache
+     * @param pinnedLevels
+     *            The number of upper tree levels to pin in the node cache
+     * @throws IOException
+     *             If an error happens reading the file
+     */
+    public HistoryTree(File existingStateFile, int expProviderVersion,
+            long cacheSize, int pinnedLevels) throws IOException {
         /*
          * Open the file ourselves, get the tree header information we need,
          * then pass on the descriptor to the TreeIO object.
@@ -181,7 +215,24 @@ public class HistoryTree {
             rootNodeSeqNb = buffer.getInt();
             startTime = buffer.getLong();
 
-            this.config = new HTConfig(existingStateFile, bs, maxc, expProviderVersion, startTime);
+            int encoding = buffer.getInt();
+            if (encoding != STANDARD_INTERVALS && encoding != COMPACT_INTERVALS) {
+                throw new IOException("Unknown interval encoding"); //$NON-NLS-1$
+            }
+            boolean compact = (encoding == COMPACT_INTERVALS);
+            long dictSize = buffer.getLong();
+
+            this.config = new HTConfig(existingStateFile, bs, maxc, expProviderVersion,
+                    startTime, cacheSize, pinnedLevels, HTConfig.DEFAULT_NODE_INDEX, compact);
+
+            /* The string dictionary is right after the last node */
+            if (compact) {
+                long dictionaryPos = TREE_HEADER_SIZE + (long) nodeCount * bs;
+                this.dictionary = HTStringDictionary.readFrom(fc, dictionaryPos, dictSize);
+                this.dictionarySize = dictSize;
+            } else {
+                this.dictionary = null;
+            }
         }
 
         /*
@@ -189,7 +240,10 @@ public class HistoryTree {
          * file, not extremely elegant. But how to pass the information here to
          * the SHT otherwise?
          */
-        this.treeIO = new HT_IO(config, false);
+        this.treeIO = new HT_IO(config, dictionary, false);
+
+        /* The tree is complete, nodes can be read from a mapping of the file */
+        treeIO.mapNodeSection(nodeCount);
 
         this.latestBranch = buildLatestBranch(rootNodeSeqNb);
         this.treeEnd = getRootNode().getNodeEnd();
@@ -257,6 +311,15 @@ public class HistoryTree {
             }
 
             try (FileChannel fc = treeIO.getFcOut();) {
+                /*
+                 * Write the string dictionary after the last node. The
+                 * attribute tree will be written after it.
+                 */
+                if (dictionary != null) {
+                    fc.position(TREE_HEADER_SIZE + (long) nodeCount * config.getBlockSize());
+                    dictionarySize = dictionary.writeTo(fc);
+                }
+
                 ByteBuffer buffer = ByteBuffer.allocate(TREE_HEADER_SIZE);
                 buffer.order(ByteOrder.LITTLE_ENDIAN);
                 buffer.clear();
@@ -280,6 +343,12 @@ public class HistoryTree {
                 /* start time of this history */
                 buffer.putLong(latestBranch.get(0).getNodeStart());
 
+                /* encoding of the intervals in the nodes */
+                buffer.putInt(dictionary != null ? COMPACT_INTERVALS : STANDARD_INTERVALS);
+
+                /* size of the string dictionary, 0 if there is none */
+                buffer.putLong(dictionarySize);
+
                 buffer.flip();
                 int res = fc.write(buffer);
                 assert (res <= TREE_HEADER_SIZE);
@@ -292,6 +361,12 @@ public class HistoryTree {
                  */
                 throw new RuntimeException("State system write error"); //$NON-NLS-1$
             }
+
+            /*
+             * All the nodes are now on disk, queries can read them from a
+             * mapping of the file instead of going through the file channel.
+             */
+            treeIO.mapNodeSection(nodeCount);
         }
     }
 
@@ -347,7 +422,7 @@ public class HistoryTree {
      *         the attribute tree can be read.
      */
     public FileInputStream supplyATReader() {
-        return treeIO.supplyATReader(getNodeCount());
+        return treeIO.supplyATReader(supplyATWriterFilePos());
     }
 
     /**
@@ -361,13 +436,15 @@ public class HistoryTree {
 
     /**
      * Return the position in the file (given by {@link #supplyATWriterFile})
-     * where to start writing the attribute tree.
+     * where to start writing the attribute tree. It comes after the last node
+     * and the string dictionary, if there is one.
      *
      * @return The position in the file where to start writing
      */
     public long supplyATWriterFilePos() {
         return HistoryTree.TREE_HEADER_SIZE
-                + ((long) getNodeCount() * config.getBlockSize());
+                + ((long) getNodeCount() * config.getBlockSize())
+                + dictionarySize;
     }
 
     /**
@@ -393,6 +470,24 @@ public class HistoryTree {
         return treeIO.readNode(seqNumber);
     }
 
+    /**
+     * Get the number of node reads that were served by the node cache.
+     *
+     * @return The number of cache hits
+     */
+    public long getCacheHitCount() {
+        return treeIO.getCacheHitCount();
+    }
+
+    /**
+     * Get the number of node reads that missed the node cache.
+     *
+     * @return The number of cache misses
+     */
+    public long getCacheMissCount() {
+        return treeIO.getCacheMissCount();
+    }
+
     /**
      * Write a node object to the history file.
      *
@@ -449,7 +544,7 @@ public class HistoryTree {
         HTNode targetNode = latestBranch.get(indexOfNode);
 
         /* Verify if there is enough room in this node to store this interval */
-        if (interval.getIntervalSize() > targetNode.getNodeFreeSpace()) {
+        if (targetNode.getIntervalSize(interval) > targetNode.getNodeFreeSpace()) {
             /* Nope, not enough room. Insert in a new sibling instead. */
             addSiblingNode(indexOfNode);
             tryInsertAtNode(interval, latestBranch.size() - 1);
@@ -590,8 +685,8 @@ public class HistoryTree {
      * @return The newly created node
      */
     private CoreNode initNewCoreNode(int parentSeqNumber, long startTime) {
-        CoreNode newNode = new CoreNode(config, this.nodeCount, parentSeqNumber,
-                startTime);
+        CoreNode newNode = new CoreNode(config, dictionary, this.nodeCount,
+                parentSeqNumber, startTime);
         this.nodeCount++;
 
         /* Update the treeEnd if needed */
@@ -611,8 +706,8 @@ public class HistoryTree {
      * @return The newly created node
      */
     private LeafNode initNewLeafNode(int parentSeqNumber, long startTime) {
-        LeafNode newNode = new LeafNode(config, this.nodeCount, parentSeqNumber,
-                startTime);
+        LeafNode newNode = new LeafNode(config, dictionary, this.nodeCount,
+                parentSeqNumber, startTime);
         this.nodeCount++;
 
         /* Update the treeEnd if needed */
@@ -664,6 +759,62 @@ public class HistoryTree {
         return readNode(potentialNextSeqNb);
     }
 
+    /**
+     * Inner method to select all the children of the current node whose time
+     * range intersects [t1, t2]. Useful for range queries, which need to visit
+     * every branch of the tree covering the range.
+     *
+     * @param currentNode
+     *            The node on which the request is made
+     * @param t1
+     *            The start time of the range
+     * @param t2
+     *            The end time of the range
+     * @param childrenOut
+     *            The collection to which the sequence numbers of the matching
+     *            children are added
+     */
+    public void selectChildren(CoreNode currentNode, long t1, long t2,
+            Collection<Integer> childrenOut) {
+        final int nbChildren = currentNode.getNbChildren();
+        for (int i = 0; i < nbChildren; i++) {
+            if (currentNode.getChildStart(i) > t2) {
+                /* This child, and the following ones, start after the range */
+                break;
+            }
+            /* A child ends where the next one starts */
+            if (i == nbChildren - 1 || currentNode.getChildStart(i + 1) > t1) {
+                childrenOut.add(currentNode.getChild(i));
+            }
+        }
+    }
+
+    /**
+     * Inner method to select all the children of the current node that
+     * contain at least one of the given timestamps. Useful for
+     * multi-timestamp queries, which share the node reads between the
+     * timestamps.
+     *
+     * @param currentNode
+     *            The node on which the request is made
+     * @param times
+     *            The timestamps, sorted in ascending order
+     * @param childrenOut
+     *            The collection to which the sequence numbers of the matching
+     *            children are added
+     */
+    public void selectChildren(CoreNode currentNode, long[] times,
+            Collection<Integer> childrenOut) {
+        final int nbChildren = currentNode.getNbChildren();
+        for (int i = 0; i < nbChildren; i++) {
+            long childStart = currentNode.getChildStart(i);
+            long childEnd = (i == nbChildren - 1 ? Long.MAX_VALUE : currentNode.getChildStart(i + 1) - 1);
+            if (SortedTimestamps.intersects(times, childStart, childEnd)) {
+                childrenOut.add(currentNode.getChild(i));
+            }
+        }
+    }
+
     /**
      * Get the current size of the history file.
      *
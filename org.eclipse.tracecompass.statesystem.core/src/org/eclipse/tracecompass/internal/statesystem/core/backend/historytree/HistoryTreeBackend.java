@@ -20,6 +20,12 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 
 import org.eclipse.jdt.annotation.NonNull;
@@ -32,6 +38,7 @@ import org.eclipse.tracecompass.statesystem.core.backend.IStateHistoryBackend;
 import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
 import org.eclipse.tracecompass.statesystem.core.exceptions.TimeRangeException;
 import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.tracecompass.statesystem.core.interval.TmfIntervalStartComparator;
 import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
 import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
 
@@ -101,10 +108,24 @@ public class HistoryTreeBackend implements IStateHistoryBackend {
             long startTime,
             int blockSize,
             int maxChildren) throws IOException {
+        this(ssid, new HTConfig(newStateFile, blockSize, maxChildren,
+                providerVersion, startTime));
+    }
+
+    /**
+     * Constructor for new history files, using a complete configuration object
+     * (which can also specify the size of the node cache).
+     *
+     * @param ssid
+     *            The state system's ID
+     * @param config
+     *            The configuration of the new history tree
+     * @throws IOException
+     *             Thrown if we can't create the file for some reason
+     */
+    public HistoryTreeBackend(@NonNull String ssid, HTConfig config) throws IOException {
         this.ssid = ssid;
-        final HTConfig conf = new HTConfig(newStateFile, blockSize, maxChildren,
-                providerVersion, startTime);
-        sht = new HistoryTree(conf);
+        sht = new HistoryTree(config);
     }
 
     /**
@@ -148,8 +169,34 @@ public class HistoryTreeBackend implements IStateHistoryBackend {
      */
     public HistoryTreeBackend(@NonNull String ssid, File existingStateFile, int providerVersion)
             throws IOException {
+        this(ssid, existingStateFile, providerVersion, HTConfig.DEFAULT_CACHE_SIZE,
+                HTConfig.DEFAULT_PINNED_LEVELS);
+    }
+
+    /**
+     * Existing history constructor, specifying the configuration of the node
+     * cache.
+     *
+     * @param ssid
+     *            The state system's id
+     * @param existingStateFile
+     *            Filename/location of the history we want to load
+     * @param providerVersion
+     *            Expected version of of the state provider plugin.
+     * @param cacheSize
+     *            The maximum size, in bytes, of the node cache
+     * @param pinnedLevels
+     *            The number of upper tree levels (starting at the root) that
+     *            are never evicted from the node cache
+     * @throws IOException
+     *             If we can't read the file, if it doesn't exist, is not
+     *             recognized, or if the version of the file does not match the
+     *             expected providerVersion.
+     */
+    public HistoryTreeBackend(@NonNull String ssid, File existingStateFile, int providerVersion,
+            long cacheSize, int pinnedLevels) throws IOException {
         this.ssid = ssid;
-        sht = new HistoryTree(existingStateFile, providerVersion);
+        sht = new HistoryTree(existingStateFile, providerVersion, cacheSize, pinnedLevels);
         fFinishedBuilding = true;
     }
 
@@ -259,6 +306,126 @@ public class HistoryTreeBackend implements IStateHistoryBackend {
         return getRelevantInterval(t, attributeQuark);
     }
 
+    @Override
+    public List<ITmfStateInterval> doRangeQuery(Collection<Integer> quarks, long t1, long t2)
+            throws TimeRangeException, StateSystemDisposedException {
+        List<ITmfStateInterval> intervals = new ArrayList<>();
+        collectIntervalsInRange(intervals, quarks, t1, t2);
+        Collections.sort(intervals, new TmfIntervalStartComparator());
+        return intervals;
+    }
+
+    /**
+     * Inner method to add to 'intervalsOut' all the intervals of the given
+     * attributes intersecting [t1, t2]. Every node of the tree covering the
+     * range is read once, whatever the number of intervals or attributes. The
+     * intervals are not sorted.
+     *
+     * @param intervalsOut
+     *            The list to which the intervals are added
+     * @param quarks
+     *            The requested attributes
+     * @param t1
+     *            The start time of the range
+     * @param t2
+     *            The end time of the range
+     * @throws TimeRangeException
+     *             If t1 is invalid, or if t2 < t1
+     * @throws StateSystemDisposedException
+     *             If the history file was closed during the query
+     */
+    protected void collectIntervalsInRange(List<ITmfStateInterval> intervalsOut,
+            Collection<Integer> quarks, long t1, long t2)
+            throws TimeRangeException, StateSystemDisposedException {
+        checkValidTime(t1);
+        final long end = Math.min(t2, sht.getTreeEnd());
+        if (t2 < t1) {
+            throw new TimeRangeException(ssid + " Start:" + t1 + ", End:" + t2); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+
+        BitSet wantedQuarks = new BitSet();
+        for (Integer quark : quarks) {
+            wantedQuarks.set(quark);
+        }
+
+        /* Visit the nodes covering the range, starting at the root */
+        Deque<Integer> nodesToVisit = new ArrayDeque<>();
+        HTNode currentNode = sht.getRootNode();
+        try {
+            while (true) {
+                currentNode.writeRangeInfoFromNode(intervalsOut, wantedQuarks, t1, end);
+                if (currentNode.getNodeType() == HTNode.NodeType.CORE) {
+                    sht.selectChildren((CoreNode) currentNode, t1, end, nodesToVisit);
+                }
+                if (nodesToVisit.isEmpty()) {
+                    break;
+                }
+                currentNode = sht.readNode(nodesToVisit.pop());
+            }
+        } catch (ClosedChannelException e) {
+            throw new StateSystemDisposedException(e);
+        }
+    }
+
+    @Override
+    public List<ITmfStateInterval> doQuery2D(Collection<Integer> quarks, long[] times)
+            throws TimeRangeException, StateSystemDisposedException {
+        List<ITmfStateInterval> intervals = new ArrayList<>();
+        collectIntervalsAt(intervals, quarks, times);
+        Collections.sort(intervals, new TmfIntervalStartComparator());
+        return intervals;
+    }
+
+    /**
+     * Inner method to add to 'intervalsOut' all the intervals of the given
+     * attributes containing at least one of the given timestamps. The nodes
+     * are shared between the timestamps: each node of the tree covering one
+     * or more timestamps is read once. The intervals are not sorted.
+     *
+     * @param intervalsOut
+     *            The list to which the intervals are added
+     * @param quarks
+     *            The requested attributes
+     * @param times
+     *            The requested timestamps, sorted in ascending order
+     * @throws TimeRangeException
+     *             If one of the timestamps is invalid
+     * @throws StateSystemDisposedException
+     *             If the history file was closed during the query
+     */
+    protected void collectIntervalsAt(List<ITmfStateInterval> intervalsOut,
+            Collection<Integer> quarks, long[] times)
+            throws TimeRangeException, StateSystemDisposedException {
+        if (times.length == 0) {
+            return;
+        }
+        checkValidTime(times[0]);
+        checkValidTime(times[times.length - 1]);
+
+        BitSet wantedQuarks = new BitSet();
+        for (Integer quark : quarks) {
+            wantedQuarks.set(quark);
+        }
+
+        /* Visit the nodes containing at least one timestamp */
+        Deque<Integer> nodesToVisit = new ArrayDeque<>();
+        HTNode currentNode = sht.getRootNode();
+        try {
+            while (true) {
+                currentNode.writeInfoFromNode(intervalsOut, wantedQuarks, times);
+                if (currentNode.getNodeType() == HTNode.NodeType.CORE) {
+                    sht.selectChildren((CoreNode) currentNode, times, nodesToVisit);
+                }
+                if (nodesToVisit.isEmpty()) {
+                    break;
+                }
+                currentNode = sht.readNode(nodesToVisit.pop());
+            }
+        } catch (ClosedChannelException e) {
+            throw new StateSystemDisposedException(e);
+        }
+    }
+
     private void checkValidTime(long t) {
         long treeStart = sht.getTreeStart();
         long treeEnd = sht.getTreeEnd();
@@ -302,6 +469,26 @@ public class HistoryTreeBackend implements IStateHistoryBackend {
         return sht.getFileSize();
     }
 
+    /**
+     * Get the number of node reads that were served by the node cache. Along
+     * with {@link #getNodeCacheMissCount()}, this can be used to size the cache
+     * for a given history.
+     *
+     * @return The number of node cache hits
+     */
+    public long getNodeCacheHitCount() {
+        return sht.getCacheHitCount();
+    }
+
+    /**
+     * Get the number of node reads that had to be read from the file.
+     *
+     * @return The number of node cache misses
+     */
+    public long getNodeCacheMissCount() {
+        return sht.getCacheMissCount();
+    }
+
     /**
      * Return the average node usage as a percentage (between 0 and 100)
      *
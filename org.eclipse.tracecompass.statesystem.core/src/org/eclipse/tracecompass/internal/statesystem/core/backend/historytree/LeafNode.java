@@ -29,6 +29,9 @@ public final class LeafNode extends HTNode {
      *
      * @param config
      *            Configuration of the History Tree
+     * @param dictionary
+     *            The string dictionary of the History Tree, if it uses the
+     *            compact interval encoding. Null otherwise.
      * @param seqNumber
      *            The (unique) sequence number assigned to this particular node
      * @param parentSeqNumber
@@ -36,9 +39,9 @@ public final class LeafNode extends HTNode {
      * @param start
      *            The earliest timestamp stored in this node
      */
-    public LeafNode(HTConfig config, int seqNumber, int parentSeqNumber,
-            long start) {
-        super(config, seqNumber, parentSeqNumber, start);
+    public LeafNode(HTConfig config, HTStringDictionary dictionary,
+            int seqNumber, int parentSeqNumber, long start) {
+        super(config, dictionary, seqNumber, parentSeqNumber, start);
     }
 
     @Override
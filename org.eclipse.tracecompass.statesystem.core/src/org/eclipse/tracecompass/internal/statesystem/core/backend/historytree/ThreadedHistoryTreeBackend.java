@@ -16,15 +16,23 @@ package org.eclipse.tracecompass.internal.statesystem.core.backend.historytree;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.tracecompass.internal.statesystem.core.Activator;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.SortedTimestamps;
 import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
 import org.eclipse.tracecompass.statesystem.core.exceptions.TimeRangeException;
 import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.tracecompass.statesystem.core.interval.TmfIntervalStartComparator;
 import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
 import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
 
@@ -116,6 +124,31 @@ public final class ThreadedHistoryTreeBackend extends HistoryTreeBackend
         shtThread.start();
     }
 
+    /**
+     * New State History constructor, using a {@link HTConfig} object for the
+     * configuration of the history tree, like the interval encoding.
+     *
+     * @param ssid
+     *            The state system's id
+     * @param config
+     *            The configuration of the history tree
+     * @param queueSize
+     *            The size of the interval insertion queue. 2000 - 10000 usually
+     *            works well
+     * @throws IOException
+     *             If there was a problem opening the history file for writing
+     */
+    public ThreadedHistoryTreeBackend(@NonNull String ssid,
+            HTConfig config,
+            int queueSize)
+                    throws IOException {
+        super(ssid, config);
+
+        intervalQueue = new ArrayBlockingQueue<>(queueSize);
+        shtThread = new Thread(this, "History Tree Thread"); //$NON-NLS-1$
+        shtThread.start();
+    }
+
     /*
      * The Threaded version does not specify an "existing file" constructor,
      * since the history is already built (and we only use the other thread
@@ -134,10 +167,30 @@ public final class ThreadedHistoryTreeBackend extends HistoryTreeBackend
          */
         HTInterval interval = new HTInterval(stateStartTime, stateEndTime,
                 quark, (TmfStateValue) value);
-        try {
-            intervalQueue.put(interval);
-        } catch (InterruptedException e) {
-            Activator.getDefault().logError("State system interrupted", e); //$NON-NLS-1$
+        putInQueue(interval);
+    }
+
+    /*
+     * If we are interrupted while waiting for room in the queue, keep the
+     * interval and try again, as long as the insertion thread is there to
+     * make room. The interrupt is restored once the interval is queued.
+     */
+    private void putInQueue(HTInterval interval) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                intervalQueue.put(interval);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+                if (!shtThread.isAlive()) {
+                    Activator.getDefault().logError("State system interrupted", e); //$NON-NLS-1$
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
         }
     }
 
@@ -174,16 +227,25 @@ public final class ThreadedHistoryTreeBackend extends HistoryTreeBackend
 
         /*
          * Send a "poison pill" in the queue, then wait for the HT to finish its
-         * closeTree()
+         * closeTree(). The attribute tree is written after we return, so keep
+         * waiting even if we are interrupted, and restore the interrupt after.
          */
         try {
             HTInterval pill = new HTInterval(-1, endTime, -1, TmfStateValue.nullValue());
-            intervalQueue.put(pill);
-            shtThread.join();
+            putInQueue(pill);
         } catch (TimeRangeException e) {
             Activator.getDefault().logError("Error closing state system", e); //$NON-NLS-1$
-        } catch (InterruptedException e) {
-            Activator.getDefault().logError("State system interrupted", e); //$NON-NLS-1$
+        }
+        boolean interrupted = Thread.interrupted();
+        while (shtThread.isAlive()) {
+            try {
+                shtThread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
         }
     }
 
@@ -279,4 +341,63 @@ public final class ThreadedHistoryTreeBackend extends HistoryTreeBackend
         return super.doSingularQuery(t, attributeQuark);
     }
 
+    @Override
+    public List<ITmfStateInterval> doRangeQuery(Collection<Integer> quarks, long t1, long t2)
+            throws TimeRangeException, StateSystemDisposedException {
+        if (isFinishedBuilding()) {
+            return super.doRangeQuery(quarks, t1, t2);
+        }
+
+        /*
+         * Intervals can move from the queue to the tree while we are looking
+         * for them. Like for singular queries, look in the tree, then in the
+         * queue, then in the tree again, and only keep one copy of every
+         * interval.
+         */
+        List<ITmfStateInterval> intervals = new ArrayList<>();
+        collectIntervalsInRange(intervals, quarks, t1, t2);
+
+        Set<Integer> wantedQuarks = new HashSet<>(quarks);
+        for (ITmfStateInterval interval : intervalQueue) {
+            if (wantedQuarks.contains(interval.getAttribute()) &&
+                    interval.getStartTime() <= t2 && interval.getEndTime() >= t1) {
+                intervals.add(interval);
+            }
+        }
+        collectIntervalsInRange(intervals, quarks, t1, t2);
+
+        Set<ITmfStateInterval> uniqueIntervals = Collections.newSetFromMap(new IdentityHashMap<ITmfStateInterval, Boolean>());
+        uniqueIntervals.addAll(intervals);
+        List<ITmfStateInterval> ret = new ArrayList<>(uniqueIntervals);
+        Collections.sort(ret, new TmfIntervalStartComparator());
+        return ret;
+    }
+
+    @Override
+    public List<ITmfStateInterval> doQuery2D(Collection<Integer> quarks, long[] times)
+            throws TimeRangeException, StateSystemDisposedException {
+        if (isFinishedBuilding()) {
+            return super.doQuery2D(quarks, times);
+        }
+
+        /* Same tree-queue-tree approach as for range queries */
+        List<ITmfStateInterval> intervals = new ArrayList<>();
+        collectIntervalsAt(intervals, quarks, times);
+
+        Set<Integer> wantedQuarks = new HashSet<>(quarks);
+        for (ITmfStateInterval interval : intervalQueue) {
+            if (wantedQuarks.contains(interval.getAttribute()) &&
+                    SortedTimestamps.intersects(times, interval.getStartTime(), interval.getEndTime())) {
+                intervals.add(interval);
+            }
+        }
+        collectIntervalsAt(intervals, quarks, times);
+
+        Set<ITmfStateInterval> uniqueIntervals = Collections.newSetFromMap(new IdentityHashMap<ITmfStateInterval, Boolean>());
+        uniqueIntervals.addAll(intervals);
+        List<ITmfStateInterval> ret = new ArrayList<>(uniqueIntervals);
+        Collections.sort(ret, new TmfIntervalStartComparator());
+        return ret;
+    }
+
 }
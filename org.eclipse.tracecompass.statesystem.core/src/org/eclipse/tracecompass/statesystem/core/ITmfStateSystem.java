@@ -12,6 +12,7 @@
 
 package org.eclipse.tracecompass.statesystem.core;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.eclipse.jdt.annotation.NonNull;
@@ -354,4 +355,65 @@ public interface ITmfStateSystem {
      */
     @NonNull ITmfStateInterval querySingleState(long t, int attributeQuark)
             throws AttributeNotFoundException, StateSystemDisposedException;
-}
\ No newline at end of file
+
+    /**
+     * Range query method. Get the history of a set of attributes over a time
+     * range, that is all the intervals of these attributes that intersect
+     * [t1, t2].
+     *
+     * This is equivalent to running successive querySingleState() calls,
+     * jumping to the end of each returned interval, but the history is visited
+     * only once for the whole range and all the attributes. Prefer this method
+     * to fill views showing the states of attributes over time.
+     *
+     * @param quarks
+     *            The attributes for which we want the history
+     * @param t1
+     *            The start time of the range
+     * @param t2
+     *            The end time of the range. If it is past the current end time
+     *            of the history, what is available up to that time is
+     *            returned.
+     * @return The List of intervals intersecting the range, ordered by start
+     *         time (and by attribute quark for intervals starting at the same
+     *         time)
+     * @throws TimeRangeException
+     *             If t1 is invalid, or if t2 < t1
+     * @throws AttributeNotFoundException
+     *             If one of the requested quarks does not exist in the model
+     * @throws StateSystemDisposedException
+     *             If the query is sent after the state system has been disposed
+     * @since 1.0
+     */
+    @NonNull List<ITmfStateInterval> queryRange(@NonNull Collection<Integer> quarks, long t1, long t2)
+            throws AttributeNotFoundException, StateSystemDisposedException;
+
+    /**
+     * Multi-timestamp query method ("2D query"). Get the states of a set of
+     * attributes at a set of timestamps, that is all the intervals of these
+     * attributes that contain at least one of the timestamps.
+     *
+     * This is equivalent to calling queryFullState() at each timestamp and
+     * keeping only the requested attributes, but the history is visited only
+     * once for all the timestamps, and no interval of the other attributes is
+     * read. Prefer this method to fill views sampling a few attributes at
+     * many points in time, like one point per pixel column.
+     *
+     * @param quarks
+     *            The attributes for which we want the states
+     * @param times
+     *            The timestamps at which we want the states, in any order.
+     *            Timestamps outside of the range of the state system are
+     *            ignored.
+     * @return The List of intervals containing at least one of the
+     *         timestamps, each interval appearing once, ordered by start time
+     *         (and by attribute quark for intervals starting at the same time)
+     * @throws AttributeNotFoundException
+     *             If one of the requested quarks does not exist in the model
+     * @throws StateSystemDisposedException
+     *             If the query is sent after the state system has been disposed
+     * @since 1.0
+     */
+    @NonNull List<ITmfStateInterval> query2D(@NonNull Collection<Integer> quarks, @NonNull Collection<Long> times)
+            throws AttributeNotFoundException, StateSystemDisposedException;
+}
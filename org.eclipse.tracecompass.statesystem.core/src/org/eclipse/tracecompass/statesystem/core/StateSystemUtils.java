@@ -14,7 +14,7 @@
 
 package org.eclipse.tracecompass.statesystem.core;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -121,9 +121,7 @@ public final class StateSystemUtils {
             int attributeQuark, long t1, long t2)
             throws AttributeNotFoundException, StateSystemDisposedException {
 
-        List<ITmfStateInterval> intervals;
-        ITmfStateInterval currentInterval;
-        long ts, tEnd;
+        long tEnd;
 
         /* Make sure the time range makes sense */
         if (t2 < t1) {
@@ -137,20 +135,11 @@ public final class StateSystemUtils {
             tEnd = t2;
         }
 
-        /* Get the initial state at time T1 */
-        intervals = new ArrayList<>();
-        currentInterval = ss.querySingleState(t1, attributeQuark);
-        intervals.add(currentInterval);
-
-        /* Get the following state changes */
-        ts = currentInterval.getEndTime();
-        while (ts != -1 && ts < tEnd) {
-            ts++; /* To "jump over" to the next state in the history */
-            currentInterval = ss.querySingleState(ts, attributeQuark);
-            intervals.add(currentInterval);
-            ts = currentInterval.getEndTime();
-        }
-        return intervals;
+        /*
+         * A single range query visits the history once, instead of doing one
+         * query for every interval.
+         */
+        return ss.queryRange(Collections.singleton(attributeQuark), t1, tEnd);
     }
 
     /**
@@ -15,6 +15,7 @@ package org.eclipse.tracecompass.statesystem.core.backend;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.PrintWriter;
+import java.util.Collection;
 import java.util.List;
 
 import org.eclipse.jdt.annotation.NonNull;
@@ -184,6 +185,54 @@ public interface IStateHistoryBackend {
             throws TimeRangeException, AttributeNotFoundException,
             StateSystemDisposedException;
 
+    /**
+     * Range query method. Get all the intervals of the given attributes that
+     * intersect the time range [t1, t2]. Back-ends should implement this by
+     * visiting their storage once for the whole range, instead of running one
+     * single query per interval.
+     *
+     * @param quarks
+     *            The attributes for which we want the state intervals
+     * @param t1
+     *            The start time of the range
+     * @param t2
+     *            The end time of the range. If it is past the end of the
+     *            history, the intervals up to the end of the history are
+     *            returned.
+     * @return The intervals intersecting the range, ordered by start time
+     *         (and by attribute quark for intervals with the same start time)
+     * @throws TimeRangeException
+     *             If t1 is invalid, or if t2 < t1
+     * @throws StateSystemDisposedException
+     *             If the state system is disposed while a request is ongoing.
+     * @since 1.0
+     */
+    @NonNull List<ITmfStateInterval> doRangeQuery(@NonNull Collection<Integer> quarks, long t1, long t2)
+            throws TimeRangeException, StateSystemDisposedException;
+
+    /**
+     * Multi-timestamp query method. Get the intervals of the given attributes
+     * that contain at least one of the given timestamps. Every interval is
+     * returned only once, even if it contains many of the timestamps.
+     * Back-ends should share the reads of their storage between the
+     * timestamps.
+     *
+     * @param quarks
+     *            The attributes for which we want the state intervals
+     * @param times
+     *            The timestamps, sorted in ascending order, without
+     *            duplicates
+     * @return The matching intervals, ordered by start time (and by attribute
+     *         quark for intervals with the same start time)
+     * @throws TimeRangeException
+     *             If one of the timestamps is invalid
+     * @throws StateSystemDisposedException
+     *             If the state system is disposed while a request is ongoing.
+     * @since 1.0
+     */
+    @NonNull List<ITmfStateInterval> doQuery2D(@NonNull Collection<Integer> quarks, long[] times)
+            throws TimeRangeException, StateSystemDisposedException;
+
     /**
      * Debug method to print the contents of the history backend.
      *
@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.statesystem.core.interval;
+
+import java.util.Comparator;
+
+/**
+ * Comparator for ITmfStateInterval, using their *start times*. Intervals
+ * starting at the same time are then ordered by attribute quark, so that the
+ * order of the intervals returned by range queries is fully defined.
+ *
+ * @author agent
+ * @since 1.0
+ */
+public class TmfIntervalStartComparator implements Comparator<ITmfStateInterval> {
+
+    @Override
+    public int compare(ITmfStateInterval o1, ITmfStateInterval o2) {
+        long s1 = o1.getStartTime();
+        long s2 = o2.getStartTime();
+
+        if (s1 < s2) {
+            return -1;
+        } else if (s1 > s2) {
+            return 1;
+        }
+        return Integer.compare(o1.getAttribute(), o2.getAttribute());
+    }
+
+}
@@ -15,21 +15,33 @@ package org.eclipse.tracecompass.tmf.core.tests.component;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
 
 import org.eclipse.tracecompass.internal.tmf.core.component.TmfProviderManager;
 import org.eclipse.tracecompass.tmf.core.component.ITmfEventProvider;
+import org.eclipse.tracecompass.tmf.core.component.TmfEventProvider;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.request.ITmfBatchEventRequest;
+import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest;
+import org.eclipse.tracecompass.tmf.core.request.ITmfSharedScanRequest;
 import org.eclipse.tracecompass.tmf.core.request.TmfEventRequest;
 import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest.ExecutionType;
+import org.eclipse.tracecompass.tmf.core.request.TmfScanSavings;
 import org.eclipse.tracecompass.tmf.core.signal.TmfEndSynchSignal;
 import org.eclipse.tracecompass.tmf.core.signal.TmfStartSynchSignal;
+import org.eclipse.tracecompass.tmf.core.tests.shared.TmfTestTrace;
 import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
 import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
 import org.eclipse.tracecompass.tmf.tests.stubs.component.TmfEventProviderStub;
 import org.eclipse.tracecompass.tmf.tests.stubs.component.TmfSyntheticEventProviderStub;
 import org.eclipse.tracecompass.tmf.tests.stubs.event.TmfSyntheticEventStub;
@@ -359,4 +371,218 @@ public class TmfEventProviderTest {
         assertEquals("getProviders", 1, eventProviders.length);
     }
 
+
+    // ------------------------------------------------------------------------
+    // Shared scans
+    // ------------------------------------------------------------------------
+
+    private static final int NB_TRACE_EVENTS = 10000;
+    private static final int JOIN_RANK = 100;
+
+    /**
+     * Request reading the whole trace, which stops at a given rank until it is
+     * released, so that other requests can be sent while it runs.
+     */
+    private static class BlockingRequest extends TmfEventRequest {
+        private final CountDownLatch fBlocked = new CountDownLatch(1);
+        private final CountDownLatch fReleased = new CountDownLatch(1);
+
+        public BlockingRequest() {
+            super(ITmfEvent.class, TmfTimeRange.ETERNITY, 0, ITmfEventRequest.ALL_DATA, ExecutionType.BACKGROUND);
+        }
+
+        @Override
+        public void handleData(ITmfEvent event) {
+            super.handleData(event);
+            if (getNbRead() == JOIN_RANK) {
+                fBlocked.countDown();
+                try {
+                    fReleased.await();
+                } catch (InterruptedException e) {
+                    fail();
+                }
+            }
+        }
+    }
+
+    /**
+     * Request that collects the timestamps of its events
+     */
+    private static class SharedRequest extends TmfEventRequest implements ITmfSharedScanRequest {
+        private final boolean fOrderIndependent;
+        private final Set<Long> fTimestamps = new HashSet<>();
+        private long fLast = Long.MIN_VALUE;
+        private boolean fOrdered = true;
+
+        public SharedRequest(long index, boolean orderIndependent) {
+            super(ITmfEvent.class, TmfTimeRange.ETERNITY, index, ITmfEventRequest.ALL_DATA, ExecutionType.BACKGROUND);
+            fOrderIndependent = orderIndependent;
+        }
+
+        @Override
+        public void handleData(ITmfEvent event) {
+            super.handleData(event);
+            long ts = event.getTimestamp().getValue();
+            fOrdered &= (ts >= fLast);
+            fLast = ts;
+            fTimestamps.add(ts);
+        }
+
+        @Override
+        public String getConsumerName() {
+            return fOrderIndependent ? "unordered" : "ordered";
+        }
+
+        @Override
+        public boolean isOrderIndependent() {
+            return fOrderIndependent;
+        }
+    }
+
+    private static TmfScanSavings getSavings(ITmfTrace trace, String name) {
+        List<TmfScanSavings> savings = ((TmfEventProvider) trace).getScanSavings();
+        for (TmfScanSavings saving : savings) {
+            if (saving.getConsumerName().equals(name)) {
+                return saving;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Test that an order independent request joins a read in progress, and
+     * receives the events it missed from a catch-up read.
+     *
+     * @throws InterruptedException
+     *             If the test was interrupted
+     */
+    @Test
+    public void testSharedScanCatchUp() throws InterruptedException {
+        ITmfTrace trace = TmfTestTrace.A_TEST_10K.getTrace();
+        try {
+            trace.indexTrace(true);
+            BlockingRequest scan = new BlockingRequest();
+            trace.sendRequest(scan);
+            scan.fBlocked.await();
+
+            SharedRequest late = new SharedRequest(0, true);
+            trace.sendRequest(late);
+            scan.fReleased.countDown();
+
+            scan.waitForCompletion();
+            late.waitForCompletion();
+            assertEquals(NB_TRACE_EVENTS, scan.getNbRead());
+            assertEquals(NB_TRACE_EVENTS, late.getNbRead());
+            assertEquals(NB_TRACE_EVENTS, late.fTimestamps.size());
+            assertFalse(late.fOrdered);
+            assertFalse(late.isCancelled());
+
+            TmfScanSavings savings = getSavings(trace, "unordered");
+            assertNotNull(savings);
+            assertEquals(1, savings.getNbJoins());
+            assertEquals(NB_TRACE_EVENTS - JOIN_RANK, savings.getNbEventsSaved());
+            assertTrue(savings.getNbBytesSaved() > 0);
+        } finally {
+            TmfTestTrace.A_TEST_10K.dispose();
+        }
+    }
+
+    /**
+     * Test that a request joins a read in progress which did not reach its
+     * first event yet, and that one that depends on the order of its events
+     * reads the trace on its own if the read went past its first event.
+     *
+     * @throws InterruptedException
+     *             If the test was interrupted
+     */
+    @Test
+    public void testSharedScanOrdered() throws InterruptedException {
+        ITmfTrace trace = TmfTestTrace.A_TEST_10K.getTrace();
+        try {
+            trace.indexTrace(true);
+            BlockingRequest scan = new BlockingRequest();
+            trace.sendRequest(scan);
+            scan.fBlocked.await();
+
+            SharedRequest ahead = new SharedRequest(NB_TRACE_EVENTS / 2, false);
+            SharedRequest behind = new SharedRequest(0, false);
+            trace.sendRequest(ahead);
+            trace.sendRequest(behind);
+            scan.fReleased.countDown();
+
+            scan.waitForCompletion();
+            ahead.waitForCompletion();
+            behind.waitForCompletion();
+            assertEquals(NB_TRACE_EVENTS / 2, ahead.getNbRead());
+            assertTrue(ahead.fOrdered);
+            assertEquals(NB_TRACE_EVENTS, behind.getNbRead());
+            assertTrue(behind.fOrdered);
+
+            TmfScanSavings savings = getSavings(trace, "ordered");
+            assertNotNull(savings);
+            assertEquals(1, savings.getNbJoins());
+            assertEquals(NB_TRACE_EVENTS / 2, savings.getNbEventsSaved());
+        } finally {
+            TmfTestTrace.A_TEST_10K.dispose();
+        }
+    }
+
+    /**
+     * Request that receives its events in batches, and checks their order
+     */
+    private static class BatchRequest extends TmfEventRequest implements ITmfBatchEventRequest {
+        private int fNbBatches = 0;
+        private int fMaxBatch = 0;
+        private long fLast = Long.MIN_VALUE;
+        private boolean fOrdered = true;
+
+        public BatchRequest(long index, int nbRequested) {
+            super(ITmfEvent.class, TmfTimeRange.ETERNITY, index, nbRequested, ExecutionType.FOREGROUND);
+        }
+
+        @Override
+        public void handleData(ITmfEvent[] events, int nbEvents) {
+            super.handleData(events, nbEvents);
+            fNbBatches++;
+            fMaxBatch = Math.max(fMaxBatch, nbEvents);
+            for (int i = 0; i < nbEvents; i++) {
+                long ts = events[i].getTimestamp().getValue();
+                fOrdered &= (ts > fLast);
+                fLast = ts;
+            }
+        }
+    }
+
+    /**
+     * Test that a request can receive its events in batches no larger than
+     * the batch size of the provider, and gets exactly the requested events.
+     *
+     * @throws InterruptedException
+     *             If the test was interrupted
+     */
+    @Test
+    public void testBatchRequest() throws InterruptedException {
+        ITmfTrace trace = TmfTestTrace.A_TEST_10K.getTrace();
+        try {
+            trace.indexTrace(true);
+            int batchSize = ((TmfEventProvider) trace).getBatchSize();
+            BatchRequest all = new BatchRequest(0, ITmfEventRequest.ALL_DATA);
+            BatchRequest some = new BatchRequest(100, batchSize + 10);
+            trace.sendRequest(all);
+            trace.sendRequest(some);
+            all.waitForCompletion();
+            some.waitForCompletion();
+
+            assertEquals(NB_TRACE_EVENTS, all.getNbRead());
+            assertTrue(all.fOrdered);
+            assertTrue(all.fMaxBatch <= batchSize);
+            assertTrue(all.fNbBatches >= NB_TRACE_EVENTS / batchSize);
+
+            assertEquals(batchSize + 10, some.getNbRead());
+            assertEquals(101 + batchSize + 10 - 1, some.fLast);
+            assertTrue(some.fOrdered);
+        } finally {
+            TmfTestTrace.A_TEST_10K.dispose();
+        }
+    }
 }
@@ -23,6 +23,8 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses({
     TmfCoalescedEventRequestTest.class,
     TmfEventRequestTest.class,
+    TmfPartitionedEventRequestTest.class,
+    TmfRequestExecutorTest.class,
 })
 public class AllTests {
 
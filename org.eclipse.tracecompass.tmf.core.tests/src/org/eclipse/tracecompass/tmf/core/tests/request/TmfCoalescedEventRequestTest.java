@@ -27,9 +27,11 @@ import org.eclipse.core.runtime.FileLocator;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.tracecompass.internal.tmf.core.component.TmfProviderManager;
 import org.eclipse.tracecompass.internal.tmf.core.request.TmfCoalescedEventRequest;
+import org.eclipse.tracecompass.internal.tmf.core.request.TmfSharedScanScheduler;
 import org.eclipse.tracecompass.tmf.core.component.ITmfEventProvider;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
 import org.eclipse.tracecompass.tmf.core.exceptions.TmfTraceException;
+import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest;
 import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest.ExecutionType;
 import org.eclipse.tracecompass.tmf.core.request.TmfEventRequest;
 import org.eclipse.tracecompass.tmf.core.signal.TmfSignal;
@@ -327,6 +329,29 @@ public class TmfCoalescedEventRequestTest {
         assertTrue("isCancelled", subRequest2.isCancelled());
     }
 
+    // ------------------------------------------------------------------------
+    // join
+    // ------------------------------------------------------------------------
+
+    @Test
+    public void testJoinBeforeScanStart() {
+        TmfTimeRange scanRange = new TmfTimeRange(new TmfTimestamp(1000), TmfTimestamp.BIG_CRUNCH);
+        TmfCoalescedEventRequest scan = new TmfCoalescedEventRequest(ITmfEvent.class, scanRange, 0,
+                ITmfEventRequest.ALL_DATA, ExecutionType.FOREGROUND);
+        new TmfSharedScanScheduler(null).scanQueued(scan);
+
+        // The scan did not read any event yet, but it never reads before 1000
+        TmfEventRequest bigBang = new TmfEventRequestStub(ITmfEvent.class, range1, 0, ITmfEventRequest.ALL_DATA, 1);
+        TmfEventRequest before = new TmfEventRequestStub(ITmfEvent.class,
+                new TmfTimeRange(new TmfTimestamp(500), TmfTimestamp.BIG_CRUNCH), 0, ITmfEventRequest.ALL_DATA, 1);
+        TmfEventRequest after = new TmfEventRequestStub(ITmfEvent.class,
+                new TmfTimeRange(new TmfTimestamp(2000), TmfTimestamp.BIG_CRUNCH), 0, ITmfEventRequest.ALL_DATA, 1);
+
+        assertFalse("join", scan.join(bigBang));
+        assertFalse("join", scan.join(before));
+        assertTrue("join", scan.join(after));
+    }
+
     // ------------------------------------------------------------------------
     // Coalescing
     // ------------------------------------------------------------------------
@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.tests.request;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest.ExecutionType;
+import org.eclipse.tracecompass.tmf.core.request.TmfPartitionedEventRequest;
+import org.eclipse.tracecompass.tmf.core.tests.shared.TmfTestTrace;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test suite for the TmfPartitionedEventRequest class.
+ */
+public class TmfPartitionedEventRequestTest {
+
+    private static final int NB_EVENTS = 10000;
+    private static final int NB_PARTITIONS = 4;
+
+    private ITmfTrace fTrace;
+
+    /**
+     * Request collecting the timestamps of the events of each partition
+     */
+    private static class TimestampsRequest extends TmfPartitionedEventRequest<Set<Long>> {
+
+        private final Set<Long> fTimestamps = new HashSet<>();
+        private int fNbPartitions = 0;
+        private boolean fOverlap = false;
+
+        public TimestampsRequest(TmfTimeRange range) {
+            super(ITmfEvent.class, range, ExecutionType.BACKGROUND);
+        }
+
+        @Override
+        public int getMaxPartitions() {
+            return NB_PARTITIONS;
+        }
+
+        @Override
+        protected Set<Long> createPartition() {
+            return new HashSet<>();
+        }
+
+        @Override
+        protected void handleData(Set<Long> partition, ITmfEvent event) {
+            partition.add(event.getTimestamp().getValue());
+        }
+
+        @Override
+        protected void merge(List<Set<Long>> partitions) {
+            fNbPartitions = partitions.size();
+            for (Set<Long> partition : partitions) {
+                for (Long ts : partition) {
+                    fOverlap |= !fTimestamps.add(ts);
+                }
+            }
+        }
+    }
+
+    /**
+     * Initialization
+     */
+    @Before
+    public void setUp() {
+        fTrace = TmfTestTrace.A_TEST_10K.getTrace();
+        fTrace.indexTrace(true);
+    }
+
+    /**
+     * Cleanup
+     */
+    @After
+    public void tearDown() {
+        TmfTestTrace.A_TEST_10K.dispose();
+    }
+
+    /**
+     * Test that the partitions of a request read the whole trace once
+     *
+     * @throws InterruptedException
+     *             If the test was interrupted
+     */
+    @Test
+    public void testWholeTrace() throws InterruptedException {
+        TimestampsRequest request = new TimestampsRequest(TmfTimeRange.ETERNITY);
+        fTrace.sendRequest(request);
+        request.waitForCompletion();
+
+        assertFalse(request.isCancelled());
+        assertEquals(NB_PARTITIONS, request.fNbPartitions);
+        assertFalse(request.fOverlap);
+        assertEquals(NB_EVENTS, request.fTimestamps.size());
+        for (long i = 1; i <= NB_EVENTS; i++) {
+            assertTrue(request.fTimestamps.contains(i));
+        }
+    }
+
+    /**
+     * Test that the partitions only read the events of the time range of the
+     * request
+     *
+     * @throws InterruptedException
+     *             If the test was interrupted
+     */
+    @Test
+    public void testTimeRange() throws InterruptedException {
+        TmfTimeRange range = new TmfTimeRange(new TmfTimestamp(1000, (byte) -3), new TmfTimestamp(2000, (byte) -3));
+        TimestampsRequest request = new TimestampsRequest(range);
+        fTrace.sendRequest(request);
+        request.waitForCompletion();
+
+        assertFalse(request.isCancelled());
+        assertFalse(request.fOverlap);
+        assertEquals(1001, request.fTimestamps.size());
+        for (long i = 1000; i <= 2000; i++) {
+            assertTrue(request.fTimestamps.contains(i));
+        }
+    }
+
+    /**
+     * Test that cancelling the request cancels its partitions, and that it
+     * does not merge them
+     *
+     * @throws InterruptedException
+     *             If the test was interrupted
+     */
+    @Test
+    public void testCancel() throws InterruptedException {
+        TimestampsRequest request = new TimestampsRequest(TmfTimeRange.ETERNITY) {
+            @Override
+            protected void handleData(Set<Long> partition, ITmfEvent event) {
+                super.handleData(partition, event);
+                if (partition.size() == 10) {
+                    cancel();
+                }
+            }
+        };
+        fTrace.sendRequest(request);
+        request.waitForCompletion();
+
+        assertTrue(request.isCancelled());
+        assertEquals(0, request.fNbPartitions);
+    }
+}
@@ -0,0 +1,278 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.tests.request;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.tracecompass.internal.tmf.core.component.TmfEventThread;
+import org.eclipse.tracecompass.internal.tmf.core.request.TmfRequestExecutor;
+import org.eclipse.tracecompass.tmf.core.component.TmfEventProvider;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest;
+import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest.ExecutionType;
+import org.eclipse.tracecompass.tmf.core.request.TmfEventRequest;
+import org.eclipse.tracecompass.tmf.core.tests.shared.TmfTestTrace;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test suite for the TmfRequestExecutor class.
+ */
+public class TmfRequestExecutorTest {
+
+    private static final int NB_EVENTS = 100;
+
+    private TmfEventProvider fProvider;
+    private TmfRequestExecutor fExecutor;
+
+    /**
+     * Request reading a few events, which waits on its first event until it
+     * is released
+     */
+    private static class BlockingRequest extends TmfEventRequest {
+        private final CountDownLatch fStarted = new CountDownLatch(1);
+        private final CountDownLatch fReleased;
+
+        public BlockingRequest(ExecutionType type, CountDownLatch released) {
+            super(ITmfEvent.class, TmfTimeRange.ETERNITY, 0, NB_EVENTS, type);
+            fReleased = released;
+        }
+
+        @Override
+        public void handleData(ITmfEvent event) {
+            super.handleData(event);
+            if (getNbRead() == 1) {
+                fStarted.countDown();
+                try {
+                    fReleased.await();
+                } catch (InterruptedException e) {
+                    fail();
+                }
+            }
+        }
+    }
+
+    /**
+     * Background request reading all the events slowly, until it is cancelled
+     */
+    private static class SlowRequest extends TmfEventRequest {
+        public SlowRequest() {
+            super(ITmfEvent.class, TmfTimeRange.ETERNITY, 0, ITmfEventRequest.ALL_DATA, ExecutionType.BACKGROUND);
+        }
+
+        @Override
+        public void handleData(ITmfEvent event) {
+            super.handleData(event);
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                fail();
+            }
+        }
+    }
+
+    /**
+     * Initialization
+     */
+    @Before
+    public void setUp() {
+        fProvider = (TmfEventProvider) TmfTestTrace.A_TEST_10K.getTrace();
+        fExecutor = new TmfRequestExecutor();
+    }
+
+    /**
+     * Cleanup
+     */
+    @After
+    public void tearDown() {
+        fExecutor.stop();
+        TmfTestTrace.A_TEST_10K.dispose();
+    }
+
+    private BlockingRequest execute(ExecutionType type, CountDownLatch released) {
+        BlockingRequest request = new BlockingRequest(type, released);
+        fExecutor.execute(new TmfEventThread(fProvider, request));
+        return request;
+    }
+
+    /**
+     * Test that the background requests run concurrently, but leave a thread
+     * to the foreground requests.
+     *
+     * @throws InterruptedException
+     *             If the test was interrupted
+     */
+    @Test
+    public void testForegroundNotBlocked() throws InterruptedException {
+        int nbBackground = TmfRequestExecutor.getParallelism() - 1;
+        CountDownLatch released = new CountDownLatch(1);
+        List<BlockingRequest> background = new ArrayList<>();
+        try {
+            for (int i = 0; i < nbBackground; i++) {
+                background.add(execute(ExecutionType.BACKGROUND, released));
+            }
+            for (BlockingRequest request : background) {
+                assertTrue(request.fStarted.await(10, TimeUnit.SECONDS));
+            }
+            assertEquals(nbBackground, fExecutor.getNbRunning());
+
+            /* No more background request can start */
+            BlockingRequest queued = execute(ExecutionType.BACKGROUND, released);
+            assertEquals(1, fExecutor.getNbQueued(ExecutionType.BACKGROUND));
+            background.add(queued);
+
+            /* A foreground request still runs */
+            BlockingRequest foreground = execute(ExecutionType.FOREGROUND, new CountDownLatch(0));
+            foreground.waitForCompletion();
+            assertEquals(NB_EVENTS, foreground.getNbRead());
+            assertFalse(queued.isCompleted());
+            assertEquals(1, fExecutor.getNbQueued(ExecutionType.BACKGROUND));
+        } finally {
+            released.countDown();
+        }
+        for (BlockingRequest request : background) {
+            request.waitForCompletion();
+            assertEquals(NB_EVENTS, request.getNbRead());
+        }
+        assertEquals(0, fExecutor.getNbQueued(ExecutionType.BACKGROUND));
+        assertEquals(0, fExecutor.getNbQueued(ExecutionType.FOREGROUND));
+        assertTrue(fExecutor.getMaxWaitTime(ExecutionType.BACKGROUND, TimeUnit.NANOSECONDS) > 0);
+        assertTrue(fExecutor.getAverageWaitTime(ExecutionType.BACKGROUND, TimeUnit.NANOSECONDS)
+                <= fExecutor.getMaxWaitTime(ExecutionType.BACKGROUND, TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * Test that an executor with no running request can start one, even when
+     * the background requests of another executor took all the shared slots
+     *
+     * @throws InterruptedException
+     *             If the test was interrupted
+     */
+    @Test
+    public void testOneRequestPerExecutor() throws InterruptedException {
+        int nbBackground = TmfRequestExecutor.getParallelism() - 1;
+        CountDownLatch released = new CountDownLatch(1);
+        List<BlockingRequest> background = new ArrayList<>();
+        TmfRequestExecutor other = new TmfRequestExecutor();
+        try {
+            for (int i = 0; i < nbBackground; i++) {
+                background.add(execute(ExecutionType.BACKGROUND, released));
+            }
+            for (BlockingRequest request : background) {
+                assertTrue(request.fStarted.await(10, TimeUnit.SECONDS));
+            }
+
+            /* The other executor still runs one request, but only one */
+            BlockingRequest first = new BlockingRequest(ExecutionType.BACKGROUND, released);
+            BlockingRequest second = new BlockingRequest(ExecutionType.BACKGROUND, released);
+            other.execute(new TmfEventThread(fProvider, first));
+            other.execute(new TmfEventThread(fProvider, second));
+            background.add(first);
+            background.add(second);
+            assertTrue(first.fStarted.await(10, TimeUnit.SECONDS));
+            assertEquals(1, other.getNbRunning());
+            assertEquals(1, other.getNbQueued(ExecutionType.BACKGROUND));
+        } finally {
+            released.countDown();
+        }
+        for (BlockingRequest request : background) {
+            request.waitForCompletion();
+            assertEquals(NB_EVENTS, request.getNbRead());
+        }
+        other.stop();
+    }
+
+    /**
+     * Test that a short background request does not wait for the long
+     * background requests that took all the background threads before it, and
+     * that the suspended requests do not keep a thread
+     *
+     * @throws InterruptedException
+     *             If the test was interrupted
+     */
+    @Test
+    public void testTimeSlicing() throws InterruptedException {
+        List<SlowRequest> longRequests = new ArrayList<>();
+        for (int i = 0; i < TmfRequestExecutor.getParallelism() - 1; i++) {
+            SlowRequest request = new SlowRequest();
+            longRequests.add(request);
+            fExecutor.execute(new TmfEventThread(fProvider, request));
+        }
+        try {
+            BlockingRequest shortRequest = execute(ExecutionType.BACKGROUND, new CountDownLatch(0));
+            assertTrue(shortRequest.fStarted.await(10, TimeUnit.SECONDS));
+            shortRequest.waitForCompletion();
+            assertEquals(NB_EVENTS, shortRequest.getNbRead());
+            for (SlowRequest request : longRequests) {
+                assertFalse(request.isCompleted());
+            }
+            assertTrue(fExecutor.getNbSuspended() > 0);
+
+            /* The suspended requests released their threads */
+            int nbThreads = 0;
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                if (thread.getName().startsWith("TmfRequestExecutor-")) {
+                    nbThreads++;
+                }
+            }
+            assertTrue(nbThreads <= TmfRequestExecutor.getParallelism());
+        } finally {
+            for (SlowRequest request : longRequests) {
+                request.cancel();
+            }
+        }
+        for (SlowRequest request : longRequests) {
+            request.waitForCompletion();
+            assertTrue(request.isCancelled());
+        }
+    }
+
+    /**
+     * Test that stopping the executor cancels its queued requests
+     *
+     * @throws InterruptedException
+     *             If the test was interrupted
+     */
+    @Test
+    public void testStop() throws InterruptedException {
+        CountDownLatch released = new CountDownLatch(1);
+        List<BlockingRequest> requests = new ArrayList<>();
+        try {
+            for (int i = 0; i < TmfRequestExecutor.getParallelism(); i++) {
+                requests.add(execute(ExecutionType.BACKGROUND, released));
+            }
+            fExecutor.stop();
+            assertTrue(fExecutor.isShutdown());
+            assertEquals(0, fExecutor.getNbQueued(ExecutionType.BACKGROUND));
+
+            BlockingRequest late = execute(ExecutionType.FOREGROUND, released);
+            assertTrue(late.isCancelled());
+        } finally {
+            released.countDown();
+        }
+        for (BlockingRequest request : requests) {
+            request.waitForCompletion();
+            assertTrue(request.isCancelled());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.tests.trace;
+
+import static org.junit.Assert.assertEquals;
+
+import org.eclipse.tracecompass.internal.tmf.core.trace.experiment.TmfExperimentContext;
+import org.eclipse.tracecompass.tmf.core.event.TmfEvent;
+import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
+import org.junit.Test;
+
+/**
+ * Test suite for the ordering of the traces by the
+ * {@link TmfExperimentContext} class.
+ *
+ * @author agent
+ */
+public class TmfExperimentContextTest {
+
+    private static TmfEvent event(long value, int scale) {
+        return new TmfEvent(null, 0, new TmfTimestamp(value, scale), null, null);
+    }
+
+    /**
+     * Test that the timestamps finer than the nanosecond are not merged into
+     * ties, including when the finer scale comes after the coarser ones
+     */
+    @Test
+    public void testSubNanosecondScales() {
+        TmfExperimentContext context = new TmfExperimentContext(3);
+        context.setEvent(0, event(1000, ITmfTimestamp.NANOSECOND_SCALE));
+        context.setEvent(1, event(1, ITmfTimestamp.MICROSECOND_SCALE));
+        assertEquals(0, context.getNextTrace());
+
+        /* 1000.0005 ns, between the two other traces once they advance */
+        context.setEvent(2, event(1000000500, -15));
+        assertEquals(0, context.getNextTrace());
+        context.setEvent(0, event(1001, ITmfTimestamp.NANOSECOND_SCALE));
+        assertEquals(1, context.getNextTrace());
+        context.setEvent(1, event(2, ITmfTimestamp.MICROSECOND_SCALE));
+        assertEquals(2, context.getNextTrace());
+        context.setEvent(2, event(1001000000, -15));
+        assertEquals(0, context.getNextTrace());
+        context.setEvent(0, null);
+        assertEquals(2, context.getNextTrace());
+        context.setEvent(2, null);
+        assertEquals(1, context.getNextTrace());
+        context.setEvent(1, null);
+        assertEquals(TmfExperimentContext.NO_TRACE, context.getNextTrace());
+
+        /* Both at 1000 ns once rounded to the nanosecond */
+        context.setEvent(0, event(1000000700, -15));
+        context.setEvent(1, event(1000000500, -15));
+        assertEquals(1, context.getNextTrace());
+    }
+
+    /**
+     * Test the timestamps that do not fit in the scale of the other traces
+     */
+    @Test
+    public void testOutOfRange() {
+        TmfExperimentContext context = new TmfExperimentContext(3);
+        context.setEvent(0, event(5, ITmfTimestamp.NANOSECOND_SCALE));
+        context.setEvent(1, event(Long.MAX_VALUE / 10, 0));
+        assertEquals(0, context.getNextTrace());
+
+        context.setEvent(2, new TmfEvent(null, 0, TmfTimestamp.BIG_BANG, null, null));
+        assertEquals(2, context.getNextTrace());
+        context.setEvent(2, new TmfEvent(null, 0, TmfTimestamp.BIG_CRUNCH, null, null));
+        assertEquals(0, context.getNextTrace());
+        context.setEvent(0, event(-3, 0));
+        assertEquals(0, context.getNextTrace());
+        context.setEvent(0, null);
+        /* Both clamped to the end: the lowest trace wins */
+        assertEquals(1, context.getNextTrace());
+    }
+}
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.tests.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.tracecompass.common.core.LoserTree;
+import org.junit.Test;
+
+/**
+ * Test case for the {@link LoserTree} class.
+ *
+ * @author agent
+ */
+public class LoserTreeTest {
+
+    /**
+     * Test an empty tree, and a tree without slots
+     */
+    @Test
+    public void testEmpty() {
+        LoserTree tree = new LoserTree(4);
+        assertEquals(4, tree.getCapacity());
+        assertTrue(tree.isEmpty());
+        assertEquals(-1, tree.peek());
+
+        LoserTree noSlots = new LoserTree(0);
+        assertTrue(noSlots.isEmpty());
+        assertEquals(-1, noSlots.peek());
+    }
+
+    /**
+     * Test that peeking the key of an empty tree fails
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testPeekKeyEmpty() {
+        new LoserTree(3).peekKey();
+    }
+
+    /**
+     * Test that equal keys are won by the lowest slot
+     */
+    @Test
+    public void testTies() {
+        LoserTree tree = new LoserTree(5);
+        tree.set(3, 10);
+        tree.set(1, 10);
+        tree.set(4, 10);
+        assertEquals(1, tree.peek());
+        tree.set(1, 11);
+        assertEquals(3, tree.peek());
+        tree.remove(3);
+        assertEquals(4, tree.peek());
+        assertEquals(10, tree.peekKey());
+    }
+
+    /**
+     * Test changing the key of slots other than the winner, and emptying
+     * slots
+     */
+    @Test
+    public void testSetAndRemove() {
+        LoserTree tree = new LoserTree(3);
+        tree.set(0, 5);
+        tree.set(1, 7);
+        tree.set(2, 9);
+        assertEquals(0, tree.peek());
+        assertEquals(3, tree.size());
+
+        tree.set(2, 1);
+        assertEquals(2, tree.peek());
+        tree.set(1, Long.MIN_VALUE);
+        assertEquals(1, tree.peek());
+        assertEquals(Long.MIN_VALUE, tree.peekKey());
+
+        tree.remove(1);
+        tree.remove(1);
+        assertFalse(tree.contains(1));
+        assertEquals(2, tree.size());
+        assertEquals(2, tree.peek());
+        assertEquals(5, tree.getKey(0));
+
+        tree.clear();
+        assertTrue(tree.isEmpty());
+        assertEquals(-1, tree.peek());
+    }
+
+    /**
+     * Test that merging sorted sources, for several numbers of sources, gives
+     * all the keys in order, lowest source first on equal keys
+     */
+    @Test
+    public void testMerge() {
+        Random random = new Random(42);
+        for (int nbSources = 1; nbSources <= 9; nbSources++) {
+            long[][] sources = new long[nbSources][];
+            List<long[]> expected = new ArrayList<>();
+            for (int i = 0; i < nbSources; i++) {
+                sources[i] = new long[random.nextInt(50)];
+                for (int j = 0; j < sources[i].length; j++) {
+                    sources[i][j] = random.nextInt(100) - 50;
+                }
+                Arrays.sort(sources[i]);
+                for (long key : sources[i]) {
+                    expected.add(new long[] { key, i });
+                }
+            }
+            Collections.sort(expected, new Comparator<long[]>() {
+                @Override
+                public int compare(long[] o1, long[] o2) {
+                    int cmp = Long.compare(o1[0], o2[0]);
+                    return (cmp != 0) ? cmp : Long.compare(o1[1], o2[1]);
+                }
+            });
+
+            LoserTree tree = new LoserTree(nbSources);
+            int[] positions = new int[nbSources];
+            for (int i = 0; i < nbSources; i++) {
+                if (sources[i].length > 0) {
+                    tree.set(i, sources[i][0]);
+                }
+            }
+            for (long[] element : expected) {
+                int winner = tree.peek();
+                assertEquals(element[1], winner);
+                assertEquals(element[0], tree.peekKey());
+                int next = ++positions[winner];
+                if (next < sources[winner].length) {
+                    tree.set(winner, sources[winner][next]);
+                } else {
+                    tree.remove(winner);
+                }
+            }
+            assertTrue(tree.isEmpty());
+            assertEquals(-1, tree.peek());
+        }
+    }
+}
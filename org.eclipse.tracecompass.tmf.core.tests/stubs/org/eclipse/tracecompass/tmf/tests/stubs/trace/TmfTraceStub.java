@@ -338,6 +338,15 @@ public class TmfTraceStub extends TmfTrace implements ITmfPersistentlyIndexable
         return null;
     }
 
+    /*
+     * getNext() is synchronized, so the partitions are read one after the
+     * other, but the requests are still split to test the partitioning.
+     */
+    @Override
+    protected boolean isReadConcurrent() {
+        return true;
+    }
+
     @Override
     public ITmfTimestamp createTimestamp(long ts) {
         return new TmfTimestamp(getTimestampTransform().transform(ts) / 1000000L, ITmfTimestamp.MILLISECOND_SCALE);
@@ -14,15 +14,17 @@
 
 package org.eclipse.tracecompass.internal.tmf.core.component;
 
-import java.util.concurrent.CountDownLatch;
+import java.util.Arrays;
 
 import org.eclipse.tracecompass.internal.tmf.core.Activator;
 import org.eclipse.tracecompass.internal.tmf.core.TmfCoreTracer;
 import org.eclipse.tracecompass.tmf.core.component.ITmfEventProvider;
 import org.eclipse.tracecompass.tmf.core.component.TmfEventProvider;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.request.ITmfBatchEventRequest;
 import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest;
 import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest.ExecutionType;
+import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
 
 /**
@@ -58,16 +60,23 @@ public class TmfEventThread implements Runnable {
      */
     private final TmfEventThread  fThread;
 
-    private volatile CountDownLatch fLatch = new CountDownLatch(1);
-
     /**
      * The thread execution state
      */
     private volatile boolean isCompleted = false;
 
-    /** The flag for suspending a thread */
+    /** The flag for suspending a thread, guarded by this */
     private volatile boolean fIsPaused = false;
 
+    /** Whether the request stopped at a pause point, guarded by this */
+    private boolean fStopped = false;
+
+    /* The reading state, kept when the request stops at a pause point */
+    private ITmfContext fContext = null;
+    private boolean fFirstEventRead = false;
+    private ITmfEvent fEvent = null;
+    private int fNbRead = 0;
+
     // ------------------------------------------------------------------------
     // Constructor
     // ------------------------------------------------------------------------
@@ -158,49 +167,51 @@ public class TmfEventThread implements Runnable {
 
     @Override
     public void run() {
+        runSlice();
+    }
 
-        TmfCoreTracer.traceRequest(fRequest.getRequestId(), "is being serviced by " + fProvider.getName()); //$NON-NLS-1$
+    /**
+     * Process the request, until it completes or until it stops at a pause
+     * point after being suspended. A stopped request releases its thread, and
+     * continues where it stopped when it is run again, once resumed.
+     *
+     * @return true if the request completed, false if it stopped
+     */
+    public boolean runSlice() {
+        if (fContext == null) {
+            TmfCoreTracer.traceRequest(fRequest.getRequestId(), "is being serviced by " + fProvider.getName()); //$NON-NLS-1$
 
-        if (fRequest.isCancelled()) {
-            isCompleted = true;
-            return;
-        }
+            if (fRequest.isCancelled()) {
+                isCompleted = true;
+                return true;
+            }
 
-        // Extract the generic information
-        fRequest.start();
-        int nbRequested = fRequest.getNbRequested();
-        int nbRead = 0;
+            // Extract the generic information
+            fRequest.start();
 
-        // Initialize the execution
-        ITmfContext context = fProvider.armRequest(fRequest);
-        if (context == null) {
-            isCompleted = true;
-            fRequest.cancel();
-            return;
+            // Initialize the execution
+            ITmfContext context = fProvider.armRequest(fRequest);
+            if (context == null) {
+                isCompleted = true;
+                fRequest.cancel();
+                return true;
+            }
+            fContext = context;
         }
 
         try {
-            // Get the ordered events
-            ITmfEvent event = fProvider.getNext(context);
-            TmfCoreTracer.traceRequest(fRequest.getRequestId(), "read first event"); //$NON-NLS-1$
-
-            while (event != null && !fProvider.isCompleted(fRequest, event, nbRead)) {
-
-                TmfCoreTracer.traceEvent(fProvider, fRequest, event);
-                if (fRequest.getDataType().isInstance(event)) {
-                    fRequest.handleData(event);
-                }
-
-                // Pause execution if requested
-                while (fIsPaused) {
-                    CountDownLatch latch = fLatch;
-                    latch.await();
-                }
+            if (!fFirstEventRead) {
+                // Get the ordered events
+                fEvent = fProvider.getNext(fContext);
+                fFirstEventRead = true;
+                TmfCoreTracer.traceRequest(fRequest.getRequestId(), "read first event"); //$NON-NLS-1$
+            }
 
-                // To avoid an unnecessary read passed the last event requested
-                if (++nbRead < nbRequested) {
-                    event = fProvider.getNext(context);
-                }
+            boolean finished = (fRequest instanceof ITmfBatchEventRequest) ?
+                    readBatches((ITmfBatchEventRequest) fRequest) : readEvents();
+            if (!finished) {
+                /* Stopped at a pause point, the state is kept for the next run */
+                return false;
             }
 
             isCompleted = true;
@@ -218,7 +229,87 @@ public class TmfEventThread implements Runnable {
         }
 
         // Cleanup
-        context.dispose();
+        fContext.dispose();
+        return true;
+    }
+
+    /*
+     * Read the events one at a time.
+     *
+     * Returns false if the request stopped at a pause point.
+     */
+    private boolean readEvents() {
+        int nbRequested = fRequest.getNbRequested();
+        while (fEvent != null && !fProvider.isCompleted(fRequest, fEvent, fNbRead)) {
+
+            TmfCoreTracer.traceEvent(fProvider, fRequest, fEvent);
+            if (fRequest.getDataType().isInstance(fEvent)) {
+                fRequest.handleData(fEvent);
+            }
+
+            // To avoid an unnecessary read passed the last event requested
+            if (++fNbRead < nbRequested) {
+                fEvent = fProvider.getNext(fContext);
+            }
+
+            // Pause execution if requested
+            if (pausePoint()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Read the events in batches. The state of the request, and pausing, are
+     * only checked between the batches.
+     *
+     * Returns false if the request stopped at a pause point.
+     */
+    private boolean readBatches(ITmfBatchEventRequest request) {
+        ITmfEvent[] batch = new ITmfEvent[Math.max(1, fProvider.getBatchSize())];
+        Class<? extends ITmfEvent> dataType = request.getDataType();
+
+        while (fEvent != null && !fProvider.isCompleted(request, fEvent, fNbRead)) {
+            int nbRequested = request.getNbRequested();
+            ITmfTimestamp endTime = request.getRange().getEndTime();
+            int nbEvents = 0;
+            do {
+                TmfCoreTracer.traceEvent(fProvider, request, fEvent);
+                if (dataType.isInstance(fEvent)) {
+                    batch[nbEvents++] = fEvent;
+                }
+                // To avoid an unnecessary read passed the last event requested
+                if (++fNbRead >= nbRequested) {
+                    break;
+                }
+                fEvent = fProvider.getNext(fContext);
+            } while (fEvent != null && nbEvents < batch.length && fEvent.getTimestamp().compareTo(endTime) <= 0);
+
+            if (nbEvents > 0) {
+                request.handleData(batch, nbEvents);
+                Arrays.fill(batch, 0, nbEvents, null);
+            }
+
+            // Pause execution if requested
+            if (pausePoint()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Stop if the request is suspended. Nothing of the request may be touched
+     * once it stopped, since another thread can run it again as soon as it is
+     * resumed.
+     */
+    private synchronized boolean pausePoint() {
+        if (fIsPaused) {
+            fStopped = true;
+            return true;
+        }
+        return false;
     }
 
     // ------------------------------------------------------------------------
@@ -226,24 +317,28 @@ public class TmfEventThread implements Runnable {
     // ------------------------------------------------------------------------
 
     /**
-     * Suspend the thread
+     * Suspend the thread. The request stops at its next pause point and
+     * releases its thread.
      */
-    public void suspend() {
+    public synchronized void suspend() {
         fIsPaused = true;
         TmfCoreTracer.traceRequest(fRequest.getRequestId(), "SUSPENDED"); //$NON-NLS-1$
     }
 
     /**
      * Resume the thread
+     *
+     * @return true if the request stopped since it was suspended, and must be
+     *         run again, false if it did not reach a pause point and simply
+     *         goes on
      */
-    public void resume() {
+    public synchronized boolean resume() {
         fIsPaused = false;
-
-        CountDownLatch oldLatch = fLatch;
-        fLatch = new CountDownLatch(1);
-        oldLatch.countDown();
+        boolean stopped = fStopped;
+        fStopped = false;
 
         TmfCoreTracer.traceRequest(fRequest.getRequestId(), "RESUMED"); //$NON-NLS-1$
+        return stopped;
     }
 
     /**
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.tmf.core.request;
+
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest;
+import org.eclipse.tracecompass.tmf.core.request.TmfEventRequest;
+import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
+
+/**
+ * Reads the events that a request missed before it joined a read of the trace
+ * in progress, and completes the request.
+ *
+ * The missed events end at the rank where the request joined. If the request
+ * starts at a time instead of a rank, the rank of its first event is not
+ * known, so the missed events are the ones before the timestamp where the
+ * request joined, then the given number of events at that timestamp.
+ *
+ * @author agent
+ */
+public class TmfCatchUpEventRequest extends TmfEventRequest {
+
+    private final ITmfEventRequest fRequest;
+
+    /** The timestamp where the request joined, null if bounded by rank */
+    private final ITmfTimestamp fJoinTime;
+
+    /** The number of missed events at the join timestamp */
+    private int fNbTiesLeft;
+
+    /**
+     * Catch-up by rank
+     *
+     * @param request
+     *            The request that joined a read in progress
+     * @param joinRank
+     *            The rank of the first event it received from that read
+     */
+    public TmfCatchUpEventRequest(ITmfEventRequest request, long joinRank) {
+        super(request.getDataType(),
+                request.getRange(),
+                request.getIndex(),
+                (int) Math.min(joinRank - request.getIndex(), ITmfEventRequest.ALL_DATA),
+                request.getExecType());
+        fRequest = request;
+        fJoinTime = null;
+        fNbTiesLeft = 0;
+    }
+
+    /**
+     * Catch-up by time
+     *
+     * @param request
+     *            The request that joined a read in progress
+     * @param joinTime
+     *            The timestamp of the first event it received from that read
+     * @param nbTies
+     *            The number of events at that timestamp it missed
+     */
+    public TmfCatchUpEventRequest(ITmfEventRequest request, ITmfTimestamp joinTime, int nbTies) {
+        super(request.getDataType(),
+                new TmfTimeRange(request.getRange().getStartTime(), joinTime),
+                0,
+                ITmfEventRequest.ALL_DATA,
+                request.getExecType());
+        fRequest = request;
+        fJoinTime = joinTime;
+        fNbTiesLeft = nbTies;
+    }
+
+    /**
+     * @return The request that is caught up
+     */
+    public ITmfEventRequest getRequest() {
+        return fRequest;
+    }
+
+    @Override
+    public void handleData(ITmfEvent event) {
+        super.handleData(event);
+        ITmfTimestamp ts = event.getTimestamp();
+        if (fJoinTime != null) {
+            int cmp = ts.compareTo(fJoinTime);
+            if (cmp > 0) {
+                return;
+            }
+            if (cmp == 0) {
+                if (fNbTiesLeft <= 0) {
+                    return;
+                }
+                fNbTiesLeft--;
+            }
+        }
+        if (!fRequest.isCompleted() && fRequest.getRange().contains(ts)) {
+            fRequest.handleData(event);
+        }
+    }
+
+    @Override
+    public void handleSuccess() {
+        super.handleSuccess();
+        fRequest.done();
+    }
+
+    @Override
+    public void handleFailure() {
+        super.handleFailure();
+        fRequest.fail();
+    }
+
+    @Override
+    public void handleCancel() {
+        super.handleCancel();
+        fRequest.cancel();
+    }
+}
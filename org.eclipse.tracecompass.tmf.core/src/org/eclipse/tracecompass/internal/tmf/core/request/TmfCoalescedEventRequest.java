@@ -17,30 +17,36 @@ package org.eclipse.tracecompass.internal.tmf.core.request;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.eclipse.tracecompass.internal.tmf.core.TmfCoreTracer;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.request.ITmfBatchEventRequest;
 import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest;
+import org.eclipse.tracecompass.tmf.core.request.ITmfSharedScanRequest;
 import org.eclipse.tracecompass.tmf.core.request.TmfEventRequest;
 import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
 import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
 
 /**
  * The TMF coalesced event request
  *
  * @author Francois Chouinard
  */
-public class TmfCoalescedEventRequest extends TmfEventRequest {
+public class TmfCoalescedEventRequest extends TmfEventRequest implements ITmfBatchEventRequest {
 
     // ------------------------------------------------------------------------
     // Attributes
     // ------------------------------------------------------------------------
 
     /** The list of coalesced requests */
-    private final List<ITmfEventRequest> fRequests = new ArrayList<>();
+    private final List<ITmfEventRequest> fRequests = new CopyOnWriteArrayList<>();
 
     /**
      * We do not use super.fRange, because in the case of coalesced requests,
@@ -53,6 +59,35 @@ public class TmfCoalescedEventRequest extends TmfEventRequest {
      */
     private Map<String, Set<ITmfEventRequest>> fRequestsCache = new HashMap<>();
 
+    /**
+     * The scheduler sharing this request with the requests sent while it
+     * runs, null if it was not queued through a scheduler.
+     */
+    private volatile TmfSharedScanScheduler fScheduler = null;
+
+    /** The requests that joined and are not dispatched events yet */
+    private final List<ITmfEventRequest> fPendingJoins = new ArrayList<>();
+    private volatile boolean fHasPendingJoins = false;
+
+    /** No request can join once the request is done */
+    private boolean fClosed = false;
+
+    /** The number of events each joined request had read when it joined */
+    private final Map<ITmfEventRequest, Integer> fJoined = new LinkedHashMap<>();
+
+    /** The catch-up requests of the joined requests that missed events */
+    private final List<TmfCatchUpEventRequest> fCatchUps = new ArrayList<>();
+
+    /*
+     * The position of the read, written by the event thread and read by the
+     * threads sending requests: the rank of the next event, or -1 before the
+     * first one, the timestamp of the last event, and the number of events
+     * read at that timestamp.
+     */
+    private volatile long fNextRank = -1;
+    private volatile ITmfTimestamp fLastTime = null;
+    private int fNbLastTime = 0;
+
     // ------------------------------------------------------------------------
     // Constructor
     // ------------------------------------------------------------------------
@@ -184,6 +219,171 @@ public class TmfCoalescedEventRequest extends TmfEventRequest {
         }
     }
 
+    // ------------------------------------------------------------------------
+    // Shared scans
+    // ------------------------------------------------------------------------
+
+    /**
+     * Set the scheduler that lets requests join this one while it runs
+     *
+     * @param scheduler
+     *            The shared scan scheduler
+     */
+    void setScheduler(TmfSharedScanScheduler scheduler) {
+        fScheduler = scheduler;
+    }
+
+    /**
+     * Have a request join this one while it runs. The request receives the
+     * events from the next one that is read. It can only join if this request
+     * reads until the end of its range, and if it did not read any event of
+     * the joining request yet, unless the joining request is
+     * {@link ITmfSharedScanRequest#isOrderIndependent() order independent}.
+     *
+     * @param request
+     *            The request to join
+     * @return true if the request joined
+     */
+    public synchronized boolean join(ITmfEventRequest request) {
+        if (fClosed || super.isCompleted() || fScheduler == null) {
+            return false;
+        }
+        if (request.getExecType() != getExecType() ||
+                fNbRequested != ITmfEventRequest.ALL_DATA ||
+                fRange.getEndTime().compareTo(request.getRange().getEndTime()) < 0) {
+            return false;
+        }
+        if (isOrderIndependent(request)) {
+            /* The catch-up cannot be limited to a number of events */
+            if (request.getNbRequested() != ITmfEventRequest.ALL_DATA) {
+                return false;
+            }
+        } else if (hasMissedEvents(request)) {
+            return false;
+        }
+        fPendingJoins.add(request);
+        fHasPendingJoins = true;
+        return true;
+    }
+
+    private static boolean isOrderIndependent(ITmfEventRequest request) {
+        return (request instanceof ITmfSharedScanRequest) &&
+                ((ITmfSharedScanRequest) request).isOrderIndependent();
+    }
+
+    /*
+     * Check if this request already read events that a request needs, from the
+     * position of the read before the current event. The range of this
+     * request is not widened when a request joins, so the events before its
+     * start time are never read and count as missed.
+     */
+    private boolean hasMissedEvents(ITmfEventRequest request) {
+        long nextRank = fNextRank;
+        ITmfTimestamp lastTime = fLastTime;
+        ITmfTimestamp startTime = request.getRange().getStartTime();
+        if (startTime.compareTo(fRange.getStartTime()) < 0) {
+            return true;
+        }
+        if (request.getIndex() == 0 && !TmfTimestamp.BIG_BANG.equals(startTime)) {
+            /* The request starts at a time */
+            if (lastTime != null) {
+                return lastTime.compareTo(startTime) >= 0;
+            }
+            /* The events before the start rank of this request are skipped */
+            return getIndex() > 0;
+        }
+        /* The request starts at a rank */
+        return request.getIndex() < (nextRank < 0 ? getIndex() : nextRank);
+    }
+
+    /*
+     * Add the joining requests to the dispatched ones, before dispatching the
+     * event at the given rank. Returns the requests that missed events and
+     * cannot catch up.
+     */
+    private synchronized List<ITmfEventRequest> mergeJoins(ITmfEvent event, long rank) {
+        List<ITmfEventRequest> rejected = new ArrayList<>();
+        for (ITmfEventRequest request : fPendingJoins) {
+            if (hasMissedEvents(request)) {
+                if (!isOrderIndependent(request)) {
+                    rejected.add(request);
+                    continue;
+                }
+                TmfCatchUpEventRequest catchUp;
+                if (request.getIndex() == 0 && !TmfTimestamp.BIG_BANG.equals(request.getRange().getStartTime())) {
+                    ITmfTimestamp ts = event.getTimestamp();
+                    ITmfTimestamp lastTime = fLastTime;
+                    int nbTies = (lastTime != null && lastTime.compareTo(ts) == 0) ? fNbLastTime : 0;
+                    catchUp = new TmfCatchUpEventRequest(request, ts, nbTies);
+                } else {
+                    catchUp = new TmfCatchUpEventRequest(request, rank);
+                }
+                fCatchUps.add(catchUp);
+            }
+            fRequests.add(request);
+            fJoined.put(request, request.getNbRead());
+            if (TmfCoreTracer.isRequestTraced()) {
+                TmfCoreTracer.traceRequest(request.getRequestId(), "JOINED " + getRequestId() + " at rank " + rank); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+            if (!request.isCompleted()) {
+                request.start();
+            }
+        }
+        fPendingJoins.clear();
+        fHasPendingJoins = false;
+        fRequestsCache.clear();
+        return rejected;
+    }
+
+    private synchronized boolean isCatchingUp(ITmfEventRequest request) {
+        for (TmfCatchUpEventRequest catchUp : fCatchUps) {
+            if (catchUp.getRequest() == request) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Close the request to the joins, and hand the remaining work back to the
+     * scheduler: the requests that did not join in time, and the catch-up of
+     * the ones that joined late.
+     */
+    private void finishJoins(boolean catchUp) {
+        TmfSharedScanScheduler scheduler = fScheduler;
+        if (scheduler == null) {
+            return;
+        }
+        List<ITmfEventRequest> pending;
+        Map<ITmfEventRequest, Integer> joined;
+        List<TmfCatchUpEventRequest> catchUps;
+        synchronized (this) {
+            if (fClosed) {
+                return;
+            }
+            fClosed = true;
+            pending = new ArrayList<>(fPendingJoins);
+            fPendingJoins.clear();
+            fHasPendingJoins = false;
+            joined = new LinkedHashMap<>(fJoined);
+            catchUps = new ArrayList<>(fCatchUps);
+        }
+        scheduler.scanFinished(this);
+        for (Map.Entry<ITmfEventRequest, Integer> entry : joined.entrySet()) {
+            scheduler.recordSavings(entry.getKey(), entry.getKey().getNbRead() - entry.getValue());
+        }
+        for (ITmfEventRequest request : pending) {
+            scheduler.redispatch(request);
+        }
+        if (catchUp) {
+            for (TmfCatchUpEventRequest request : catchUps) {
+                if (!request.getRequest().isCompleted()) {
+                    scheduler.catchUp(request);
+                }
+            }
+        }
+    }
+
     /**
      * @return The list of IDs of the sub-requests
      */
@@ -210,6 +410,102 @@ public class TmfCoalescedEventRequest extends TmfEventRequest {
 
         long index = getIndex() + getNbRead() - 1;
 
+        List<ITmfEventRequest> rejected = null;
+        if (fHasPendingJoins) {
+            rejected = mergeJoins(data, index);
+        }
+
+        // dispatch event to relevant requests
+        for (ITmfEventRequest request : getRequests(data)) {
+            long start = request.getIndex();
+            if (!request.isCompleted() && index >= start && request.getNbRead() < request.getNbRequested()) {
+                ITmfTimestamp ts = data.getTimestamp();
+                if (request.getRange().contains(ts)) {
+                    if (request.getDataType().isInstance(data)) {
+                        request.handleData(data);
+                    }
+                }
+            }
+        }
+
+        /* Publish the position of the read for the requests that join */
+        ITmfTimestamp ts = data.getTimestamp();
+        ITmfTimestamp lastTime = fLastTime;
+        fNbLastTime = (lastTime != null && lastTime.compareTo(ts) == 0) ? fNbLastTime + 1 : 1;
+        fLastTime = ts;
+        fNextRank = index + 1;
+
+        redispatch(rejected);
+    }
+
+    @Override
+    public void handleData(ITmfEvent[] events, int nbEvents) {
+        if (nbEvents == 0) {
+            return;
+        }
+        long firstIndex = getIndex() + getNbRead();
+        super.handleData(events, nbEvents);
+
+        List<ITmfEventRequest> rejected = null;
+        if (fHasPendingJoins) {
+            rejected = mergeJoins(events[0], firstIndex);
+        }
+
+        /*
+         * The requests that take batches get the events that are for them at
+         * the end, the others get them one by one, as they are read.
+         */
+        Map<ITmfEventRequest, Batch> batches = new HashMap<>();
+        ITmfTimestamp lastTime = fLastTime;
+        int nbLastTime = fNbLastTime;
+        Set<ITmfEventRequest> requests = null;
+        ITmfTrace lastTrace = null;
+        for (int i = 0; i < nbEvents; i++) {
+            ITmfEvent data = events[i];
+            long index = firstIndex + i;
+            ITmfTimestamp ts = data.getTimestamp();
+            if (requests == null || data.getTrace() != lastTrace) {
+                requests = getRequests(data);
+                lastTrace = data.getTrace();
+            }
+
+            for (ITmfEventRequest request : requests) {
+                if (request instanceof ITmfBatchEventRequest) {
+                    Batch batch = batches.get(request);
+                    if (batch == null) {
+                        batch = new Batch((ITmfBatchEventRequest) request, nbEvents);
+                        batches.put(request, batch);
+                    }
+                    batch.add(data, index);
+                } else if (!request.isCompleted() && index >= request.getIndex() && request.getNbRead() < request.getNbRequested()) {
+                    if (request.getRange().contains(ts)) {
+                        if (request.getDataType().isInstance(data)) {
+                            request.handleData(data);
+                        }
+                    }
+                }
+            }
+
+            nbLastTime = (lastTime != null && lastTime.compareTo(ts) == 0) ? nbLastTime + 1 : 1;
+            lastTime = ts;
+        }
+
+        for (Batch batch : batches.values()) {
+            batch.flush();
+        }
+
+        /* Publish the position of the read for the requests that join */
+        fNbLastTime = nbLastTime;
+        fLastTime = lastTime;
+        fNextRank = firstIndex + nbEvents;
+
+        redispatch(rejected);
+    }
+
+    /*
+     * Get the requests for the events of the trace of a given event.
+     */
+    private Set<ITmfEventRequest> getRequests(ITmfEvent data) {
         String traceName = data.getTrace().getName();
         Set<ITmfEventRequest> requests = fRequestsCache.get(traceName);
 
@@ -223,17 +519,54 @@ public class TmfCoalescedEventRequest extends TmfEventRequest {
             }
             fRequestsCache.put(traceName, requests);
         }
+        return requests;
+    }
 
-        // dispatch event to relevant requests
-        for (ITmfEventRequest request : requests) {
-            long start = request.getIndex();
-            if (!request.isCompleted() && index >= start && request.getNbRead() < request.getNbRequested()) {
-                ITmfTimestamp ts = data.getTimestamp();
-                if (request.getRange().contains(ts)) {
-                    if (request.getDataType().isInstance(data)) {
-                        request.handleData(data);
-                    }
-                }
+    /*
+     * Send again the requests that joined too late, once they can see that
+     * they missed events, so that they read on their own.
+     */
+    private void redispatch(List<ITmfEventRequest> rejected) {
+        TmfSharedScanScheduler scheduler = fScheduler;
+        if (rejected == null || scheduler == null) {
+            return;
+        }
+        for (ITmfEventRequest request : rejected) {
+            scheduler.redispatch(request);
+        }
+    }
+
+    /**
+     * The events of a batch that are for a request that takes batches. The
+     * state of the request is checked once for the batch.
+     */
+    private static class Batch {
+        private final ITmfBatchEventRequest fRequest;
+        private final boolean fCompleted;
+        private final long fStart;
+        private final int fLimit;
+        private final ITmfEvent[] fEvents;
+        private int fNbEvents = 0;
+
+        public Batch(ITmfBatchEventRequest request, int size) {
+            fRequest = request;
+            fCompleted = request.isCompleted();
+            fStart = request.getIndex();
+            fLimit = request.getNbRequested() - request.getNbRead();
+            fEvents = fCompleted ? new ITmfEvent[0] : new ITmfEvent[size];
+        }
+
+        public void add(ITmfEvent event, long index) {
+            if (!fCompleted && index >= fStart && fNbEvents < fLimit &&
+                    fRequest.getRange().contains(event.getTimestamp()) &&
+                    fRequest.getDataType().isInstance(event)) {
+                fEvents[fNbEvents++] = event;
+            }
+        }
+
+        public void flush() {
+            if (fNbEvents > 0) {
+                fRequest.handleData(fEvents, fNbEvents);
             }
         }
     }
@@ -251,11 +584,13 @@ public class TmfCoalescedEventRequest extends TmfEventRequest {
     @Override
     public void done() {
         for (ITmfEventRequest request : fRequests) {
-            if (!request.isCompleted()) {
+            /* The requests that joined late are done after their catch-up */
+            if (!request.isCompleted() && !isCatchingUp(request)) {
                 request.done();
             }
         }
         super.done();
+        finishJoins(true);
     }
 
     @Override
@@ -264,6 +599,7 @@ public class TmfCoalescedEventRequest extends TmfEventRequest {
             request.fail();
         }
         super.fail();
+        finishJoins(false);
     }
 
     @Override
@@ -274,6 +610,7 @@ public class TmfCoalescedEventRequest extends TmfEventRequest {
             }
         }
         super.cancel();
+        finishJoins(false);
     }
 
     @Override
@@ -283,6 +620,11 @@ public class TmfCoalescedEventRequest extends TmfEventRequest {
             return true;
         }
 
+        // The requests joining will be dispatched the next event
+        if (fHasPendingJoins) {
+            return false;
+        }
+
         // Secondly, check if all sub-requests are finished
         if (fRequests.size() > 0) {
             // If all sub requests are completed the coalesced request is
@@ -10,33 +10,72 @@
  *   Francois Chouinard - Initial API and implementation
  *   Francois Chouinard - Added support for pre-emption
  *   Simon Delisle - Added scheduler for requests
+ *   agent - Run the requests concurrently on a shared pool
  *******************************************************************************/
 
 package org.eclipse.tracecompass.internal.tmf.core.request;
 
-import java.util.Queue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Executor;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+import org.eclipse.tracecompass.internal.tmf.core.Activator;
 import org.eclipse.tracecompass.internal.tmf.core.TmfCoreTracer;
 import org.eclipse.tracecompass.internal.tmf.core.component.TmfEventThread;
 import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest.ExecutionType;
 
 /**
- * The request scheduler works with 5 slots with a specific time. It has 4 slots
- * for foreground requests and 1 slot for background requests, and it passes
- * through all the slots (foreground first and background after).
+ * The request executor runs the requests of all the event providers
+ * concurrently. The executors share a number of slots, one per processor, and
+ * a request needs a slot to run. This is a fixed pool of threads driven by a
+ * scheduler of its own, rather than a work-stealing pool: the requests are
+ * long-running tasks that do not fork, and they have to be suspended and
+ * resumed by priority, which a work-stealing pool does not do.
  *
- * Example: if we have one foreground and one background request, the foreground
- * request will be executed four times more often than the background request.
+ * An executor that has no running request can also always start one of its
+ * requests beyond the shared slots, like when each provider had its own
+ * thread. Opening more traces than there are processors therefore does not
+ * make their requests wait for each other. Those requests are not time
+ * sliced nor suspended by the foreground requests, since suspending them
+ * would free no shared slot.
+ *
+ * The requests waiting for a slot are taken by priority: foreground requests
+ * first, then background requests, in the order they were queued. The
+ * background requests can never take the last slot, and a foreground request
+ * that waits for a slot suspends a running background request to take its
+ * slot.
+ *
+ * The background requests are also time sliced: when background requests
+ * wait for a slot, the background requests that ran for a whole slice are
+ * suspended and queued again behind them. A short request therefore does not
+ * wait for the long analyses started before it.
+ *
+ * A suspended request stops at its next pause point and releases its thread.
+ * It is run again, from where it stopped, once it gets a slot back. The pool
+ * therefore has one thread per slot, and its idle threads exit.
+ *
+ * The time slicing runs while an executor is active: it starts with the first
+ * executor and stops with the last one.
+ *
+ * Each executor counts its queued and running requests, the time its
+ * requests waited before running, and the number of times they were
+ * suspended.
  *
  * @author Francois Chouinard
  * @author Simon Delisle
- * @version 1.1
+ * @version 2.0
  */
 public class TmfRequestExecutor implements Executor {
 
@@ -44,28 +83,63 @@ public class TmfRequestExecutor implements Executor {
     // Constants
     // ------------------------------------------------------------------------
 
-    private static final long REQUEST_TIME = 100;
-    private static final int FOREGROUND_SLOT = 4;
+    /** Number of shared slots, for all executors */
+    private static final int PARALLELISM = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    /** One shared slot is kept for the foreground requests */
+    private static final int MAX_BACKGROUND = PARALLELISM - 1;
+
+    /** Time a background request runs before it can be suspended, in ms */
+    private static final long TIME_SLICE = 100;
+
+    /** Time an idle thread of the pool is kept, in seconds */
+    private static final long KEEP_ALIVE = 30;
+
+    private static final ThreadPoolExecutor POOL = createPool();
+
+    private static final Comparator<Task> PRIORITY = new Comparator<Task>() {
+        @Override
+        public int compare(Task o1, Task o2) {
+            if (o1.fForeground != o2.fForeground) {
+                return o1.fForeground ? -1 : 1;
+            }
+            return Long.compare(o1.fSequence, o2.fSequence);
+        }
+    };
+
+    private static final int FOREGROUND = 0;
+    private static final int BACKGROUND = 1;
 
     // ------------------------------------------------------------------------
-    // Attributes
+    // Scheduling state, shared by all the executors and guarded by LOCK
     // ------------------------------------------------------------------------
 
-    // The request executor
-    private final ExecutorService fExecutor = Executors.newCachedThreadPool();
-    private final String fExecutorName;
-
-    // The request queues
-    private final Queue<TmfEventThread> fForegroundTasks = new ArrayBlockingQueue<>(10);
-    private final Queue<TmfEventThread> fBackgroundTasks = new ArrayBlockingQueue<>(10);
+    private static final Object LOCK = new Object();
+    private static final PriorityQueue<Task> PENDING = new PriorityQueue<>(16, PRIORITY);
+    private static final Set<Task> RUNNING = new HashSet<>();
+    private static int sNbRunning = 0;
+    private static int sNbRunningBackground = 0;
+    /* Requests running beyond the shared slots, one per executor at most */
+    private static int sNbRunningExtra = 0;
+    private static long sSequence = 0;
+    private static int sNbExecutors = 0;
+    private static Timer sTimer = null;
 
-    // The tasks
-    private TmfEventThread fActiveTask;
+    // ------------------------------------------------------------------------
+    // Attributes
+    // ------------------------------------------------------------------------
 
-    private Timer fTimer;
-    private TimerTask fTimerTask;
+    private final String fExecutorName;
 
-    private int fForegroundCycle = 0;
+    /* Guarded by LOCK */
+    private boolean fShutdown = false;
+    private final Set<Task> fTasks = new HashSet<>();
+    private final int[] fNbQueued = new int[2];
+    private int fNbRunning = 0;
+    private final long[] fNbStarted = new long[2];
+    private final long[] fTotalWait = new long[2];
+    private final long[] fMaxWait = new long[2];
+    private long fNbSuspended = 0;
 
     // ------------------------------------------------------------------------
     // Constructors
@@ -75,10 +149,15 @@ public class TmfRequestExecutor implements Executor {
      * Default constructor
      */
     public TmfRequestExecutor() {
-        String canonicalName = fExecutor.getClass().getCanonicalName();
+        synchronized (LOCK) {
+            if (sNbExecutors++ == 0) {
+                startTimeSlicing();
+            }
+        }
+        String canonicalName = POOL.getClass().getCanonicalName();
         fExecutorName = canonicalName.substring(canonicalName.lastIndexOf('.') + 1);
         if (TmfCoreTracer.isComponentTraced()) {
-            TmfCoreTracer.trace(fExecutor + " created"); //$NON-NLS-1$
+            TmfCoreTracer.trace(this + " created"); //$NON-NLS-1$
         }
     }
 
@@ -90,209 +169,428 @@ public class TmfRequestExecutor implements Executor {
      * @return the shutdown state (i.e. if it is accepting new requests)
      */
     public boolean isShutdown() {
-        return fExecutor.isShutdown();
+        synchronized (LOCK) {
+            return fShutdown;
+        }
     }
 
     /**
      * @return the termination state
      */
     public boolean isTerminated() {
-        return fExecutor.isTerminated();
+        synchronized (LOCK) {
+            return fShutdown && fTasks.isEmpty();
+        }
     }
 
-    // ------------------------------------------------------------------------
-    // Operations
-    // ------------------------------------------------------------------------
+    /**
+     * Get the number of requests that can run at the same time, for all the
+     * executors, besides the one request each executor can always run
+     *
+     * @return The number of shared slots
+     */
+    public static int getParallelism() {
+        return PARALLELISM;
+    }
 
     /**
-     * Initialize the executor
+     * Get the number of requests of this executor waiting for a thread
+     *
+     * @param type
+     *            The execution type of the requests
+     * @return The number of queued requests of that type
      */
-    public void init() {
-        if (fTimer != null) {
-            return;
+    public int getNbQueued(ExecutionType type) {
+        synchronized (LOCK) {
+            return fNbQueued[index(type)];
         }
-        // Initialize the timer for the schedSwitch
-        fTimerTask = new SchedSwitch();
-        fTimer = new Timer(true);
-        fTimer.schedule(fTimerTask, 0, REQUEST_TIME);
     }
 
+    /**
+     * Get the number of requests of this executor that are running
+     *
+     * @return The number of running requests
+     */
+    public int getNbRunning() {
+        synchronized (LOCK) {
+            return fNbRunning;
+        }
+    }
+
+    /**
+     * Get the average time the requests of this executor waited for a thread
+     *
+     * @param type
+     *            The execution type of the requests
+     * @param unit
+     *            The unit of the returned time
+     * @return The average wait time of the requests of that type that started
+     */
+    public long getAverageWaitTime(ExecutionType type, TimeUnit unit) {
+        synchronized (LOCK) {
+            int i = index(type);
+            if (fNbStarted[i] == 0) {
+                return 0;
+            }
+            return unit.convert(fTotalWait[i] / fNbStarted[i], TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Get the number of times the requests of this executor were suspended, to
+     * let other requests run
+     *
+     * @return The number of suspensions
+     */
+    public long getNbSuspended() {
+        synchronized (LOCK) {
+            return fNbSuspended;
+        }
+    }
+
+    /**
+     * Get the longest time a request of this executor waited for a thread
+     *
+     * @param type
+     *            The execution type of the requests
+     * @param unit
+     *            The unit of the returned time
+     * @return The maximum wait time of the requests of that type that started
+     */
+    public long getMaxWaitTime(ExecutionType type, TimeUnit unit) {
+        synchronized (LOCK) {
+            return unit.convert(fMaxWait[index(type)], TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Operations
+    // ------------------------------------------------------------------------
+
     @Override
-    public synchronized void execute(final Runnable command) {
+    public void execute(final Runnable command) {
 
         // We are expecting MyEventThread:s
         if (!(command instanceof TmfEventThread)) {
-            // TODO: Log an error
+            Activator.logError(this + " cannot execute " + command); //$NON-NLS-1$
             return;
         }
 
-        // Wrap the thread in a MyThread
         TmfEventThread thread = (TmfEventThread) command;
-        TmfEventThread wrapper = new TmfEventThread(thread) {
-            @Override
-            public void run() {
-                try {
-                    command.run();
-                } finally {
-                    scheduleNext();
-                }
+        synchronized (LOCK) {
+            if (fShutdown) {
+                thread.cancel();
+                return;
             }
-        };
-
-        // Add the thread to the appropriate queue
-        ExecutionType priority = thread.getExecType();
+            Task task = new Task(this, thread, sSequence++);
+            fTasks.add(task);
+            fNbQueued[task.fType]++;
+            PENDING.add(task);
+        }
+        dispatch();
+    }
 
-        if (priority == ExecutionType.FOREGROUND) {
-            if (!fForegroundTasks.offer(wrapper)) {
-                wrapper.cancel();
+    /**
+     * Stops the executor. Its queued requests are cancelled, and its running
+     * and suspended requests are cancelled and stop at their next event.
+     */
+    public void stop() {
+        List<Task> tasks;
+        synchronized (LOCK) {
+            if (fShutdown) {
+                return;
             }
-        } else {
-            if (!fBackgroundTasks.offer(wrapper)) {
-                wrapper.cancel();
+            fShutdown = true;
+            if (--sNbExecutors == 0) {
+                sTimer.cancel();
+                sTimer = null;
+            }
+            tasks = new ArrayList<>(fTasks);
+            Iterator<Task> iter = PENDING.iterator();
+            while (iter.hasNext()) {
+                Task task = iter.next();
+                if (task.fExecutor == this) {
+                    iter.remove();
+                    if (task.fStarted) {
+                        /* It must run again to see the cancellation */
+                        task.fThread.cancel();
+                        startTask(task, true);
+                        if (task.fThread.resume()) {
+                            POOL.execute(task);
+                        }
+                    } else {
+                        fNbQueued[task.fType]--;
+                        fTasks.remove(task);
+                    }
+                }
             }
         }
+        for (Task task : tasks) {
+            task.fThread.cancel();
+        }
+        if (TmfCoreTracer.isComponentTraced()) {
+            TmfCoreTracer.trace(this + " terminated"); //$NON-NLS-1$
+        }
     }
 
-    /**
-     * Timer task to trigger scheduleNext()
-     */
-    private class SchedSwitch extends TimerTask {
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
 
-        SchedSwitch() {
-        }
+    private static int index(ExecutionType type) {
+        return (type == ExecutionType.FOREGROUND) ? FOREGROUND : BACKGROUND;
+    }
 
-        @Override
-        public void run() {
-            scheduleNext();
-        }
+    /*
+     * A thread per slot, the number of core threads follows the requests
+     * running beyond the shared slots. A request that is resumed while its
+     * thread is not released yet waits for it in the queue of the pool.
+     */
+    private static ThreadPoolExecutor createPool() {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(PARALLELISM, Integer.MAX_VALUE,
+                KEEP_ALIVE, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    private int fNbThreads = 0;
+
+                    @Override
+                    public synchronized Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "TmfRequestExecutor-" + (fNbThreads++)); //$NON-NLS-1$
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /* Called with LOCK held, when the first executor is created */
+    private static void startTimeSlicing() {
+        sTimer = new Timer("TmfRequestExecutor time slicer", true); //$NON-NLS-1$
+        sTimer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                timeSlice();
+            }
+        }, TIME_SLICE, TIME_SLICE);
     }
 
     /**
-     * Executes the next pending request, if applicable.
+     * Start or resume the pending requests, by priority, while there are
+     * slots for them. A waiting foreground request suspends a running
+     * background request if needed. Then, the executors that have no running
+     * request start their first pending one beyond the shared slots.
      */
-    protected synchronized void scheduleNext() {
-        if (!isShutdown()) {
-            if (fActiveTask == null) {
-                schedule();
-            } else if (fActiveTask.getExecType() == ExecutionType.FOREGROUND) {
-                if (fActiveTask.getThread().isCompleted()) {
-                    fActiveTask = null;
-                    schedule();
-                } else {
-                    if (hasTasks()) {
-                        fActiveTask.getThread().suspend();
-                        if (!fForegroundTasks.offer(fActiveTask)) {
-                            fActiveTask.cancel();
-                            fActiveTask = null;
-                        }
-                        schedule();
+    private static void dispatch() {
+        List<Task> toRun = new ArrayList<>();
+        synchronized (LOCK) {
+            while (!PENDING.isEmpty()) {
+                Task task = PENDING.peek();
+                if (sNbRunning >= PARALLELISM) {
+                    Task background = task.fForeground ? longestRunningBackground(0) : null;
+                    if (background == null) {
+                        break;
                     }
+                    suspendTask(background);
+                    continue;
                 }
+                /* The queue is sorted, no foreground request is waiting */
+                if (!task.fForeground && sNbRunningBackground >= MAX_BACKGROUND) {
+                    break;
+                }
+                PENDING.poll();
+                startTask(task, false);
+                runTask(task, toRun);
+            }
 
-            } else if (fActiveTask.getExecType() == ExecutionType.BACKGROUND) {
-                if (fActiveTask.getThread().isCompleted()) {
-                    fActiveTask = null;
-                    schedule();
-                } else {
-                    if (hasTasks()) {
-                        fActiveTask.getThread().suspend();
-                        if (!fBackgroundTasks.offer(fActiveTask)) {
-                            fActiveTask.cancel();
-                            fActiveTask = null;
-                        }
-                        schedule();
+            if (!PENDING.isEmpty()) {
+                List<Task> waiting = new ArrayList<>(PENDING);
+                Collections.sort(waiting, PRIORITY);
+                for (Task task : waiting) {
+                    if (task.fExecutor.fNbRunning == 0) {
+                        PENDING.remove(task);
+                        startTask(task, true);
+                        runTask(task, toRun);
                     }
                 }
             }
         }
+        for (Task task : toRun) {
+            POOL.execute(task);
+        }
     }
 
-    /**
-     * Stops the executor
-     */
-    public synchronized void stop() {
-        if (fTimerTask != null) {
-            fTimerTask.cancel();
+    /* Called with LOCK held */
+    private static void runTask(Task task, List<Task> toRun) {
+        /* A resumed request that did not stop yet goes on in its thread */
+        if (!task.fResumed || task.fThread.resume()) {
+            toRun.add(task);
         }
+    }
 
-        if (fTimer != null) {
-            fTimer.cancel();
+    /**
+     * Suspend the background requests that ran for a whole slice while other
+     * background requests wait for a slot
+     */
+    private static void timeSlice() {
+        boolean suspended = false;
+        synchronized (LOCK) {
+            int nbWaiting = 0;
+            for (Task task : PENDING) {
+                if (!task.fForeground) {
+                    nbWaiting++;
+                }
+            }
+            long minSlice = TimeUnit.MILLISECONDS.toNanos(TIME_SLICE);
+            while (nbWaiting > 0) {
+                Task background = longestRunningBackground(minSlice);
+                if (background == null) {
+                    break;
+                }
+                suspendTask(background);
+                suspended = true;
+                nbWaiting--;
+            }
         }
-
-        if (fActiveTask != null) {
-            fActiveTask.cancel();
+        if (suspended) {
+            dispatch();
         }
+    }
 
-        while ((fActiveTask = fForegroundTasks.poll()) != null) {
-            fActiveTask.cancel();
-        }
-        while ((fActiveTask = fBackgroundTasks.poll()) != null) {
-            fActiveTask.cancel();
+    /* Called with LOCK held */
+    private static Task longestRunningBackground(long minSlice) {
+        long now = System.nanoTime();
+        Task longest = null;
+        for (Task task : RUNNING) {
+            if (!task.fForeground && !task.fExtra && now - task.fSliceStart >= minSlice &&
+                    (longest == null || task.fSliceStart < longest.fSliceStart)) {
+                longest = task;
+            }
         }
+        return longest;
+    }
 
-        fExecutor.shutdown();
-        if (TmfCoreTracer.isComponentTraced()) {
-            TmfCoreTracer.trace(fExecutor + " terminated"); //$NON-NLS-1$
+    /* Called with LOCK held */
+    private static void startTask(Task task, boolean extra) {
+        task.fExtra = extra;
+        if (extra) {
+            sNbRunningExtra++;
+            updatePoolSize();
+        } else {
+            sNbRunning++;
+            if (!task.fForeground) {
+                sNbRunningBackground++;
+            }
         }
+        RUNNING.add(task);
+        task.fResumed = task.fStarted;
+        task.fStarted = true;
+        task.fSliceStart = System.nanoTime();
+        task.fExecutor.taskStarted(task);
     }
 
-    // ------------------------------------------------------------------------
-    // Helper methods
-    // ------------------------------------------------------------------------
+    /* Called with LOCK held */
+    private static void updatePoolSize() {
+        POOL.setCorePoolSize(PARALLELISM + sNbRunningExtra);
+    }
 
-    /**
-     * Determine which type of request (foreground or background) we schedule
-     * next
+    /*
+     * Called with LOCK held, so that the request is not resumed before it is
+     * suspended. Only the requests in the shared slots are suspended. It is queued again behind the others, and releases its
+     * thread at its next pause point.
      */
-    private void schedule() {
-        if (!fForegroundTasks.isEmpty()) {
-            scheduleNextForeground();
-        } else {
-            scheduleNextBackground();
-        }
+    private static void suspendTask(Task task) {
+        task.fThread.suspend();
+        sNbRunning--;
+        sNbRunningBackground--;
+        RUNNING.remove(task);
+        task.fSequence = sSequence++;
+        PENDING.add(task);
+        TmfRequestExecutor executor = task.fExecutor;
+        executor.fNbRunning--;
+        executor.fNbQueued[task.fType]++;
+        executor.fNbSuspended++;
     }
 
-    /**
-     * Schedule the next foreground request
-     */
-    private void scheduleNextForeground() {
-        if (fForegroundCycle < FOREGROUND_SLOT || fBackgroundTasks.isEmpty()) {
-            ++fForegroundCycle;
-            fActiveTask = fForegroundTasks.poll();
-            executefActiveTask();
-        } else {
-            fActiveTask = null;
-            scheduleNextBackground();
+    /* Called with LOCK held */
+    private void taskStarted(Task task) {
+        int i = task.fType;
+        fNbQueued[i]--;
+        fNbRunning++;
+        if (task.fResumed) {
+            return;
+        }
+        long wait = System.nanoTime() - task.fQueueTime;
+        fNbStarted[i]++;
+        fTotalWait[i] += wait;
+        fMaxWait[i] = Math.max(fMaxWait[i], wait);
+        if (TmfCoreTracer.isRequestTraced()) {
+            TmfCoreTracer.traceRequest(task.fThread.getRequest().getRequestId(),
+                    "STARTED after waiting " + TimeUnit.NANOSECONDS.toMillis(wait) + " ms"); //$NON-NLS-1$ //$NON-NLS-2$
         }
     }
 
-    /**
-     * Schedule the next background request
-     */
-    private void scheduleNextBackground() {
-        fForegroundCycle = 0;
-        if (!fBackgroundTasks.isEmpty()) {
-            fActiveTask = fBackgroundTasks.poll();
-            executefActiveTask();
+    private static void taskDone(Task task) {
+        synchronized (LOCK) {
+            if (RUNNING.remove(task)) {
+                if (task.fExtra) {
+                    sNbRunningExtra--;
+                    updatePoolSize();
+                } else {
+                    sNbRunning--;
+                    if (!task.fForeground) {
+                        sNbRunningBackground--;
+                    }
+                }
+                task.fExecutor.fNbRunning--;
+            } else {
+                /* Suspended, but it completed before reaching a pause */
+                PENDING.remove(task);
+                task.fExecutor.fNbQueued[task.fType]--;
+            }
+            task.fExecutor.fTasks.remove(task);
         }
+        dispatch();
     }
 
     /**
-     * Execute or resume the active task
+     * A request waiting for a slot, running, or suspended. It is run once per
+     * slot it gets, until it completes.
      */
-    private void executefActiveTask() {
-        if (fActiveTask.getThread().isPaused()) {
-            fActiveTask.getThread().resume();
-        } else {
-            fExecutor.execute(fActiveTask);
+    private static final class Task implements Runnable {
+
+        private final TmfRequestExecutor fExecutor;
+        private final TmfEventThread fThread;
+        private final boolean fForeground;
+        private final int fType;
+        private final long fQueueTime;
+
+        /* Guarded by LOCK */
+        private long fSequence;
+        private long fSliceStart;
+        private boolean fStarted = false;
+        private boolean fResumed = false;
+        private boolean fExtra = false;
+
+        public Task(TmfRequestExecutor executor, TmfEventThread thread, long sequence) {
+            fExecutor = executor;
+            fThread = thread;
+            fForeground = (thread.getExecType() == ExecutionType.FOREGROUND);
+            fType = fForeground ? FOREGROUND : BACKGROUND;
+            fSequence = sequence;
+            fQueueTime = System.nanoTime();
         }
-    }
 
-    /**
-     * Check if the scheduler has tasks
-     */
-    private boolean hasTasks() {
-        return !(fForegroundTasks.isEmpty() && fBackgroundTasks.isEmpty());
+        @Override
+        public void run() {
+            boolean completed = true;
+            try {
+                completed = fThread.runSlice();
+            } finally {
+                if (completed) {
+                    taskDone(this);
+                }
+            }
+        }
     }
 
     // ------------------------------------------------------------------------
@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.tmf.core.request;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.tracecompass.internal.tmf.core.TmfCoreTracer;
+import org.eclipse.tracecompass.tmf.core.component.TmfEventProvider;
+import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest;
+import org.eclipse.tracecompass.tmf.core.request.ITmfSharedScanRequest;
+import org.eclipse.tracecompass.tmf.core.request.TmfScanSavings;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceManager;
+
+/**
+ * Shares the reads of the trace of an event provider between its requests.
+ *
+ * The provider coalesces the requests that are sent close to each other into
+ * one read of the trace. A request sent once this read is in progress joins
+ * it, instead of starting a new read from the beginning of the trace. If the
+ * read already went past the start of the request, the request only joins if
+ * it does not depend on the order of its events: the events it missed are
+ * then read by a catch-up request, once the shared read is done.
+ *
+ * The scheduler also counts, for each consumer of events, the events it
+ * received from the shared reads.
+ *
+ * @author agent
+ */
+public class TmfSharedScanScheduler {
+
+    private final TmfEventProvider fProvider;
+
+    /** The coalesced requests that were queued and are not done yet */
+    private final List<TmfCoalescedEventRequest> fScans = new ArrayList<>();
+
+    /** Joins and events per consumer name */
+    private final Map<String, long[]> fSavings = new LinkedHashMap<>();
+
+    /**
+     * Constructor
+     *
+     * @param provider
+     *            The event provider whose reads are shared
+     */
+    public TmfSharedScanScheduler(TmfEventProvider provider) {
+        fProvider = provider;
+    }
+
+    /**
+     * Register a coalesced request that was queued for execution, so that the
+     * requests sent while it runs can join it.
+     *
+     * @param scan
+     *            The queued coalesced request
+     */
+    public void scanQueued(TmfCoalescedEventRequest scan) {
+        scan.setScheduler(this);
+        synchronized (fScans) {
+            fScans.add(scan);
+        }
+    }
+
+    /**
+     * Try to have a request join one of the reads in progress
+     *
+     * @param request
+     *            The request to send
+     * @return true if the request joined a read, false if it must be sent
+     *         normally
+     */
+    public boolean join(ITmfEventRequest request) {
+        /* A catch-up must read exactly the events that were missed */
+        if (request instanceof TmfCatchUpEventRequest || request instanceof TmfCoalescedEventRequest) {
+            return false;
+        }
+        synchronized (fScans) {
+            for (TmfCoalescedEventRequest scan : fScans) {
+                if (scan.join(request)) {
+                    if (TmfCoreTracer.isRequestTraced()) {
+                        TmfCoreTracer.traceRequest(request.getRequestId(), "JOINING " + scan.getRequestId()); //$NON-NLS-1$
+                    }
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Unregister a coalesced request that is done. No request can join it
+     * anymore.
+     *
+     * @param scan
+     *            The coalesced request
+     */
+    void scanFinished(TmfCoalescedEventRequest scan) {
+        synchronized (fScans) {
+            fScans.remove(scan);
+        }
+    }
+
+    /**
+     * Send a request that could not join a read after all
+     *
+     * @param request
+     *            The request
+     */
+    void redispatch(ITmfEventRequest request) {
+        fProvider.sendRequest(request);
+    }
+
+    /**
+     * Send the request reading the events that a request missed
+     *
+     * @param catchUp
+     *            The catch-up request
+     */
+    void catchUp(TmfCatchUpEventRequest catchUp) {
+        if (TmfCoreTracer.isRequestTraced()) {
+            TmfCoreTracer.traceRequest(catchUp.getRequest().getRequestId(), "CATCHING UP with " + catchUp.getRequestId()); //$NON-NLS-1$
+        }
+        fProvider.sendRequest(catchUp);
+    }
+
+    /**
+     * Count the events a request received from a read it joined
+     *
+     * @param request
+     *            The request that joined
+     * @param nbEvents
+     *            The number of events it received from the shared read
+     */
+    void recordSavings(ITmfEventRequest request, long nbEvents) {
+        String name = (request instanceof ITmfSharedScanRequest) ?
+                ((ITmfSharedScanRequest) request).getConsumerName() :
+                request.getClass().getName();
+        synchronized (fSavings) {
+            long[] savings = fSavings.get(name);
+            if (savings == null) {
+                savings = new long[2];
+                fSavings.put(name, savings);
+            }
+            savings[0]++;
+            savings[1] += nbEvents;
+        }
+    }
+
+    /**
+     * Get the reads saved by each consumer of events
+     *
+     * @return The savings, in the order the consumers first joined a read
+     */
+    public List<TmfScanSavings> getSavings() {
+        double bytesPerEvent = getBytesPerEvent();
+        List<TmfScanSavings> result = new ArrayList<>();
+        synchronized (fSavings) {
+            for (Map.Entry<String, long[]> entry : fSavings.entrySet()) {
+                long[] savings = entry.getValue();
+                result.add(new TmfScanSavings(entry.getKey(), savings[0], savings[1],
+                        Math.round(savings[1] * bytesPerEvent)));
+            }
+        }
+        return result;
+    }
+
+    /*
+     * The events do not know their size, use the average size of the events
+     * of the trace on disk.
+     */
+    private double getBytesPerEvent() {
+        if (!(fProvider instanceof ITmfTrace)) {
+            return 0;
+        }
+        ITmfTrace trace = (ITmfTrace) fProvider;
+        long nbEvents = trace.getNbEvents();
+        if (nbEvents <= 0) {
+            return 0;
+        }
+        long size = 0;
+        for (ITmfTrace child : TmfTraceManager.getTraceSet(trace)) {
+            String path = child.getPath();
+            if (path != null) {
+                size += getSize(new File(path));
+            }
+        }
+        return (double) size / nbEvents;
+    }
+
+    private static long getSize(File file) {
+        if (file.isFile()) {
+            return file.length();
+        }
+        long size = 0;
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                size += getSize(child);
+            }
+        }
+        return size;
+    }
+}
@@ -15,6 +15,7 @@ package org.eclipse.tracecompass.internal.tmf.core.statesystem.backends.partial;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.PrintWriter;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -275,6 +276,24 @@ public class PartialHistoryBackend implements IStateHistoryBackend {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Range queries are not supported in partial histories, for the same
+     * reason as single queries: the intervals between checkpoints are not
+     * stored.
+     */
+    @Override
+    public List<ITmfStateInterval> doRangeQuery(Collection<Integer> quarks, long t1, long t2) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Multi-timestamp queries are not supported in partial histories either.
+     */
+    @Override
+    public List<ITmfStateInterval> doQuery2D(Collection<Integer> quarks, long[] times) {
+        throw new UnsupportedOperationException();
+    }
+
     private boolean checkValidTime(long t) {
         return (t >= getStartTime() && t <= getEndTime());
     }
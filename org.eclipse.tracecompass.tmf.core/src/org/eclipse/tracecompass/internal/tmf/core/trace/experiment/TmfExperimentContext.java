@@ -15,10 +15,13 @@
 package org.eclipse.tracecompass.internal.tmf.core.trace.experiment;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.common.core.LoserTree;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
 import org.eclipse.tracecompass.tmf.core.trace.TmfContext;
 
@@ -33,6 +36,12 @@ import org.eclipse.tracecompass.tmf.core.trace.TmfContext;
  * <p>
  * The last trace refers to the trace from which the last event was "consumed"
  * at the experiment level.
+ * <p>
+ * The traces are ordered by the timestamp of their next event in a tournament
+ * tree, so that picking the next event only compares log(n) timestamps. The
+ * tree is keyed by the values of the timestamps in the finest scale of the
+ * events, so that no precision is lost. The factor from the scale of each
+ * trace to that scale is kept, so that no timestamp is created per event.
  */
 public final class TmfExperimentContext extends TmfContext {
 
@@ -45,6 +54,12 @@ public final class TmfExperimentContext extends TmfContext {
      */
     public static final int NO_TRACE = -1;
 
+    /* No scale known yet */
+    private static final int NO_SCALE = Integer.MIN_VALUE;
+
+    /* Over this difference of scales, the factor overflows a long */
+    private static final int MAX_SCALE_DIFF = 18;
+
     // ------------------------------------------------------------------------
     // Attributes
     // ------------------------------------------------------------------------
@@ -52,6 +67,13 @@ public final class TmfExperimentContext extends TmfContext {
     private final List<ITmfContext> fContexts;
     private final List<ITmfEvent> fEvents;
     private int fLastTraceRead;
+    private final LoserTree fNextTraces;
+
+    /* The scale of the keys of fNextTraces */
+    private int fKeyScale = NO_SCALE;
+    /* For each trace, the scale of its last event, and its factor to fKeyScale */
+    private final int[] fScales;
+    private final long[] fFactors;
 
     // ------------------------------------------------------------------------
     // Constructors
@@ -68,7 +90,10 @@ public final class TmfExperimentContext extends TmfContext {
         fLastTraceRead = NO_TRACE;
         fContexts = new ArrayList<>(nbTraces);
         fEvents = new ArrayList<>(nbTraces);
-
+        fNextTraces = new LoserTree(nbTraces);
+        fScales = new int[nbTraces];
+        fFactors = new long[nbTraces];
+        Arrays.fill(fScales, NO_SCALE);
 
         /* Initialize the arrays to the requested size */
         for (int i = 0; i < nbTraces; i++) {
@@ -146,6 +171,98 @@ public final class TmfExperimentContext extends TmfContext {
      */
     public void setEvent(int traceIndex, ITmfEvent event) {
         fEvents.set(traceIndex, event);
+        if (event == null) {
+            fNextTraces.remove(traceIndex);
+        } else {
+            fNextTraces.set(traceIndex, getKey(traceIndex, event.getTimestamp()));
+        }
+    }
+
+    /**
+     * Get the index of the trace whose current event is the next one in
+     * chronological order. If several events have the same timestamp, the
+     * trace with the lowest index is picked.
+     *
+     * @return The index of the trace, or {@link #NO_TRACE} if there are no
+     *         more events
+     */
+    public int getNextTrace() {
+        int trace = fNextTraces.peek();
+        return (trace < 0) ? NO_TRACE : trace;
+    }
+
+    /**
+     * Convert a timestamp of a trace to a value in the scale of the keys,
+     * which keeps the order of the timestamps. The values out of the range of
+     * a long are clamped.
+     */
+    private long getKey(int traceIndex, ITmfTimestamp timestamp) {
+        long value = timestamp.getValue();
+        int scale = timestamp.getScale();
+        if (scale == Integer.MAX_VALUE) {
+            /* The big bang or the big crunch */
+            return clamp(value);
+        }
+        if (fKeyScale == NO_SCALE || scale < fKeyScale) {
+            setKeyScale(scale);
+        }
+        if (fScales[traceIndex] != scale) {
+            fScales[traceIndex] = scale;
+            fFactors[traceIndex] = getFactor((long) scale - fKeyScale);
+        }
+        return multiply(value, fFactors[traceIndex]);
+    }
+
+    /**
+     * Use a finer scale for the keys, converting the keys already set
+     */
+    private void setKeyScale(int scale) {
+        if (fKeyScale != NO_SCALE) {
+            long factor = getFactor((long) fKeyScale - scale);
+            for (int i = 0; i < fScales.length; i++) {
+                if (fNextTraces.contains(i)) {
+                    fNextTraces.set(i, multiply(fNextTraces.getKey(i), factor));
+                }
+            }
+        }
+        fKeyScale = scale;
+        Arrays.fill(fScales, NO_SCALE);
+    }
+
+    /**
+     * Get 10 to the power of a difference of scales, or 0 if it does not fit
+     * in a long
+     */
+    private static long getFactor(long scaleDiff) {
+        if (scaleDiff > MAX_SCALE_DIFF) {
+            return 0;
+        }
+        long factor = 1;
+        for (long i = 0; i < scaleDiff; i++) {
+            factor *= 10;
+        }
+        return factor;
+    }
+
+    /**
+     * Multiply a value by a factor, 0 meaning an overflowing factor, clamping
+     * the result
+     */
+    private static long multiply(long value, long factor) {
+        if (factor == 1 || value == 0) {
+            return value;
+        }
+        if (factor == 0 || value > Long.MAX_VALUE / factor || value < Long.MIN_VALUE / factor) {
+            return clamp(value);
+        }
+        return value * factor;
+    }
+
+    private static long clamp(long value) {
+        if (value == 0) {
+            return 0;
+        }
+        return (value < 0) ? Long.MIN_VALUE : Long.MAX_VALUE;
     }
 
     /**
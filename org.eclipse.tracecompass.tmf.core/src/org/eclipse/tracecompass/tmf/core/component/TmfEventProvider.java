@@ -30,10 +30,14 @@ import org.eclipse.tracecompass.internal.tmf.core.component.TmfEventThread;
 import org.eclipse.tracecompass.internal.tmf.core.component.TmfProviderManager;
 import org.eclipse.tracecompass.internal.tmf.core.request.TmfCoalescedEventRequest;
 import org.eclipse.tracecompass.internal.tmf.core.request.TmfRequestExecutor;
+import org.eclipse.tracecompass.internal.tmf.core.request.TmfSharedScanScheduler;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
 import org.eclipse.tracecompass.tmf.core.filter.ITmfFilter;
+import org.eclipse.tracecompass.tmf.core.request.ITmfBatchEventRequest;
 import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest;
 import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest.ExecutionType;
+import org.eclipse.tracecompass.tmf.core.request.TmfPartitionedEventRequest;
+import org.eclipse.tracecompass.tmf.core.request.TmfScanSavings;
 import org.eclipse.tracecompass.tmf.core.signal.TmfEndSynchSignal;
 import org.eclipse.tracecompass.tmf.core.signal.TmfSignalHandler;
 import org.eclipse.tracecompass.tmf.core.signal.TmfStartSynchSignal;
@@ -58,6 +62,13 @@ public abstract class TmfEventProvider extends TmfComponent implements ITmfEvent
     /** Default amount of events per request "chunk" */
     public static final int DEFAULT_BLOCK_SIZE = 50000;
 
+    /**
+     * Default number of events delivered at once to the batch requests
+     *
+     * @since 1.0
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
     /** Delay for coalescing background requests (in milli-seconds) */
     private static final long DELAY = 1000;
 
@@ -73,6 +84,9 @@ public abstract class TmfEventProvider extends TmfComponent implements ITmfEvent
 
     private final TmfRequestExecutor fExecutor;
 
+    /** Lets the requests join the reads of the trace in progress */
+    private final TmfSharedScanScheduler fScanScheduler = new TmfSharedScanScheduler(this);
+
     private final Object fLock = new Object();
 
     private int fSignalDepth = 0;
@@ -132,7 +146,6 @@ public abstract class TmfEventProvider extends TmfComponent implements ITmfEvent
     public void init(String name, Class<? extends ITmfEvent> type) {
         super.init(name);
         fType = type;
-        fExecutor.init();
 
         fSignalDepth = 0;
 
@@ -197,6 +210,16 @@ public abstract class TmfEventProvider extends TmfComponent implements ITmfEvent
                 return;
             }
 
+            /* Share a read in progress rather than starting a new one */
+            if (fScanScheduler.join(request)) {
+                return;
+            }
+
+            if (request instanceof TmfPartitionedEventRequest
+                    && sendPartitioned((TmfPartitionedEventRequest<?>) request)) {
+                return;
+            }
+
             if (request.getExecType() == ExecutionType.FOREGROUND) {
                 if ((fSignalDepth > 0) || (fRequestPendingCounter > 0)) {
                     coalesceEventRequest(request);
@@ -393,6 +416,47 @@ public abstract class TmfEventProvider extends TmfComponent implements ITmfEvent
     // Request processing
     // ------------------------------------------------------------------------
 
+    /**
+     * Split a request whose events can be read in any order, and queue the
+     * requests of its partitions, which run in parallel.
+     *
+     * @param request
+     *            The request
+     * @return true if the request was split, false if it must be read in
+     *         sequence
+     */
+    private boolean sendPartitioned(TmfPartitionedEventRequest<?> request) {
+        long[] ranks = getPartitionRanks(request);
+        if (ranks == null || ranks.length < 2) {
+            return false;
+        }
+        for (ITmfEventRequest partition : request.createPartitionRequests(ranks)) {
+            if (TmfCoreTracer.isRequestTraced()) {
+                TmfCoreTracer.traceRequest(partition.getRequestId(), "PARTITION of " + request.getRequestId()); //$NON-NLS-1$
+            }
+            queueRequest(partition);
+        }
+        return true;
+    }
+
+    /**
+     * Get the ranks at which a request can be split in partitions read in
+     * parallel. The partitions must cover all the events of the request,
+     * without overlapping.
+     *
+     * The default implementation does not split the requests, providers that
+     * can seek quickly to a rank override it.
+     *
+     * @param request
+     *            The request to split
+     * @return The ranks of the first events of the partitions, in increasing
+     *         order, or null to read the request in sequence
+     * @since 1.0
+     */
+    protected long[] getPartitionRanks(TmfPartitionedEventRequest<?> request) {
+        return null;
+    }
+
     /**
      * Queue a request.
      *
@@ -406,6 +470,10 @@ public abstract class TmfEventProvider extends TmfComponent implements ITmfEvent
             return;
         }
 
+        if (request instanceof TmfCoalescedEventRequest) {
+            fScanScheduler.scanQueued((TmfCoalescedEventRequest) request);
+        }
+
         TmfEventThread thread = new TmfEventThread(this, request);
 
         if (TmfCoreTracer.isRequestTraced()) {
@@ -450,6 +518,34 @@ public abstract class TmfEventProvider extends TmfComponent implements ITmfEvent
         return request.isCompleted() || nbRead >= request.getNbRequested();
     }
 
+    /**
+     * Get the number of events delivered at once to the requests that
+     * implement {@link ITmfBatchEventRequest}. Between the events of a batch,
+     * only the number of events and the end of the time range of the request
+     * are checked; {@link #isCompleted(ITmfEventRequest, ITmfEvent, int)} is
+     * checked on the first event of each batch.
+     *
+     * Providers whose events are expensive to keep in memory can return a
+     * smaller size.
+     *
+     * @return The number of events in a batch
+     * @since 1.0
+     */
+    public int getBatchSize() {
+        return DEFAULT_BATCH_SIZE;
+    }
+
+    /**
+     * Get the reads of the trace saved by each consumer of events, by joining
+     * the reads in progress instead of reading the trace again.
+     *
+     * @return The savings of each consumer of events
+     * @since 1.0
+     */
+    public List<TmfScanSavings> getScanSavings() {
+        return fScanScheduler.getSavings();
+    }
+
     // ------------------------------------------------------------------------
     // Pass-through's to the request executor
     // ------------------------------------------------------------------------
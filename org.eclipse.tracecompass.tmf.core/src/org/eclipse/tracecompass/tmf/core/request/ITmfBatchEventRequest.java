@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.request;
+
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+
+/**
+ * An event request that receives its events in batches, instead of one by
+ * one, to save the cost of the dispatching of each event.
+ *
+ * The size of the batches is chosen by the event provider. The state of the
+ * request is checked between the batches: a request that completes while
+ * handling a batch may still be handled the rest of this batch.
+ *
+ * @author agent
+ * @since 1.0
+ */
+public interface ITmfBatchEventRequest extends ITmfEventRequest {
+
+    /**
+     * Handle a batch of events, in order. It replaces the calls to
+     * {@link #handleData(ITmfEvent)} for each event of the batch.
+     *
+     * The array is reused for the next batches, so it must not be kept.
+     *
+     * @param events
+     *            The array of the events, of the data type of the request
+     * @param nbEvents
+     *            The number of events in the array, from its start
+     */
+    void handleData(ITmfEvent[] events, int nbEvents);
+}
@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.request;
+
+/**
+ * An event request that describes how it can share a read of the trace with
+ * the other requests.
+ *
+ * Any request can join a read of the trace that is already in progress, as
+ * long as this read did not go past the first event of the request. A request
+ * that does not depend on the order of its events, like one that counts them,
+ * can also join a read that is further in the trace: it receives the
+ * remaining events from this read, then the events it missed from a shorter
+ * catch-up read.
+ *
+ * @author agent
+ * @since 1.0
+ */
+public interface ITmfSharedScanRequest extends ITmfEventRequest {
+
+    /**
+     * Get the name of the analysis or view that uses this request, under which
+     * the reads saved by sharing are reported.
+     *
+     * @return The name of the consumer of the events
+     */
+    String getConsumerName();
+
+    /**
+     * Tell if this request can receive the events it missed after the others,
+     * in a separate catch-up read. Its events are then not received in
+     * timestamp order, and its sub-range of events ending at the join point
+     * is received last.
+     *
+     * @return true if the request does not depend on the order of its events
+     */
+    boolean isOrderIndependent();
+}
@@ -281,6 +281,22 @@ public abstract class TmfEventRequest implements ITmfEventRequest {
         fNbRead++;
     }
 
+    /**
+     * Handle a batch of events. Counts the events, like
+     * {@link #handleData(ITmfEvent)} for each event. The requests that
+     * implement {@link ITmfBatchEventRequest} override it to process the
+     * events, and call it first.
+     *
+     * @param events
+     *            The array of the events
+     * @param nbEvents
+     *            The number of events in the array, from its start
+     * @since 1.0
+     */
+    public void handleData(ITmfEvent[] events, int nbEvents) {
+        fNbRead += nbEvents;
+    }
+
     @Override
     public void handleStarted() {
         if (TmfCoreTracer.isRequestTraced()) {
@@ -0,0 +1,268 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.request;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
+
+/**
+ * An event request for the analyses whose result does not depend on the order
+ * of the events, like counting events. A trace can split the request in
+ * partitions of its time range, read them in parallel, each with its own
+ * context, and merge their results at the end.
+ *
+ * Each partition accumulates its events in its own partial result, created by
+ * {@link #createPartition()}. Once all the partitions are read,
+ * {@link #merge(List)} combines their partial results, before the request is
+ * done. A provider that cannot split the request reads it in sequence, in a
+ * single partition.
+ *
+ * Typical usage:
+ *
+ * <pre><code>
+ * TmfPartitionedEventRequest&lt;long[]&gt; request = new TmfPartitionedEventRequest&lt;long[]&gt;(ITmfEvent.class, range, ExecutionType.BACKGROUND) {
+ *
+ *     protected long[] createPartition() {
+ *         return new long[1];
+ *     }
+ *
+ *     protected void handleData(long[] partition, ITmfEvent event) {
+ *         partition[0]++;
+ *     }
+ *
+ *     protected void merge(List&lt;long[]&gt; partitions) {
+ *         for (long[] partition : partitions) {
+ *             total += partition[0];
+ *         }
+ *     }
+ * };
+ * </code></pre>
+ *
+ * @param <P>
+ *            The type of the partial result of a partition
+ * @author agent
+ * @since 1.0
+ */
+public abstract class TmfPartitionedEventRequest<P> extends TmfEventRequest implements ITmfBatchEventRequest {
+
+    /* The partial result when the request is read in sequence */
+    private P fSequential = null;
+
+    /* The requests reading the partitions, null if it is read in sequence */
+    private List<PartitionRequest> fPartitions = null;
+    private int fNbRemaining;
+
+    /**
+     * Constructor. The request reads all the events of the time range.
+     *
+     * @param dataType
+     *            The requested data type
+     * @param range
+     *            The time range of the requested events
+     * @param priority
+     *            The requested execution priority
+     */
+    public TmfPartitionedEventRequest(Class<? extends ITmfEvent> dataType,
+            TmfTimeRange range, ExecutionType priority) {
+        super(dataType, range, 0, ITmfEventRequest.ALL_DATA, priority);
+    }
+
+    // ------------------------------------------------------------------------
+    // Operations to implement
+    // ------------------------------------------------------------------------
+
+    /**
+     * Create the partial result of a partition
+     *
+     * @return A new, empty, partial result
+     */
+    protected abstract P createPartition();
+
+    /**
+     * Handle an event of a partition. The partitions are read in parallel,
+     * but the events of a partition are handled in order, by one thread at a
+     * time.
+     *
+     * @param partition
+     *            The partial result of the partition
+     * @param event
+     *            The event
+     */
+    protected abstract void handleData(P partition, ITmfEvent event);
+
+    /**
+     * Merge the partial results of the partitions, once they are all read.
+     * It is called before the request is done, and only if it succeeded.
+     *
+     * @param partitions
+     *            The partial results, in the order of the time ranges of the
+     *            partitions
+     */
+    protected abstract void merge(List<P> partitions);
+
+    /**
+     * Get the maximum number of partitions in which the request can be
+     * split. The default is the number of processors.
+     *
+     * @return The maximum number of partitions
+     */
+    public int getMaxPartitions() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    // ------------------------------------------------------------------------
+    // Partitioning
+    // ------------------------------------------------------------------------
+
+    /**
+     * Split the request in partitions. This is called by the event provider,
+     * which then queues the requests of the partitions instead of this
+     * request.
+     *
+     * @param ranks
+     *            The ranks of the first events of the partitions, in
+     *            increasing order. The last partition reads until the end of
+     *            the time range of the request.
+     * @return The requests reading the partitions
+     */
+    public synchronized List<ITmfEventRequest> createPartitionRequests(long[] ranks) {
+        List<PartitionRequest> partitions = new ArrayList<>();
+        for (int i = 0; i < ranks.length; i++) {
+            int nbRequested = ITmfEventRequest.ALL_DATA;
+            if (i < ranks.length - 1) {
+                nbRequested = (int) Math.min(ranks[i + 1] - ranks[i], ITmfEventRequest.ALL_DATA);
+            }
+            partitions.add(new PartitionRequest(ranks[i], nbRequested));
+        }
+        fPartitions = partitions;
+        fNbRemaining = partitions.size();
+        start();
+        return new ArrayList<ITmfEventRequest>(partitions);
+    }
+
+    private void partitionDone() {
+        List<P> results = new ArrayList<>();
+        boolean failed = false;
+        boolean cancelled = false;
+        synchronized (this) {
+            if (--fNbRemaining > 0 || isCompleted()) {
+                return;
+            }
+            for (PartitionRequest partition : fPartitions) {
+                failed |= partition.isFailed();
+                cancelled |= partition.isCancelled();
+                results.add(partition.fPartition);
+            }
+        }
+        if (failed) {
+            fail();
+        } else if (cancelled) {
+            cancel();
+        } else {
+            merge(results);
+            done();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // TmfEventRequest
+    // ------------------------------------------------------------------------
+
+    @Override
+    public void handleData(ITmfEvent event) {
+        super.handleData(event);
+        handleData(getSequential(), event);
+    }
+
+    @Override
+    public void handleData(ITmfEvent[] events, int nbEvents) {
+        super.handleData(events, nbEvents);
+        P partition = getSequential();
+        for (int i = 0; i < nbEvents; i++) {
+            handleData(partition, events[i]);
+        }
+    }
+
+    private P getSequential() {
+        if (fSequential == null) {
+            fSequential = createPartition();
+        }
+        return fSequential;
+    }
+
+    @Override
+    public void done() {
+        boolean sequential;
+        synchronized (this) {
+            sequential = (fPartitions == null && !isCompleted() && !isCancelled() && !isFailed());
+        }
+        if (sequential) {
+            merge(Collections.singletonList(getSequential()));
+        }
+        super.done();
+    }
+
+    @Override
+    public void cancel() {
+        List<PartitionRequest> partitions;
+        synchronized (this) {
+            partitions = fPartitions;
+        }
+        super.cancel();
+        if (partitions != null) {
+            for (PartitionRequest partition : partitions) {
+                partition.cancel();
+            }
+        }
+    }
+
+    /**
+     * The request reading one partition of the time range
+     */
+    private class PartitionRequest extends TmfEventRequest implements ITmfBatchEventRequest {
+
+        private final P fPartition = createPartition();
+
+        public PartitionRequest(long index, int nbRequested) {
+            super(TmfPartitionedEventRequest.this.getDataType(),
+                    TmfPartitionedEventRequest.this.getRange(),
+                    index, nbRequested,
+                    TmfPartitionedEventRequest.this.getExecType());
+            setProviderFilter(TmfPartitionedEventRequest.this.getProviderFilter());
+        }
+
+        @Override
+        public void handleData(ITmfEvent event) {
+            super.handleData(event);
+            TmfPartitionedEventRequest.this.handleData(fPartition, event);
+        }
+
+        @Override
+        public void handleData(ITmfEvent[] events, int nbEvents) {
+            super.handleData(events, nbEvents);
+            for (int i = 0; i < nbEvents; i++) {
+                TmfPartitionedEventRequest.this.handleData(fPartition, events[i]);
+            }
+        }
+
+        @Override
+        public void handleCompleted() {
+            super.handleCompleted();
+            partitionDone();
+        }
+    }
+}
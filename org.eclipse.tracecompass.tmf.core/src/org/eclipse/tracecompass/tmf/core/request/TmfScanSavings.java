@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.request;
+
+/**
+ * The reads of a trace saved by one consumer of events, by joining the reads
+ * already in progress instead of reading the trace on its own.
+ *
+ * @author agent
+ * @since 1.0
+ */
+public class TmfScanSavings {
+
+    private final String fConsumerName;
+    private final long fNbJoins;
+    private final long fNbEvents;
+    private final long fNbBytes;
+
+    /**
+     * Constructor
+     *
+     * @param consumerName
+     *            The name of the consumer of the events
+     * @param nbJoins
+     *            The number of requests that joined a read in progress
+     * @param nbEvents
+     *            The number of events received from the shared reads
+     * @param nbBytes
+     *            The estimated number of bytes of these events
+     */
+    public TmfScanSavings(String consumerName, long nbJoins, long nbEvents, long nbBytes) {
+        fConsumerName = consumerName;
+        fNbJoins = nbJoins;
+        fNbEvents = nbEvents;
+        fNbBytes = nbBytes;
+    }
+
+    /**
+     * @return The name of the consumer of the events
+     */
+    public String getConsumerName() {
+        return fConsumerName;
+    }
+
+    /**
+     * @return The number of requests that joined a read in progress
+     */
+    public long getNbJoins() {
+        return fNbJoins;
+    }
+
+    /**
+     * @return The number of events received from the shared reads, which did
+     *         not have to be read again
+     */
+    public long getNbEventsSaved() {
+        return fNbEvents;
+    }
+
+    /**
+     * @return The estimated number of bytes of trace that did not have to be
+     *         read again, from the average size of the events of the trace
+     */
+    public long getNbBytesSaved() {
+        return fNbBytes;
+    }
+
+    @Override
+    @SuppressWarnings("nls")
+    public String toString() {
+        return "[TmfScanSavings(" + fConsumerName + ", joins=" + fNbJoins
+                + ", events=" + fNbEvents + ", bytes=" + fNbBytes + ")]";
+    }
+}
@@ -34,7 +34,9 @@ import org.eclipse.tracecompass.statesystem.core.backend.StateHistoryBackendFact
 import org.eclipse.tracecompass.tmf.core.analysis.TmfAbstractAnalysisModule;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
 import org.eclipse.tracecompass.tmf.core.exceptions.TmfTraceException;
+import org.eclipse.tracecompass.tmf.core.request.ITmfBatchEventRequest;
 import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest;
+import org.eclipse.tracecompass.tmf.core.request.ITmfSharedScanRequest;
 import org.eclipse.tracecompass.tmf.core.request.TmfEventRequest;
 import org.eclipse.tracecompass.tmf.core.signal.TmfSignalHandler;
 import org.eclipse.tracecompass.tmf.core.signal.TmfTraceRangeUpdatedSignal;
@@ -439,7 +441,7 @@ public abstract class TmfStateSystemAnalysisModule extends TmfAbstractAnalysisMo
         }
     }
 
-    private class StateSystemEventRequest extends TmfEventRequest {
+    private class StateSystemEventRequest extends TmfEventRequest implements ITmfSharedScanRequest, ITmfBatchEventRequest {
         private final ITmfStateProvider sci;
         private final ITmfTrace trace;
 
@@ -456,9 +458,32 @@ public abstract class TmfStateSystemAnalysisModule extends TmfAbstractAnalysisMo
 
         }
 
+        @Override
+        public String getConsumerName() {
+            return getId();
+        }
+
+        @Override
+        public boolean isOrderIndependent() {
+            /* The state changes must be inserted in order */
+            return false;
+        }
+
         @Override
         public void handleData(final ITmfEvent event) {
             super.handleData(event);
+            sendToProvider(event);
+        }
+
+        @Override
+        public void handleData(ITmfEvent[] events, int nbEvents) {
+            super.handleData(events, nbEvents);
+            for (int i = 0; i < nbEvents; i++) {
+                sendToProvider(events[i]);
+            }
+        }
+
+        private void sendToProvider(ITmfEvent event) {
             if (event.getTrace() == trace) {
                 sci.processEvent(event);
             } else if (trace instanceof TmfExperiment) {
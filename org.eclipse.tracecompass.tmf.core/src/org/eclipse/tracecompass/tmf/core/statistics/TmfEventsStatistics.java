@@ -12,6 +12,7 @@
 
 package org.eclipse.tracecompass.tmf.core.statistics;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -22,7 +23,9 @@ import java.util.TreeMap;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
 import org.eclipse.tracecompass.tmf.core.event.ITmfLostEvent;
 import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest;
+import org.eclipse.tracecompass.tmf.core.request.ITmfSharedScanRequest;
 import org.eclipse.tracecompass.tmf.core.request.TmfEventRequest;
+import org.eclipse.tracecompass.tmf.core.request.TmfPartitionedEventRequest;
 import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
 import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
 import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
@@ -146,17 +149,41 @@ public class TmfEventsStatistics implements ITmfStatistics {
     }
 
 
+    /**
+     * Base class of the event requests, which only count events. They can
+     * share the reads of the trace in progress, in any order, and the trace
+     * can read them in parallel partitions.
+     *
+     * @param <P>
+     *            The type of the counts of a partition
+     */
+    private abstract static class StatsRequest<P> extends TmfPartitionedEventRequest<P> implements ITmfSharedScanRequest {
+
+        public StatsRequest(Class<? extends ITmfEvent> dataType, TmfTimeRange range) {
+            super(dataType, range, ITmfEventRequest.ExecutionType.BACKGROUND);
+        }
+
+        @Override
+        public String getConsumerName() {
+            return TmfEventsStatistics.class.getName();
+        }
+
+        @Override
+        public boolean isOrderIndependent() {
+            return true;
+        }
+    }
+
     /**
      * Event request to get the total number of events
      */
-    private class StatsTotalRequest extends TmfEventRequest {
+    private class StatsTotalRequest extends StatsRequest<long[]> {
 
         /* Total number of events the request has found */
         private long total;
 
         public StatsTotalRequest(ITmfTrace trace, TmfTimeRange range) {
-            super(trace.getEventType(), range, 0, ITmfEventRequest.ALL_DATA,
-                    ITmfEventRequest.ExecutionType.BACKGROUND);
+            super(trace.getEventType(), range);
             total = 0;
         }
 
@@ -165,10 +192,21 @@ public class TmfEventsStatistics implements ITmfStatistics {
         }
 
         @Override
-        public void handleData(final ITmfEvent event) {
-            super.handleData(event);
+        protected long[] createPartition() {
+            return new long[1];
+        }
+
+        @Override
+        protected void handleData(long[] partition, ITmfEvent event) {
             if (!(event instanceof ITmfLostEvent) && event.getTrace() == trace) {
-                total += 1;
+                partition[0] += 1;
+            }
+        }
+
+        @Override
+        protected void merge(List<long[]> partitions) {
+            for (long[] partition : partitions) {
+                total += partition[0];
             }
         }
     }
@@ -177,14 +215,13 @@ public class TmfEventsStatistics implements ITmfStatistics {
     /**
      * Event request to get the counts per event type
      */
-    private class StatsPerTypeRequest extends TmfEventRequest {
+    private class StatsPerTypeRequest extends StatsRequest<Map<String, Long>> {
 
         /* Map in which the results are saved */
         private final Map<String, Long> stats;
 
         public StatsPerTypeRequest(ITmfTrace trace, TmfTimeRange range) {
-            super(trace.getEventType(), range, 0, ITmfEventRequest.ALL_DATA,
-                    ITmfEventRequest.ExecutionType.BACKGROUND);
+            super(trace.getEventType(), range);
             this.stats = new HashMap<>();
         }
 
@@ -193,8 +230,12 @@ public class TmfEventsStatistics implements ITmfStatistics {
         }
 
         @Override
-        public void handleData(final ITmfEvent event) {
-            super.handleData(event);
+        protected Map<String, Long> createPartition() {
+            return new HashMap<>();
+        }
+
+        @Override
+        protected void handleData(Map<String, Long> partition, ITmfEvent event) {
             if (event.getTrace() == trace) {
                 String eventType = event.getType().getName();
                 /*
@@ -203,21 +244,30 @@ public class TmfEventsStatistics implements ITmfStatistics {
                  */
                 if (event instanceof ITmfLostEvent) {
                     ITmfLostEvent le = (ITmfLostEvent) event;
-                    incrementStats(eventType, le.getNbLostEvents());
+                    incrementStats(partition, eventType, le.getNbLostEvents());
                     return;
                 }
 
                 /* For standard event types, just increment by one */
-                incrementStats(eventType, 1L);
+                incrementStats(partition, eventType, 1L);
+            }
+        }
+
+        @Override
+        protected void merge(List<Map<String, Long>> partitions) {
+            for (Map<String, Long> partition : partitions) {
+                for (Map.Entry<String, Long> entry : partition.entrySet()) {
+                    incrementStats(stats, entry.getKey(), entry.getValue());
+                }
             }
         }
 
-        private void incrementStats(String key, long count) {
-            if (stats.containsKey(key)) {
-                long curValue = stats.get(key);
-                stats.put(key, curValue + count);
+        private void incrementStats(Map<String, Long> map, String key, long count) {
+            if (map.containsKey(key)) {
+                long curValue = map.get(key);
+                map.put(key, curValue + count);
             } else {
-                stats.put(key, count);
+                map.put(key, count);
             }
         }
     }
@@ -227,11 +277,14 @@ public class TmfEventsStatistics implements ITmfStatistics {
      * request then set the results accordingly than doing thousands of them one
      * by one.
      */
-    private class HistogramQueryRequest extends TmfEventRequest {
+    private class HistogramQueryRequest extends StatsRequest<long[]> {
 
         /** Map of <borders, number of events> */
         private final TreeMap<Long, Long> results;
 
+        /** The distinct borders, in increasing order */
+        private final long[] keys;
+
         /**
          * New histogram request
          *
@@ -246,16 +299,18 @@ public class TmfEventsStatistics implements ITmfStatistics {
             super(trace.getEventType(),
                     new TmfTimeRange(
                             new TmfTimestamp(borders[0], SCALE),
-                            new TmfTimestamp(endTime, SCALE)),
-                    0,
-                    ITmfEventRequest.ALL_DATA,
-                    ITmfEventRequest.ExecutionType.BACKGROUND);
+                            new TmfTimestamp(endTime, SCALE)));
 
             /* Prepare the results map, with all counts at 0 */
             results = new TreeMap<>();
             for (long border : borders) {
                 results.put(border, 0L);
             }
+            keys = new long[results.size()];
+            int i = 0;
+            for (long key : results.keySet()) {
+                keys[i++] = key;
+            }
         }
 
         public Collection<Long> getResults() {
@@ -263,21 +318,34 @@ public class TmfEventsStatistics implements ITmfStatistics {
         }
 
         @Override
-        public void handleData(ITmfEvent event) {
-            super.handleData(event);
+        protected long[] createPartition() {
+            return new long[keys.length];
+        }
+
+        @Override
+        protected void handleData(long[] partition, ITmfEvent event) {
             if (event.getTrace() == trace) {
                 long ts = event.getTimestamp().normalize(0, SCALE).getValue();
-                Long key = results.floorKey(ts);
-                if (key != null) {
-                    incrementValue(key);
+                int index = Arrays.binarySearch(keys, ts);
+                if (index < 0) {
+                    /* The index of the border before the timestamp */
+                    index = -index - 2;
+                }
+                if (index >= 0) {
+                    partition[index]++;
                 }
             }
         }
 
-        private void incrementValue(Long key) {
-            long value = results.get(key);
-            value++;
-            results.put(key, value);
+        @Override
+        protected void merge(List<long[]> partitions) {
+            for (int i = 0; i < keys.length; i++) {
+                long value = 0;
+                for (long[] partition : partitions) {
+                    value += partition[i];
+                }
+                results.put(keys[i], value);
+            }
         }
     }
 
@@ -13,6 +13,7 @@
 
 package org.eclipse.tracecompass.tmf.core.statistics;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -226,42 +227,49 @@ public class TmfStateStatistics implements ITmfStatistics {
         }
 
         try {
-            List<ITmfStateInterval> endState = typesStats.queryFullState(endTime);
+            /*
+             * Only the event type attributes are needed, at the end time and,
+             * unless the range begins at the start of the trace, at the start
+             * time. Query the start time at -1, so the beginning of the
+             * interval is inclusive.
+             */
+            final boolean fromTraceStart = (startTime == typesStats.getStartTime());
+            final long startQueryTime = startTime - 1;
+            List<Long> times = new ArrayList<>();
+            times.add(endTime);
+            if (!fromTraceStart) {
+                times.add(startQueryTime);
+            }
 
-            if (startTime == typesStats.getStartTime()) {
-                /* Only use the values picked up at the end time */
-                for (int typeQuark : quarks) {
-                    String curEventName = typesStats.getAttributeName(typeQuark);
-                    long eventCount = endState.get(typeQuark).getStateValue().unboxInt();
-                    if (eventCount == -1) {
-                        eventCount = 0;
-                    }
-                    map.put(curEventName, eventCount);
+            Map<Integer, Long> countsAtStart = new HashMap<>();
+            Map<Integer, Long> countsAtEnd = new HashMap<>();
+            for (ITmfStateInterval interval : typesStats.query2D(quarks, times)) {
+                long count = interval.getStateValue().unboxInt();
+                if (count == -1) {
+                    count = 0;
+                }
+                if (interval.intersects(endTime)) {
+                    countsAtEnd.put(interval.getAttribute(), count);
                 }
-            } else {
-                /*
-                 * Query the start time at -1, so the beginning of the interval
-                 * is inclusive.
-                 */
-                List<ITmfStateInterval> startState = typesStats.queryFullState(startTime - 1);
-                for (int typeQuark : quarks) {
-                    String curEventName = typesStats.getAttributeName(typeQuark);
-                    long countAtStart = startState.get(typeQuark).getStateValue().unboxInt();
-                    long countAtEnd = endState.get(typeQuark).getStateValue().unboxInt();
-
-                    if (countAtStart == -1) {
-                        countAtStart = 0;
-                    }
-                    if (countAtEnd == -1) {
-                        countAtEnd = 0;
-                    }
-                    long eventCount = countAtEnd - countAtStart;
-                    map.put(curEventName, eventCount);
+                if (!fromTraceStart && interval.intersects(startQueryTime)) {
+                    countsAtStart.put(interval.getAttribute(), count);
                 }
             }
 
+            for (int typeQuark : quarks) {
+                String curEventName = typesStats.getAttributeName(typeQuark);
+                Long countAtStart = countsAtStart.get(typeQuark);
+                Long countAtEnd = countsAtEnd.get(typeQuark);
+                long eventCount = (countAtEnd == null ? 0 : countAtEnd) -
+                        (countAtStart == null ? 0 : countAtStart);
+                map.put(curEventName, eventCount);
+            }
+
         } catch (StateSystemDisposedException e) {
             /* Assume there is no (more) events, nothing will be put in the map. */
+        } catch (AttributeNotFoundException e) {
+            /* The quarks were obtained from this state system */
+            throw new IllegalStateException(e);
         }
         return map;
     }
@@ -19,6 +19,7 @@ package org.eclipse.tracecompass.tmf.core.trace;
 import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -43,6 +44,7 @@ import org.eclipse.tracecompass.tmf.core.event.aspect.ITmfEventAspect;
 import org.eclipse.tracecompass.tmf.core.exceptions.TmfAnalysisException;
 import org.eclipse.tracecompass.tmf.core.exceptions.TmfTraceException;
 import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest;
+import org.eclipse.tracecompass.tmf.core.request.TmfPartitionedEventRequest;
 import org.eclipse.tracecompass.tmf.core.signal.TmfSignalHandler;
 import org.eclipse.tracecompass.tmf.core.signal.TmfSignalManager;
 import org.eclipse.tracecompass.tmf.core.signal.TmfTraceOpenedSignal;
@@ -125,8 +127,8 @@ public abstract class TmfTrace extends TmfEventProvider implements ITmfTrace, IT
     private volatile long fNbEvents = 0;
 
     // The time span of the event stream
-    private @NonNull ITmfTimestamp fStartTime = TmfTimestamp.BIG_BANG;
-    private @NonNull ITmfTimestamp fEndTime = TmfTimestamp.BIG_BANG;
+    private volatile @NonNull ITmfTimestamp fStartTime = TmfTimestamp.BIG_BANG;
+    private volatile @NonNull ITmfTimestamp fEndTime = TmfTimestamp.BIG_BANG;
 
     // The trace streaming interval (0 = no streaming)
     private long fStreamingInterval = 0;
@@ -564,10 +566,36 @@ public abstract class TmfTrace extends TmfEventProvider implements ITmfTrace, IT
     /**
      * Update the trace attributes
      *
+     * The events already covered by the time range, the number of events and
+     * the index of the trace do not take the lock of the trace, so that
+     * several contexts can be read at once.
+     *
      * @param context the current trace context
      * @param timestamp the corresponding timestamp
      */
-    protected synchronized void updateAttributes(final ITmfContext context, final @NonNull ITmfTimestamp timestamp) {
+    protected void updateAttributes(final ITmfContext context, final @NonNull ITmfTimestamp timestamp) {
+        if (isCovered(context, timestamp)) {
+            return;
+        }
+        synchronized (this) {
+            updateAttributesLocked(context, timestamp);
+        }
+    }
+
+    /*
+     * Whether an event changes none of the attributes. Once the event is
+     * below the number of events, its checkpoint is already in the index.
+     */
+    private boolean isCovered(final ITmfContext context, final @NonNull ITmfTimestamp timestamp) {
+        ITmfTimestamp startTime = fStartTime;
+        ITmfTimestamp endTime = fEndTime;
+        if (startTime.equals(TmfTimestamp.BIG_BANG) || startTime.compareTo(timestamp) > 0 || endTime.compareTo(timestamp) < 0) {
+            return false;
+        }
+        return !context.hasValidRank() || context.getRank() < fNbEvents;
+    }
+
+    private void updateAttributesLocked(final ITmfContext context, final @NonNull ITmfTimestamp timestamp) {
         if (fStartTime.equals(TmfTimestamp.BIG_BANG) || (fStartTime.compareTo(timestamp) > 0)) {
             fStartTime = timestamp;
         }
@@ -604,6 +632,65 @@ public abstract class TmfTrace extends TmfEventProvider implements ITmfTrace, IT
         return seekEvent(request.getIndex());
     }
 
+    /**
+     * Whether the contexts of this trace can be read by several threads at
+     * once, each thread with its own context. Only then are the partitioned
+     * requests split.
+     *
+     * The default {@link #getNext(ITmfContext)} is synchronized, because
+     * {@link #parseEvent(ITmfContext)} and {@link #getCurrentLocation()} may
+     * use state shared by all the contexts, so its partitions would only be
+     * read one after the other. Traces whose contexts hold all their reading
+     * state override this.
+     *
+     * @return true if the partitions of a request can be read in parallel
+     * @since 1.0
+     */
+    protected boolean isReadConcurrent() {
+        return false;
+    }
+
+    @Override
+    protected long[] getPartitionRanks(TmfPartitionedEventRequest<?> request) {
+        int nbPartitions = request.getMaxPartitions();
+        if (nbPartitions < 2 || !isReadConcurrent() || fIndexer == null || fIndexer.isIndexing()) {
+            return null;
+        }
+        TmfTimeRange range = request.getRange().getIntersection(getTimeRange());
+        if (range == null) {
+            return null;
+        }
+
+        /*
+         * Split the time range in equal parts, and start each partition at
+         * the first event of its part, found from the checkpoint index. The
+         * events at the same timestamp are all in the same partition.
+         */
+        long start = range.getStartTime().normalize(0, ITmfTimestamp.NANOSECOND_SCALE).getValue();
+        long end = range.getEndTime().normalize(0, ITmfTimestamp.NANOSECOND_SCALE).getValue();
+        long step = (end - start) / nbPartitions;
+        if (step <= 0) {
+            return null;
+        }
+        long[] ranks = new long[nbPartitions];
+        int nbRanks = 0;
+        for (int i = 0; i < nbPartitions; i++) {
+            ITmfTimestamp ts = (i == 0) ? range.getStartTime() :
+                new TmfTimestamp(start + i * step, ITmfTimestamp.NANOSECOND_SCALE);
+            ITmfContext context = seekEvent(ts);
+            long rank = context.getRank();
+            context.dispose();
+            if (rank == ITmfContext.UNKNOWN_RANK) {
+                /* No event in the rest of the range */
+                break;
+            }
+            if (nbRanks == 0 || rank > ranks[nbRanks - 1]) {
+                ranks[nbRanks++] = rank;
+            }
+        }
+        return Arrays.copyOf(ranks, nbRanks);
+    }
+
     // ------------------------------------------------------------------------
     // Signal handlers
     // ------------------------------------------------------------------------
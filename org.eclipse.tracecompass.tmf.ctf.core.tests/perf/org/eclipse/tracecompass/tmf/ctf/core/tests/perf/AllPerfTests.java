@@ -24,7 +24,8 @@ import org.junit.runners.Suite;
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
-        org.eclipse.tracecompass.tmf.ctf.core.tests.perf.experiment.AllPerfTests.class
+        org.eclipse.tracecompass.tmf.ctf.core.tests.perf.experiment.AllPerfTests.class,
+        org.eclipse.tracecompass.tmf.ctf.core.tests.perf.trace.AllPerfTests.class
 })
 public class AllPerfTests {
 
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.ctf.core.tests.perf.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.List;
+
+import org.eclipse.test.performance.Dimension;
+import org.eclipse.test.performance.Performance;
+import org.eclipse.test.performance.PerformanceMeter;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.request.TmfPartitionedEventRequest;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
+import org.eclipse.tracecompass.tmf.ctf.core.tests.shared.CtfTmfTestTrace;
+import org.eclipse.tracecompass.tmf.ctf.core.trace.CtfTmfTrace;
+import org.junit.Test;
+
+/**
+ * Benchmark of the partitioned requests on a CTF trace, read in a single
+ * partition and in one partition per processor. The elapsed time of the
+ * second one should go down with the number of processors.
+ *
+ * @author agent
+ */
+public class PartitionedReadBenchmark {
+
+    private static final String TEST_SUITE_NAME = "CTF Partitioned Read Benchmark";
+    private static final String TEST_ID = "org.eclipse.linuxtools#" + TEST_SUITE_NAME;
+    private static final int LOOP_COUNT = 25;
+
+    /**
+     * Count the events of a partition
+     */
+    private static class CountRequest extends TmfPartitionedEventRequest<long[]> {
+
+        private final int fMaxPartitions;
+        private long fCount = 0;
+
+        public CountRequest(int maxPartitions) {
+            super(ITmfEvent.class, TmfTimeRange.ETERNITY, ExecutionType.FOREGROUND);
+            fMaxPartitions = maxPartitions;
+        }
+
+        @Override
+        public int getMaxPartitions() {
+            return fMaxPartitions;
+        }
+
+        @Override
+        protected long[] createPartition() {
+            return new long[1];
+        }
+
+        @Override
+        protected void handleData(long[] partition, ITmfEvent event) {
+            partition[0]++;
+        }
+
+        @Override
+        protected void merge(List<long[]> partitions) {
+            for (long[] partition : partitions) {
+                fCount += partition[0];
+            }
+        }
+    }
+
+    /**
+     * Benchmark reading the trace "kernel" in a single partition
+     */
+    @Test
+    public void testSequential() {
+        readTrace(CtfTmfTestTrace.KERNEL, "trace-kernel-sequential", 1);
+    }
+
+    /**
+     * Benchmark reading the trace "kernel" in one partition per processor
+     */
+    @Test
+    public void testPartitioned() {
+        readTrace(CtfTmfTestTrace.KERNEL, "trace-kernel-partitioned", Runtime.getRuntime().availableProcessors());
+    }
+
+    private static void readTrace(CtfTmfTestTrace testTrace, String testName, int maxPartitions) {
+        assumeTrue(testTrace.exists());
+
+        Performance perf = Performance.getDefault();
+        PerformanceMeter pm = perf.createPerformanceMeter(TEST_ID + '#' + testName);
+        perf.tagAsSummary(pm, TEST_SUITE_NAME + ':' + testName, Dimension.ELAPSED_PROCESS);
+
+        CtfTmfTrace trace = testTrace.getTrace();
+        trace.indexTrace(true);
+        try {
+            for (int loop = 0; loop < LOOP_COUNT; loop++) {
+                CountRequest request = new CountRequest(maxPartitions);
+                pm.start();
+                trace.sendRequest(request);
+                request.waitForCompletion();
+                pm.stop();
+                assertEquals(trace.getNbEvents(), request.fCount);
+            }
+        } catch (InterruptedException e) {
+            fail(e.getMessage());
+        } finally {
+            testTrace.dispose();
+        }
+        pm.commit();
+    }
+}
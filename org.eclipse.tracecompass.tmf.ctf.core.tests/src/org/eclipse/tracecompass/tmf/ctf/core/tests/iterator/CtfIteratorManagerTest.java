@@ -0,0 +1,236 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.ctf.core.tests.iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.tracecompass.internal.tmf.ctf.core.trace.iterator.CtfIterator;
+import org.eclipse.tracecompass.internal.tmf.ctf.core.trace.iterator.CtfIteratorManager;
+import org.eclipse.tracecompass.tmf.ctf.core.context.CtfLocation;
+import org.eclipse.tracecompass.tmf.ctf.core.context.CtfTmfContext;
+import org.eclipse.tracecompass.tmf.ctf.core.event.CtfTmfEvent;
+import org.eclipse.tracecompass.tmf.ctf.core.tests.shared.CtfTmfTestTrace;
+import org.eclipse.tracecompass.tmf.ctf.core.trace.CtfTmfTrace;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the class {@link CtfIteratorManager}
+ *
+ * @author agent
+ */
+public class CtfIteratorManagerTest {
+
+    private static final CtfTmfTestTrace testTrace = CtfTmfTestTrace.KERNEL;
+
+    private CtfTmfTrace fTrace;
+    private CtfIteratorManager fManager;
+
+    /**
+     * Perform pre-test initialization.
+     */
+    @Before
+    public void setUp() {
+        assumeTrue(testTrace.exists());
+        fTrace = testTrace.getTrace();
+    }
+
+    /**
+     * Perform post-test clean-up.
+     */
+    @After
+    public void tearDown() {
+        if (fManager != null) {
+            fManager.dispose();
+        }
+        if (fTrace != null) {
+            fTrace.dispose();
+        }
+    }
+
+    /**
+     * Test that the iterator of a disposed context is reused by the next
+     * context, and the hit rate
+     */
+    @Test
+    public void testReuse() {
+        fManager = new CtfIteratorManager(fTrace, 10, 4);
+        CtfTmfContext first = new CtfTmfContext(fTrace);
+        CtfIterator iterator = fManager.getIterator(first);
+        assertSame(iterator, fManager.getIterator(first));
+        assertEquals(1, fManager.getNbCreated());
+
+        fManager.removeIterator(first);
+        assertEquals(1, fManager.getNbIdle());
+
+        CtfTmfContext second = new CtfTmfContext(fTrace);
+        assertSame(iterator, fManager.getIterator(second));
+        assertEquals(0, fManager.getNbIdle());
+        assertEquals(1, fManager.getNbCreated());
+        assertEquals(1, fManager.getNbReused());
+        assertEquals(1, fManager.getNbHits());
+        assertEquals(2, fManager.getNbMisses());
+        assertEquals(1.0 / 3, fManager.getHitRate(), 0.0001);
+    }
+
+    /**
+     * Test that the iterator of the least recently used context is taken when
+     * the pool is full
+     */
+    @Test
+    public void testLruEviction() {
+        fManager = new CtfIteratorManager(fTrace, 2, 1);
+        CtfTmfContext first = new CtfTmfContext(fTrace);
+        CtfTmfContext second = new CtfTmfContext(fTrace);
+        CtfIterator firstIterator = fManager.getIterator(first);
+        CtfIterator secondIterator = fManager.getIterator(second);
+        assertNotSame(firstIterator, secondIterator);
+
+        /* The second context is now the least recently used */
+        fManager.getIterator(first);
+
+        CtfTmfContext third = new CtfTmfContext(fTrace);
+        assertSame(secondIterator, fManager.getIterator(third));
+        assertEquals(1, fManager.getNbEvicted());
+        assertEquals(2, fManager.getNbCreated());
+        assertSame(firstIterator, fManager.getIterator(first));
+    }
+
+    /**
+     * Test that the idle iterator closest before the location of the context
+     * is reused, and positioned at that location
+     */
+    @Test
+    public void testReuseNearest() {
+        fManager = new CtfIteratorManager(fTrace, 10, 4);
+        CtfTmfContext first = new CtfTmfContext(fTrace);
+        CtfTmfContext second = new CtfTmfContext(fTrace);
+        CtfIterator start = fManager.getIterator(first);
+        CtfIterator ahead = fManager.getIterator(second);
+        for (int i = 0; i < 1000; i++) {
+            ahead.advance();
+        }
+        CtfLocation location = ahead.getLocation();
+        for (int i = 0; i < 10; i++) {
+            ahead.advance();
+        }
+        CtfLocation target = ahead.getLocation();
+        ahead.seek(location.getLocationInfo());
+        fManager.removeIterator(first);
+        fManager.removeIterator(second);
+
+        CtfTmfContext third = new CtfTmfContext(fTrace);
+        third.setLocation(target);
+        CtfIterator iterator = fManager.getIterator(third);
+        assertSame(ahead, iterator);
+        assertEquals(target, iterator.getLocation());
+        assertTrue(fManager.getNbIdle() == 1);
+        assertSame(start, fManager.getIterator(new CtfTmfContext(fTrace)));
+    }
+
+    /**
+     * Test that the iterator of a pinned context is not evicted, and that the
+     * iterator created over the maximum size is closed once it is released
+     */
+    @Test
+    public void testPinned() {
+        fManager = new CtfIteratorManager(fTrace, 1, 1);
+        CtfTmfContext first = new CtfTmfContext(fTrace);
+        CtfTmfContext second = new CtfTmfContext(fTrace);
+        CtfIterator firstIterator = fManager.getIterator(first);
+        fManager.pin(first);
+        CtfIterator secondIterator = fManager.getIterator(second);
+        assertNotSame(firstIterator, secondIterator);
+        assertSame(firstIterator, fManager.getIterator(first));
+        assertEquals(0, fManager.getNbEvicted());
+
+        fManager.removeIterator(second);
+        assertEquals(0, fManager.getNbIdle());
+        fManager.unpin(first);
+        assertSame(firstIterator, fManager.getIterator(new CtfTmfContext(fTrace)));
+        assertEquals(1, fManager.getNbEvicted());
+    }
+
+    /**
+     * Test that contexts read by several threads read the right events, when
+     * there are more contexts than iterators and the iterators are taken from
+     * one context to another while they are read
+     *
+     * @throws InterruptedException
+     *             If the test was interrupted
+     * @throws ExecutionException
+     *             If a reading thread failed
+     */
+    @Test
+    public void testConcurrentEviction() throws InterruptedException, ExecutionException {
+        /* More contexts than the 100 iterators of the manager of the trace */
+        final int nbThreads = 2;
+        final int nbContexts = 60;
+        final int nbEvents = 20;
+
+        final long[] expected = new long[nbEvents];
+        CtfTmfContext reference = (CtfTmfContext) fTrace.seekEvent(0L);
+        for (int i = 0; i < nbEvents; i++) {
+            CtfTmfEvent event = fTrace.getNext(reference);
+            assertNotNull(event);
+            expected[i] = event.getTimestamp().getValue();
+        }
+        reference.dispose();
+
+        ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int t = 0; t < nbThreads; t++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        List<CtfTmfContext> contexts = new ArrayList<>();
+                        for (int c = 0; c < nbContexts; c++) {
+                            contexts.add((CtfTmfContext) fTrace.seekEvent(0L));
+                        }
+                        for (int i = 0; i < nbEvents; i++) {
+                            for (CtfTmfContext context : contexts) {
+                                CtfTmfEvent event = fTrace.getNext(context);
+                                assertNotNull(event);
+                                assertEquals(expected[i], event.getTimestamp().getValue());
+                            }
+                        }
+                        for (CtfTmfContext context : contexts) {
+                            context.dispose();
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
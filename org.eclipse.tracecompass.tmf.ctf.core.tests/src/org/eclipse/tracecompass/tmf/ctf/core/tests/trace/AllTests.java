@@ -20,6 +20,7 @@ import org.junit.runners.Suite;
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
+        CtfTmfLiveTraceTest.class,
         CtfTmfTraceTest.class,
         FunkyTraceTest.class
 })
@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.ctf.core.tests.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.UUID;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.tracecompass.tmf.core.exceptions.TmfTraceException;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
+import org.eclipse.tracecompass.tmf.ctf.core.event.CtfTmfEvent;
+import org.eclipse.tracecompass.tmf.ctf.core.trace.CtfTmfTrace;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the live reading of a {@link CtfTmfTrace}, with a trace that is
+ * written to its directory while it is open.
+ *
+ * @author agent
+ */
+public class CtfTmfLiveTraceTest {
+
+    private static final long TIMEOUT_MS = 10000;
+
+    /* Header, context, event header and a field, in bytes */
+    private static final int CONTENT_SIZE = 56;
+    private static final int PACKET_SIZE = 64;
+
+    private File fDirectory;
+    private UUID fUuid;
+    private CtfTmfTrace fTrace;
+
+    /**
+     * Write a trace with one packet
+     *
+     * @throws IOException
+     *             If the trace could not be written
+     */
+    @Before
+    public void setUp() throws IOException {
+        fDirectory = Files.createTempDirectory("livetrace").toFile();
+        fUuid = UUID.randomUUID();
+        try (PrintWriter pw = new PrintWriter(new File(fDirectory, "metadata"))) {
+            pw.println("/* CTF 1.8 */");
+            pw.println("typealias integer { size = 8; align = 8; signed = false; base = 10; } := uint8_t;");
+            pw.println("typealias integer { size = 32; align = 8; signed = false; base = 10; } := uint32_t;");
+            pw.println("typealias integer { size = 64; align = 8; signed = false; base = 10; } := uint64_t;");
+            pw.println("trace {");
+            pw.println(" major = 1;");
+            pw.println(" minor = 8;");
+            pw.println(" uuid = \"" + fUuid.toString() + "\";");
+            pw.println(" byte_order = le;");
+            pw.println(" packet.header := struct {");
+            pw.println("  uint32_t magic;");
+            pw.println("  uint8_t uuid[16];");
+            pw.println(" };");
+            pw.println("};");
+            pw.println("stream {");
+            pw.println(" event.header := struct {");
+            pw.println("  uint64_t timestamp;");
+            pw.println(" };");
+            pw.println(" packet.context := struct {");
+            pw.println("  uint32_t packet_size;");
+            pw.println("  uint32_t content_size;");
+            pw.println("  uint64_t timestamp_begin;");
+            pw.println("  uint64_t timestamp_end;");
+            pw.println(" };");
+            pw.println("};");
+            pw.println("event {");
+            pw.println(" name = thing;");
+            pw.println(" fields := struct { uint32_t f; };");
+            pw.println("};");
+        }
+        writePacket("stream_0", 100);
+    }
+
+    /**
+     * Dispose the trace and delete its files
+     */
+    @After
+    public void tearDown() {
+        if (fTrace != null) {
+            fTrace.dispose();
+        }
+        File[] files = fDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        fDirectory.delete();
+    }
+
+    /*
+     * Append a packet to a stream file, from the given timestamp to 99 ns
+     * later, with one event in the middle
+     */
+    private void writePacket(String streamFile, long begin) throws IOException {
+        writePacket(streamFile, begin, PACKET_SIZE);
+    }
+
+    /*
+     * Append only the first bytes of such a packet, as if the tracer was still
+     * writing it or crashed while writing it
+     */
+    private void writePacket(String streamFile, long begin, int length) throws IOException {
+        ByteBuffer bb = ByteBuffer.allocate(PACKET_SIZE);
+        bb.order(ByteOrder.LITTLE_ENDIAN);
+        bb.putInt(0xc1fc1fc1);
+        bb.order(ByteOrder.BIG_ENDIAN);
+        bb.putLong(fUuid.getMostSignificantBits());
+        bb.putLong(fUuid.getLeastSignificantBits());
+        bb.order(ByteOrder.LITTLE_ENDIAN);
+        bb.putInt(PACKET_SIZE * 8);
+        bb.putInt(CONTENT_SIZE * 8);
+        bb.putLong(begin);
+        bb.putLong(begin + 99);
+        bb.putLong(begin + 50);
+        bb.putInt((int) begin);
+        try (FileOutputStream fos = new FileOutputStream(new File(fDirectory, streamFile), true)) {
+            fos.write(bb.array(), 0, length);
+        }
+    }
+
+    /**
+     * Test that the packets and the stream files written while the trace is
+     * read live get indexed, and are read in order
+     *
+     * @throws TmfTraceException
+     *             If the trace could not be opened
+     * @throws IOException
+     *             If the trace could not be written
+     * @throws InterruptedException
+     *             If the test was interrupted
+     */
+    @Test
+    public void testLiveReading() throws TmfTraceException, IOException, InterruptedException {
+        fTrace = new CtfTmfTrace();
+        fTrace.initTrace((IResource) null, fDirectory.getPath(), CtfTmfEvent.class);
+        /* Not the trace of a live session */
+        assertFalse(fTrace.isLiveReading());
+        fTrace.indexTrace(true);
+        assertEquals(1, fTrace.getNbEvents());
+
+        fTrace.startLiveReading();
+        assertTrue(fTrace.isLiveReading());
+        assertFalse(fTrace.isComplete());
+        writePacket("stream_0", 200);
+        writePacket("stream_1", 300);
+
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while ((fTrace.getNbEvents() < 3 || fTrace.getEndTime().getValue() < 350) &&
+                System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        assertEquals(3, fTrace.getNbEvents());
+        assertEquals(350, fTrace.getEndTime().getValue());
+
+        ITmfContext context = fTrace.seekEvent(0L);
+        for (long begin = 100; begin <= 300; begin += 100) {
+            CtfTmfEvent event = fTrace.getNext(context);
+            assertNotNull(event);
+            assertEquals(begin + 50, event.getTimestamp().getValue());
+        }
+        assertNull(fTrace.getNext(context));
+        context.dispose();
+
+        fTrace.stopLiveReading();
+        assertFalse(fTrace.isLiveReading());
+        assertTrue(fTrace.isComplete());
+    }
+
+    /**
+     * Test that a trace whose stream file ends with a partially written
+     * packet opens, and that only its complete packets are read
+     *
+     * @throws TmfTraceException
+     *             If the trace could not be opened
+     * @throws IOException
+     *             If the trace could not be written
+     */
+    @Test
+    public void testPartialTrailingPacket() throws TmfTraceException, IOException {
+        /* The packet header and context, but not the event */
+        writePacket("stream_0", 200, CONTENT_SIZE - 12);
+        fTrace = new CtfTmfTrace();
+        fTrace.initTrace((IResource) null, fDirectory.getPath(), CtfTmfEvent.class);
+        fTrace.indexTrace(true);
+        assertEquals(1, fTrace.getNbEvents());
+        assertEquals(150, fTrace.getEndTime().getValue());
+
+        ITmfContext context = fTrace.seekEvent(0L);
+        CtfTmfEvent event = fTrace.getNext(context);
+        assertNotNull(event);
+        assertEquals(150, event.getTimestamp().getValue());
+        assertNull(fTrace.getNext(context));
+        context.dispose();
+    }
+}
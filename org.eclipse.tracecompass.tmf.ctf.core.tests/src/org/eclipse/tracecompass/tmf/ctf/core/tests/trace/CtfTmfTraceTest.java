@@ -27,6 +27,7 @@ import java.util.Set;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.tracecompass.internal.tmf.ctf.core.trace.iterator.CtfIterator;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEventType;
 import org.eclipse.tracecompass.tmf.core.exceptions.TmfTraceException;
 import org.eclipse.tracecompass.tmf.core.signal.TmfEndSynchSignal;
@@ -39,6 +40,7 @@ import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
 import org.eclipse.tracecompass.tmf.core.trace.TmfEventTypeCollectionHelper;
 import org.eclipse.tracecompass.tmf.ctf.core.context.CtfLocation;
 import org.eclipse.tracecompass.tmf.ctf.core.context.CtfLocationInfo;
+import org.eclipse.tracecompass.tmf.ctf.core.context.CtfTmfContext;
 import org.eclipse.tracecompass.tmf.ctf.core.event.CtfTmfEvent;
 import org.eclipse.tracecompass.tmf.ctf.core.tests.shared.CtfTmfTestTrace;
 import org.eclipse.tracecompass.tmf.ctf.core.trace.CtfTmfTrace;
@@ -390,4 +392,34 @@ public class CtfTmfTraceTest {
         assertEquals("\"84db105b-b3f4-4821-b662-efc51455106a\"", a);
     }
 
+    /**
+     * Test that the iterators of a trace set to decode the streams ahead do
+     * so, and read the same events as the iterators of a trace that does not
+     *
+     * @throws TmfTraceException
+     *             If the test trace is not found
+     */
+    @Test
+    public void testDecodeAhead() throws TmfTraceException {
+        try (CtfTmfTrace decodeAhead = new CtfTmfTrace();) {
+            decodeAhead.initTrace((IResource) null, testTrace.getPath(), CtfTmfEvent.class);
+            decodeAhead.setDecodeAhead(true);
+            assertTrue(decodeAhead.isDecodeAhead());
+
+            CtfTmfContext expected = (CtfTmfContext) fixture.seekEvent(0L);
+            CtfTmfContext actual = (CtfTmfContext) decodeAhead.seekEvent(0L);
+            assertTrue(((CtfIterator) decodeAhead.createIteratorFromContext(actual)).isDecodeAhead());
+            for (int i = 0; i < 10000; i++) {
+                CtfTmfEvent expectedEvent = fixture.getNext(expected);
+                CtfTmfEvent actualEvent = decodeAhead.getNext(actual);
+                assertNotNull(actualEvent);
+                assertEquals(expectedEvent.getTimestamp(), actualEvent.getTimestamp());
+                assertEquals(expectedEvent.getType(), actualEvent.getType());
+                assertEquals(expectedEvent.getCPU(), actualEvent.getCPU());
+            }
+            expected.dispose();
+            actual.dispose();
+        }
+    }
+
 }
@@ -70,6 +70,9 @@ public class CtfIterator extends CTFTraceReader
      */
     public CtfIterator(CTFTrace ctfTrace, CtfTmfTrace ctfTmfTrace) throws CTFReaderException {
         super(ctfTrace);
+        /* The event fields are only decoded when the event content is needed */
+        setLazyDecoding(true);
+        setDecodeAhead(ctfTmfTrace.isDecodeAhead());
         fTrace = ctfTmfTrace;
         if (hasMoreEvents()) {
             fCurLocation = new CtfLocation(ctfTmfTrace.getStartTime());
@@ -99,6 +102,8 @@ public class CtfIterator extends CTFTraceReader
     public CtfIterator(CTFTrace ctfTrace, CtfTmfTrace ctfTmfTrace, CtfLocationInfo ctfLocationData, long rank)
             throws CTFReaderException {
         super(ctfTrace);
+        setLazyDecoding(true);
+        setDecodeAhead(ctfTmfTrace.isDecodeAhead());
 
         this.fTrace = ctfTmfTrace;
         if (this.hasMoreEvents()) {
@@ -141,7 +146,7 @@ public class CtfIterator extends CTFTraceReader
      * @return CtfTmfEvent The current event
      */
     public synchronized CtfTmfEvent getCurrentEvent() {
-        final CTFStreamInputReader top = super.getPrio().peek();
+        final CTFStreamInputReader top = super.getTopStream();
         if (top != null) {
             if (!fCurLocation.equals(fPreviousLocation)) {
                 fPreviousLocation = fCurLocation;
@@ -160,7 +165,7 @@ public class CtfIterator extends CTFTraceReader
      * @return long The current timestamp location
      */
     public synchronized long getCurrentTimestamp() {
-        final CTFStreamInputReader top = super.getPrio().peek();
+        final CTFStreamInputReader top = super.getTopStream();
         if (top != null) {
             long ts = top.getCurrentEvent().getTimestamp();
             return fTrace.timestampCyclesToNanos(ts);
@@ -179,6 +184,16 @@ public class CtfIterator extends CTFTraceReader
     public synchronized boolean seek(CtfLocationInfo ctfLocationData) {
         boolean ret = false;
 
+        /* Add readers for the stream files written since the last seek */
+        if (fTrace.isLiveReading()) {
+            try {
+                update();
+            } catch (CTFReaderException e) {
+                Activator.getDefault().logError(e.getMessage(), e);
+                return false;
+            }
+        }
+
         /* Avoid the cost of seeking at the current location. */
         if (fCurLocation.getLocationInfo().equals(ctfLocationData)) {
             return super.hasMoreEvents();
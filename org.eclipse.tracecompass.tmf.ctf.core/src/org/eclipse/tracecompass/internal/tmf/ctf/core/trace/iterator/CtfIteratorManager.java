@@ -8,18 +8,20 @@
  *
  * Contributors:
  *   Alexandre Montplaisir - Renamed/extracted from CtfTraceManager
+ *   agent - LRU eviction and reuse of the released iterators
  *******************************************************************************/
 
 package org.eclipse.tracecompass.internal.tmf.ctf.core.trace.iterator;
 
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.Map;
-import java.util.Random;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+import org.eclipse.tracecompass.tmf.ctf.core.context.CtfLocation;
 import org.eclipse.tracecompass.tmf.ctf.core.context.CtfLocationInfo;
 import org.eclipse.tracecompass.tmf.ctf.core.context.CtfTmfContext;
 import org.eclipse.tracecompass.tmf.ctf.core.trace.CtfTmfTrace;
@@ -31,29 +33,62 @@ import org.eclipse.tracecompass.tmf.ctf.core.trace.CtfTmfTrace;
  * manage the iterators that are opened to read that trace. This will allow
  * controlling the number of opened file handles per trace.
  *
+ * An iterator holds a reader, with its file handle and its current packet,
+ * for each stream of the trace, so creating one is expensive for traces with
+ * many streams. The manager therefore keeps a pool of iterators:
+ * <ul>
+ * <li>The iterator of a disposed context is kept idle, instead of being
+ * closed, and given to the next context that needs an iterator. The idle
+ * iterator closest to the location of that context is chosen, so the readers
+ * of the streams often only have to read forward in their current
+ * packet.</li>
+ * <li>When the pool is full, the iterator of the least recently used context
+ * is taken from it. That context will get an iterator again, at its own
+ * location, the next time it is used.</li>
+ * </ul>
+ *
+ * A context that is being read is pinned, so that its iterator is not taken by
+ * a context read by another thread in the middle of that read. If all the
+ * iterators are pinned, an iterator is created over the maximum size, and
+ * closed once its context is disposed.
+ *
  * @author Matthew Khouzam
  */
 public class CtfIteratorManager {
+
     /*
      * Cache size. Under 1023 on linux32 systems. Number of file handles
      * created.
      */
     private static final int MAX_SIZE = 100;
 
-    /** The map of the cache */
-    private final Map<CtfTmfContext, CtfIterator> fMap;
+    /** Default number of iterators kept idle for reuse */
+    private static final int MAX_IDLE = 16;
+
+    /** The iterators of the contexts, in least recently used order */
+    private final LinkedHashMap<CtfTmfContext, CtfIterator> fMap;
 
-    /** An array pointing to the same cache. this allows fast "random" accesses */
-    private final List<CtfTmfContext> fRandomAccess;
+    /** The iterators of the disposed contexts, oldest first */
+    private final LinkedList<CtfIterator> fIdle = new LinkedList<>();
 
-    /** Lock for when we access the two previous data structures */
+    /** The number of pins of each pinned context */
+    private final Map<CtfTmfContext, Integer> fPinned = new HashMap<>();
+
+    /** Lock for when we access the three previous data structures */
     private final Lock fAccessLock = new ReentrantLock();
 
     /** The parent trace */
     private final CtfTmfTrace fTrace;
 
-    /** Random number generator */
-    private final Random fRnd;
+    private final int fMaxSize;
+    private final int fMaxIdle;
+
+    /* Counters, guarded by fAccessLock */
+    private long fNbHits = 0;
+    private long fNbMisses = 0;
+    private long fNbReused = 0;
+    private long fNbCreated = 0;
+    private long fNbEvicted = 0;
 
     /**
      * Constructor
@@ -62,65 +97,91 @@ public class CtfIteratorManager {
      *            The trace whose iterators this manager will manage
      */
     public CtfIteratorManager(CtfTmfTrace trace) {
-        fMap = new HashMap<>();
-        fRandomAccess = new ArrayList<>();
-        fRnd = new Random(System.nanoTime());
+        this(trace, MAX_SIZE, MAX_IDLE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param trace
+     *            The trace whose iterators this manager will manage
+     * @param maxSize
+     *            The maximum number of iterators, used or idle, opened at the
+     *            same time
+     * @param maxIdle
+     *            The maximum number of idle iterators kept for reuse
+     */
+    public CtfIteratorManager(CtfTmfTrace trace, int maxSize, int maxIdle) {
+        if (maxSize < 1 || maxIdle < 0) {
+            throw new IllegalArgumentException();
+        }
+        fMap = new LinkedHashMap<>(16, 0.75f, true);
         fTrace = trace;
+        fMaxSize = maxSize;
+        fMaxIdle = Math.min(maxIdle, maxSize);
     }
 
     /**
-     * This needs explaining: the iterator table is effectively a cache.
-     * Originally the contexts had a 1 to 1 structure with the file handles of a
-     * trace. This failed since there is a limit to how many file handles we can
-     * have opened simultaneously. Then a round-robin scheme was implemented,
-     * this lead up to a two competing contexts syncing up and using the same
-     * file handler, causing horrible slowdowns. Now a random replacement
-     * algorithm is selected. This is the same as used by arm processors, and it
-     * works quite well when many cores so this looks promising for very
-     * multi-threaded systems.
+     * Get the iterator of a context. If the context has no iterator, it gets
+     * an idle one, a new one or the one of the least recently used context,
+     * in that order, positioned at the location of the context.
      *
      * @param context
      *            the context to look up
      * @return the iterator referring to the context
      */
     public CtfIterator getIterator(final CtfTmfContext context) {
-        /*
-         * if the element is in the map, we don't need to do anything else.
-         */
-        CtfIterator iter = fMap.get(context);
-        if (iter == null) {
-
-            fAccessLock.lock();
-            try {
-                /*
-                 * Assign an iterator to a context.
-                 */
-                if (fRandomAccess.size() < MAX_SIZE) {
-                    /*
-                     * if we're not full yet, just add an element.
-                     */
-                    iter = (CtfIterator) fTrace.createIterator();
-                    addElement(context, iter);
+        fAccessLock.lock();
+        try {
+            CtfIterator iter = fMap.get(context);
+            if (iter != null) {
+                fNbHits++;
+                return iter;
+            }
+            fNbMisses++;
 
+            final CtfLocation location = (CtfLocation) context.getLocation();
+            final CtfLocationInfo target = (location == null) ? null : location.getLocationInfo();
+            boolean isNew = false;
+            iter = takeIdle(target);
+            if (iter != null) {
+                fNbReused++;
+            } else if (fMap.size() + fIdle.size() < fMaxSize) {
+                iter = (CtfIterator) fTrace.createIterator();
+                isNew = true;
+                fNbCreated++;
+            } else {
+                iter = evictEldest();
+                if (iter != null) {
+                    fNbEvicted++;
                 } else {
-                    /*
-                     * if we're full, randomly replace an element
-                     */
-                    iter = replaceRandomElement(context);
-                }
-                if (context.getLocation() != null) {
-                    final CtfLocationInfo location = (CtfLocationInfo) context.getLocation().getLocationInfo();
-                    iter.seek(location);
+                    /* All the iterators are being read, go over the size */
+                    iter = (CtfIterator) fTrace.createIterator();
+                    isNew = true;
+                    fNbCreated++;
                 }
-            } finally {
-                fAccessLock.unlock();
             }
+            fMap.put(context, iter);
+            if (!isNew) {
+                /* The setting may have changed since the iterator was created */
+                iter.setDecodeAhead(fTrace.isDecodeAhead());
+            }
+
+            if (target != null) {
+                iter.seek(target);
+            } else if (!isNew) {
+                /* A reused iterator must start at the first event, like a new one */
+                iter.seek(0L);
+            }
+            return iter;
+        } finally {
+            fAccessLock.unlock();
         }
-        return iter;
     }
 
     /**
-     * Remove an iterator from this manager
+     * Remove an iterator from this manager. It is kept idle, to be reused by
+     * another context, or closed if enough iterators are idle already.
      *
      * @param context
      *            The context of the iterator to remove
@@ -128,63 +189,220 @@ public class CtfIteratorManager {
     public void removeIterator(CtfTmfContext context) {
         fAccessLock.lock();
         try {
-            /* The try below is only to auto-call CtfIterator.close() */
-            try (CtfIterator removed = fMap.remove(context)) {
-                // try with resource
+            CtfIterator removed = fMap.remove(context);
+            if (removed == null) {
+                return;
+            }
+            if (fMaxIdle == 0 || fMap.size() + fIdle.size() >= fMaxSize) {
+                removed.dispose();
+                return;
             }
-            fRandomAccess.remove(context);
+            if (fIdle.size() >= fMaxIdle) {
+                fIdle.removeFirst().dispose();
+            }
+            fIdle.addLast(removed);
+        } finally {
+            fAccessLock.unlock();
+        }
+    }
 
+    /**
+     * Pin the iterator of a context, so that it is not given to another
+     * context until it is unpinned. A context can be pinned several times, it
+     * must then be unpinned as many times.
+     *
+     * @param context
+     *            The context being read
+     */
+    public void pin(CtfTmfContext context) {
+        fAccessLock.lock();
+        try {
+            Integer count = fPinned.get(context);
+            fPinned.put(context, (count == null) ? 1 : count + 1);
         } finally {
             fAccessLock.unlock();
         }
     }
 
     /**
-     * Add a pair of context and element to the hashmap and the arraylist.
+     * Unpin the iterator of a context that was pinned with
+     * {@link #pin(CtfTmfContext)}
      *
      * @param context
-     *            the context
-     * @param elem
-     *            the iterator
+     *            The context that is not being read anymore
+     */
+    public void unpin(CtfTmfContext context) {
+        fAccessLock.lock();
+        try {
+            Integer count = fPinned.get(context);
+            if (count == null || count <= 1) {
+                fPinned.remove(context);
+            } else {
+                fPinned.put(context, count - 1);
+            }
+        } finally {
+            fAccessLock.unlock();
+        }
+    }
+
+    /**
+     * Take the idle iterator that can seek to a location the fastest: the
+     * closest one before the location, so it only reads forward, otherwise
+     * the closest one after it.
+     *
+     * @param target
+     *            The location to seek to, or null for the start of the trace
+     * @return The idle iterator, or null if there is none
+     */
+    private CtfIterator takeIdle(CtfLocationInfo target) {
+        if (fIdle.isEmpty()) {
+            return null;
+        }
+        long targetTs = (target == null) ? 0 : target.getTimestamp();
+        CtfIterator before = null;
+        long beforeDistance = Long.MAX_VALUE;
+        CtfIterator after = null;
+        long afterDistance = Long.MAX_VALUE;
+        for (CtfIterator iter : fIdle) {
+            long ts = iter.getLocation().getLocationInfo().getTimestamp();
+            if (ts < 0) {
+                /* At the end of the trace, it must seek from scratch */
+                continue;
+            }
+            if (ts <= targetTs && targetTs - ts < beforeDistance) {
+                before = iter;
+                beforeDistance = targetTs - ts;
+            } else if (ts > targetTs && ts - targetTs < afterDistance) {
+                after = iter;
+                afterDistance = ts - targetTs;
+            }
+        }
+        CtfIterator best = (before != null) ? before : after;
+        if (best == null) {
+            /* Reuse the most recently released one */
+            best = fIdle.getLast();
+        }
+        fIdle.remove(best);
+        return best;
+    }
+
+    /**
+     * Take the iterator of the least recently used context that is not pinned
+     *
+     * @return the iterator of the evicted context, or null if all the
+     *         contexts are pinned
+     */
+    private CtfIterator evictEldest() {
+        Iterator<Map.Entry<CtfTmfContext, CtfIterator>> it = fMap.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<CtfTmfContext, CtfIterator> entry = it.next();
+            if (!fPinned.containsKey(entry.getKey())) {
+                it.remove();
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    // ------------------------------------------------------------------------
+    // Statistics
+    // ------------------------------------------------------------------------
+
+    /**
+     * Get the number of times a context already had its iterator
+     *
+     * @return The number of hits
+     */
+    public long getNbHits() {
+        fAccessLock.lock();
+        try {
+            return fNbHits;
+        } finally {
+            fAccessLock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of times a context had to get an iterator
+     *
+     * @return The number of misses
      */
-    private void addElement(final CtfTmfContext context,
-            final CtfIterator elem) {
+    public long getNbMisses() {
         fAccessLock.lock();
         try {
-            fMap.put(context, elem);
-            fRandomAccess.add(context);
+            return fNbMisses;
+        } finally {
+            fAccessLock.unlock();
+        }
+    }
 
+    /**
+     * Get the number of misses served by an idle iterator
+     *
+     * @return The number of reused iterators
+     */
+    public long getNbReused() {
+        fAccessLock.lock();
+        try {
+            return fNbReused;
         } finally {
             fAccessLock.unlock();
         }
     }
 
     /**
-     * Replace a random element
+     * Get the number of iterators that were created
      *
-     * @param context
-     *            the context to swap in
-     * @return the iterator of the removed elements.
-     */
-    private CtfIterator replaceRandomElement(final CtfTmfContext context) {
-        /*
-         * This needs some explanation too: We need to select a random victim
-         * and remove it. The order of the elements is not important, so instead
-         * of just calling arraylist.remove(element) which has an O(n)
-         * complexity, we pick an random number. The element is swapped out of
-         * the array and removed and replaced in the hashmap.
-         */
-        fAccessLock.lock(); // just in case, should only be called when already locked
+     * @return The number of created iterators
+     */
+    public long getNbCreated() {
+        fAccessLock.lock();
+        try {
+            return fNbCreated;
+        } finally {
+            fAccessLock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of iterators taken from a context that was still in use
+     *
+     * @return The number of evicted iterators
+     */
+    public long getNbEvicted() {
+        fAccessLock.lock();
+        try {
+            return fNbEvicted;
+        } finally {
+            fAccessLock.unlock();
+        }
+    }
+
+    /**
+     * Get the ratio of the lookups for which the context already had its
+     * iterator
+     *
+     * @return The hit rate, between 0 and 1
+     */
+    public double getHitRate() {
+        fAccessLock.lock();
         try {
-            final int size = fRandomAccess.size();
-            final int pos = fRnd.nextInt(size);
-            final CtfTmfContext victim = fRandomAccess.get(pos);
-            fRandomAccess.set(pos, context);
-            final CtfIterator elem = fMap.remove(victim);
-            fMap.put(context, elem);
-            victim.dispose();
-            return elem;
+            long total = fNbHits + fNbMisses;
+            return (total == 0) ? 0 : (double) fNbHits / total;
+        } finally {
+            fAccessLock.unlock();
+        }
+    }
 
+    /**
+     * Get the number of iterators kept idle for reuse
+     *
+     * @return The number of idle iterators
+     */
+    public int getNbIdle() {
+        fAccessLock.lock();
+        try {
+            return fIdle.size();
         } finally {
             fAccessLock.unlock();
         }
@@ -200,11 +418,15 @@ public class CtfIteratorManager {
             for (CtfIterator iterator : fMap.values()) {
                 iterator.dispose();
             }
+            for (CtfIterator iterator : fIdle) {
+                iterator.dispose();
+            }
             fMap.clear();
-            fRandomAccess.clear();
+            fIdle.clear();
+            fPinned.clear();
 
         } finally {
             fAccessLock.unlock();
         }
     }
-}
\ No newline at end of file
+}
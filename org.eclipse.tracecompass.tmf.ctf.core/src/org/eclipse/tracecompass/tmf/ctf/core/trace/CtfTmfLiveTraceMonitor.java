@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2026 agent
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   agent - Initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.ctf.core.trace;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.tracecompass.ctf.core.trace.CTFTrace;
+import org.eclipse.tracecompass.ctf.core.trace.CTFTraceWatcher;
+import org.eclipse.tracecompass.tmf.core.signal.TmfTraceRangeUpdatedSignal;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfNanoTimestamp;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
+
+/**
+ * Follows a CTF trace that is being written to a local directory, and
+ * broadcasts the new range of the trace as its packets are written. The trace
+ * then indexes the new events, and the analyses and views read them with
+ * their own requests, at their own pace.
+ *
+ * The range updates are throttled, so that a trace written faster than it
+ * can be read does not queue up signals, each update covers all the packets
+ * written since the previous one.
+ *
+ * @author agent
+ */
+class CtfTmfLiveTraceMonitor {
+
+    private static final long SIGNAL_THROTTLE_NANOSEC = 100_000_000L;
+    private static final long WAIT_INTERVAL_MS = 500;
+
+    private final CtfTmfTrace fTrace;
+    private final CTFTraceWatcher fWatcher;
+    private final Job fJob;
+
+    /**
+     * Constructor
+     *
+     * @param trace
+     *            The trace to update
+     * @param watcher
+     *            The watcher of the trace directory
+     */
+    public CtfTmfLiveTraceMonitor(CtfTmfTrace trace, CTFTraceWatcher watcher) {
+        fTrace = trace;
+        fWatcher = watcher;
+        fJob = new Job("CTF live trace monitor") { //$NON-NLS-1$
+            @Override
+            protected IStatus run(IProgressMonitor monitor) {
+                return follow(monitor);
+            }
+        };
+        fJob.setSystem(true);
+    }
+
+    /**
+     * Start following the trace
+     */
+    public void start() {
+        fJob.schedule();
+    }
+
+    /**
+     * Stop following the trace, and stop watching its directory
+     */
+    public void dispose() {
+        fJob.cancel();
+        fWatcher.close();
+        try {
+            fJob.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private IStatus follow(IProgressMonitor monitor) {
+        CTFTrace ctfTrace = fWatcher.getTrace();
+        long generation = fWatcher.getGeneration();
+        long lastSignal = 0;
+        long end = Long.MIN_VALUE;
+        boolean pending = false;
+        try {
+            while (!monitor.isCanceled()) {
+                long next = fWatcher.awaitChange(generation, WAIT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (next != generation) {
+                    generation = next;
+                    long newEnd;
+                    synchronized (ctfTrace) {
+                        newEnd = ctfTrace.getCurrentEndTime();
+                    }
+                    if (newEnd > end) {
+                        end = newEnd;
+                        pending = true;
+                    }
+                }
+                long currentTime = System.nanoTime();
+                if (pending && currentTime - lastSignal > SIGNAL_THROTTLE_NANOSEC) {
+                    TmfTimeRange range = new TmfTimeRange(fTrace.getStartTime(), new TmfNanoTimestamp(end));
+                    fTrace.broadcastAsync(new TmfTraceRangeUpdatedSignal(this, fTrace, range));
+                    lastSignal = currentTime;
+                    pending = false;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return Status.OK_STATUS;
+    }
+}
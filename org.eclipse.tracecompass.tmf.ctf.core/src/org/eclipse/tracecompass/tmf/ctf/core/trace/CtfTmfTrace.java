@@ -16,6 +16,7 @@ package org.eclipse.tracecompass.tmf.ctf.core.trace;
 
 import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
 
+import java.io.File;
 import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
@@ -39,6 +40,7 @@ import org.eclipse.tracecompass.ctf.core.event.CTFClock;
 import org.eclipse.tracecompass.ctf.core.event.IEventDeclaration;
 import org.eclipse.tracecompass.ctf.core.trace.CTFTrace;
 import org.eclipse.tracecompass.ctf.core.trace.CTFTraceReader;
+import org.eclipse.tracecompass.ctf.core.trace.CTFTraceWatcher;
 import org.eclipse.tracecompass.internal.tmf.ctf.core.Activator;
 import org.eclipse.tracecompass.internal.tmf.ctf.core.trace.iterator.CtfIterator;
 import org.eclipse.tracecompass.internal.tmf.ctf.core.trace.iterator.CtfIteratorManager;
@@ -54,6 +56,7 @@ import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTraceProperties;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTraceWithPreDefinedEvents;
 import org.eclipse.tracecompass.tmf.core.trace.TmfTrace;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceManager;
 import org.eclipse.tracecompass.tmf.core.trace.TraceValidationStatus;
 import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfPersistentlyIndexable;
 import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfTraceIndexer;
@@ -112,6 +115,14 @@ public class CtfTmfTrace extends TmfTrace
     private static final String CLOCK_HOST_PROPERTY = "uuid"; //$NON-NLS-1$
     private static final int CONFIDENCE = 10;
 
+    /**
+     * System property enabling the decoding of the streams ahead by default,
+     * see {@link #setDecodeAhead(boolean)}
+     *
+     * @since 1.0
+     */
+    public static final String DECODE_AHEAD_PROPERTY = "org.eclipse.tracecompass.tmf.ctf.core.decodeAhead"; //$NON-NLS-1$
+
     // -------------------------------------------
     // Fields
     // -------------------------------------------
@@ -125,6 +136,12 @@ public class CtfTmfTrace extends TmfTrace
     /* Reference to the CTF Trace */
     private CTFTrace fTrace;
 
+    /* Follows the trace directory while it is being written, if live */
+    private volatile @Nullable CtfTmfLiveTraceMonitor fLiveMonitor;
+
+    /* If the iterators decode the streams ahead, on worker threads */
+    private volatile boolean fDecodeAhead = Boolean.getBoolean(DECODE_AHEAD_PROPERTY);
+
     // -------------------------------------------
     // TmfTrace Overrides
     // -------------------------------------------
@@ -152,7 +169,13 @@ public class CtfTmfTrace extends TmfTrace
         super.initTrace(resource, path, eventType);
 
         try {
-            this.fTrace = new CTFTrace(path);
+            /*
+             * Reuse the parsed metadata and the packet index of a previous
+             * session
+             */
+            File supplementaryDirectory = new File(TmfTraceManager.getSupplementaryFileDir(this));
+            this.fTrace = new CTFTrace(new File(path), supplementaryDirectory);
+            fTrace.indexPackets(supplementaryDirectory);
             CtfTmfContext ctx;
             /* Set the start and (current) end times for this trace */
             ctx = (CtfTmfContext) seekEvent(0L);
@@ -169,26 +192,27 @@ public class CtfTmfTrace extends TmfTrace
              * Register every event type. When you call getType, it will
              * register a trace to that type in the TmfEventTypeManager
              */
-            try (CtfIterator iter = fIteratorManager.getIterator(ctx)) {
-                for (IEventDeclaration ied : iter.getEventDeclarations()) {
-                    CtfTmfEventType ctfTmfEventType = fContainedEventTypes.get(ied.getName());
-                    if (ctfTmfEventType == null) {
-                        List<ITmfEventField> content = new ArrayList<>();
-                        /* Should only return null the first time */
-                        for (String fieldName : ied.getFields().getFieldsList()) {
-                            content.add(new TmfEventField(fieldName, null, null));
-                        }
-                        ITmfEventField contentTree = new TmfEventField(
-                                ITmfEventField.ROOT_FIELD_ID,
-                                null,
-                                content.toArray(new ITmfEventField[content.size()])
-                                );
-
-                        ctfTmfEventType = new CtfTmfEventType(ied.getName(), contentTree);
-                        fContainedEventTypes.put(ctfTmfEventType.getName(), ctfTmfEventType);
+            CtfIterator iter = fIteratorManager.getIterator(ctx);
+            for (IEventDeclaration ied : iter.getEventDeclarations()) {
+                CtfTmfEventType ctfTmfEventType = fContainedEventTypes.get(ied.getName());
+                if (ctfTmfEventType == null) {
+                    List<ITmfEventField> content = new ArrayList<>();
+                    /* Should only return null the first time */
+                    for (String fieldName : ied.getFields().getFieldsList()) {
+                        content.add(new TmfEventField(fieldName, null, null));
                     }
+                    ITmfEventField contentTree = new TmfEventField(
+                            ITmfEventField.ROOT_FIELD_ID,
+                            null,
+                            content.toArray(new ITmfEventField[content.size()])
+                            );
+
+                    ctfTmfEventType = new CtfTmfEventType(ied.getName(), contentTree);
+                    fContainedEventTypes.put(ctfTmfEventType.getName(), ctfTmfEventType);
                 }
             }
+            /* Give the iterator back to the manager, for reuse */
+            ctx.dispose();
         } catch (final CTFReaderException e) {
             /*
              * If it failed at the init(), we can assume it's because the file
@@ -197,6 +221,14 @@ public class CtfTmfTrace extends TmfTrace
              */
             throw new TmfTraceException(e.getMessage(), e);
         }
+
+        /*
+         * The trace of a live session is still being written to its
+         * directory, follow it until the session is destroyed
+         */
+        if (!isComplete()) {
+            startLiveReading();
+        }
     }
 
     @Override
@@ -206,6 +238,7 @@ public class CtfTmfTrace extends TmfTrace
 
     @Override
     public synchronized void dispose() {
+        stopLiveReading();
         fIteratorManager.dispose();
         if (fTrace != null) {
             fTrace = null;
@@ -302,10 +335,15 @@ public class CtfTmfTrace extends TmfTrace
         if (currentLocation.getLocationInfo() == CtfLocation.INVALID_LOCATION) {
             currentLocation = new CtfLocation(fTrace.getCurrentEndTime() + 1, 0L);
         }
-        context.setLocation(currentLocation);
-        if (location == null) {
-            long timestamp = fIteratorManager.getIterator(context).getCurrentTimestamp();
-            currentLocation = new CtfLocation(timestamp, 0);
+        fIteratorManager.pin(context);
+        try {
+            context.setLocation(currentLocation);
+            if (location == null) {
+                long timestamp = fIteratorManager.getIterator(context).getCurrentTimestamp();
+                currentLocation = new CtfLocation(timestamp, 0);
+            }
+        } finally {
+            fIteratorManager.unpin(context);
         }
         if (context.getRank() != 0) {
             context.setRank(ITmfContext.UNKNOWN_RANK);
@@ -333,13 +371,18 @@ public class CtfTmfTrace extends TmfTrace
     /**
      * Method readNextEvent.
      *
+     * Each context reads the trace with its own iterator, so this does not
+     * lock the trace, and several contexts can be read at once. The iterator
+     * of the context is pinned while the event is read and the context
+     * advanced, so that another context does not take it in the meantime.
+     *
      * @param context
      *            ITmfContext
      * @return CtfTmfEvent
      * @see org.eclipse.tracecompass.tmf.core.trace.ITmfTrace#getNext(ITmfContext)
      */
     @Override
-    public synchronized CtfTmfEvent getNext(final ITmfContext context) {
+    public CtfTmfEvent getNext(final ITmfContext context) {
         if (fTrace == null) {
             return null;
         }
@@ -349,18 +392,28 @@ public class CtfTmfTrace extends TmfTrace
                 return null;
             }
             CtfTmfContext ctfContext = (CtfTmfContext) context;
-            event = ctfContext.getCurrentEvent();
-
-            if (event != null) {
-                updateAttributes(context, event.getTimestamp());
-                ctfContext.advance();
-                ctfContext.increaseRank();
+            fIteratorManager.pin(ctfContext);
+            try {
+                event = ctfContext.getCurrentEvent();
+
+                if (event != null) {
+                    updateAttributes(context, event.getTimestamp());
+                    ctfContext.advance();
+                    ctfContext.increaseRank();
+                }
+            } finally {
+                fIteratorManager.unpin(ctfContext);
             }
         }
 
         return event;
     }
 
+    @Override
+    protected boolean isReadConcurrent() {
+        return true;
+    }
+
     /**
      * Ctf traces have a clock with a unique uuid that will be used to identify
      * the host. Traces with the same clock uuid will be known to have been made
@@ -517,6 +570,34 @@ public class CtfTmfTrace extends TmfTrace
         setCacheSize(DEFAULT_CACHE_SIZE);
     }
 
+    /**
+     * Set the iterators of this trace to decode the events of each stream
+     * ahead, on worker threads, while the previous events are being read.
+     * This speeds up reading through the trace on multi-core machines, at the
+     * cost of decoding events that are dropped when seeking. It applies to
+     * the iterators given to the contexts from now on.
+     *
+     * The default is taken from the {@link #DECODE_AHEAD_PROPERTY} system
+     * property, and is off if it is not set.
+     *
+     * @param decodeAhead
+     *            whether the streams are decoded ahead or not
+     * @since 1.0
+     */
+    public void setDecodeAhead(boolean decodeAhead) {
+        fDecodeAhead = decodeAhead;
+    }
+
+    /**
+     * Get if the iterators of this trace decode the streams ahead
+     *
+     * @return whether the streams are decoded ahead
+     * @since 1.0
+     */
+    public boolean isDecodeAhead() {
+        return fDecodeAhead;
+    }
+
     // -------------------------------------------
     // CtfIterator factory methods
     // -------------------------------------------
@@ -616,8 +697,61 @@ public class CtfTmfTrace extends TmfTrace
         return new CtfLocation(bufferIn);
     }
 
+    /**
+     * Follow the trace while it is being written to its directory, for example
+     * by an LTTng session running on this host. The new stream files and
+     * packets are added to the trace as they are written, and the range of
+     * the trace is updated so that the new events get indexed and read. This
+     * is started when the trace of a live session is opened, and stopped once
+     * the trace is complete.
+     *
+     * @throws TmfTraceException
+     *             If the trace directory cannot be watched
+     * @since 1.0
+     */
+    public synchronized void startLiveReading() throws TmfTraceException {
+        if (fTrace == null || fLiveMonitor != null) {
+            return;
+        }
+        try {
+            CtfTmfLiveTraceMonitor liveMonitor = new CtfTmfLiveTraceMonitor(this, new CTFTraceWatcher(fTrace));
+            fLiveMonitor = liveMonitor;
+            liveMonitor.start();
+        } catch (CTFReaderException e) {
+            throw new TmfTraceException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Stop following the trace directory, once the trace is not being written
+     * anymore or does not need to be updated.
+     *
+     * @since 1.0
+     */
+    public synchronized void stopLiveReading() {
+        CtfTmfLiveTraceMonitor liveMonitor = fLiveMonitor;
+        if (liveMonitor != null) {
+            liveMonitor.dispose();
+            fLiveMonitor = null;
+        }
+    }
+
+    /**
+     * Get if the trace directory is followed while the trace is being
+     * written
+     *
+     * @return true if the trace is read live
+     * @since 1.0
+     */
+    public boolean isLiveReading() {
+        return fLiveMonitor != null;
+    }
+
     @Override
     public boolean isComplete() {
+        if (fLiveMonitor != null) {
+            return false;
+        }
         if (getResource() == null) {
             return true;
         }
@@ -641,6 +775,9 @@ public class CtfTmfTrace extends TmfTrace
     @Override
     public void setComplete(final boolean isComplete) {
         super.setComplete(isComplete);
+        if (isComplete) {
+            stopLiveReading();
+        }
         try {
             if (isComplete) {
                 getResource().setPersistentProperty(CtfConstants.LIVE_HOST, null);